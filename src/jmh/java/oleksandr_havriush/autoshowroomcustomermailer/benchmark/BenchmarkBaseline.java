@@ -0,0 +1,160 @@
+package oleksandr_havriush.autoshowroomcustomermailer.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Scores of a benchmark run, stored as the baseline later runs are compared against.
+ * Every benchmark and parameter combination keeps its primary score and the bytes it allocated per operation,
+ * as reported by the GC profiler.
+ */
+public final class BenchmarkBaseline {
+
+    private static final String PACKAGE_PREFIX = "oleksandr_havriush.autoshowroomcustomermailer.";
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    private static final double ALLOCATION_SLACK_BYTES = 64;
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, Score> scores;
+
+    private BenchmarkBaseline(Map<String, Score> scores) {
+        this.scores = new TreeMap<>(scores);
+    }
+
+    /**
+     * Collects the scores of a finished run.
+     *
+     * @param results the results of the run
+     * @return the scores of the run
+     */
+    public static BenchmarkBaseline of(Collection<RunResult> results) {
+        Map<String, Score> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            Result<?> primary = result.getPrimaryResult();
+            Double allocatedBytes = result.getSecondaryResults().entrySet().stream()
+                    .filter(secondary -> secondary.getKey().endsWith(ALLOCATION_METRIC))
+                    .map(secondary -> secondary.getValue().getScore())
+                    .findFirst()
+                    .orElse(null);
+            scores.put(keyOf(result.getParams()),
+                    new Score(result.getParams().getMode(), primary.getScore(), primary.getScoreUnit(), allocatedBytes));
+        }
+        return new BenchmarkBaseline(scores);
+    }
+
+    /**
+     * Reads a stored baseline.
+     *
+     * @param file the baseline file
+     * @return the stored scores
+     * @throws IOException if the file cannot be read
+     */
+    public static BenchmarkBaseline read(Path file) throws IOException {
+        return new BenchmarkBaseline(MAPPER.readValue(file.toFile(), new TypeReference<Map<String, Score>>() {
+        }));
+    }
+
+    /**
+     * Stores the scores as baseline, replacing the scores of the same benchmarks in an existing baseline file.
+     * Scores of benchmarks that were not part of this run are kept.
+     *
+     * @param file the baseline file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Map<String, Score> merged = new TreeMap<>();
+        if (Files.exists(file)) {
+            merged.putAll(read(file).scores);
+        }
+        merged.putAll(scores);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        MAPPER.writeValue(file.toFile(), merged);
+    }
+
+    /**
+     * Compares the scores of a run against this baseline.
+     * A score regresses when it is worse than its baseline by more than the tolerance: lower for throughput,
+     * higher for time per operation and for the bytes allocated per operation.
+     *
+     * @param current   the scores of the run
+     * @param tolerance the accepted relative deviation, e.g. {@code 0.10} for ten percent
+     * @return a description of every regressed score, empty if there is none
+     */
+    public List<String> regressionsOf(BenchmarkBaseline current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        current.scores.forEach((key, score) -> {
+            Score baseline = scores.get(key);
+            if (baseline == null || baseline.mode() != score.mode()) {
+                return;
+            }
+            boolean higherIsBetter = score.mode() == Mode.Throughput;
+            double change = (score.score() - baseline.score()) / baseline.score();
+            if (higherIsBetter ? change < -tolerance : change > tolerance) {
+                regressions.add(String.format("%s: %.3f %s against baseline %.3f %s (%+.1f%%)",
+                        key, score.score(), score.unit(), baseline.score(), baseline.unit(), change * 100));
+            }
+            if (score.allocatedBytesPerOp() != null && baseline.allocatedBytesPerOp() != null
+                    && score.allocatedBytesPerOp() > baseline.allocatedBytesPerOp() * (1 + tolerance) + ALLOCATION_SLACK_BYTES) {
+                regressions.add(String.format("%s: %.0f B/op allocated against baseline %.0f B/op",
+                        key, score.allocatedBytesPerOp(), baseline.allocatedBytesPerOp()));
+            }
+        });
+        return regressions;
+    }
+
+    /**
+     * Returns the benchmarks of a run that have no score in this baseline.
+     *
+     * @param current the scores of the run
+     * @return the keys of the benchmarks without baseline
+     */
+    public List<String> missingFrom(BenchmarkBaseline current) {
+        return current.scores.keySet().stream().filter(key -> !scores.containsKey(key)).toList();
+    }
+
+    /**
+     * Builds the key of a benchmark and parameter combination, e.g. {@code util.XmlToCarListConverterBenchmark.streamed[feedCars=1000]}.
+     *
+     * @param params the parameters of the benchmark run
+     * @return the key of the benchmark
+     */
+    private static String keyOf(BenchmarkParams params) {
+        String benchmark = params.getBenchmark().startsWith(PACKAGE_PREFIX)
+                ? params.getBenchmark().substring(PACKAGE_PREFIX.length())
+                : params.getBenchmark();
+        if (params.getParamsKeys().isEmpty()) {
+            return benchmark;
+        }
+        StringJoiner parameters = new StringJoiner(",", "[", "]");
+        params.getParamsKeys().stream().sorted().forEach(name -> parameters.add(name + "=" + params.getParam(name)));
+        return benchmark + parameters;
+    }
+
+    /**
+     * Score of one benchmark and parameter combination.
+     *
+     * @param mode                the benchmark mode the score was measured in
+     * @param score               the primary score
+     * @param unit                the unit of the primary score
+     * @param allocatedBytesPerOp the bytes allocated per operation, or null if the GC profiler was not enabled
+     */
+    public record Score(Mode mode, double score, String unit, Double allocatedBytesPerOp) {
+    }
+}
@@ -0,0 +1,80 @@
+package oleksandr_havriush.autoshowroomcustomermailer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks of the {@code benchmark} Maven profile and compares their scores against the stored baseline.
+ * Arguments are standard JMH command line options, e.g. {@code -wi 1 -i 3 PdfReportGenerator}; the GC profiler is always
+ * enabled so the bytes allocated per operation are compared as well.
+ * <p>
+ * Scores worse than their baseline by more than {@code jmh.tolerance} are reported. Absolute scores only compare
+ * on the machine that recorded the baseline, so the run only fails on them, with exit code 1, when the gate is
+ * switched on with {@code -Djmh.gate=true}, e.g. on a dedicated benchmark machine.
+ * With {@code -Djmh.update-baseline=true} the scores of the run are stored as the new baseline instead.
+ * The full JMH result is written to {@code jmh.result}.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path baselineFile = Paths.get(System.getProperty("jmh.baseline", "src/jmh/baseline/jmh-baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("jmh.tolerance", "0.10"));
+        boolean updateBaseline = Boolean.parseBoolean(System.getProperty("jmh.update-baseline", "false"));
+        boolean gate = Boolean.parseBoolean(System.getProperty("jmh.gate", "false"));
+        String resultFile = System.getProperty("jmh.result", "target/jmh-result.json");
+
+        CommandLineOptions commandLineOptions;
+        try {
+            commandLineOptions = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Invalid JMH options: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build()).run();
+        BenchmarkBaseline current = BenchmarkBaseline.of(results);
+
+        if (updateBaseline) {
+            current.write(baselineFile);
+            System.out.println("Baseline " + baselineFile + " updated with " + results.size() + " benchmarks.");
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile + "; run with -Djmh.update-baseline=true to store one.");
+            return;
+        }
+
+        BenchmarkBaseline baseline = BenchmarkBaseline.read(baselineFile);
+        baseline.missingFrom(current).forEach(key -> System.out.println("No baseline for " + key));
+        List<String> regressions = baseline.regressionsOf(current, tolerance);
+        if (regressions.isEmpty()) {
+            System.out.printf("All benchmarks within %.0f%% of baseline %s.%n", tolerance * 100, baselineFile);
+            return;
+        }
+        System.err.printf("%d benchmark scores regressed by more than %.0f%%:%n", regressions.size(), tolerance * 100);
+        regressions.forEach(regression -> System.err.println("  " + regression));
+        if (gate) {
+            System.exit(1);
+        }
+        System.err.println("Not failing the run; pass -Djmh.gate=true to fail on regressions.");
+    }
+}
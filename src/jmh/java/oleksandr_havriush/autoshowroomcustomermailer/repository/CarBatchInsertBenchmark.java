@@ -0,0 +1,119 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark measuring the rows per second of importing 100k cars, comparing single-row inserts as issued
+ * by Hibernate for IDENTITY IDs with the batches of {@link CarBatchRepositoryImpl}. The score is reported in cars per second.
+ * <p>
+ * Both variants run in one transaction per import, as the import service does; without it every statement of the
+ * single-row inserts and every batch would be committed on its own.
+ * By default it runs against an in-memory H2 database, which has no network round trips and executes the statements
+ * of a batch one by one, so batching shows little difference there; pass {@code -Dbenchmark.jdbc.url}, {@code -Dbenchmark.jdbc.username} and {@code -Dbenchmark.jdbc.password}
+ * to measure against MySQL (with {@code rewriteBatchedStatements=true}). The tables are emptied after every invocation.
+ * Run it with {@code mvn -Pbenchmark verify}, see {@link oleksandr_havriush.autoshowroomcustomermailer.benchmark.BenchmarkRunner},
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CarBatchInsertBenchmark {
+    private static final int CARS = 100_000;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CarBatchRepositoryImpl carBatchRepository;
+    private List<Car> cars;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.username", ""),
+                System.getProperty("benchmark.jdbc.password", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS vehicle (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), manufacturer VARCHAR(255), price DOUBLE)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car (id BIGINT PRIMARY KEY REFERENCES vehicle (id), type VARCHAR(255), power INT)");
+        carBatchRepository = new CarBatchRepositoryImpl(jdbcTemplate, 500);
+        cars = new ArrayList<>(CARS);
+        for (int i = 0; i < CARS; i++) {
+            cars.add(Car.builder().name("Model " + i).manufacturer("Skoda").price(20000.0 + i).type("Sedan").power(85).build());
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        jdbcTemplate.execute("DELETE FROM car");
+        jdbcTemplate.execute("DELETE FROM vehicle");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARS)
+    public void singleRowInserts() {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement vehicleStatement = connection.prepareStatement(
+                    "INSERT INTO vehicle (name, manufacturer, price) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement carStatement = connection.prepareStatement("INSERT INTO car (id, type, power) VALUES (?, ?, ?)")) {
+                for (Car car : cars) {
+                    vehicleStatement.setString(1, car.getName());
+                    vehicleStatement.setString(2, car.getManufacturer());
+                    vehicleStatement.setDouble(3, car.getPrice());
+                    vehicleStatement.executeUpdate();
+                    try (ResultSet generatedKeys = vehicleStatement.getGeneratedKeys()) {
+                        generatedKeys.next();
+                        carStatement.setLong(1, generatedKeys.getLong(1));
+                    }
+                    carStatement.setString(2, car.getType());
+                    carStatement.setInt(3, car.getPower());
+                    carStatement.executeUpdate();
+                }
+            }
+            return null;
+        }));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CARS)
+    public void batchInserts() {
+        transactionTemplate.executeWithoutResult(status -> carBatchRepository.insertAll(cars));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CarBatchInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
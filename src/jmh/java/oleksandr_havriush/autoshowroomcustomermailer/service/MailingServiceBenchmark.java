@@ -0,0 +1,141 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingReport;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.testdata.SyntheticDataGenerator;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JMH benchmark measuring the letters per second of a bulk mailing run of 200 generated customers through
+ * {@link MailingService#generateLetters(Iterable)}, with the real {@link PdfGenerationService} writing every letter
+ * to a temporary directory. Letters are rendered from the customers handed to the run, and the car inventory
+ * of 50 cars is loaded once per run; the {@code inventoryLoads} counter shows the inventory queries, which
+ * equal the number of runs. {@code generateLetters} renders and writes every letter, while
+ * {@code keepUnchangedLetters} runs incrementally against the letters of an earlier run, so only the fingerprints are checked.
+ * Run it with {@code mvn -Pbenchmark verify}, see {@link oleksandr_havriush.autoshowroomcustomermailer.benchmark.BenchmarkRunner},
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MailingServiceBenchmark {
+    private static final int LETTERS = 200;
+    private static final int CARS = 50;
+
+    private final AtomicLong inventoryQueries = new AtomicLong();
+    private Path outputDirectory;
+    private List<Customer> customers;
+    private MailingService fullMailing;
+    private MailingService incrementalMailing;
+
+    /**
+     * Counts the inventory queries issued by the runs of an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class InventoryLoads {
+        public long inventoryLoads;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        outputDirectory = Files.createTempDirectory("mailing-benchmark");
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(SyntheticDataGenerator.DEFAULT_SEED);
+        customers = new ArrayList<>(LETTERS);
+        for (long id = 1; id <= LETTERS; id++) {
+            Customer customer = generator.nextCustomer();
+            customer.setId(id);
+            customers.add(customer);
+        }
+        List<Car> cars = new ArrayList<>(CARS);
+        for (long id = 1; id <= CARS; id++) {
+            Car car = generator.nextCar();
+            car.setId(id);
+            cars.add(car);
+        }
+        @SuppressWarnings("unchecked")
+        VehicleService<Car> carService = Mockito.mock(VehicleService.class, Mockito.withSettings().stubOnly());
+        Mockito.when(carService.findAll()).thenAnswer(invocation -> {
+            inventoryQueries.incrementAndGet();
+            return cars;
+        });
+
+        PdfGenerationService fullService = newPdfGenerationService(outputDirectory.resolve("full"), carService);
+        ReflectionTestUtils.setField(fullService, "incremental", false);
+        fullMailing = new MailingService(fullService, 0, 0);
+        incrementalMailing = new MailingService(newPdfGenerationService(outputDirectory.resolve("incremental"), carService), 0, 0);
+        incrementalMailing.generateLetters(customers);
+    }
+
+    private static PdfGenerationService newPdfGenerationService(Path directory, VehicleService<Car> carService) {
+        return new PdfGenerationService(directory.toString(), carService, new CarSelectionPolicy(List.of(), 0),
+                new MailerMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fullMailing.shutdown();
+        incrementalMailing.shutdown();
+        FileSystemUtils.deleteRecursively(outputDirectory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public MailingReport generateLetters(InventoryLoads loads) {
+        return run(fullMailing, loads);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public MailingReport keepUnchangedLetters(InventoryLoads loads) {
+        return run(incrementalMailing, loads);
+    }
+
+    private MailingReport run(MailingService mailingService, InventoryLoads loads) {
+        long before = inventoryQueries.get();
+        MailingReport report = mailingService.generateLetters(customers);
+        loads.inventoryLoads += inventoryQueries.get() - before;
+        if (report.hasFailures()) {
+            // Failed letters are cheap and would inflate the score, e.g. umlauts in file names without a UTF-8 locale
+            throw new IllegalStateException("Mailing run failed: " + report.errorMessages().get(0));
+        }
+        return report;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MailingServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,118 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import com.itextpdf.text.pdf.PdfPTable;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark measuring the letters rendered per second for growing car tables.
+ * It compares building the car table for every letter with {@link PdfReportGenerator#writeCustomerPdfReport(Optional, List, OutputStream)}
+ * against the pre-rendered table of a mailing run, and saving a letter through the in-memory copies of
+ * {@link PdfReportGenerator#createCustomerPdfReport(Optional, CarTableTemplate)} against writing it straight to
+ * a buffered file stream with {@link PdfReportGenerator#writeCustomerPdfReport(Optional, CarTableTemplate, OutputStream)}.
+ * The file is replaced by a discarding stream, so only the rendering and copying are measured.
+ * {@link #tableBuilt()} and {@link #tableCopied()} isolate the car table: building it from the car list against
+ * copying the rows and cells of the pre-rendered table, which is what every letter of a mailing run pays.
+ * The {@code gc.alloc.rate.norm} column shows the bytes allocated per letter.
+ * Run it with {@code mvn -Pbenchmark verify}, see {@link oleksandr_havriush.autoshowroomcustomermailer.benchmark.BenchmarkRunner},
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfReportGeneratorBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int carCount;
+
+    private Optional<Customer> customer;
+    private List<Car> cars;
+    private CarTableTemplate carTable;
+
+    @Setup
+    public void setUp() {
+        Address address = new Address(1L, "New York Avenue", "125A", "Bonn", "47523", "Germany");
+        customer = Optional.of(new Customer(1L, "Mark", "Bensberg", address));
+        cars = new ArrayList<>();
+        for (int i = 1; i <= carCount; i++) {
+            cars.add(Car.builder()
+                    .id((long) i)
+                    .name("Model " + i)
+                    .manufacturer("Skoda")
+                    .price(20000.0 + i)
+                    .type("Sedan")
+                    .power(85)
+                    .build());
+        }
+        carTable = CarTableTemplate.of(cars);
+    }
+
+    @Benchmark
+    public void tablePerLetter() throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(OutputStream.nullOutputStream(), 64 * 1024)) {
+            PdfReportGenerator.writeCustomerPdfReport(customer, cars, outputStream);
+        }
+    }
+
+    @Benchmark
+    public PdfPTable tableBuilt() {
+        return CarTableTemplate.of(cars).newTable();
+    }
+
+    @Benchmark
+    public PdfPTable tableCopied() {
+        return carTable.newTable();
+    }
+
+    @Benchmark
+    public void copiedThroughMemory() throws IOException {
+        ByteArrayInputStream pdfContentStream = PdfReportGenerator.createCustomerPdfReport(customer, carTable);
+        try (OutputStream outputStream = OutputStream.nullOutputStream()) {
+            byte[] buffer = new byte[pdfContentStream.available()];
+            pdfContentStream.read(buffer);
+            outputStream.write(buffer);
+        }
+    }
+
+    @Benchmark
+    public void streamedToFile() throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(OutputStream.nullOutputStream(), 64 * 1024)) {
+            PdfReportGenerator.writeCustomerPdfReport(customer, carTable, outputStream);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PdfReportGeneratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.CarList;
+import oleksandr_havriush.autoshowroomcustomermailer.testdata.SyntheticDataGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark measuring the parse throughput of generated inventory feeds of growing size, see {@link SyntheticDataGenerator}. It compares a JAXB context
+ * created for every call against the cached context of {@link XmlToCarListConverter#convert(String)}
+ * and the chunked streaming import of {@link XmlToCarListConverter#convert(java.io.InputStream, int, java.util.function.Consumer)}.
+ * The primary score is feeds per second; the {@code feedBytes} counter is the parsed feed size in bytes per second,
+ * and {@code gc.alloc.rate.norm} the bytes allocated per feed.
+ * Run it with {@code mvn -Pbenchmark verify}, see {@link oleksandr_havriush.autoshowroomcustomermailer.benchmark.BenchmarkRunner},
+ * or from the IDE via {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlToCarListConverterBenchmark {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"100", "10000", "100000"})
+    private int feedCars;
+
+    private String xml;
+    private byte[] xmlBytes;
+    private XmlToCarListConverter converter;
+
+    /**
+     * Counts the parsed feed bytes, reported by JMH as a rate next to the primary score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ParsedBytes {
+        public long feedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            feedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        ByteArrayOutputStream feed = new ByteArrayOutputStream();
+        new SyntheticDataGenerator(SyntheticDataGenerator.DEFAULT_SEED).writeInventoryXml(feed, feedCars);
+        xmlBytes = feed.toByteArray();
+        xml = new String(xmlBytes, StandardCharsets.UTF_8);
+        converter = new XmlToCarListConverter();
+    }
+
+    @Benchmark
+    public CarList newContextPerCall(ParsedBytes parsed) throws JAXBException {
+        JAXBContext jaxbContext = JAXBContext.newInstance(CarList.class);
+        parsed.feedBytes += xmlBytes.length;
+        return (CarList) jaxbContext.createUnmarshaller().unmarshal(new StringReader(xml));
+    }
+
+    @Benchmark
+    public CarList cachedContext(ParsedBytes parsed) {
+        parsed.feedBytes += xmlBytes.length;
+        return converter.convert(xml);
+    }
+
+    @Benchmark
+    public long streamed(ParsedBytes parsed, Blackhole blackhole) {
+        parsed.feedBytes += xmlBytes.length;
+        return converter.convert(new ByteArrayInputStream(xmlBytes), CHUNK_SIZE, blackhole::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(XmlToCarListConverterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
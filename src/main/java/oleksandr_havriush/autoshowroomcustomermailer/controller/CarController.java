@@ -1,10 +1,13 @@
 package oleksandr_havriush.autoshowroomcustomermailer.controller;
 
 import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.ImportPreview;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventorySyncReport;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.NoCarsToSaveException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
-import oleksandr_havriush.autoshowroomcustomermailer.model.VehicleList;
 import oleksandr_havriush.autoshowroomcustomermailer.service.VehicleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +22,6 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
  */
 @Controller
 @RequiredArgsConstructor
-@SessionAttributes("carList")
 public class CarController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CarController.class);
@@ -38,14 +40,14 @@ public class CarController {
 
     /**
      * Handles POST requests for file upload.
+     * The file is staged on the server and only its import ID is passed on to the preview.
      *
      * @param file the uploaded file
-     * @param model the model object
      * @param redirectAttributes attributes for redirect scenarios
      * @return the redirect view name
      */
     @PostMapping("/upload")
-    public String handleFileUpload(@RequestParam("file") MultipartFile file, Model model, RedirectAttributes redirectAttributes) {
+    public String handleFileUpload(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
         LOGGER.info("Received a file upload request. File name: {}", file.getOriginalFilename());
         if (file.isEmpty()) {
             LOGGER.warn("Attempt to upload an empty file.");
@@ -54,9 +56,9 @@ public class CarController {
         }
 
         try {
-            VehicleList<Car> carList = carService.processFile(file);
-            LOGGER.info("XML file '{}' uploaded and processed successfully.", file.getOriginalFilename());
-            redirectAttributes.addFlashAttribute("carList", carList);
+            String importId = carService.stageFile(file);
+            LOGGER.info("XML file '{}' uploaded and staged as import {}.", file.getOriginalFilename(), importId);
+            redirectAttributes.addAttribute("importId", importId);
             return "redirect:/displayCars";
         } catch (FileProcessingException e) {
             LOGGER.error("Error processing XML file '{}': ", file.getOriginalFilename(), e);
@@ -70,32 +72,113 @@ public class CarController {
     }
 
     /**
-     * Displays the list of cars.
+     * Handles POST requests for importing a large file directly into the database without a preview.
+     *
+     * @param file the uploaded file
+     * @param redirectAttributes attributes for redirect scenarios
+     * @return the redirect view name
+     */
+    @PostMapping("/import")
+    public String handleFileImport(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
+        LOGGER.info("Received a file import request. File name: {}", file.getOriginalFilename());
+        if (file.isEmpty()) {
+            LOGGER.warn("Attempt to import an empty file.");
+            redirectAttributes.addFlashAttribute("message", "Please select a file to upload.");
+            return "redirect:/uploadStatus";
+        }
+
+        try {
+            long imported = carService.importFile(file);
+            LOGGER.info("XML file '{}' imported successfully with {} cars.", file.getOriginalFilename(), imported);
+            redirectAttributes.addFlashAttribute("message", imported + " cars imported to database successfully.");
+        } catch (NoCarsToSaveException e) {
+            LOGGER.error("No cars to save: ", e);
+            redirectAttributes.addFlashAttribute("message", "No cars to save.");
+        } catch (RuntimeException e) {
+            LOGGER.error("Error importing XML file '{}': ", file.getOriginalFilename(), e);
+            redirectAttributes.addFlashAttribute("message", "Error importing XML file.");
+        }
+        return "redirect:/uploadStatus";
+    }
+
+    /**
+     * Displays the cars of a staged import.
      *
-     * @param carList the list of cars
+     * @param importId the ID of the staged import
      * @param model the model object
-     * @return the name of the display cars view
+     * @param redirectAttributes attributes for redirect scenarios
+     * @return the name of the display cars view, or a redirect if the import cannot be read
      */
     @GetMapping("/displayCars")
-    public String displayCars(@ModelAttribute("carList") VehicleList<Car> carList, Model model) {
-        model.addAttribute("carList", carList);
-        return "displayCars";
+    public String displayCars(@RequestParam("importId") String importId, Model model, RedirectAttributes redirectAttributes) {
+        try {
+            ImportPreview<Car> preview = carService.previewStagedFile(importId);
+            model.addAttribute("preview", preview);
+            return "displayCars";
+        } catch (RuntimeException e) {
+            LOGGER.error("Error processing staged import {}: ", importId, e);
+            redirectAttributes.addFlashAttribute("message", "Error processing XML file.");
+            return "redirect:/uploadStatus";
+        }
     }
 
     /**
-     * Handles POST requests to save the list of cars to the database.
+     * Handles POST requests to save the cars of a staged import to the database.
+     * A repeated request for the same import is rejected; if saving fails after some cars were stored,
+     * the user is offered to replace the inventory with the file instead of saving it again.
      *
-     * @param carList the list of cars
+     * @param importId the ID of the staged import
      * @param redirectAttributes attributes for redirect scenarios
      * @return the redirect view name
      */
     @PostMapping("/save")
-    public String saveCars(@ModelAttribute("carList") VehicleList<Car> carList, RedirectAttributes redirectAttributes) {
+    public String saveCars(@RequestParam("importId") String importId, RedirectAttributes redirectAttributes) {
         try {
-            carService.saveVehicles(carList);
+            carService.importStagedFile(importId);
             LOGGER.info("Cars saved to database successfully.");
             redirectAttributes.addFlashAttribute("message", "Cars saved to database successfully.");
             return "redirect:/uploadStatus";
+        } catch (ImportAlreadyClaimedException e) {
+            LOGGER.warn("Staged import {} is already being saved.", importId);
+            redirectAttributes.addFlashAttribute("message", "These cars are already being saved to database.");
+            return "redirect:/uploadStatus";
+        } catch (PartialImportException e) {
+            LOGGER.error("Staged import {} was only partially saved: ", importId, e);
+            redirectAttributes.addFlashAttribute("message",
+                    "Some cars were saved before an error occurred. Replace the inventory with this file to complete the import without duplicates.");
+            redirectAttributes.addFlashAttribute("syncImportId", importId);
+            return "redirect:/uploadStatus";
+        } catch (NoCarsToSaveException e) {
+            LOGGER.error("No cars to save: ", e);
+            redirectAttributes.addFlashAttribute("message", "No cars to save.");
+            return "redirect:/uploadStatus";
+        } catch (RuntimeException e) {
+            LOGGER.error("Unexpected error: ", e);
+            redirectAttributes.addFlashAttribute("message", "Error saving cars to database.");
+            return "redirect:/uploadStatus";
+        }
+    }
+
+    /**
+     * Handles POST requests to replace the stored inventory with the cars of a staged import, writing only the differences.
+     *
+     * @param importId the ID of the staged import
+     * @param redirectAttributes attributes for redirect scenarios
+     * @return the redirect view name
+     */
+    @PostMapping("/sync")
+    public String synchronizeCars(@RequestParam("importId") String importId, RedirectAttributes redirectAttributes) {
+        try {
+            InventorySyncReport report = carService.synchronizeStagedFile(importId);
+            LOGGER.info("Cars synchronized with database successfully.");
+            redirectAttributes.addFlashAttribute("message", String.format(
+                    "Inventory synchronized: %d cars added, %d updated, %d removed, %d unchanged.",
+                    report.inserted(), report.updated(), report.deleted(), report.unchanged()));
+            return "redirect:/uploadStatus";
+        } catch (ImportAlreadyClaimedException e) {
+            LOGGER.warn("Staged import {} is already being saved.", importId);
+            redirectAttributes.addFlashAttribute("message", "These cars are already being saved to database.");
+            return "redirect:/uploadStatus";
         } catch (NoCarsToSaveException e) {
             LOGGER.error("No cars to save: ", e);
             redirectAttributes.addFlashAttribute("message", "No cars to save.");
@@ -3,10 +3,12 @@ package oleksandr_havriush.autoshowroomcustomermailer.controller;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerPage;
 import oleksandr_havriush.autoshowroomcustomermailer.dto.NewCustomerPayload;
 import oleksandr_havriush.autoshowroomcustomermailer.dto.UpdateCustomerPayload;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSort;
 import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,7 +22,6 @@ import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
 import java.util.Locale;
 import java.util.NoSuchElementException;
 
@@ -45,15 +46,24 @@ public class CustomerController {
     }
 
     /**
-     * Displays the list of customers.
+     * Displays one page of the customer list.
      *
-     * @param model the model object
+     * @param search the beginning of a last name or postal code to search for, optional
+     * @param sort   the sort order of the list, by last name if not given
+     * @param after  the cursor of the page to continue after, optional
+     * @param before the cursor of the page to go back from, optional
+     * @param model  the model object
      * @return the name of the customer list view
      */
     @GetMapping("/customerList")
-    public String getCustomerList(Model model) {
-        List<Customer> customerList = this.customerService.findAll();
-        model.addAttribute("customerList", customerList);
+    public String getCustomerList(@RequestParam(value = "q", required = false) String search,
+                                  @RequestParam(value = "sort", defaultValue = "NAME") CustomerSort sort,
+                                  @RequestParam(value = "after", required = false) String after,
+                                  @RequestParam(value = "before", required = false) String before,
+                                  Model model) {
+        CustomerPage page = this.customerService.findPage(search, sort, after, before);
+        model.addAttribute("customerList", page.customers());
+        model.addAttribute("page", page);
         return "customerList";
     }
 
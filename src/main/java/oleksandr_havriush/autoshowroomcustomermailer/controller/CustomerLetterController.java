@@ -0,0 +1,67 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerLetter;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
+import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerLetterService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+
+/**
+ * Controller class for downloading the letter of a single customer.
+ */
+@RestController
+@RequiredArgsConstructor
+public class CustomerLetterController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerLetterController.class);
+    private final CustomerLetterService customerLetterService;
+
+    /**
+     * Returns the current letter of a customer as a PDF document.
+     * The response carries the letter fingerprint as entity tag, so a request with a matching
+     * If-None-Match header is answered with 304 Not Modified and without a body, before the letter is rendered.
+     *
+     * @param customerId the ID of the customer
+     * @param request    the request carrying the entity tag held by the client
+     * @return the PDF letter of the customer, or null if the 304 response was already prepared
+     */
+    @GetMapping(value = "/customers/{customerId}/letter.pdf", produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<byte[]> getLetter(@PathVariable Long customerId, WebRequest request) {
+        Optional<CustomerLetter> changedLetter = customerLetterService.getLetterIfChanged(customerId, request::checkNotModified);
+        if (changedLetter.isEmpty()) {
+            return null;
+        }
+        CustomerLetter letter = changedLetter.get();
+        return ResponseEntity.ok()
+                .eTag(letter.eTag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename(letter.fileName()).build().toString())
+                .contentLength(letter.content().length)
+                .body(letter.content());
+    }
+
+    /**
+     * Answers requests for unknown customers with 404 Not Found.
+     *
+     * @param ex the exception thrown for the unknown customer
+     * @return an empty 404 response
+     */
+    @ExceptionHandler(CustomerNotFoundException.class)
+    public ResponseEntity<Void> handleCustomerNotFound(CustomerNotFoundException ex) {
+        LOGGER.warn(ex.getMessage());
+        return ResponseEntity.notFound().build();
+    }
+}
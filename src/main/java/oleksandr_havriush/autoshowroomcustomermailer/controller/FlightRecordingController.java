@@ -0,0 +1,101 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.FlightRecordingStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FlightRecordingException;
+import oleksandr_havriush.autoshowroomcustomermailer.service.FlightRecordingService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Controller class for starting, downloading and stopping the on-demand flight recording.
+ * The endpoints are only registered when {@code diagnostics.recording.enabled} is set to {@code true}.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "diagnostics.recording.enabled", havingValue = "true")
+public class FlightRecordingController {
+
+    private final FlightRecordingService flightRecordingService;
+
+    /**
+     * Starts a flight recording unless one is already running.
+     *
+     * @return the status of the running recording
+     */
+    @PostMapping("/diagnostics/recording")
+    public FlightRecordingStatus startRecording() {
+        return flightRecordingService.start();
+    }
+
+    /**
+     * Returns the status of the running flight recording.
+     *
+     * @return the recording status, or 404 if no recording is running
+     */
+    @GetMapping("/diagnostics/recording")
+    public ResponseEntity<FlightRecordingStatus> getRecording() {
+        return flightRecordingService.getStatus()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Saves the events recorded so far and returns them as a JFR file, keeping the recording running.
+     * The saved file is deleted once the response has been sent, so repeated dumps do not fill up the recording directory.
+     *
+     * @return the recording file, or 404 if no recording is running
+     */
+    @PostMapping("/diagnostics/recording/dump")
+    public ResponseEntity<Resource> dumpRecording() {
+        return flightRecordingService.dump()
+                .map(file -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                        .<Resource>body(new InputStreamResource(openDump(file))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stops the running flight recording and saves it on the server.
+     *
+     * @return the status of the stopped recording with its file, or 404 if no recording is running
+     */
+    @DeleteMapping("/diagnostics/recording")
+    public ResponseEntity<FlightRecordingStatus> stopRecording() {
+        return flightRecordingService.stop()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Opens a dumped recording file so that it is deleted when the stream is closed after the download.
+     *
+     * @param file the dumped recording file
+     * @return the stream of the file content
+     * @throws FlightRecordingException if the file cannot be opened
+     */
+    private static InputStream openDump(Path file) {
+        try {
+            return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new FlightRecordingException(String.format("Failed to read flight recording %s", file), e);
+        }
+    }
+}
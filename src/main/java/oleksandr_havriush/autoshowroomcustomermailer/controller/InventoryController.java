@@ -0,0 +1,27 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventoryCacheStatistics;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryCache;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller class exposing the state of the car inventory cache.
+ */
+@RestController
+@RequiredArgsConstructor
+public class InventoryController {
+
+    private final InventoryCache inventoryCache;
+
+    /**
+     * Returns the hit and miss counts of the inventory snapshot and of the Hibernate caches.
+     *
+     * @return the current cache statistics
+     */
+    @GetMapping("/inventory/cache")
+    public InventoryCacheStatistics getCacheStatistics() {
+        return inventoryCache.getStatistics();
+    }
+}
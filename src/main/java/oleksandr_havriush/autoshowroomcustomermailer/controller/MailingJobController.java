@@ -0,0 +1,63 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailingJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Controller class for submitting asynchronous mailing jobs and querying their progress.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MailingJobController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailingJobController.class);
+    private final MailingJobService mailingJobService;
+
+    /**
+     * Submits a mailing job for all customers without waiting for the letters to be generated.
+     *
+     * @return the accepted job with a link to its progress
+     */
+    @PostMapping("/mailingJobs")
+    public ResponseEntity<MailingJobProgress> submitJob() {
+        MailingJobProgress progress = mailingJobService.submit();
+        LOGGER.info("Mailing job {} accepted.", progress.id());
+        return ResponseEntity.accepted()
+                .location(URI.create("/mailingJobs/" + progress.id()))
+                .body(progress);
+    }
+
+    /**
+     * Lists all known mailing jobs.
+     *
+     * @return the progress of all jobs, newest first
+     */
+    @GetMapping("/mailingJobs")
+    public List<MailingJobProgress> listJobs() {
+        return mailingJobService.getAllProgress();
+    }
+
+    /**
+     * Returns the progress of a mailing job.
+     *
+     * @param jobId the ID of the job
+     * @return the job progress, or 404 if the job is unknown
+     */
+    @GetMapping("/mailingJobs/{jobId}")
+    public ResponseEntity<MailingJobProgress> getJob(@PathVariable String jobId) {
+        return mailingJobService.getProgress(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
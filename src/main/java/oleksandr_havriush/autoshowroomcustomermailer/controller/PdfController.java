@@ -1,86 +1,109 @@
 package oleksandr_havriush.autoshowroomcustomermailer.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
-import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerService;
-import oleksandr_havriush.autoshowroomcustomermailer.service.PdfGenerationService;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailingJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller class for handling PDF generation for customers.
+ * Letters are generated by background mailing jobs; the endpoints only submit a job and redirect to its progress page.
  */
 @Controller
 @RequiredArgsConstructor
 public class PdfController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PdfController.class);
-    private final PdfGenerationService pdfGenerationService;
-    private final CustomerService customerService;
+    private final MailingJobService mailingJobService;
 
     @Value("${pdf.generated-mails-path}")
     private String pdfPath;
 
     /**
-     * Generates PDF reports for all customers and handles the process flow and errors.
+     * Submits a mailing job generating PDF reports for all customers.
      *
-     * @param redirectAttributes attributes for flash messages
-     * @return the redirect view name
+     * @return the redirect to the progress page of the job
      */
     @GetMapping(value = "/generatePdf")
-    public String generatePdfForAllCustomers(RedirectAttributes redirectAttributes) {
+    public String generatePdfForAllCustomers() {
         LOGGER.info("Initiating PDF generation for all customers.");
-        List<Customer> customers = customerService.findAll();
-        if (customers.isEmpty()) {
-            LOGGER.info("No customers found for PDF generation.");
-            redirectAttributes.addFlashAttribute("message", "No customers available for PDF generation.");
-            return "redirect:/uploadStatus";
-        }
-        List<String> errorMessages = new ArrayList<>();
+        return redirectToJob(mailingJobService.submit(null, false));
+    }
 
-        customers.forEach(customer -> {
-            LOGGER.debug("Generating PDF for customer: {}", customer);
-            if (!generatePdfAndHandleErrors(customer, errorMessages)) {
-                LOGGER.warn("Failed to generate PDF for customer: {}", customer);
-            }
-        });
+    /**
+     * Displays the form for selecting a customer segment to generate letters for.
+     *
+     * @return the name of the segment form view
+     */
+    @GetMapping(value = "/segment")
+    public String showSegmentForm() {
+        return "segment";
+    }
 
-        if (!errorMessages.isEmpty()) {
-            LOGGER.error("Errors occurred during PDF generation: {}", String.join(", ", errorMessages));
-            String combinedErrorMessage = String.join("\n", errorMessages);
-            redirectAttributes.addFlashAttribute("message", combinedErrorMessage);
-        } else {
-            redirectAttributes.addFlashAttribute("message", "PDF files saved to directory " + pdfPath + " successfully for all customers.");
-            LOGGER.info("PDF generation completed successfully for all customers.");
+    /**
+     * Submits a mailing job generating PDF reports only for the customers of a segment. The segment is filtered
+     * by the database and the matching customers are streamed page by page into the same parallel engine as a full run.
+     *
+     * @param segment            the criteria the customers have to match
+     * @param redirectAttributes attributes for flash messages
+     * @return the redirect to the progress page of the job
+     */
+    @GetMapping(value = "/generatePdf/segment")
+    public String generatePdfForSegment(CustomerSegment segment, RedirectAttributes redirectAttributes) {
+        if (segment.isEmpty()) {
+            redirectAttributes.addFlashAttribute("message", "Select at least one segment criterion or generate PDFs for all customers.");
+            return "redirect:/uploadStatus";
         }
-        return "redirect:/uploadStatus";
+        LOGGER.info("Initiating PDF generation for customer segment {}.", segment);
+        return redirectToJob(mailingJobService.submit(segment, false));
+    }
+
+    /**
+     * Submits a mailing job generating the letters of all customers into combined PDF volumes for the print shop.
+     *
+     * @return the redirect to the progress page of the job
+     */
+    @GetMapping(value = "/generateCombinedPdf")
+    public String generateCombinedPdfForAllCustomers() {
+        LOGGER.info("Initiating combined PDF generation for all customers.");
+        return redirectToJob(mailingJobService.submit(null, true));
     }
 
     /**
-     * Generates a PDF for a given customer and handles any errors that occur during the process.
+     * Displays the progress of a mailing job. The page reloads itself until the job has finished.
      *
-     * @param customer the customer for whom the PDF is to be generated
-     * @param errorMessages a list to collect error messages
-     * @return true if PDF generation was successful, false otherwise
+     * @param jobId    the ID of the job
+     * @param model    the model object
+     * @param response the HTTP servlet response
+     * @return the name of the job progress view, or the error view if the job is unknown
      */
-    private boolean generatePdfAndHandleErrors(Customer customer, List<String> errorMessages) {
-        try {
-            pdfGenerationService.createPdfForCustomer(customer.getId());
-            LOGGER.info("PDF generated successfully for customer: {}", customer);
-            return true;
-        } catch (Exception e) {
-            String errorMessage = String.format("Error generating PDF for customer %s %s: %s",
-                    customer.getLastName(), customer.getFirstName(), e.getMessage());
-            LOGGER.error(errorMessage, e);
-            errorMessages.add(errorMessage);
-            return false;
+    @GetMapping(value = "/generatePdf/jobs/{jobId}")
+    public String showJobProgress(@PathVariable String jobId, Model model, HttpServletResponse response) {
+        Optional<MailingJobProgress> progress = mailingJobService.getProgress(jobId);
+        if (progress.isEmpty()) {
+            LOGGER.warn("Mailing job {} not found", jobId);
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            model.addAttribute("error", "Mailing job not found: " + jobId);
+            return "errors/404";
         }
+        model.addAttribute("job", progress.get());
+        model.addAttribute("outputPath", progress.get().combined() ? pdfPath + "/combined" : pdfPath);
+        return "mailingJob";
+    }
+
+    private static String redirectToJob(MailingJobProgress progress) {
+        return "redirect:/generatePdf/jobs/" + progress.id();
     }
 }
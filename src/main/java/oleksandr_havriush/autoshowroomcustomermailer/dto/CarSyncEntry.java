@@ -0,0 +1,15 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Data Transfer Object (DTO) representing the stored state of a car that an inventory synchronization compares against.
+ * This record is read directly from the vehicle and car columns, so a synchronization neither loads
+ * nor caches car entities and holds only the key, ID, price and power of each stored car.
+ */
+public record CarSyncEntry(
+        Long id,
+        String manufacturer,
+        String name,
+        String type,
+        double price,
+        int power) {
+}
@@ -0,0 +1,53 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Data Transfer Object (DTO) marking a position in the sorted customer list.
+ * This record holds the sort key and ID of the customer at the position and is passed between pages
+ * as an opaque URL-safe token. The key is null if the customer at the position has no value in the sort column.
+ */
+public record CustomerCursor(
+        String key,
+        long id) {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * Encodes the cursor as a URL-safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        // A missing key is encoded without separator, so it cannot be confused with any text key
+        String value = key == null ? String.valueOf(id) : id + String.valueOf(SEPARATOR) + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     *
+     * @param token the token, may be null
+     * @return the cursor, or empty if the token is missing or malformed
+     */
+    public static Optional<CustomerCursor> decode(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return Optional.of(new CustomerCursor(null, Long.parseLong(value)));
+            }
+            if (separator == 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new CustomerCursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator))));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Data Transfer Object (DTO) holding the rendered letter of a customer.
+ * The entity tag is the content fingerprint of the letter, so it changes whenever the customer or the car inventory changes.
+ */
+public record CustomerLetter(
+        Long customerId,
+        String fileName,
+        String eTag,
+        byte[] content) {
+}
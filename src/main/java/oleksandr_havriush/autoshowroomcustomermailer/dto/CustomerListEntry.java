@@ -0,0 +1,17 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Data Transfer Object (DTO) representing one row of the customer list.
+ * This record is read directly from the customer and address columns in a single query,
+ * so listing customers neither loads nor tracks entities.
+ */
+public record CustomerListEntry(
+        Long id,
+        String firstName,
+        String lastName,
+        String street,
+        String houseNumber,
+        String city,
+        String postalCode,
+        String country) {
+}
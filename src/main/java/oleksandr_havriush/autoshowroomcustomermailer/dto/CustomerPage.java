@@ -0,0 +1,36 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSort;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing one page of the customer list.
+ * This record holds the customers of the page, the sort order and search the page was read with,
+ * and the cursor tokens of the neighbouring pages, which are null if there is no such page.
+ */
+public record CustomerPage(
+        List<CustomerListEntry> customers,
+        CustomerSort sort,
+        String search,
+        String previousCursor,
+        String nextCursor) {
+
+    /**
+     * Checks whether a page precedes this one.
+     *
+     * @return true if there is a previous page, false otherwise
+     */
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    /**
+     * Checks whether a page follows this one.
+     *
+     * @return true if there is a next page, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,48 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) describing a segment of customers targeted by a mailing run.
+ * This record holds the optional criteria a customer has to match: one of the cities, the country,
+ * a postal code range and a creation date range, each bound inclusive. Criteria left empty match every customer.
+ */
+public record CustomerSegment(
+        List<String> cities,
+        String country,
+        String postalCodeFrom,
+        String postalCodeTo,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate createdFrom,
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+        LocalDate createdTo) {
+
+    /**
+     * Returns the given cities without blank entries.
+     *
+     * @return the cities of the segment, empty if the segment is not restricted to cities
+     */
+    public List<String> cities() {
+        return cities == null ? List.of() : cities.stream()
+                .filter(city -> city != null && !city.isBlank())
+                .map(String::strip)
+                .toList();
+    }
+
+    /**
+     * Checks whether the segment has no criteria and therefore matches all customers.
+     *
+     * @return true if no criterion is set, false otherwise
+     */
+    public boolean isEmpty() {
+        return cities().isEmpty() && isBlank(country) && isBlank(postalCodeFrom) && isBlank(postalCodeTo)
+                && createdFrom == null && createdTo == null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
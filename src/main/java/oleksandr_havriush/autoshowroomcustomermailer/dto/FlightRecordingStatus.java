@@ -0,0 +1,17 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import jdk.jfr.RecordingState;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) describing the on-demand flight recording of the application.
+ * This record is returned by the recording endpoints; the file is set once the recording was stopped and saved.
+ */
+public record FlightRecordingStatus(
+        String name,
+        RecordingState state,
+        Instant startTime,
+        long size,
+        String file) {
+}
@@ -0,0 +1,24 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for previewing a staged vehicle import.
+ * This record holds the import ID, the first vehicles of the feed and the total number of vehicles it contains.
+ *
+ * @param <T> the type of vehicles in the feed
+ */
+public record ImportPreview<T>(
+        String importId,
+        List<T> vehicles,
+        long totalVehicles) {
+
+    /**
+     * Checks whether the preview shows only part of the feed.
+     *
+     * @return true if the feed contains more vehicles than the preview, false otherwise
+     */
+    public boolean isTruncated() {
+        return totalVehicles > vehicles.size();
+    }
+}
@@ -0,0 +1,28 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Data Transfer Object (DTO) describing the effectiveness of the car inventory caches.
+ * This record holds the hits, misses and loads of the inventory snapshot, the number of times it was invalidated,
+ * and the hits and misses of the Hibernate second-level and query caches.
+ */
+public record InventoryCacheStatistics(
+        long snapshotHits,
+        long snapshotMisses,
+        long snapshotLoads,
+        long invalidations,
+        int cachedCars,
+        long secondLevelHits,
+        long secondLevelMisses,
+        long queryCacheHits,
+        long queryCacheMisses) {
+
+    /**
+     * Calculates the share of inventory reads answered from the snapshot.
+     *
+     * @return the snapshot hit ratio between 0 and 1, or 0 if the inventory was never read
+     */
+    public double snapshotHitRatio() {
+        long reads = snapshotHits + snapshotMisses;
+        return reads == 0 ? 0 : (double) snapshotHits / reads;
+    }
+}
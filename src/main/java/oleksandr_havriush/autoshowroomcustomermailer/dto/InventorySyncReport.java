@@ -0,0 +1,21 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Data Transfer Object (DTO) summarizing an inventory synchronization.
+ * This record holds the number of vehicles inserted, updated, deleted and left unchanged by the import.
+ */
+public record InventorySyncReport(
+        int inserted,
+        int updated,
+        int deleted,
+        int unchanged) {
+
+    /**
+     * Checks whether the synchronization modified the database.
+     *
+     * @return true if any vehicle was inserted, updated or deleted, false otherwise
+     */
+    public boolean hasChanges() {
+        return inserted + updated + deleted > 0;
+    }
+}
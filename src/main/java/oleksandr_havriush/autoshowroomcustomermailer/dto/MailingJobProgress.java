@@ -0,0 +1,23 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) describing the progress of an asynchronous mailing job.
+ * This record is returned by the mailing job endpoints and holds a snapshot of the job counters,
+ * along with the segment the job is restricted to (null for all customers) and whether it writes combined volumes.
+ */
+public record MailingJobProgress(
+        String id,
+        CustomerSegment segment,
+        boolean combined,
+        MailingJobStatus status,
+        long total,
+        long done,
+        long failed,
+        long remaining,
+        double lettersPerSecond,
+        Instant createdAt,
+        Instant finishedAt,
+        String errorMessage) {
+}
@@ -0,0 +1,11 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+/**
+ * Lifecycle states of an asynchronous mailing job.
+ */
+public enum MailingJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
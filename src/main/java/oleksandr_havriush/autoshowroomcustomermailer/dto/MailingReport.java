@@ -0,0 +1,45 @@
+package oleksandr_havriush.autoshowroomcustomermailer.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) summarizing a mailing run.
+ * This record holds the number of generated, failed and skipped up-to-date letters,
+ * the collected error messages and the run duration.
+ */
+public record MailingReport(
+        long succeeded,
+        long failed,
+        long skipped,
+        List<String> errorMessages,
+        Duration elapsed) {
+
+    /**
+     * Checks whether at least one letter of the run could not be generated.
+     *
+     * @return true if the run had failures, false otherwise
+     */
+    public boolean hasFailures() {
+        return failed > 0;
+    }
+
+    /**
+     * Returns the number of customers processed by the run.
+     *
+     * @return the number of generated, failed and skipped letters
+     */
+    public long processed() {
+        return succeeded + failed + skipped;
+    }
+
+    /**
+     * Calculates the throughput of the run.
+     *
+     * @return the number of processed letters per second
+     */
+    public double lettersPerSecond() {
+        long millis = Math.max(elapsed.toMillis(), 1);
+        return processed() * 1000.0 / millis;
+    }
+}
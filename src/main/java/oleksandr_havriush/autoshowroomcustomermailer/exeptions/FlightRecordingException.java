@@ -0,0 +1,16 @@
+package oleksandr_havriush.autoshowroomcustomermailer.exeptions;
+
+public class FlightRecordingException extends RuntimeException {
+
+    public FlightRecordingException(String message) {
+        super(message);
+    }
+
+    public FlightRecordingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public FlightRecordingException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,8 @@
+package oleksandr_havriush.autoshowroomcustomermailer.exeptions;
+
+public class ImportAlreadyClaimedException extends RuntimeException {
+
+    public ImportAlreadyClaimedException(String message) {
+        super(message);
+    }
+}
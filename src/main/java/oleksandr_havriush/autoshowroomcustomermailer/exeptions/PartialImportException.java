@@ -0,0 +1,12 @@
+package oleksandr_havriush.autoshowroomcustomermailer.exeptions;
+
+public class PartialImportException extends RuntimeException {
+
+    public PartialImportException(String message) {
+        super(message);
+    }
+
+    public PartialImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -14,7 +14,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "address")
+@Table(name = "address", indexes = {
+        @Index(name = "idx_address_postal_code", columnList = "postal_code"),
+        @Index(name = "idx_address_city", columnList = "city")})
 public class Address {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
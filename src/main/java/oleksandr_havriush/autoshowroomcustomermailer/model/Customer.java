@@ -4,15 +4,18 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
 
 /**
- * Represents a customer entity with details such as first name, last name, and address.
+ * Represents a customer entity with details such as first name, last name, address and creation date.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "customer")
+@Table(name = "customer", indexes = @Index(name = "idx_customer_last_name", columnList = "last_name"))
 public class Customer {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,4 +30,20 @@ public class Customer {
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "address_id", referencedColumnName = "id")
     private Address address;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Constructor to initialize Customer without a creation date, which is set when the customer is first saved.
+     *
+     * @param id        the ID of the customer, or null for a new customer
+     * @param firstName the first name of the customer
+     * @param lastName  the last name of the customer
+     * @param address   the address of the customer
+     */
+    public Customer(Long id, String firstName, String lastName, Address address) {
+        this(id, firstName, lastName, address, null);
+    }
 }
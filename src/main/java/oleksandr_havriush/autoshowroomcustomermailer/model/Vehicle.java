@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Represents an abstract base class for vehicles with attributes such as name, manufacturer, and price.
+ * Vehicles are kept in the Hibernate second-level cache; the cache region is shared by all vehicle subclasses.
  */
 @Data
 @SuperBuilder
@@ -14,6 +17,8 @@ import lombok.experimental.SuperBuilder;
 @Entity
 @Table(name = "vehicle")
 @Inheritance(strategy = InheritanceType.JOINED)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Vehicle {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
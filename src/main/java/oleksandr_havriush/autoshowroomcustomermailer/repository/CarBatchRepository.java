@@ -0,0 +1,33 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+
+import java.util.List;
+
+/**
+ * Repository fragment for bulk-inserting cars with JDBC batches.
+ */
+public interface CarBatchRepository {
+
+    /**
+     * Inserts new cars into the vehicle and car tables using JDBC batch statements.
+     * The generated IDs are set on the given cars.
+     *
+     * @param cars the cars to insert; cars that already have an ID are not supported
+     */
+    void insertAll(List<Car> cars);
+
+    /**
+     * Updates the price and power of existing cars using JDBC batch statements.
+     *
+     * @param cars the cars to update, identified by their IDs
+     */
+    void updateAll(List<Car> cars);
+
+    /**
+     * Deletes cars from the car and vehicle tables using JDBC batch statements.
+     *
+     * @param ids the IDs of the cars to delete
+     */
+    void deleteAllByIds(List<Long> ids);
+}
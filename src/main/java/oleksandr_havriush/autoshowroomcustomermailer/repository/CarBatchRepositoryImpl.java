@@ -0,0 +1,129 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link CarBatchRepository}.
+ * Hibernate cannot batch inserts of entities with IDENTITY IDs, and the JOINED inheritance of {@code Vehicle}
+ * doubles the number of statements, so cars are written here with one batch per table and chunk instead.
+ */
+public class CarBatchRepositoryImpl implements CarBatchRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CarBatchRepositoryImpl.class);
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String INSERT_VEHICLE = "INSERT INTO vehicle (name, manufacturer, price) VALUES (?, ?, ?)";
+    private static final String INSERT_CAR = "INSERT INTO car (id, type, power) VALUES (?, ?, ?)";
+    private static final String UPDATE_VEHICLE = "UPDATE vehicle SET price = ? WHERE id = ?";
+    private static final String UPDATE_CAR = "UPDATE car SET power = ? WHERE id = ?";
+    private static final String DELETE_CAR = "DELETE FROM car WHERE id = ?";
+    private static final String DELETE_VEHICLE = "DELETE FROM vehicle WHERE id = ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    /**
+     * Constructor to initialize CarBatchRepositoryImpl with the JdbcTemplate and the batch size.
+     *
+     * @param jdbcTemplate the template providing connections bound to the current transaction
+     * @param batchSize    the number of rows sent to the database in one batch, or 0 for the default
+     */
+    public CarBatchRepositoryImpl(JdbcTemplate jdbcTemplate, @Value("${cars.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Car> cars) {
+        if (cars.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement vehicleStatement = connection.prepareStatement(INSERT_VEHICLE, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement carStatement = connection.prepareStatement(INSERT_CAR)) {
+                for (int from = 0; from < cars.size(); from += batchSize) {
+                    List<Car> batch = cars.subList(from, Math.min(from + batchSize, cars.size()));
+                    insertVehicles(vehicleStatement, batch);
+                    insertCars(carStatement, batch);
+                }
+            }
+            return null;
+        });
+        LOGGER.debug("Inserted {} cars in batches of {}.", cars.size(), batchSize);
+    }
+
+    @Override
+    @Transactional
+    public void updateAll(List<Car> cars) {
+        jdbcTemplate.batchUpdate(UPDATE_VEHICLE, cars, batchSize, (statement, car) -> {
+            statement.setDouble(1, car.getPrice());
+            statement.setLong(2, car.getId());
+        });
+        jdbcTemplate.batchUpdate(UPDATE_CAR, cars, batchSize, (statement, car) -> {
+            statement.setInt(1, car.getPower());
+            statement.setLong(2, car.getId());
+        });
+        LOGGER.debug("Updated {} cars in batches of {}.", cars.size(), batchSize);
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllByIds(List<Long> ids) {
+        jdbcTemplate.batchUpdate(DELETE_CAR, ids, batchSize, (statement, id) -> statement.setLong(1, id));
+        jdbcTemplate.batchUpdate(DELETE_VEHICLE, ids, batchSize, (statement, id) -> statement.setLong(1, id));
+        LOGGER.debug("Deleted {} cars in batches of {}.", ids.size(), batchSize);
+    }
+
+    /**
+     * Inserts the vehicle rows of a batch and assigns the generated IDs to the cars.
+     *
+     * @param statement the prepared vehicle insert returning generated keys
+     * @param batch     the cars of the batch
+     * @throws SQLException if the batch fails
+     */
+    private void insertVehicles(PreparedStatement statement, List<Car> batch) throws SQLException {
+        for (Car car : batch) {
+            statement.setString(1, car.getName());
+            statement.setString(2, car.getManufacturer());
+            statement.setDouble(3, car.getPrice());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            for (Car car : batch) {
+                if (!generatedKeys.next()) {
+                    throw new DataRetrievalFailureException("Database returned fewer generated keys than inserted vehicles");
+                }
+                car.setId(generatedKeys.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * Inserts the car rows of a batch, referencing the IDs of their vehicle rows.
+     *
+     * @param statement the prepared car insert
+     * @param batch     the cars of the batch, with IDs already assigned
+     * @throws SQLException if the batch fails
+     */
+    private void insertCars(PreparedStatement statement, List<Car> batch) throws SQLException {
+        for (Car car : batch) {
+            statement.setLong(1, car.getId());
+            statement.setString(2, car.getType());
+            statement.setInt(3, car.getPower());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+}
@@ -1,12 +1,39 @@
 package oleksandr_havriush.autoshowroomcustomermailer.repository;
 
+import jakarta.persistence.QueryHint;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CarSyncEntry;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
- * Repository interface for managing cars, extending VehicleRepository for Car entities.
+ * Repository interface for managing cars, extending VehicleRepository for Car entities
+ * and CarBatchRepository for bulk inserts.
  */
 @Repository
-public interface CarRepository extends VehicleRepository<Car> {
+public interface CarRepository extends VehicleRepository<Car>, CarBatchRepository {
+
+    /**
+     * Retrieves all cars, keeping the result in the Hibernate query cache.
+     *
+     * @return a list of all cars
+     */
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Car> findAll();
+
+    /**
+     * Retrieves the key, price and power of all stored cars straight from the database, ordered by ID.
+     * Cars are written with JDBC batches that do not update the Hibernate caches, so inventory changes have to be
+     * computed against this result instead of {@link #findAll()}.
+     *
+     * @return the stored state of all cars
+     */
+    @Query("select new oleksandr_havriush.autoshowroomcustomermailer.dto.CarSyncEntry(c.id, c.manufacturer, c.name, c.type, c.price, c.power)"
+            + " from Car c order by c.id")
+    List<CarSyncEntry> findSyncEntries();
 }
@@ -0,0 +1,24 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Repository fragment reading the rows of the customer list as read-only projections.
+ */
+public interface CustomerListRepository {
+
+    /**
+     * Reads the customer list rows matching a specification, together with their addresses, in one query.
+     *
+     * @param specification the customers to list, or null to list all customers
+     * @param sort          the order of the rows
+     * @param limit         the maximum number of rows
+     * @return the rows of the matching customers
+     */
+    List<CustomerListEntry> findListEntries(Specification<Customer> specification, Sort sort, int limit);
+}
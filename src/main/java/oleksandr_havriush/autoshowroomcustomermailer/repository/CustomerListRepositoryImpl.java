@@ -0,0 +1,45 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+/**
+ * Criteria implementation of {@link CustomerListRepository}.
+ * The address is left joined once and shared by the selected columns, the specification and the order by clause,
+ * so a page of the list is a single statement instead of one query for the customers and one per address.
+ */
+public class CustomerListRepositoryImpl implements CustomerListRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CustomerListEntry> findListEntries(Specification<Customer> specification, Sort sort, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CustomerListEntry> query = builder.createQuery(CustomerListEntry.class);
+        Root<Customer> root = query.from(Customer.class);
+        Join<?, ?> address = CustomerSpecifications.leftJoin(root, "address");
+        query.select(builder.construct(CustomerListEntry.class,
+                root.get("id"), root.get("firstName"), root.get("lastName"),
+                address.get("street"), address.get("houseNumber"), address.get("city"),
+                address.get("postalCode"), address.get("country")));
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, builder));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
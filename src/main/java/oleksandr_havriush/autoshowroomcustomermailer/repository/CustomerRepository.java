@@ -1,12 +1,55 @@
 package oleksandr_havriush.autoshowroomcustomermailer.repository;
 
+import jakarta.persistence.QueryHint;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
- * Repository interface for managing customers.
+ * Repository interface for managing customers, with specification queries for searching and paging the customer list
+ * and CustomerListRepository for reading the list rows.
+ * Queries returning several customers fetch their addresses in the same statement; the address is an eager association,
+ * so Hibernate would otherwise select every address of the result separately.
  */
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer>,
+        CustomerListRepository {
+
+    /**
+     * Retrieves all customers together with their addresses.
+     *
+     * @return a list of all customers
+     */
+    @Override
+    @EntityGraph(attributePaths = "address")
+    List<Customer> findAll();
+
+    /**
+     * Retrieves a page of customers with an ID greater than the given one.
+     * Used for keyset pagination: the next page starts after the last ID of the previous one,
+     * so the database never has to skip over already read rows.
+     * The customers are fetched with their addresses and are read-only, as they are only read to generate letters.
+     *
+     * @param id       the ID after which customers are returned
+     * @param pageable the page size and sort order, expected to sort by ID ascending
+     * @return the customers of the page
+     */
+    @EntityGraph(attributePaths = "address")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<Customer> findByIdGreaterThan(Long id, Pageable pageable);
+
+    /**
+     * Counts the customers with an ID greater than the given one.
+     *
+     * @param id the ID after which customers are counted
+     * @return the number of customers
+     */
+    long countByIdGreaterThan(Long id);
 }
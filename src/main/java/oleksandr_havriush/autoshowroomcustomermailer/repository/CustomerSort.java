@@ -0,0 +1,79 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Path;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.springframework.data.domain.Sort;
+
+import java.util.function.Function;
+
+/**
+ * Sort orders of the customer list. Every order sorts by its key column first and by customer ID second,
+ * so that the order is total and a page can be continued from the key and ID of its last customer.
+ * The key columns are backed by an index but may be NULL, e.g. for customers without an address;
+ * such customers sort before all others, as they do by default in MySQL.
+ */
+public enum CustomerSort {
+
+    /**
+     * Customers sorted by last name.
+     */
+    NAME(null, "lastName", CustomerListEntry::lastName),
+
+    /**
+     * Customers sorted by the city of their address.
+     */
+    CITY("address", "city", CustomerListEntry::city),
+
+    /**
+     * Customers sorted by the postal code of their address.
+     */
+    POSTAL_CODE("address", "postalCode", CustomerListEntry::postalCode);
+
+    private final String association;
+    private final String attribute;
+    private final Function<CustomerListEntry, String> keyExtractor;
+
+    CustomerSort(String association, String attribute, Function<CustomerListEntry, String> keyExtractor) {
+        this.association = association;
+        this.attribute = attribute;
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Returns the sort of this order, ascending for forward and descending for backward navigation.
+     * Customers without a key come first when reading forward and last when reading backward.
+     *
+     * @param descending whether the customers are read in reverse order
+     * @return the sort by key and customer ID
+     */
+    public Sort toSort(boolean descending) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort.NullHandling nullHandling = descending ? Sort.NullHandling.NULLS_LAST : Sort.NullHandling.NULLS_FIRST;
+        String property = association == null ? attribute : association + "." + attribute;
+        return Sort.by(new Sort.Order(direction, property, nullHandling), new Sort.Order(direction, "id"));
+    }
+
+    /**
+     * Returns the sort key of a customer list row.
+     *
+     * @param customer the row of the customer
+     * @return the value of the key column of the customer, or null if the customer has none
+     */
+    public String keyOf(CustomerListEntry customer) {
+        return keyExtractor.apply(customer);
+    }
+
+    /**
+     * Resolves the key column in a query. Associations are joined the same way as by {@link #toSort(boolean)},
+     * so the join is shared with the order by clause.
+     *
+     * @param root the customer root of the query
+     * @return the path of the key column
+     */
+    Path<String> keyPath(From<?, Customer> root) {
+        From<?, ?> from = association == null ? root : CustomerSpecifications.leftJoin(root, association);
+        return from.get(attribute);
+    }
+}
@@ -0,0 +1,145 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Query specifications for searching, paging and segmenting customers.
+ */
+public final class CustomerSpecifications {
+    private static final char LIKE_ESCAPE = '\\';
+
+    private CustomerSpecifications() {
+    }
+
+    /**
+     * Matches customers whose postal code starts with the given digits or whose last name starts with the given text.
+     * Only a trailing wildcard is used, so the search can use the indexes on both columns.
+     *
+     * @param prefix the beginning of a postal code or last name, or null or blank to match all customers
+     * @return the specification, or null if all customers match
+     */
+    public static Specification<Customer> startingWith(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return null;
+        }
+        String pattern = escapeLike(prefix.strip()) + "%";
+        if (prefix.strip().chars().allMatch(Character::isDigit)) {
+            return (root, query, builder) ->
+                    builder.like(leftJoin(root, "address").get("postalCode"), pattern, LIKE_ESCAPE);
+        }
+        return (root, query, builder) -> builder.like(root.get("lastName"), pattern, LIKE_ESCAPE);
+    }
+
+    /**
+     * Matches the customers following the given position in a sort order,
+     * that is customers with a greater key, or the same key and a greater ID.
+     * Customers without a key sort before all others, matching the NULL handling of {@link CustomerSort#toSort(boolean)}.
+     *
+     * @param sort       the sort order of the list
+     * @param key        the sort key of the customer at the position, or null if that customer has none
+     * @param id         the ID of the customer at the position
+     * @param descending whether the customers preceding the position are matched instead
+     * @return the specification of the customers beyond the position
+     */
+    public static Specification<Customer> beyond(CustomerSort sort, String key, long id, boolean descending) {
+        return (root, query, builder) -> {
+            Path<String> keyPath = sort.keyPath(root);
+            Path<Long> idPath = root.get("id");
+            if (key == null) {
+                Predicate sameKey = builder.isNull(keyPath);
+                if (descending) {
+                    return builder.and(sameKey, builder.lessThan(idPath, id));
+                }
+                return builder.or(builder.isNotNull(keyPath), builder.and(sameKey, builder.greaterThan(idPath, id)));
+            }
+            Predicate sameKey = builder.equal(keyPath, key);
+            if (descending) {
+                return builder.or(builder.lessThan(keyPath, key), builder.isNull(keyPath),
+                        builder.and(sameKey, builder.lessThan(idPath, id)));
+            }
+            return builder.or(builder.greaterThan(keyPath, key),
+                    builder.and(sameKey, builder.greaterThan(idPath, id)));
+        };
+    }
+
+    /**
+     * Matches the customers of a segment. Postal codes have a fixed number of digits,
+     * so the postal code range is compared as text and can use the postal code index.
+     * Customers without a creation date are not matched by a creation date range.
+     *
+     * @param segment the criteria of the segment
+     * @return the specification, or null if the segment matches all customers
+     */
+    public static Specification<Customer> inSegment(CustomerSegment segment) {
+        if (segment == null || segment.isEmpty()) {
+            return null;
+        }
+        return (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (!segment.cities().isEmpty()) {
+                predicates.add(leftJoin(root, "address").get("city").in(segment.cities()));
+            }
+            if (hasText(segment.country())) {
+                predicates.add(builder.equal(leftJoin(root, "address").get("country"), segment.country().strip()));
+            }
+            if (hasText(segment.postalCodeFrom())) {
+                predicates.add(builder.greaterThanOrEqualTo(
+                        leftJoin(root, "address").get("postalCode"), segment.postalCodeFrom().strip()));
+            }
+            if (hasText(segment.postalCodeTo())) {
+                predicates.add(builder.lessThanOrEqualTo(
+                        leftJoin(root, "address").get("postalCode"), segment.postalCodeTo().strip()));
+            }
+            if (segment.createdFrom() != null) {
+                predicates.add(builder.greaterThanOrEqualTo(root.get("createdAt"), segment.createdFrom().atStartOfDay()));
+            }
+            if (segment.createdTo() != null) {
+                predicates.add(builder.lessThan(root.get("createdAt"), segment.createdTo().plusDays(1).atStartOfDay()));
+            }
+            return builder.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Matches the customers with an ID greater than the given one.
+     *
+     * @param id the ID after which customers are matched
+     * @return the specification
+     */
+    public static Specification<Customer> idGreaterThan(long id) {
+        return (root, query, builder) -> builder.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * Returns the left join of an association, reusing an existing one, so that the search, the position
+     * and the order by clause share a single join.
+     *
+     * @param from        the entity the association starts at
+     * @param association the name of the association
+     * @return the join of the association
+     */
+    static Join<?, ?> leftJoin(From<?, ?> from, String association) {
+        return from.getJoins().stream()
+                .filter(join -> join.getAttribute().getName().equals(association) && join.getJoinType() == JoinType.LEFT)
+                .findFirst()
+                .orElseGet(() -> from.join(association, JoinType.LEFT));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
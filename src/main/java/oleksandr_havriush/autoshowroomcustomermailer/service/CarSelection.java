@@ -0,0 +1,18 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.util.CarTableTemplate;
+
+import java.util.List;
+
+/**
+ * Cars chosen by a selection rule for the letters of a region, with their pre-rendered car table
+ * and the inventory version that goes into the fingerprints of these letters.
+ *
+ * @param rule             the rule that chose the cars
+ * @param cars             the cars listed in the letters
+ * @param carTable         the car table pre-rendered from the cars
+ * @param inventoryVersion the version of the listed cars
+ */
+public record CarSelection(CarSelectionRule rule, List<Car> cars, CarTableTemplate carTable, String inventoryVersion) {
+}
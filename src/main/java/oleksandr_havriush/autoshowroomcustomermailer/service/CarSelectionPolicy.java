@@ -0,0 +1,87 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Policy choosing a bounded, relevant subset of the car inventory for each letter instead of the whole inventory.
+ * A customer gets the rule with the longest postal code prefix matching the postal code of the address,
+ * or the rule without a prefix if none matches; letters list the most expensive cars allowed by their rule,
+ * up to the configured maximum.
+ */
+@Component
+public class CarSelectionPolicy {
+    private final Map<String, CarSelectionRule> rulesByPrefix;
+    private final int maxCars;
+    private final int longestPrefix;
+
+    /**
+     * Constructor to initialize CarSelectionPolicy with the configured rules.
+     *
+     * @param rules   the selection rules, see {@link CarSelectionRule#parse(String)} for their form
+     * @param maxCars the maximum number of cars listed in a letter, or zero or less for no limit
+     * @throws IllegalArgumentException if a rule is malformed or two rules share a postal code prefix
+     */
+    public CarSelectionPolicy(@Value("${pdf.letters.selection.rules:}") List<String> rules,
+                              @Value("${pdf.letters.selection.max-cars:0}") int maxCars) {
+        Map<String, CarSelectionRule> byPrefix = new HashMap<>();
+        for (String rule : rules) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            CarSelectionRule parsed = CarSelectionRule.parse(rule);
+            if (byPrefix.putIfAbsent(parsed.postalPrefix(), parsed) != null) {
+                throw new IllegalArgumentException("Duplicate car selection rule for postal prefix: " + rule);
+            }
+        }
+        byPrefix.putIfAbsent("", CarSelectionRule.ALL_CARS);
+        this.rulesByPrefix = Map.copyOf(byPrefix);
+        this.maxCars = maxCars;
+        this.longestPrefix = byPrefix.keySet().stream().mapToInt(String::length).max().orElse(0);
+    }
+
+    /**
+     * Indexes an inventory snapshot for the selection of the letters rendered from it.
+     *
+     * @param cars the cars of the inventory snapshot
+     * @return the selections of the inventory snapshot
+     */
+    public InventorySelection select(List<Car> cars) {
+        return new InventorySelection(cars, this);
+    }
+
+    /**
+     * Returns the rule choosing the cars for the letter of a customer.
+     * The lookup only depends on the length of the postal code, not on the number of rules or cars.
+     *
+     * @param customer the customer of the letter
+     * @return the rule with the longest matching postal code prefix
+     */
+    public CarSelectionRule ruleFor(Customer customer) {
+        Address address = customer.getAddress();
+        String postalCode = address == null || address.getPostalCode() == null ? "" : address.getPostalCode().trim();
+        for (int length = Math.min(postalCode.length(), longestPrefix); length > 0; length--) {
+            CarSelectionRule rule = rulesByPrefix.get(postalCode.substring(0, length));
+            if (rule != null) {
+                return rule;
+            }
+        }
+        return rulesByPrefix.get("");
+    }
+
+    /**
+     * Returns the maximum number of cars listed in a letter.
+     *
+     * @return the maximum number of cars, or zero or less for no limit
+     */
+    public int getMaxCars() {
+        return maxCars;
+    }
+}
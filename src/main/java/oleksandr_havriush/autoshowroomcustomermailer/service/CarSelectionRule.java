@@ -0,0 +1,82 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Rule choosing the cars listed in the letters of a region.
+ * A region is a postal code prefix; the rule restricts the letters of its customers to the given vehicle types
+ * within a price band. Rules are written as {@code <postal prefix>:<types>:<min price>-<max price>},
+ * with types separated by {@code |} and {@code *} or an empty part standing for no restriction,
+ * for example {@code 5:Sedan|Electric:20000-60000} or {@code 80:*:40000-}.
+ *
+ * @param postalPrefix the postal code prefix of the region, empty for all regions
+ * @param types        the vehicle types listed in the letters, empty for all types
+ * @param minPrice     the lowest price of the listed cars, inclusive
+ * @param maxPrice     the highest price of the listed cars, inclusive
+ */
+public record CarSelectionRule(String postalPrefix, Set<String> types, double minPrice, double maxPrice) {
+
+    /**
+     * Rule listing all cars in the letters of every region.
+     */
+    public static final CarSelectionRule ALL_CARS = new CarSelectionRule("", Set.of(), 0, Double.MAX_VALUE);
+
+    private static final String ANY = "*";
+
+    public CarSelectionRule {
+        types = Set.copyOf(types);
+    }
+
+    /**
+     * Parses a rule from its configuration form.
+     *
+     * @param rule the rule in the form {@code <postal prefix>:<types>:<min price>-<max price>}
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the rule is malformed
+     */
+    public static CarSelectionRule parse(String rule) {
+        String[] parts = rule.trim().split(":", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Car selection rule must have the form <postal prefix>:<types>:<price band>: " + rule);
+        }
+        String postalPrefix = isAny(parts[0]) ? "" : parts[0].trim();
+        Set<String> types = new LinkedHashSet<>();
+        if (!isAny(parts[1])) {
+            Arrays.stream(parts[1].split("\\|")).map(String::trim).filter(type -> !type.isEmpty()).forEach(types::add);
+        }
+
+        double minPrice = 0;
+        double maxPrice = Double.MAX_VALUE;
+        if (!isAny(parts[2])) {
+            String[] band = parts[2].trim().split("-", -1);
+            if (band.length != 2) {
+                throw new IllegalArgumentException("Car selection price band must have the form <min>-<max>: " + rule);
+            }
+            try {
+                minPrice = band[0].isBlank() ? minPrice : Double.parseDouble(band[0].trim());
+                maxPrice = band[1].isBlank() ? maxPrice : Double.parseDouble(band[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Car selection price band is not a number: " + rule, e);
+            }
+            if (minPrice > maxPrice) {
+                throw new IllegalArgumentException("Car selection price band is empty: " + rule);
+            }
+        }
+        return new CarSelectionRule(postalPrefix, types, minPrice, maxPrice);
+    }
+
+    /**
+     * Checks whether the rule lists every car of the inventory.
+     *
+     * @return true if the rule restricts neither the vehicle types nor the prices
+     */
+    public boolean isUnrestricted() {
+        return types.isEmpty() && minPrice <= 0 && maxPrice == Double.MAX_VALUE;
+    }
+
+    private static boolean isAny(String part) {
+        return part.isBlank() || part.trim().equals(ANY);
+    }
+}
@@ -0,0 +1,193 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfSmartCopy;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the letters of a mailing run into one combined PDF, split into volumes of a bounded number of letters.
+ * Letters are copied with {@link PdfSmartCopy}, so resources shared by all letters such as fonts, the logo and
+ * the car table are stored once per volume, and pages are flushed to disk as soon as they are copied.
+ * Workers may finish letters out of order; letters are buffered until all letters before them have arrived,
+ * so a volume always lists the customers in submission order.
+ */
+public class CombinedLetterWriter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CombinedLetterWriter.class);
+    private static final String PART_SUFFIX = ".part";
+    private final Path directory;
+    private final String runName;
+    private final int lettersPerVolume;
+    private final Map<Long, PendingLetter> pending = new TreeMap<>();
+    private final List<Path> volumes = new ArrayList<>();
+    private long nextSequence;
+    private Document document;
+    private PdfSmartCopy copy;
+    private OutputStream outputStream;
+    private Path volumePath;
+    private int lettersInVolume;
+    private RuntimeException failure;
+
+    /**
+     * Constructor to initialize CombinedLetterWriter with the output location and the volume size.
+     *
+     * @param directory        the directory where the volumes are written
+     * @param runName          the prefix of the volume file names
+     * @param lettersPerVolume the maximum number of letters per volume, or 0 to write a single volume
+     */
+    public CombinedLetterWriter(Path directory, String runName, int lettersPerVolume) {
+        this.directory = directory;
+        this.runName = runName;
+        this.lettersPerVolume = lettersPerVolume > 0 ? lettersPerVolume : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Hands the letter with the given sequence number to the writer.
+     * The letter is written once all letters with lower sequence numbers have been handed over,
+     * and the callback is invoked when it has been written or skipped.
+     *
+     * @param sequence  the position of the letter in the run, starting at 0
+     * @param letter    the rendered letter, or null to skip a letter that could not be generated
+     * @param onWritten the callback invoked once the letter has left the buffer
+     */
+    public synchronized void append(long sequence, byte[] letter, Runnable onWritten) {
+        pending.put(sequence, new PendingLetter(letter, onWritten));
+        PendingLetter next;
+        while ((next = pending.remove(nextSequence)) != null) {
+            nextSequence++;
+            try {
+                if (next.letter() != null && failure == null) {
+                    writeLetter(next.letter());
+                }
+            } catch (IOException | DocumentException | RuntimeException e) {
+                failure = new PdfGenerationException("Error writing combined PDF volume " + volumePath, e);
+                LOGGER.error(failure.getMessage(), e);
+            } finally {
+                next.onWritten().run();
+            }
+        }
+    }
+
+    /**
+     * Returns the volumes completed so far.
+     *
+     * @return the paths of the finished volume files
+     */
+    public synchronized List<Path> getVolumes() {
+        return List.copyOf(volumes);
+    }
+
+    /**
+     * Finishes the current volume.
+     *
+     * @throws PdfGenerationException if a letter could not be written or the volume could not be finished
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (failure == null && !pending.isEmpty()) {
+                failure = new PdfGenerationException("Combined PDF is missing letter " + nextSequence);
+            }
+            if (document != null && failure == null) {
+                finishVolume();
+            } else if (document != null) {
+                abandonVolume();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (failure == null) {
+                failure = new PdfGenerationException("Error finishing combined PDF volume " + volumePath, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        LOGGER.info("Combined PDF {} written in {} volumes.", runName, volumes.size());
+    }
+
+    /**
+     * Copies the pages of a letter into the current volume, starting a new volume when the current one is full.
+     *
+     * @param letter the rendered letter
+     */
+    private void writeLetter(byte[] letter) throws IOException, DocumentException {
+        if (document != null && lettersInVolume >= lettersPerVolume) {
+            finishVolume();
+        }
+        if (document == null) {
+            startVolume();
+        }
+        PdfReader reader = new PdfReader(letter);
+        try {
+            copy.addDocument(reader);
+            copy.freeReader(reader);
+        } finally {
+            reader.close();
+        }
+        lettersInVolume++;
+    }
+
+    /**
+     * Opens the next volume file.
+     */
+    private void startVolume() throws IOException, DocumentException {
+        volumePath = directory.resolve(String.format("%s_vol%03d.pdf", runName, volumes.size() + 1));
+        outputStream = new BufferedOutputStream(Files.newOutputStream(partPath(volumePath)));
+        document = new Document();
+        copy = new PdfSmartCopy(document, outputStream);
+        copy.setFullCompression();
+        document.open();
+        lettersInVolume = 0;
+    }
+
+    /**
+     * Closes the current volume and moves it to its final name, so readers never see a half-written volume.
+     */
+    private void finishVolume() throws IOException {
+        try {
+            document.close();
+        } finally {
+            outputStream.close();
+            document = null;
+            copy = null;
+        }
+        Files.move(partPath(volumePath), volumePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        volumes.add(volumePath);
+        LOGGER.info("Combined PDF volume {} finished with {} letters.", volumePath, lettersInVolume);
+    }
+
+    /**
+     * Closes the current volume after a failure and leaves it under its temporary name.
+     */
+    private void abandonVolume() throws IOException {
+        try {
+            document.close();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not close incomplete combined PDF volume {}", volumePath, e);
+        } finally {
+            outputStream.close();
+            document = null;
+            copy = null;
+        }
+    }
+
+    private static Path partPath(Path volume) {
+        return volume.resolveSibling(volume.getFileName() + PART_SUFFIX);
+    }
+
+    private record PendingLetter(byte[] letter, Runnable onWritten) {
+    }
+}
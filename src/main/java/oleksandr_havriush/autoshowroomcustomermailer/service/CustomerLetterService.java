@@ -0,0 +1,172 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerLetter;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.LetterFingerprints;
+import oleksandr_havriush.autoshowroomcustomermailer.util.PdfReportGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Service rendering the letter of a single customer on demand.
+ * Rendered letters are kept in a bounded cache that evicts the least recently used letters beyond its size
+ * and letters older than their time to live. Cached letters are keyed on their content fingerprint, so a letter
+ * is rendered again as soon as the customer changes; all letters are dropped when the car inventory changes.
+ */
+@Service
+public class CustomerLetterService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerLetterService.class);
+    private static final int PDF_BUFFER_SIZE = 64 * 1024;
+    private final CustomerService customerService;
+    private final VehicleService<Car> carService;
+    private final CarSelectionPolicy carSelectionPolicy;
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final Map<Long, CachedLetter> cache;
+    private volatile InventorySelection inventory;
+    private long inventoryGeneration;
+
+    /**
+     * Constructor to initialize CustomerLetterService with the cache settings, CustomerService, VehicleService
+     * and CarSelectionPolicy.
+     *
+     * @param maxEntries         the maximum number of cached letters
+     * @param timeToLive         the time after which a cached letter is rendered again
+     * @param customerService    the service for managing customers
+     * @param carService         the service for managing cars
+     * @param carSelectionPolicy the policy choosing the cars listed in each letter
+     */
+    public CustomerLetterService(@Value("${pdf.letters.cache.max-entries:256}") int maxEntries,
+                                 @Value("${pdf.letters.cache.ttl:PT10M}") Duration timeToLive,
+                                 CustomerService customerService, VehicleService<Car> carService,
+                                 CarSelectionPolicy carSelectionPolicy) {
+        this.customerService = customerService;
+        this.carService = carService;
+        this.carSelectionPolicy = carSelectionPolicy;
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedLetter> eldest) {
+                return size() > CustomerLetterService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the current letter of a customer unless the caller already holds it,
+     * rendering it only if no up-to-date letter is cached. The fingerprint of the letter is computed and checked first,
+     * so a letter the caller already holds is neither rendered nor looked up in the cache.
+     *
+     * @param customerId the ID of the customer
+     * @param isHeld     tells whether the caller already holds the letter with the given fingerprint
+     * @return the letter with its entity tag, or empty if the caller already holds it
+     * @throws CustomerNotFoundException if no customer with the given ID exists
+     * @throws oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException if the letter cannot be rendered
+     */
+    public Optional<CustomerLetter> getLetterIfChanged(Long customerId, Predicate<String> isHeld) {
+        Customer customer = customerService.findById(customerId)
+                .orElseThrow(() -> new CustomerNotFoundException("Customer not found for ID: " + customerId));
+        CarSelection selection = currentInventory().forCustomer(customer);
+        String fingerprint = LetterFingerprints.letterFingerprint(customer, selection.inventoryVersion());
+        if (isHeld.test(fingerprint)) {
+            return Optional.empty();
+        }
+
+        byte[] content = getCached(customerId, fingerprint).orElse(null);
+        if (content == null) {
+            LOGGER.debug("Rendering letter for customer ID: {}", customerId);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(PDF_BUFFER_SIZE);
+            PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), selection.carTable(), outputStream);
+            content = outputStream.toByteArray();
+            putCached(customerId, new CachedLetter(fingerprint, content, System.nanoTime() + timeToLiveNanos));
+        }
+        return Optional.of(new CustomerLetter(customerId, PdfGenerationService.letterFileName(customer), fingerprint, content));
+    }
+
+    /**
+     * Drops the inventory and all cached letters after the car inventory has changed.
+     * Runs after the changing transaction has committed, so the next request loads the new inventory.
+     *
+     * @param event the event describing the inventory change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        synchronized (cache) {
+            inventoryGeneration++;
+            inventory = null;
+            cache.clear();
+        }
+        LOGGER.info("Letter cache cleared after {} cars changed.", event.changedCars());
+    }
+
+    /**
+     * Returns the number of cached letters.
+     *
+     * @return the size of the letter cache
+     */
+    public int getCachedLetterCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns the cached inventory, loading and indexing it if it was not loaded yet or was dropped after a change.
+     *
+     * @return the selections of the current inventory
+     */
+    private InventorySelection currentInventory() {
+        InventorySelection snapshot = inventory;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        long generation;
+        synchronized (cache) {
+            generation = inventoryGeneration;
+        }
+        snapshot = carSelectionPolicy.select(carService.findAll());
+        synchronized (cache) {
+            // An inventory loaded while a change was committed may be stale, so it is used once but not kept
+            if (generation == inventoryGeneration) {
+                inventory = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    private Optional<byte[]> getCached(Long customerId, String fingerprint) {
+        synchronized (cache) {
+            CachedLetter cached = cache.get(customerId);
+            if (cached == null) {
+                return Optional.empty();
+            }
+            if (!cached.fingerprint().equals(fingerprint) || System.nanoTime() - cached.expiresAtNanos() >= 0) {
+                cache.remove(customerId);
+                return Optional.empty();
+            }
+            return Optional.of(cached.content());
+        }
+    }
+
+    private void putCached(Long customerId, CachedLetter letter) {
+        synchronized (cache) {
+            cache.put(customerId, letter);
+        }
+    }
+
+    private record CachedLetter(String fingerprint, byte[] content, long expiresAtNanos) {
+    }
+}
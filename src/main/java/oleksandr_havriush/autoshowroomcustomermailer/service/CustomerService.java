@@ -1,17 +1,32 @@
 package oleksandr_havriush.autoshowroomcustomermailer.service;
 
 import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerCursor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerPage;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ValidationException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
 import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerRepository;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSort;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSpecifications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 /**
  * Service for managing customer information.
@@ -20,8 +35,16 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CustomerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomerService.class);
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int DEFAULT_LIST_PAGE_SIZE = 50;
     private final CustomerRepository customerRepository;
 
+    @Value("${customer.iteration.page-size:1000}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    @Value("${customer.list.page-size:50}")
+    private int listPageSize = DEFAULT_LIST_PAGE_SIZE;
+
     /**
      * Retrieves all customers from the database.
      *
@@ -35,6 +58,130 @@ public class CustomerService {
         return customers;
     }
 
+    /**
+     * Reads one page of the customer list in the given sort order, optionally restricted to a search prefix.
+     * Pages are navigated with keyset cursors: the next page starts after the sort key and ID of the last customer
+     * of the current page and the previous page ends before the first one, so the database seeks into the index
+     * instead of skipping over the rows of all preceding pages. Without a cursor the first page is returned.
+     * The rows are read as projections together with the addresses, so a page is loaded with a single query.
+     *
+     * @param search the beginning of a last name or postal code, or null to list all customers
+     * @param sort   the sort order of the list
+     * @param after  the cursor of the page end to continue after, or null
+     * @param before the cursor of the page start to go back from, or null; takes precedence over {@code after}
+     * @return the customers of the page with the cursors of the neighbouring pages
+     */
+    public CustomerPage findPage(String search, CustomerSort sort, String after, String before) {
+        int size = listPageSize > 0 ? listPageSize : DEFAULT_LIST_PAGE_SIZE;
+        Optional<CustomerCursor> beforeCursor = CustomerCursor.decode(before);
+        boolean backward = beforeCursor.isPresent();
+        Optional<CustomerCursor> cursor = backward ? beforeCursor : CustomerCursor.decode(after);
+
+        Specification<Customer> specification = Specification.where(CustomerSpecifications.startingWith(search));
+        if (cursor.isPresent()) {
+            specification = specification.and(
+                    CustomerSpecifications.beyond(sort, cursor.get().key(), cursor.get().id(), backward));
+        }
+        // One customer more than the page size tells whether another page follows in the reading direction
+        List<CustomerListEntry> customers = new ArrayList<>(
+                customerRepository.findListEntries(specification, sort.toSort(backward), size + 1));
+        boolean more = customers.size() > size;
+        if (more) {
+            customers = new ArrayList<>(customers.subList(0, size));
+        }
+        if (backward) {
+            Collections.reverse(customers);
+        }
+
+        boolean hasPrevious = backward ? more : cursor.isPresent();
+        boolean hasNext = backward || more;
+        String previousCursor = null;
+        String nextCursor = null;
+        if (!customers.isEmpty()) {
+            if (hasPrevious) {
+                previousCursor = cursorOf(sort, customers.get(0));
+            }
+            if (hasNext) {
+                nextCursor = cursorOf(sort, customers.get(customers.size() - 1));
+            }
+        }
+        LOGGER.debug("Loaded customer list page of {} customers sorted by {}", customers.size(), sort);
+        return new CustomerPage(customers, sort, search, previousCursor, nextCursor);
+    }
+
+    /**
+     * Iterates over all customers in ascending ID order, loading them page by page.
+     *
+     * @return a lazily paged view of all customers
+     * @see #iterateAfter(long)
+     */
+    public Iterable<Customer> iterateAll() {
+        return iterateAfter(0);
+    }
+
+    /**
+     * Iterates over the customers with an ID greater than the given one in ascending ID order.
+     * Customers are fetched one keyset page at a time, each in its own short-lived persistence context,
+     * so only a single page is held in memory regardless of the number of customers.
+     *
+     * @param lastId the ID of the last customer already processed, or 0 to start from the beginning
+     * @return a lazily paged view of the customers; every iteration queries the database anew
+     */
+    public Iterable<Customer> iterateAfter(long lastId) {
+        return () -> new CustomerPageIterator(lastId, (afterId, size) -> customerRepository.findByIdGreaterThan(afterId,
+                PageRequest.of(0, size, Sort.by(Sort.Direction.ASC, "id"))));
+    }
+
+    /**
+     * Iterates over the customers of a segment in ascending ID order, loading them page by page.
+     * The segment is evaluated by the database, so only matching customers are ever loaded,
+     * and pages are continued after the last ID like {@link #iterateAfter(long)}.
+     * The addresses are fetched with the customers of a page.
+     *
+     * @param segment the criteria the customers have to match
+     * @return a lazily paged view of the matching customers; every iteration queries the database anew
+     * @see #iterateSegmentAfter(CustomerSegment, long)
+     */
+    public Iterable<Customer> iterateSegment(CustomerSegment segment) {
+        return iterateSegmentAfter(segment, 0);
+    }
+
+    /**
+     * Iterates over the customers of a segment with an ID greater than the given one in ascending ID order.
+     *
+     * @param segment the criteria the customers have to match
+     * @param lastId  the ID of the last customer already processed, or 0 to start from the beginning
+     * @return a lazily paged view of the matching customers; every iteration queries the database anew
+     */
+    public Iterable<Customer> iterateSegmentAfter(CustomerSegment segment, long lastId) {
+        Specification<Customer> filter = CustomerSpecifications.inSegment(segment);
+        return () -> new CustomerPageIterator(lastId, (afterId, size) -> customerRepository.findBy(
+                Specification.where(filter).and(CustomerSpecifications.idGreaterThan(afterId)),
+                query -> query.project("address").sortBy(Sort.by(Sort.Direction.ASC, "id")).limit(size).all()));
+    }
+
+    /**
+     * Counts the customers with an ID greater than the given one.
+     *
+     * @param lastId the ID of the last customer already processed, or 0 to count all customers
+     * @return the number of customers
+     */
+    public long countAfter(long lastId) {
+        return customerRepository.countByIdGreaterThan(lastId);
+    }
+
+    /**
+     * Counts the customers of a segment with an ID greater than the given one.
+     *
+     * @param segment the criteria the customers have to match
+     * @param lastId  the ID of the last customer already processed, or 0 to count all matching customers
+     * @return the number of matching customers
+     */
+    public long countSegmentAfter(CustomerSegment segment, long lastId) {
+        return customerRepository.count(Specification.where(CustomerSpecifications.inSegment(segment))
+                .and(CustomerSpecifications.idGreaterThan(lastId)));
+    }
+
     /**
      * Finds a customer by their ID.
      *
@@ -107,4 +254,50 @@ public class CustomerService {
         LOGGER.info("Deleting customer with ID: {}", id);
         customerRepository.deleteById(id);
     }
+
+    private static String cursorOf(CustomerSort sort, CustomerListEntry customer) {
+        return new CustomerCursor(sort.keyOf(customer), customer.id()).encode();
+    }
+
+    /**
+     * Iterator that fetches the next keyset page once the current one is exhausted.
+     */
+    private class CustomerPageIterator implements Iterator<Customer> {
+        private final int size = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        private final BiFunction<Long, Integer, List<Customer>> pageLoader;
+        private Iterator<Customer> page = List.<Customer>of().iterator();
+        private long lastId;
+        private boolean lastPage;
+
+        /**
+         * @param lastId     the ID after which iteration starts
+         * @param pageLoader loads the given number of customers following an ID, sorted by ID ascending
+         */
+        private CustomerPageIterator(long lastId, BiFunction<Long, Integer, List<Customer>> pageLoader) {
+            this.lastId = lastId;
+            this.pageLoader = pageLoader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                List<Customer> customers = pageLoader.apply(lastId, size);
+                lastPage = customers.size() < size;
+                if (!customers.isEmpty()) {
+                    lastId = customers.get(customers.size() - 1).getId();
+                }
+                LOGGER.debug("Loaded page of {} customers up to ID {}", customers.size(), lastId);
+                page = customers.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public Customer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.FlightRecordingStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FlightRecordingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service class controlling an on-demand Java Flight Recorder recording of the running application,
+ * so live mailing runs and imports can be profiled without attaching external tools.
+ * The recording contains the JDK events of the configured settings and the letter, parsing and database write
+ * events of the application. At most one recording runs at a time; its files are saved in the recording directory.
+ * Events carrying the environment variables, system properties and JVM arguments are left out of every recording,
+ * since they can contain credentials such as the datasource password.
+ */
+@Service
+public class FlightRecordingService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecordingService.class);
+    private static final String RECORDING_NAME = "auto-showroom-mailer";
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+    private static final List<String> EXCLUDED_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+    private final Path recordingDirectory;
+    private final String settings;
+    private final Duration maxAge;
+    private Recording recording;
+
+    /**
+     * Constructor to initialize FlightRecordingService with the recording directory and settings.
+     *
+     * @param recordingPath the directory the recording files are saved to
+     * @param settings      the name of the JDK recording settings, {@code default} or {@code profile}
+     * @param maxAge        how long recorded events are kept while the recording runs
+     */
+    public FlightRecordingService(@Value("${diagnostics.recording.path:src/main/resources/recordings}") String recordingPath,
+                                  @Value("${diagnostics.recording.settings:profile}") String settings,
+                                  @Value("${diagnostics.recording.max-age:PT1H}") Duration maxAge) {
+        this.recordingDirectory = Paths.get(recordingPath);
+        this.settings = settings;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Starts a recording unless one is already running.
+     *
+     * @return the status of the running recording
+     * @throws FlightRecordingException if the settings cannot be loaded
+     */
+    public synchronized FlightRecordingStatus start() {
+        if (isRunning()) {
+            return statusOf(recording, null);
+        }
+        try {
+            Recording newRecording = new Recording(Configuration.getConfiguration(settings));
+            newRecording.setName(RECORDING_NAME);
+            EXCLUDED_EVENTS.forEach(newRecording::disable);
+            newRecording.setMaxAge(maxAge);
+            newRecording.setToDisk(true);
+            newRecording.start();
+            recording = newRecording;
+            LOGGER.info("Flight recording started with {} settings.", settings);
+            return statusOf(recording, null);
+        } catch (IOException | ParseException e) {
+            String errorMessage = String.format("Failed to load flight recording settings: %s", settings);
+            LOGGER.error(errorMessage, e);
+            throw new FlightRecordingException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Returns the status of the running recording.
+     *
+     * @return the status, or empty if no recording is running
+     */
+    public synchronized Optional<FlightRecordingStatus> getStatus() {
+        return isRunning() ? Optional.of(statusOf(recording, null)) : Optional.empty();
+    }
+
+    /**
+     * Saves the events recorded so far to a new file and keeps the recording running.
+     * The file is meant to be handed out once; the caller deletes it after reading it.
+     *
+     * @return the path of the saved file, or empty if no recording is running
+     * @throws FlightRecordingException if the file cannot be written
+     */
+    public synchronized Optional<Path> dump() {
+        if (!isRunning()) {
+            return Optional.empty();
+        }
+        return Optional.of(dumpTo(newRecordingFile()));
+    }
+
+    /**
+     * Stops the running recording and saves its events to a new file.
+     *
+     * @return the status of the stopped recording with its file, or empty if no recording is running
+     * @throws FlightRecordingException if the file cannot be written
+     */
+    public synchronized Optional<FlightRecordingStatus> stop() {
+        if (!isRunning()) {
+            return Optional.empty();
+        }
+        try {
+            recording.stop();
+            Path file = dumpTo(newRecordingFile());
+            LOGGER.info("Flight recording stopped and saved to {}.", file);
+            return Optional.of(statusOf(recording, file));
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Discards a recording that is still running when the application shuts down.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private Path newRecordingFile() {
+        return recordingDirectory.resolve(RECORDING_NAME + "_" + LocalDateTime.now().format(FILE_NAME_FORMAT) + ".jfr");
+    }
+
+    private Path dumpTo(Path file) {
+        try {
+            Files.createDirectories(recordingDirectory);
+            recording.dump(file);
+            return file;
+        } catch (IOException e) {
+            String errorMessage = String.format("Failed to save flight recording to %s", file);
+            LOGGER.error(errorMessage, e);
+            throw new FlightRecordingException(errorMessage, e);
+        }
+    }
+
+    private static FlightRecordingStatus statusOf(Recording recording, Path file) {
+        return new FlightRecordingStatus(recording.getName(), recording.getState(), recording.getStartTime(),
+                recording.getSize(), file == null ? null : file.toString());
+    }
+}
@@ -0,0 +1,135 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventoryCacheStatistics;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Vehicle;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CarRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps an immutable snapshot of the car inventory, so that reading the inventory does not query the database
+ * for every letter and page view. The snapshot is loaded on first use and replaced as a whole, so readers
+ * always see either the complete old or the complete new inventory.
+ * Cars are written with JDBC batches that bypass Hibernate, so when the inventory changes the snapshot is
+ * dropped together with the Hibernate second-level and query cache entries of the vehicles.
+ * The cars of a snapshot are shared by all readers and must not be modified.
+ * Snapshot reads, loads and invalidations are published through {@link MailerMetrics}.
+ */
+@Component
+public class InventoryCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InventoryCache.class);
+    private final CarRepository carRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Object loadLock = new Object();
+    private final Object stateLock = new Object();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile List<Car> snapshot;
+    private long generation;
+
+    /**
+     * Constructor to initialize InventoryCache with CarRepository, EntityManagerFactory and MailerMetrics.
+     *
+     * @param carRepository        the repository for loading cars
+     * @param entityManagerFactory the factory owning the Hibernate caches
+     * @param metrics              the meters the snapshot counts are published to
+     */
+    public InventoryCache(CarRepository carRepository, EntityManagerFactory entityManagerFactory, MailerMetrics metrics) {
+        this.carRepository = carRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        metrics.registerInventoryCache(hits, misses, loads, invalidations);
+    }
+
+    /**
+     * Returns the current inventory, loading it from the repository if no snapshot is held.
+     * Concurrent readers wait for a single load instead of each querying the database.
+     * The load does not block an invalidation; if the inventory changes while it runs, its result may come from
+     * the old Hibernate caches, so it is returned once but not kept.
+     *
+     * @return an unmodifiable list of all cars
+     */
+    public List<Car> getCars() {
+        List<Car> cars = snapshot;
+        if (cars != null) {
+            hits.increment();
+            return cars;
+        }
+        misses.increment();
+        synchronized (loadLock) {
+            cars = snapshot;
+            if (cars != null) {
+                return cars;
+            }
+            long loadedGeneration;
+            synchronized (stateLock) {
+                loadedGeneration = generation;
+            }
+            cars = List.copyOf(carRepository.findAll());
+            loads.increment();
+            synchronized (stateLock) {
+                if (loadedGeneration == generation) {
+                    snapshot = cars;
+                }
+            }
+            LOGGER.debug("Inventory snapshot loaded with {} cars.", cars.size());
+            return cars;
+        }
+    }
+
+    /**
+     * Drops the Hibernate caches of the vehicles and then the snapshot after the car inventory has changed.
+     * Runs after the changing transaction has committed and before other listeners,
+     * so listeners reloading the inventory already see the new cars.
+     * The Hibernate caches are evicted first and the generation is advanced afterwards, without waiting for
+     * a running load: a load that started before may have read the old cars from the query cache, but it completes
+     * with the old generation and its result is discarded, while a load starting later reads the evicted caches.
+     *
+     * @param event the event describing the inventory change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        entityManagerFactory.getCache().evict(Vehicle.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        synchronized (stateLock) {
+            generation++;
+            snapshot = null;
+        }
+        invalidations.increment();
+        LOGGER.info("Inventory snapshot dropped after {} cars changed.", event.changedCars());
+    }
+
+    /**
+     * Returns the hit and miss counts of the inventory snapshot and of the Hibernate caches.
+     * The Hibernate counts stay at 0 unless {@code hibernate.generate_statistics} is enabled.
+     *
+     * @return the current cache statistics
+     */
+    public InventoryCacheStatistics getStatistics() {
+        List<Car> cars = snapshot;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return new InventoryCacheStatistics(
+                hits.sum(),
+                misses.sum(),
+                loads.sum(),
+                invalidations.sum(),
+                cars == null ? 0 : cars.size(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount());
+    }
+}
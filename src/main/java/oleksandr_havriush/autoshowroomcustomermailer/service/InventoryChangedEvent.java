@@ -0,0 +1,10 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+/**
+ * Application event published after the stored car inventory has changed.
+ * Listeners holding data derived from the inventory drop it when they receive this event.
+ *
+ * @param changedCars the number of inserted, updated and deleted cars
+ */
+public record InventoryChangedEvent(long changedCars) {
+}
@@ -0,0 +1,66 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.CarTableTemplate;
+import oleksandr_havriush.autoshowroomcustomermailer.util.InventoryIndex;
+import oleksandr_havriush.autoshowroomcustomermailer.util.LetterFingerprints;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Car selections of one inventory snapshot, indexed once and shared by all letters rendered from it.
+ * The cars of a rule are selected and their table is rendered the first time a customer of the rule asks for them;
+ * every later customer of the same rule gets the same selection.
+ */
+public class InventorySelection {
+    private final List<Car> cars;
+    private final InventoryIndex index;
+    private final CarSelectionPolicy policy;
+    private final Map<CarSelectionRule, CarSelection> selections = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor to initialize InventorySelection with the inventory snapshot and the selection policy.
+     *
+     * @param cars   the cars of the inventory snapshot
+     * @param policy the policy choosing the cars of each letter
+     */
+    InventorySelection(List<Car> cars, CarSelectionPolicy policy) {
+        this.cars = List.copyOf(cars);
+        this.index = InventoryIndex.of(this.cars);
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the cars listed in the letter of a customer.
+     *
+     * @param customer the customer of the letter
+     * @return the selection of the rule matching the customer
+     */
+    public CarSelection forCustomer(Customer customer) {
+        return selections.computeIfAbsent(policy.ruleFor(customer), this::select);
+    }
+
+    /**
+     * Returns the number of cars in the inventory snapshot.
+     *
+     * @return the size of the inventory snapshot
+     */
+    public int getCarCount() {
+        return cars.size();
+    }
+
+    private CarSelection select(CarSelectionRule rule) {
+        int maxCars = policy.getMaxCars();
+        List<Car> selected;
+        if (rule.isUnrestricted() && (maxCars <= 0 || maxCars >= cars.size())) {
+            // The whole inventory keeps its original order, so letters of earlier runs stay up to date
+            selected = cars;
+        } else {
+            selected = List.copyOf(index.mostExpensive(rule.types(), rule.minPrice(), rule.maxPrice(), maxCars));
+        }
+        return new CarSelection(rule, selected, CarTableTemplate.of(selected), LetterFingerprints.inventoryVersion(selected));
+    }
+}
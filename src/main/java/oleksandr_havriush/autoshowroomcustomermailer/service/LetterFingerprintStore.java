@@ -0,0 +1,124 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the fingerprint and file of the last generated letter of every customer.
+ * The index is loaded once, updated in memory while letters are generated and written back when a run is closed.
+ * Losing the index is harmless: letters without a known fingerprint are simply generated again.
+ */
+public class LetterFingerprintStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LetterFingerprintStore.class);
+    private static final String PART_SUFFIX = ".part";
+    private final Path storePath;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile boolean modified;
+
+    /**
+     * Constructor to initialize LetterFingerprintStore with the path of the index file.
+     *
+     * @param storePath the path of the index file
+     */
+    public LetterFingerprintStore(Path storePath) {
+        this.storePath = storePath;
+    }
+
+    /**
+     * Loads the index file on first use. An unreadable index is logged and replaced by an empty one.
+     */
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.exists(storePath)) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(storePath), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", 3);
+                if (fields.length == 3) {
+                    entries.put(Long.parseLong(fields[0]), new Entry(fields[1], Paths.get(fields[2])));
+                }
+            }
+            LOGGER.info("Loaded {} letter fingerprints from {}", entries.size(), storePath);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to read letter fingerprints from {}, all letters will be regenerated", storePath, e);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the last generated letter of a customer.
+     *
+     * @param customerId the ID of the customer
+     * @return an Optional containing the fingerprint and file of the letter, or empty if none is known
+     */
+    public Optional<Entry> get(long customerId) {
+        return Optional.ofNullable(entries.get(customerId));
+    }
+
+    /**
+     * Records a newly generated letter of a customer.
+     *
+     * @param customerId  the ID of the customer
+     * @param fingerprint the fingerprint of the letter
+     * @param letterPath  the path of the letter, relative to the base directory of all letters
+     * @return the previously recorded letter of the customer, or null if there was none
+     */
+    public Entry put(long customerId, String fingerprint, Path letterPath) {
+        modified = true;
+        return entries.put(customerId, new Entry(fingerprint, letterPath));
+    }
+
+    /**
+     * Atomically replaces the index file with the current index if letters were recorded since the last save.
+     * A failed write is logged and only causes the affected letters to be regenerated by the next run.
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        modified = false;
+        Path temporaryPath = storePath.resolveSibling(storePath.getFileName() + PART_SUFFIX);
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temporaryPath), StandardCharsets.UTF_8))) {
+                for (Map.Entry<Long, Entry> entry : entries.entrySet()) {
+                    writer.write(entry.getKey() + "," + entry.getValue().fingerprint() + ","
+                            + entry.getValue().letterPath().toString().replace('\\', '/') + "\n");
+                }
+            }
+            Files.move(temporaryPath, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            modified = true;
+            LOGGER.error("Failed to write letter fingerprints to {}", storePath, e);
+        }
+    }
+
+    /**
+     * Fingerprint and file of the last generated letter of a customer.
+     *
+     * @param fingerprint the fingerprint of the letter
+     * @param letterPath  the path of the letter, relative to the base directory of all letters
+     */
+    public record Entry(String fingerprint, Path letterPath) {
+    }
+}
@@ -0,0 +1,97 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * CSV manifest listing the letter file of every customer of a mailing run, so downstream systems can find
+ * a letter without scanning the output directories.
+ * The manifest is created with the first letter, written incrementally to a temporary file and moved
+ * to its final name when the run is closed.
+ */
+public class LetterManifest implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LetterManifest.class);
+    private static final String HEADER = "customer_id,path\n";
+    private static final String PART_SUFFIX = ".part";
+    private final Path manifestPath;
+    private final Path temporaryPath;
+    private Writer writer;
+    private long entries;
+    private boolean closed;
+
+    /**
+     * Constructor to initialize LetterManifest with the path of the manifest file.
+     *
+     * @param manifestPath the path the finished manifest is written to
+     */
+    public LetterManifest(Path manifestPath) {
+        this.manifestPath = manifestPath;
+        this.temporaryPath = manifestPath.resolveSibling(manifestPath.getFileName() + PART_SUFFIX);
+    }
+
+    /**
+     * Adds the letter of a customer to the manifest.
+     *
+     * @param customerId the ID of the customer
+     * @param letterPath the path of the letter, relative to the base directory of all letters
+     * @throws PdfGenerationException if the manifest is closed or cannot be written
+     */
+    public synchronized void record(long customerId, Path letterPath) {
+        if (closed) {
+            throw new PdfGenerationException("Manifest " + manifestPath + " is already closed");
+        }
+        try {
+            if (writer == null) {
+                Files.createDirectories(manifestPath.getParent());
+                writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temporaryPath), StandardCharsets.UTF_8));
+                writer.write(HEADER);
+            }
+            writer.write(customerId + "," + letterPath.toString().replace('\\', '/') + "\n");
+            entries++;
+        } catch (IOException e) {
+            throw new PdfGenerationException("Error writing manifest " + manifestPath, e);
+        }
+    }
+
+    /**
+     * Returns the number of letters recorded so far.
+     *
+     * @return the number of manifest entries
+     */
+    public synchronized long getEntries() {
+        return entries;
+    }
+
+    /**
+     * Finishes the manifest and moves it to its final name. Runs without letters leave no manifest.
+     *
+     * @throws PdfGenerationException if the manifest cannot be finished
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+            Files.move(temporaryPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Manifest {} written with {} letters.", manifestPath, entries);
+        } catch (IOException e) {
+            throw new PdfGenerationException("Error finishing manifest " + manifestPath, e);
+        }
+    }
+}
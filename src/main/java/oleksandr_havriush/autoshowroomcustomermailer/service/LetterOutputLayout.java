@@ -0,0 +1,69 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Directory layouts for the letter files of a mailing run.
+ * Sharded layouts keep the number of entries per directory small, so creating and listing files stays fast
+ * even for hundreds of thousands of letters.
+ */
+public enum LetterOutputLayout {
+
+    /**
+     * All letters are written directly into the base directory.
+     */
+    FLAT {
+        @Override
+        public Path resolveDirectory(Path baseDirectory, long customerId, LocalDate runDate, int shardCount) {
+            return baseDirectory;
+        }
+    },
+
+    /**
+     * Letters are spread over a fixed number of subdirectories named after a hash of the customer ID.
+     */
+    ID_HASH {
+        @Override
+        public Path resolveDirectory(Path baseDirectory, long customerId, LocalDate runDate, int shardCount) {
+            return baseDirectory.resolve(shardName(customerId, shardCount));
+        }
+    },
+
+    /**
+     * Letters are grouped into a subdirectory per run date and spread by customer ID hash below it.
+     */
+    RUN_DATE {
+        @Override
+        public Path resolveDirectory(Path baseDirectory, long customerId, LocalDate runDate, int shardCount) {
+            return baseDirectory.resolve(runDate.toString()).resolve(shardName(customerId, shardCount));
+        }
+    };
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Resolves the directory the letter of a customer is written to.
+     *
+     * @param baseDirectory the base directory of all letters
+     * @param customerId    the ID of the customer
+     * @param runDate       the date the mailing run was started
+     * @param shardCount    the number of hash shards
+     * @return the directory of the letter
+     */
+    public abstract Path resolveDirectory(Path baseDirectory, long customerId, LocalDate runDate, int shardCount);
+
+    /**
+     * Returns the hexadecimal name of the hash shard of a customer, zero-padded to the width of the largest shard.
+     *
+     * @param customerId the ID of the customer
+     * @param shardCount the number of hash shards
+     * @return the name of the shard directory
+     */
+    static String shardName(long customerId, int shardCount) {
+        int shards = Math.max(shardCount, 1);
+        int shard = (int) Long.remainderUnsigned((customerId * HASH_MULTIPLIER) >>> 16, shards);
+        int width = Integer.toHexString(shards - 1).length();
+        return String.format("%0" + width + "x", shard);
+    }
+}
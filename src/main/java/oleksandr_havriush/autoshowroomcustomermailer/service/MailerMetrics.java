@@ -0,0 +1,246 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer meters of the mailing and import pipelines, exposed by the actuator {@code metrics} and {@code prometheus} endpoints.
+ * All meters of the regular path are registered once, so recording a letter or a chunk of cars only updates
+ * existing meters and does not allocate. Times are taken from the registry clock as {@link #start()} values
+ * and handed back when the stage ends.
+ * Failures are counted by stage and by the type of their root cause; their counters are looked up when a failure occurs.
+ */
+@Component
+public class MailerMetrics {
+    public static final String STAGE_LETTER = "letter";
+    public static final String STAGE_IMPORT = "import";
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+    private final MeterRegistry registry;
+    private final Clock clock;
+    private final Timer letterTimer;
+    private final Timer renderTimer;
+    private final Timer writeTimer;
+    private final DistributionSummary letterSize;
+    private final Counter lettersUpToDate;
+    private final Timer streamImportTimer;
+    private final Timer batchImportTimer;
+    private final Timer syncImportTimer;
+    private final Timer parseTimer;
+    private final Counter carsParsed;
+    private final Counter rowsInserted;
+    private final Counter rowsUpdated;
+    private final Counter rowsDeleted;
+
+    /**
+     * Constructor to initialize MailerMetrics and register its meters.
+     *
+     * @param registry the registry the meters are published to
+     */
+    public MailerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.clock = registry.config().clock();
+        this.letterTimer = latencyTimer("mailer.letters.duration", "Time to generate and save a letter",
+                Duration.ofMillis(1), Duration.ofSeconds(30)).register(registry);
+        this.renderTimer = latencyTimer("mailer.letters.render", "Time to render a letter in memory",
+                Duration.ofMillis(1), Duration.ofSeconds(30)).register(registry);
+        this.writeTimer = latencyTimer("mailer.letters.write", "Time to render a letter straight into its file and close the file",
+                Duration.ofMillis(1), Duration.ofSeconds(30)).register(registry);
+        this.letterSize = DistributionSummary.builder("mailer.letters.size")
+                .description("Size of the rendered letters")
+                .baseUnit("bytes")
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+        this.lettersUpToDate = Counter.builder("mailer.letters.up-to-date")
+                .description("Letters kept from an earlier run because they are still up to date")
+                .register(registry);
+        this.streamImportTimer = importTimer("stream");
+        this.batchImportTimer = importTimer("batch");
+        this.syncImportTimer = importTimer("sync");
+        this.parseTimer = latencyTimer("mailer.import.parse", "Time to parse an inventory feed",
+                Duration.ofMillis(1), Duration.ofMinutes(10)).register(registry);
+        this.carsParsed = Counter.builder("mailer.import.cars.parsed")
+                .description("Cars read from inventory feeds")
+                .register(registry);
+        this.rowsInserted = rowCounter("insert");
+        this.rowsUpdated = rowCounter("update");
+        this.rowsDeleted = rowCounter("delete");
+    }
+
+    /**
+     * Returns the current time of the registry clock, to be passed to one of the {@code record} methods when the stage ends.
+     *
+     * @return the monotonic time in nanoseconds
+     */
+    public long start() {
+        return clock.monotonicTime();
+    }
+
+    /**
+     * Records a letter that was generated and saved, including the lookup of its cars and the update of the run files.
+     *
+     * @param startTime the value of {@link #start()} when the letter was started
+     */
+    public void recordLetter(long startTime) {
+        letterTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the rendering of a letter into memory by the PDF generator and the size of the rendered document.
+     *
+     * @param startTime the value of {@link #start()} when rendering was started
+     * @param bytes     the size of the letter
+     */
+    public void recordRender(long startTime, long bytes) {
+        renderTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+        letterSize.record(bytes);
+    }
+
+    /**
+     * Records the rendering of a letter straight into its file and the size of the written document.
+     * Rendering and writing overlap in this case, so the time includes the buffered writes and closing the file.
+     *
+     * @param startTime the value of {@link #start()} when the file was opened
+     * @param bytes     the size of the letter
+     */
+    public void recordWrite(long startTime, long bytes) {
+        writeTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+        letterSize.record(bytes);
+    }
+
+    /**
+     * Records a letter that was not generated again because the letter of an earlier run is still up to date.
+     */
+    public void recordLetterUpToDate() {
+        lettersUpToDate.increment();
+    }
+
+    /**
+     * Records a streamed import, in which parsing and inserting overlap.
+     *
+     * @param startTime the value of {@link #start()} when the import was started
+     */
+    public void recordStreamImport(long startTime) {
+        streamImportTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the saving of an already parsed list of cars.
+     *
+     * @param startTime the value of {@link #start()} when saving was started
+     */
+    public void recordBatchImport(long startTime) {
+        batchImportTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the synchronization of the stored cars with a complete feed.
+     *
+     * @param startTime the value of {@link #start()} when the synchronization was started
+     */
+    public void recordSyncImport(long startTime) {
+        syncImportTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a feed that was parsed completely before its cars were saved.
+     *
+     * @param startTime the value of {@link #start()} when parsing was started
+     * @param cars      the number of parsed cars
+     */
+    public void recordParse(long startTime, long cars) {
+        parseTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+        carsParsed.increment(cars);
+    }
+
+    /**
+     * Records cars read from a feed that is parsed in chunks.
+     *
+     * @param cars the number of parsed cars
+     */
+    public void recordCarsParsed(long cars) {
+        carsParsed.increment(cars);
+    }
+
+    /**
+     * Records the rows written by an import.
+     *
+     * @param inserted the number of inserted cars
+     * @param updated  the number of updated cars
+     * @param deleted  the number of deleted cars
+     */
+    public void recordRows(long inserted, long updated, long deleted) {
+        rowsInserted.increment(inserted);
+        rowsUpdated.increment(updated);
+        rowsDeleted.increment(deleted);
+    }
+
+    /**
+     * Publishes the counts of the inventory snapshot, read from the counters of the inventory cache when the meters are scraped.
+     *
+     * @param hits          the reads answered from the snapshot
+     * @param misses        the reads that found no snapshot
+     * @param loads         the loads of the inventory from the database
+     * @param invalidations the snapshots dropped after an inventory change
+     */
+    public void registerInventoryCache(LongAdder hits, LongAdder misses, LongAdder loads, LongAdder invalidations) {
+        inventoryCounter("mailer.inventory.reads", "Inventory reads by whether the snapshot answered them", hits)
+                .tag("result", "hit")
+                .register(registry);
+        inventoryCounter("mailer.inventory.reads", "Inventory reads by whether the snapshot answered them", misses)
+                .tag("result", "miss")
+                .register(registry);
+        inventoryCounter("mailer.inventory.loads", "Loads of the inventory snapshot from the database", loads).register(registry);
+        inventoryCounter("mailer.inventory.invalidations", "Inventory snapshots dropped after a change", invalidations).register(registry);
+    }
+
+    /**
+     * Counts a failed letter or import by the type of the exception that caused it.
+     * Wrapping exceptions are skipped, so a letter that failed on an {@code IOException} is counted as such.
+     *
+     * @param stage     the stage that failed, {@link #STAGE_LETTER} or {@link #STAGE_IMPORT}
+     * @param exception the exception the stage failed with
+     */
+    public void recordFailure(String stage, Throwable exception) {
+        Throwable cause = exception;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        registry.counter("mailer.failures", "stage", stage, "exception", cause.getClass().getSimpleName()).increment();
+    }
+
+    private Timer importTimer(String mode) {
+        return latencyTimer("mailer.import.duration", "Time to import cars into the database",
+                Duration.ofMillis(1), Duration.ofMinutes(10))
+                .tag("mode", mode)
+                .register(registry);
+    }
+
+    private static FunctionCounter.Builder<LongAdder> inventoryCounter(String name, String description, LongAdder adder) {
+        return FunctionCounter.builder(name, adder, LongAdder::sum).description(description);
+    }
+
+    private Counter rowCounter(String operation) {
+        return Counter.builder("mailer.import.rows")
+                .description("Car rows written by imports")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description, Duration minimum, Duration maximum) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(minimum)
+                .maximumExpectedValue(maximum);
+    }
+}
@@ -0,0 +1,316 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * State of an asynchronous mailing job.
+ * Customers are submitted in ascending ID order, so the job can derive a checkpoint below which
+ * every letter is known to be finished, even though workers complete letters out of order.
+ * The checkpoint only counts the letters up to its customer ID; letters finished after it are
+ * generated again when the job is resumed, and are counted again then.
+ * A job either generates one letter file per customer or combined volumes, for all customers or a segment.
+ * Combined volumes are written in one go, so a combined job is restarted from the first customer instead.
+ */
+public class MailingJob {
+    private final String id;
+    private final Instant createdAt;
+    private final CustomerSegment segment;
+    private final boolean combined;
+    private final AtomicLong done;
+    private final AtomicLong failed;
+    private final NavigableSet<Long> inFlight = new TreeSet<>();
+    private final NavigableMap<Long, Boolean> finishedAfterCheckpoint = new TreeMap<>();
+    private long doneUpToCheckpoint;
+    private long failedUpToCheckpoint;
+    private volatile MailingJobStatus status;
+    private volatile long total;
+    private volatile long lastSubmittedId;
+    private volatile long startedNanos;
+    private final AtomicLong processedSinceStart = new AtomicLong();
+    private volatile Instant finishedAt;
+    private volatile String errorMessage;
+
+    private MailingJob(String id, Instant createdAt, CustomerSegment segment, boolean combined, MailingJobStatus status,
+                       long done, long failed, long checkpointId) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.segment = segment;
+        this.combined = combined;
+        this.status = status;
+        this.done = new AtomicLong(done);
+        this.failed = new AtomicLong(failed);
+        this.doneUpToCheckpoint = done;
+        this.failedUpToCheckpoint = failed;
+        this.lastSubmittedId = checkpointId;
+    }
+
+    /**
+     * Creates a new job that generates a letter file for every customer, starting with the first customer.
+     *
+     * @param id the unique identifier of the job
+     * @return the queued job
+     */
+    public static MailingJob create(String id) {
+        return create(id, null, false);
+    }
+
+    /**
+     * Creates a new job that starts with the first customer.
+     *
+     * @param id       the unique identifier of the job
+     * @param segment  the criteria the customers have to match, or null for all customers
+     * @param combined whether the letters are written into combined volumes instead of one file per customer
+     * @return the queued job
+     */
+    public static MailingJob create(String id, CustomerSegment segment, boolean combined) {
+        return new MailingJob(id, Instant.now(), segment, combined, MailingJobStatus.QUEUED, 0, 0, 0);
+    }
+
+    /**
+     * Restores a job from its checkpoint.
+     *
+     * @param checkpoint the properties written by {@link #toCheckpoint()}
+     * @return the restored job
+     */
+    public static MailingJob fromCheckpoint(Properties checkpoint) {
+        MailingJob job = new MailingJob(
+                checkpoint.getProperty("id"),
+                Instant.parse(checkpoint.getProperty("createdAt")),
+                readSegment(checkpoint),
+                Boolean.parseBoolean(checkpoint.getProperty("combined", "false")),
+                MailingJobStatus.valueOf(checkpoint.getProperty("status")),
+                Long.parseLong(checkpoint.getProperty("done", "0")),
+                Long.parseLong(checkpoint.getProperty("failed", "0")),
+                Long.parseLong(checkpoint.getProperty("checkpointId", "0")));
+        job.total = Long.parseLong(checkpoint.getProperty("total", "0"));
+        String finishedAt = checkpoint.getProperty("finishedAt");
+        job.finishedAt = finishedAt != null ? Instant.parse(finishedAt) : null;
+        job.errorMessage = checkpoint.getProperty("errorMessage");
+        return job;
+    }
+
+    /**
+     * Serializes the job state for the checkpoint file.
+     * The counters only cover the letters up to the checkpoint, so they are not counted twice after a resume.
+     * A combined job always checkpoints its start, as its volumes cannot be continued.
+     *
+     * @return the checkpoint properties
+     */
+    public synchronized Properties toCheckpoint() {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("id", id);
+        checkpoint.setProperty("createdAt", createdAt.toString());
+        checkpoint.setProperty("status", status.name());
+        checkpoint.setProperty("combined", String.valueOf(combined));
+        writeSegment(checkpoint, segment);
+        checkpoint.setProperty("total", String.valueOf(total));
+        checkpoint.setProperty("done", String.valueOf(combined ? 0 : doneUpToCheckpoint));
+        checkpoint.setProperty("failed", String.valueOf(combined ? 0 : failedUpToCheckpoint));
+        checkpoint.setProperty("checkpointId", String.valueOf(combined ? 0 : getCheckpointId()));
+        if (finishedAt != null) {
+            checkpoint.setProperty("finishedAt", finishedAt.toString());
+        }
+        if (errorMessage != null) {
+            checkpoint.setProperty("errorMessage", errorMessage);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Returns the highest customer ID up to which every letter of the job is finished.
+     *
+     * @return the ID after which a resumed job continues
+     */
+    public synchronized long getCheckpointId() {
+        Long oldestInFlight = inFlight.ceiling(Long.MIN_VALUE);
+        return oldestInFlight != null ? oldestInFlight - 1 : lastSubmittedId;
+    }
+
+    /**
+     * Marks the job as running.
+     *
+     * @param remaining the number of customers still to be processed
+     */
+    void start(long remaining) {
+        this.total = done.get() + failed.get() + remaining;
+        this.startedNanos = System.nanoTime();
+        this.processedSinceStart.set(0);
+        this.status = MailingJobStatus.RUNNING;
+    }
+
+    /**
+     * Marks the job as finished.
+     *
+     * @param status       the final status of the job
+     * @param errorMessage the reason of the failure, or null if the job completed
+     */
+    void finish(MailingJobStatus status, String errorMessage) {
+        this.status = status;
+        this.errorMessage = errorMessage;
+        this.finishedAt = Instant.now();
+    }
+
+    /**
+     * Marks the job as waiting to be resumed.
+     */
+    void requeue() {
+        this.status = MailingJobStatus.QUEUED;
+    }
+
+    /**
+     * Records that the letter of a customer was handed to a worker.
+     *
+     * @param customerId the ID of the customer
+     */
+    synchronized void letterSubmitted(long customerId) {
+        inFlight.add(customerId);
+        lastSubmittedId = customerId;
+    }
+
+    /**
+     * Records that the letter of a customer was generated.
+     *
+     * @param customerId the ID of the customer
+     * @return the number of letters processed since the job was (re)started
+     */
+    long letterGenerated(long customerId) {
+        done.incrementAndGet();
+        letterFinished(customerId, false);
+        return processedSinceStart.incrementAndGet();
+    }
+
+    /**
+     * Records that the letter of a customer could not be generated.
+     *
+     * @param customerId the ID of the customer
+     * @return the number of letters processed since the job was (re)started
+     */
+    long letterFailed(long customerId) {
+        failed.incrementAndGet();
+        letterFinished(customerId, true);
+        return processedSinceStart.incrementAndGet();
+    }
+
+    /**
+     * Moves a finished letter out of flight and adds the letters the checkpoint has passed to its counters.
+     *
+     * @param customerId the ID of the customer
+     * @param failure    whether the letter could not be generated
+     */
+    private synchronized void letterFinished(long customerId, boolean failure) {
+        inFlight.remove(customerId);
+        finishedAfterCheckpoint.put(customerId, failure);
+        NavigableMap<Long, Boolean> passed = finishedAfterCheckpoint.headMap(getCheckpointId(), true);
+        for (boolean passedFailure : passed.values()) {
+            if (passedFailure) {
+                failedUpToCheckpoint++;
+            } else {
+                doneUpToCheckpoint++;
+            }
+        }
+        passed.clear();
+    }
+
+    /**
+     * Returns the unique identifier of the job.
+     *
+     * @return the job ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the segment the job generates letters for.
+     *
+     * @return the criteria the customers have to match, or null for all customers
+     */
+    public CustomerSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * Checks whether the job writes combined volumes instead of one letter file per customer.
+     *
+     * @return true for combined volumes, false for letter files
+     */
+    public boolean isCombined() {
+        return combined;
+    }
+
+    /**
+     * Returns the current lifecycle state of the job.
+     *
+     * @return the job status
+     */
+    public MailingJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Takes a snapshot of the job counters.
+     *
+     * @return the current progress of the job
+     */
+    public MailingJobProgress toProgress() {
+        long doneCount = done.get();
+        long failedCount = failed.get();
+        double lettersPerSecond = 0;
+        if (status == MailingJobStatus.RUNNING) {
+            double seconds = Math.max(System.nanoTime() - startedNanos, 1) / 1_000_000_000.0;
+            lettersPerSecond = processedSinceStart.get() / seconds;
+        }
+        return new MailingJobProgress(id, segment, combined, status, total, doneCount, failedCount,
+                Math.max(total - doneCount - failedCount, 0), lettersPerSecond, createdAt, finishedAt, errorMessage);
+    }
+
+    private static void writeSegment(Properties checkpoint, CustomerSegment segment) {
+        if (segment == null) {
+            return;
+        }
+        checkpoint.setProperty("segment.cities", String.join(",", segment.cities()));
+        setIfPresent(checkpoint, "segment.country", segment.country());
+        setIfPresent(checkpoint, "segment.postalCodeFrom", segment.postalCodeFrom());
+        setIfPresent(checkpoint, "segment.postalCodeTo", segment.postalCodeTo());
+        setIfPresent(checkpoint, "segment.createdFrom", segment.createdFrom());
+        setIfPresent(checkpoint, "segment.createdTo", segment.createdTo());
+    }
+
+    private static CustomerSegment readSegment(Properties checkpoint) {
+        String cities = checkpoint.getProperty("segment.cities");
+        if (cities == null) {
+            return null;
+        }
+        return new CustomerSegment(
+                Arrays.asList(cities.split(",")),
+                checkpoint.getProperty("segment.country"),
+                checkpoint.getProperty("segment.postalCodeFrom"),
+                checkpoint.getProperty("segment.postalCodeTo"),
+                parseIfPresent(checkpoint, "segment.createdFrom", LocalDate::parse),
+                parseIfPresent(checkpoint, "segment.createdTo", LocalDate::parse));
+    }
+
+    private static void setIfPresent(Properties checkpoint, String key, Object value) {
+        if (value != null) {
+            checkpoint.setProperty(key, value.toString());
+        }
+    }
+
+    private static <T> T parseIfPresent(Properties checkpoint, String key, Function<String, T> parser) {
+        String value = checkpoint.getProperty(key);
+        return value != null ? parser.apply(value) : null;
+    }
+}
@@ -0,0 +1,322 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import jakarta.annotation.PreDestroy;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.DirectoryCreationException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for running mailing runs as asynchronous background jobs, for all customers or a segment,
+ * writing one letter file per customer or combined volumes.
+ * Each job writes a checkpoint file, so jobs interrupted by a shutdown or crash are resumed on the next start
+ * after the last customer whose letter was known to be finished. The checkpoint of a job is deleted once it has
+ * completed or failed, and only the most recent finished jobs are kept in memory for progress queries.
+ */
+@Service
+public class MailingJobService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailingJobService.class);
+    private static final String CHECKPOINT_SUFFIX = ".properties";
+    private static final int DEFAULT_HISTORY_SIZE = 100;
+    private final CustomerService customerService;
+    private final MailingService mailingService;
+    private final Path checkpointDirectory;
+    private final int checkpointInterval;
+    private final int historySize;
+    private final Map<String, MailingJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService jobExecutor;
+    private volatile boolean shuttingDown;
+
+    /**
+     * Constructor to initialize MailingJobService with the checkpoint settings, CustomerService and MailingService.
+     *
+     * @param checkpointPath     the directory where job checkpoints are stored
+     * @param checkpointInterval the number of processed letters after which a checkpoint is written
+     * @param historySize        the number of finished jobs whose progress is kept in memory
+     * @param customerService    the service for managing customers
+     * @param mailingService     the engine that generates the letters
+     */
+    public MailingJobService(@Value("${pdf.jobs.checkpoint-path}") String checkpointPath,
+                             @Value("${pdf.jobs.checkpoint-interval:500}") int checkpointInterval,
+                             @Value("${pdf.jobs.history-size:100}") int historySize,
+                             CustomerService customerService, MailingService mailingService) {
+        this.checkpointDirectory = Paths.get(checkpointPath);
+        this.checkpointInterval = Math.max(checkpointInterval, 1);
+        this.historySize = historySize >= 0 ? historySize : DEFAULT_HISTORY_SIZE;
+        this.customerService = customerService;
+        this.mailingService = mailingService;
+        this.jobExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("mailing-job-"));
+        ensureDirectoryExists(this.checkpointDirectory);
+    }
+
+    /**
+     * Submits a new mailing job generating a letter file for every customer and returns immediately.
+     *
+     * @return the progress of the queued job, including its ID
+     */
+    public MailingJobProgress submit() {
+        return submit(null, false);
+    }
+
+    /**
+     * Submits a new mailing job and returns immediately.
+     *
+     * @param segment  the criteria the customers have to match, or null for all customers
+     * @param combined whether the letters are written into combined volumes instead of one file per customer
+     * @return the progress of the queued job, including its ID
+     */
+    public MailingJobProgress submit(CustomerSegment segment, boolean combined) {
+        MailingJob job = MailingJob.create(UUID.randomUUID().toString(), segment, combined);
+        jobs.put(job.getId(), job);
+        writeCheckpoint(job);
+        jobExecutor.execute(() -> runJob(job));
+        LOGGER.info("Mailing job {} submitted.", job.getId());
+        return job.toProgress();
+    }
+
+    /**
+     * Retrieves the progress of a job.
+     *
+     * @param jobId the ID of the job
+     * @return an Optional containing the job progress, or empty if the job is unknown or was finished long ago
+     */
+    public Optional<MailingJobProgress> getProgress(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(MailingJob::toProgress);
+    }
+
+    /**
+     * Retrieves the progress of all known jobs, newest first.
+     *
+     * @return a list of job progress snapshots
+     */
+    public List<MailingJobProgress> getAllProgress() {
+        return jobs.values().stream()
+                .map(MailingJob::toProgress)
+                .sorted(Comparator.comparing(MailingJobProgress::createdAt).reversed())
+                .toList();
+    }
+
+    /**
+     * Loads the job checkpoints on startup and resumes the jobs that did not finish.
+     * Checkpoints of finished jobs are only left by a crash between finishing and deleting them, and are deleted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        try (DirectoryStream<Path> checkpoints = Files.newDirectoryStream(checkpointDirectory, "*" + CHECKPOINT_SUFFIX)) {
+            for (Path checkpoint : checkpoints) {
+                MailingJob job = readCheckpoint(checkpoint);
+                if (job == null || jobs.containsKey(job.getId())) {
+                    continue;
+                }
+                if (isFinished(job)) {
+                    deleteCheckpoint(job);
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                LOGGER.info("Resuming mailing job {} after customer ID {}.", job.getId(), job.getCheckpointId());
+                job.requeue();
+                jobExecutor.execute(() -> runJob(job));
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to read mailing job checkpoints from {}", checkpointDirectory, e);
+        }
+    }
+
+    /**
+     * Runs a job from its checkpoint to the last customer.
+     *
+     * @param job the job to run
+     */
+    private void runJob(MailingJob job) {
+        long checkpointId = job.getCheckpointId();
+        CustomerSegment segment = job.getSegment();
+        try {
+            long remaining = segment != null ? customerService.countSegmentAfter(segment, checkpointId)
+                    : customerService.countAfter(checkpointId);
+            job.start(remaining);
+            writeCheckpoint(job);
+            LOGGER.info("Mailing job {} started with {} customers after customer ID {}.", job.getId(), remaining, checkpointId);
+
+            Iterable<Customer> customers = segment != null ? customerService.iterateSegmentAfter(segment, checkpointId)
+                    : customerService.iterateAfter(checkpointId);
+            MailingProgressListener listener = new MailingProgressListener() {
+                @Override
+                public void onLetterSubmitted(Customer customer) {
+                    job.letterSubmitted(customer.getId());
+                }
+
+                @Override
+                public void onLetterGenerated(Customer customer) {
+                    checkpointIfDue(job, job.letterGenerated(customer.getId()));
+                }
+
+                @Override
+                public void onLetterSkipped(Customer customer) {
+                    checkpointIfDue(job, job.letterGenerated(customer.getId()));
+                }
+
+                @Override
+                public void onLetterFailed(Customer customer, String errorMessage) {
+                    checkpointIfDue(job, job.letterFailed(customer.getId()));
+                }
+            };
+            if (job.isCombined()) {
+                mailingService.generateCombinedLetters(customers, listener);
+            } else {
+                mailingService.generateLetters(customers, listener);
+            }
+
+            job.finish(MailingJobStatus.COMPLETED, null);
+            LOGGER.info("Mailing job {} completed.", job.getId());
+        } catch (RuntimeException e) {
+            if (shuttingDown) {
+                LOGGER.info("Mailing job {} interrupted by shutdown, it will be resumed on the next start.", job.getId());
+                job.requeue();
+            } else {
+                LOGGER.error("Mailing job {} failed", job.getId(), e);
+                job.finish(MailingJobStatus.FAILED, e.getMessage());
+            }
+        }
+        if (isFinished(job)) {
+            deleteCheckpoint(job);
+            pruneHistory();
+        } else {
+            writeCheckpoint(job);
+        }
+    }
+
+    /**
+     * Removes the oldest finished jobs from memory once more than the configured number of them are kept.
+     * Queued and running jobs are never removed.
+     */
+    private void pruneHistory() {
+        jobs.values().stream()
+                .map(MailingJob::toProgress)
+                .filter(progress -> progress.finishedAt() != null)
+                .sorted(Comparator.comparing(MailingJobProgress::finishedAt).reversed())
+                .skip(historySize)
+                .forEach(progress -> jobs.remove(progress.id()));
+    }
+
+    private static boolean isFinished(MailingJob job) {
+        return job.getStatus() == MailingJobStatus.COMPLETED || job.getStatus() == MailingJobStatus.FAILED;
+    }
+
+    /**
+     * Writes a checkpoint every time the configured number of letters has been processed.
+     *
+     * @param job       the running job
+     * @param processed the number of letters processed since the job was started
+     */
+    private void checkpointIfDue(MailingJob job, long processed) {
+        if (processed % checkpointInterval == 0) {
+            writeCheckpoint(job);
+        }
+    }
+
+    /**
+     * Atomically replaces the checkpoint file of a job with its current state.
+     * A failed write is logged and does not stop the job; it only widens the range regenerated after a restart.
+     *
+     * @param job the job to checkpoint
+     */
+    private synchronized void writeCheckpoint(MailingJob job) {
+        Path checkpoint = checkpointDirectory.resolve(job.getId() + CHECKPOINT_SUFFIX);
+        Path temporary = checkpointDirectory.resolve(job.getId() + CHECKPOINT_SUFFIX + ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                job.toCheckpoint().store(outputStream, "Mailing job checkpoint");
+            }
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write checkpoint for mailing job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * Deletes the checkpoint file of a finished job, so it is not loaded again on the next start.
+     *
+     * @param job the finished job
+     */
+    private synchronized void deleteCheckpoint(MailingJob job) {
+        try {
+            Files.deleteIfExists(checkpointDirectory.resolve(job.getId() + CHECKPOINT_SUFFIX));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete checkpoint of finished mailing job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * Reads a job from its checkpoint file.
+     *
+     * @param checkpoint the path of the checkpoint file
+     * @return the restored job, or null if the file cannot be read
+     */
+    private MailingJob readCheckpoint(Path checkpoint) {
+        try (InputStream inputStream = Files.newInputStream(checkpoint)) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            return MailingJob.fromCheckpoint(properties);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Skipping unreadable mailing job checkpoint {}", checkpoint, e);
+            return null;
+        }
+    }
+
+    /**
+     * Ensures that the checkpoint directory exists; creates it if necessary.
+     *
+     * @param directoryPath the path of the directory to ensure exists
+     * @throws DirectoryCreationException if an error occurs while creating the directory
+     */
+    private void ensureDirectoryExists(Path directoryPath) {
+        try {
+            Files.createDirectories(directoryPath);
+        } catch (IOException e) {
+            String errorMessage = String.format("Failed to create directory: %s", directoryPath);
+            LOGGER.error(errorMessage, e);
+            throw new DirectoryCreationException(errorMessage, e);
+        }
+    }
+
+    /**
+     * Stops the job coordinator. A running job keeps its checkpoint and is resumed on the next start.
+     */
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        jobExecutor.shutdownNow();
+        try {
+            jobExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+
+/**
+ * Callback interface notified by the mailing engine about the progress of a run.
+ * Methods are invoked concurrently from the worker threads and must be thread-safe.
+ */
+public interface MailingProgressListener {
+
+    /**
+     * Listener that ignores all notifications.
+     */
+    MailingProgressListener NONE = new MailingProgressListener() {
+    };
+
+    /**
+     * Called on the submitting thread before the letter of a customer is handed to a worker.
+     *
+     * @param customer the customer whose letter is about to be generated
+     */
+    default void onLetterSubmitted(Customer customer) {
+    }
+
+    /**
+     * Called after the letter of a customer has been generated and saved.
+     *
+     * @param customer the customer whose letter was generated
+     */
+    default void onLetterGenerated(Customer customer) {
+    }
+
+    /**
+     * Called when the existing letter of a customer is up to date and was not generated again.
+     *
+     * @param customer the customer whose letter was kept
+     */
+    default void onLetterSkipped(Customer customer) {
+    }
+
+    /**
+     * Called after the letter of a customer could not be generated.
+     *
+     * @param customer     the customer whose letter failed
+     * @param errorMessage the description of the failure
+     */
+    default void onLetterFailed(Customer customer, String errorMessage) {
+    }
+}
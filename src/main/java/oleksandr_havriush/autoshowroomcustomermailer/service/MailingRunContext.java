@@ -0,0 +1,62 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import lombok.Getter;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+
+import java.time.LocalDate;
+
+/**
+ * State shared by all letters of one mailing run: the car inventory, loaded and indexed once when the run starts,
+ * the car tables pre-rendered from its selections, the manifest of the written letter files
+ * and the fingerprints of the generated letters.
+ */
+@Getter
+public class MailingRunContext implements AutoCloseable {
+    private final String runName;
+    private final LocalDate runDate;
+    private final InventorySelection inventory;
+    private final LetterManifest manifest;
+    private final LetterFingerprintStore fingerprints;
+
+    /**
+     * Constructor to initialize MailingRunContext with the car inventory of the run.
+     *
+     * @param runName      the unique name of the run
+     * @param runDate      the date the run was started
+     * @param inventory    the car inventory of the run, indexed for the selection of each letter
+     * @param manifest     the manifest recording the letter files of the run
+     * @param fingerprints the fingerprints of the last generated letters
+     */
+    public MailingRunContext(String runName, LocalDate runDate, InventorySelection inventory,
+                             LetterManifest manifest, LetterFingerprintStore fingerprints) {
+        this.runName = runName;
+        this.runDate = runDate;
+        this.inventory = inventory;
+        this.manifest = manifest;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Returns the cars listed in the letter of a customer, with their pre-rendered table and version.
+     *
+     * @param customer the customer of the letter
+     * @return the car selection of the customer
+     */
+    public CarSelection selectCars(Customer customer) {
+        return inventory.forCustomer(customer);
+    }
+
+    /**
+     * Finishes the run by completing its manifest and saving the fingerprints of the generated letters.
+     *
+     * @throws oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException if the manifest cannot be finished
+     */
+    @Override
+    public void close() {
+        try {
+            manifest.close();
+        } finally {
+            fingerprints.save();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import jakarta.annotation.PreDestroy;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingReport;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service that generates customer letters in parallel on a bounded pool of worker threads.
+ */
+@Service
+public class MailingService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailingService.class);
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private final PdfGenerationService pdfGenerationService;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int maxInFlight;
+
+    /**
+     * Constructor to initialize MailingService with the PDF generation service and the worker pool settings.
+     *
+     * @param pdfGenerationService the service that renders and saves a single letter
+     * @param parallelism          the number of worker threads, or 0 to use one thread per available core
+     * @param maxInFlight          the maximum number of letters queued or in progress at once, or 0 for four per worker
+     */
+    public MailingService(PdfGenerationService pdfGenerationService,
+                          @Value("${pdf.mailing.parallelism:0}") int parallelism,
+                          @Value("${pdf.mailing.max-in-flight:0}") int maxInFlight) {
+        this.pdfGenerationService = pdfGenerationService;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : this.parallelism * 4;
+        this.executor = Executors.newFixedThreadPool(this.parallelism, new CustomizableThreadFactory("mailing-worker-"));
+        LOGGER.info("Mailing engine started with {} workers and at most {} letters in flight.", this.parallelism, this.maxInFlight);
+    }
+
+    /**
+     * Generates a letter for every given customer and waits until all of them are processed.
+     * Letters whose customer and car inventory did not change since they were last generated are kept as they are.
+     * The car inventory is loaded and its table rendered once for the whole run, and letters are rendered
+     * from the given customer entities without looking them up again.
+     * Submission blocks while the in-flight limit is reached, so arbitrarily large inputs never pile up in memory.
+     *
+     * @param customers the customers for whom letters are to be generated
+     * @return a report with the number of generated and failed letters and the run throughput
+     * @throws PdfGenerationException if the calling thread is interrupted while waiting for the workers
+     */
+    public MailingReport generateLetters(Iterable<Customer> customers) {
+        return generateLetters(customers, MailingProgressListener.NONE);
+    }
+
+    /**
+     * Generates a letter for every given customer, reporting the progress of each letter to a listener,
+     * and waits until all of them are processed. The manifest of the run is finished once all letters are written.
+     *
+     * @param customers the customers for whom letters are to be generated
+     * @param listener  the listener notified about every submitted, generated and failed letter
+     * @return a report with the number of generated and failed letters and the run throughput
+     * @throws PdfGenerationException if the calling thread is interrupted while waiting for the workers
+     *                                or the manifest of the run cannot be finished
+     */
+    public MailingReport generateLetters(Iterable<Customer> customers, MailingProgressListener listener) {
+        try (MailingRunContext run = pdfGenerationService.openMailingRun()) {
+            return runLetters(customers, listener, (customer, sequence, statistics, release) -> {
+                try {
+                    generateLetter(customer, run, listener, statistics);
+                } finally {
+                    release.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Generates a letter for every given customer into combined PDF volumes instead of one file per customer,
+     * and waits until all of them are written.
+     * Letters are still rendered in parallel, but are appended to the volumes in the order of the given customers.
+     * A letter keeps its in-flight slot until it has been appended, so the letters waiting for a slower
+     * predecessor are bounded by the in-flight limit as well.
+     *
+     * @param customers the customers for whom letters are to be generated
+     * @return a report with the number of generated and failed letters and the run throughput
+     * @throws PdfGenerationException if the combined output cannot be written or the run is interrupted
+     */
+    public MailingReport generateCombinedLetters(Iterable<Customer> customers) {
+        return generateCombinedLetters(customers, MailingProgressListener.NONE);
+    }
+
+    /**
+     * Generates a letter for every given customer into combined PDF volumes, reporting the progress of each letter
+     * to a listener, and waits until all of them are written. A letter is reported once it has been rendered.
+     *
+     * @param customers the customers for whom letters are to be generated
+     * @param listener  the listener notified about every submitted, generated and failed letter
+     * @return a report with the number of generated and failed letters and the run throughput
+     * @throws PdfGenerationException if the combined output cannot be written or the run is interrupted
+     */
+    public MailingReport generateCombinedLetters(Iterable<Customer> customers, MailingProgressListener listener) {
+        try (MailingRunContext run = pdfGenerationService.openMailingRun();
+             CombinedLetterWriter writer = pdfGenerationService.openCombinedOutput()) {
+            return runLetters(customers, listener, (customer, sequence, statistics, release) -> {
+                byte[] letter = null;
+                try {
+                    LOGGER.debug("Rendering PDF for customer: {}", customer);
+                    letter = pdfGenerationService.renderLetter(customer, run);
+                    statistics.succeeded.increment();
+                    listener.onLetterGenerated(customer);
+                } catch (Exception e) {
+                    listener.onLetterFailed(customer, statistics.recordFailure(customer, e));
+                } finally {
+                    writer.append(sequence, letter, release);
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands every given customer to a worker and waits until all letters are processed.
+     *
+     * @param customers the customers for whom letters are to be generated
+     * @param listener  the listener notified about every submitted letter
+     * @param task      the work done for a single letter on a worker thread
+     * @return a report with the number of generated and failed letters and the run throughput
+     * @throws PdfGenerationException if the engine is shut down or the calling thread is interrupted
+     */
+    private MailingReport runLetters(Iterable<Customer> customers, MailingProgressListener listener, LetterTask task) {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(maxInFlight);
+        RunStatistics statistics = new RunStatistics();
+        long sequence = 0;
+
+        try {
+            for (Customer customer : customers) {
+                permits.acquire();
+                listener.onLetterSubmitted(customer);
+                long letterSequence = sequence++;
+                try {
+                    executor.execute(() -> task.run(customer, letterSequence, statistics, permits::release));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    awaitSubmittedLetters(permits);
+                    throw new PdfGenerationException("Mailing engine is shut down", e);
+                }
+            }
+            permits.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            awaitSubmittedLetters(permits);
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Mailing run was interrupted", e);
+        }
+
+        MailingReport report = new MailingReport(statistics.succeeded.sum(), statistics.failed.sum(), statistics.skipped.sum(),
+                new ArrayList<>(statistics.errorMessages), Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info("Mailing run finished: {} letters generated, {} failed, {} up to date in {} ms ({} letters/s).",
+                report.succeeded(), report.failed(), report.skipped(), report.elapsed().toMillis(),
+                String.format("%.1f", report.lettersPerSecond()));
+        return report;
+    }
+
+    /**
+     * Waits until the letters already handed to the workers are processed, ignoring interrupts,
+     * so the run context and the combined output are not closed while workers still write to them.
+     *
+     * @param permits the in-flight slots of the run
+     */
+    private void awaitSubmittedLetters(Semaphore permits) {
+        permits.acquireUninterruptibly(maxInFlight);
+    }
+
+    /**
+     * Generates a letter for a given customer unless its letter from an earlier run is still up to date,
+     * and records the outcome in the run counters.
+     *
+     * @param customer   the customer for whom the letter is to be generated
+     * @param run        the mailing run the letter belongs to
+     * @param listener   the listener notified about the outcome
+     * @param statistics the counters of the run
+     */
+    private void generateLetter(Customer customer, MailingRunContext run, MailingProgressListener listener,
+                                RunStatistics statistics) {
+        try {
+            if (pdfGenerationService.isLetterUpToDate(customer, run)) {
+                statistics.skipped.increment();
+                listener.onLetterSkipped(customer);
+                return;
+            }
+            LOGGER.debug("Generating PDF for customer: {}", customer);
+            pdfGenerationService.createPdfForCustomer(customer, run);
+            statistics.succeeded.increment();
+            listener.onLetterGenerated(customer);
+        } catch (Exception e) {
+            listener.onLetterFailed(customer, statistics.recordFailure(customer, e));
+        }
+    }
+
+    /**
+     * Returns the number of worker threads used to generate letters.
+     *
+     * @return the size of the worker pool
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Stops the worker pool, letting letters that are already in progress finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Work done for a single letter on a worker thread.
+     */
+    @FunctionalInterface
+    private interface LetterTask {
+
+        /**
+         * Processes the letter of a customer and eventually releases its in-flight slot.
+         *
+         * @param customer   the customer whose letter is processed
+         * @param sequence   the position of the customer in the run, starting at 0
+         * @param statistics the counters of the run
+         * @param release    the callback that frees the in-flight slot of the letter
+         */
+        void run(Customer customer, long sequence, RunStatistics statistics, Runnable release);
+    }
+
+    /**
+     * Counters and error messages collected by the workers of one run.
+     */
+    private static final class RunStatistics {
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final AtomicInteger reportedErrors = new AtomicInteger();
+        private final Queue<String> errorMessages = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Records a failed letter, keeping only the first error messages of the run.
+         *
+         * @param customer the customer whose letter failed
+         * @param e        the cause of the failure
+         * @return the description of the failure
+         */
+        private String recordFailure(Customer customer, Exception e) {
+            String errorMessage = String.format("Error generating PDF for customer %s %s: %s",
+                    customer.getLastName(), customer.getFirstName(), e.getMessage());
+            LOGGER.error(errorMessage, e);
+            failed.increment();
+            if (reportedErrors.getAndIncrement() < MAX_REPORTED_ERRORS) {
+                errorMessages.add(errorMessage);
+            }
+            return errorMessage;
+        }
+    }
+}
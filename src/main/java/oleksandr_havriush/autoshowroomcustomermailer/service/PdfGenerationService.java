@@ -1,23 +1,35 @@
 package oleksandr_havriush.autoshowroomcustomermailer.service;
 
+import com.itextpdf.text.ExceptionConverter;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.DirectoryCreationException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.LetterFingerprints;
+import oleksandr_havriush.autoshowroomcustomermailer.util.LetterWriteEvent;
 import oleksandr_havriush.autoshowroomcustomermailer.util.PdfReportGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * Service class for generating PDF reports for customers.
@@ -25,70 +37,255 @@ import java.util.Optional;
 @Service
 public class PdfGenerationService {
     private static final Logger LOGGER = LoggerFactory.getLogger(PdfGenerationService.class);
-    private final CustomerService customerService;
+    private static final String COMBINED_DIRECTORY = "combined";
+    private static final String MANIFEST_DIRECTORY = "manifests";
+    private static final String FINGERPRINT_FILE = "fingerprints.csv";
+    private static final String TEMPORARY_SUFFIX = ".part";
+    private static final DateTimeFormatter RUN_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+    private static final int DEFAULT_LETTERS_PER_VOLUME = 10000;
+    private static final int DEFAULT_SHARD_COUNT = 256;
+    private static final int PDF_BUFFER_SIZE = 64 * 1024;
     private final VehicleService<Car> carService;
+    private final CarSelectionPolicy carSelectionPolicy;
+    private final MailerMetrics metrics;
     private final Path baseDirectory;
+    private final Set<Path> knownDirectories = ConcurrentHashMap.newKeySet();
+    private final LetterFingerprintStore fingerprintStore;
+
+    @Value("${pdf.combined.letters-per-volume:10000}")
+    private int lettersPerVolume = DEFAULT_LETTERS_PER_VOLUME;
+
+    @Value("${pdf.output.layout:ID_HASH}")
+    private LetterOutputLayout outputLayout = LetterOutputLayout.ID_HASH;
+
+    @Value("${pdf.output.shard-count:256}")
+    private int shardCount = DEFAULT_SHARD_COUNT;
+
+    @Value("${pdf.mailing.incremental:true}")
+    private boolean incremental = true;
 
     /**
      * Constructor to initialize PdfGenerationService with base directory path,
-     * CustomerService, and VehicleService.
+     * VehicleService, CarSelectionPolicy and MailerMetrics.
      *
-     * @param basePath       the base directory path where PDF files will be saved
-     * @param customerService the service for managing customers
-     * @param carService     the service for managing cars
+     * @param basePath           the base directory path where PDF files will be saved
+     * @param carService         the service for managing cars
+     * @param carSelectionPolicy the policy choosing the cars listed in each letter
+     * @param metrics            the meters recording letter latency, size and failures
      */
     public PdfGenerationService(@Value("${pdf.generated-mails-path}") String basePath,
-                                CustomerService customerService, VehicleService<Car> carService) {
+                                VehicleService<Car> carService, CarSelectionPolicy carSelectionPolicy,
+                                MailerMetrics metrics) {
         this.baseDirectory = Paths.get(basePath);
-        this.customerService = customerService;
         this.carService = carService;
+        this.carSelectionPolicy = carSelectionPolicy;
+        this.metrics = metrics;
         ensureDirectoryExists(this.baseDirectory);
+        this.knownDirectories.add(this.baseDirectory);
+        this.fingerprintStore = new LetterFingerprintStore(this.baseDirectory.resolve(FINGERPRINT_FILE));
+    }
+
+    /**
+     * Starts a mailing run by loading and indexing the car inventory once for all letters.
+     * The car table of each selection is pre-rendered when the first letter of the selection is generated.
+     * The letter files of the run are listed in a manifest in the {@value #MANIFEST_DIRECTORY} subdirectory
+     * of the base directory, which is finished when the run is closed.
+     * The fingerprints of previously generated letters are loaded with the first run.
+     *
+     * @return the context shared by all letters of the run
+     */
+    public MailingRunContext openMailingRun() {
+        fingerprintStore.load();
+        List<Car> cars = carService.findAll();
+        LocalDateTime startedAt = LocalDateTime.now();
+        String runName = "run_" + startedAt.format(RUN_NAME_FORMAT);
+        LetterManifest manifest = new LetterManifest(baseDirectory.resolve(MANIFEST_DIRECTORY).resolve(runName + ".csv"));
+        LOGGER.info("Mailing run {} opened with {} cars in the inventory.", runName, cars.size());
+        return new MailingRunContext(runName, startedAt.toLocalDate(), carSelectionPolicy.select(cars), manifest, fingerprintStore);
     }
 
     /**
-     * Initiates PDF generation for a customer based on customer ID.
+     * Checks whether the letter of a customer generated by an earlier run is still current,
+     * i.e. its fingerprint matches the customer and the cars selected for the customer in this run and its file still exists.
+     * A current letter is listed in the manifest of the run and does not need to be generated again.
+     * Always returns false when incremental mailing is disabled.
      *
-     * @param customerId the ID of the customer for whom PDF is to be generated
+     * @param customer the customer whose letter is checked
+     * @param run      the mailing run providing the car selections
+     * @return true if the existing letter can be kept, false if it has to be generated
+     */
+    public boolean isLetterUpToDate(Customer customer, MailingRunContext run) {
+        if (!incremental) {
+            return false;
+        }
+        String fingerprint = LetterFingerprints.letterFingerprint(customer, run.selectCars(customer).inventoryVersion());
+        Optional<LetterFingerprintStore.Entry> previous = run.getFingerprints().get(customer.getId());
+        if (previous.isEmpty() || !previous.get().fingerprint().equals(fingerprint)
+                || !Files.exists(baseDirectory.resolve(previous.get().letterPath()))) {
+            return false;
+        }
+        run.getManifest().record(customer.getId(), previous.get().letterPath());
+        metrics.recordLetterUpToDate();
+        LOGGER.debug("Letter for customer ID: {} is up to date.", customer.getId());
+        return true;
+    }
+
+    /**
+     * Initiates PDF generation for an already loaded customer as part of a mailing run.
+     * Bulk runs that iterate over customers use this method, so no additional query is issued per letter.
+     *
+     * @param customer the customer for whom PDF is to be generated
+     * @param run      the mailing run providing the shared car tables
      * @throws PdfGenerationException if an error occurs during PDF generation
      */
-    public void createPdfForCustomer(Long customerId) {
-        LOGGER.info("Starting PDF generation for customer ID: {}", customerId);
+    public void createPdfForCustomer(Customer customer, MailingRunContext run) {
+        LOGGER.info("Starting PDF generation for customer ID: {}", customer.getId());
+        long startTime = metrics.start();
         try {
-            Optional<Customer> customerOpt = customerService.findById(customerId);
-            if (!customerOpt.isPresent()) {
-                LOGGER.error("Customer with ID {} not found", customerId);
-                throw new PdfGenerationException("Customer not found for ID: " + customerId);
+            CarSelection selection = run.selectCars(customer);
+            Path pdfFilePath = writePdfToFile(customer, run.getRunDate(),
+                    outputStream -> PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), selection.carTable(), outputStream));
+            Path letterPath = baseDirectory.relativize(pdfFilePath);
+            run.getManifest().record(customer.getId(), letterPath);
+            LetterFingerprintStore.Entry previous = run.getFingerprints().put(customer.getId(),
+                    LetterFingerprints.letterFingerprint(customer, selection.inventoryVersion()), letterPath);
+            if (previous != null && !previous.letterPath().equals(letterPath)) {
+                deleteFileQuietly(baseDirectory.resolve(previous.letterPath()));
             }
+            metrics.recordLetter(startTime);
+            LOGGER.info("PDF for customer ID: {} created successfully.", customer.getId());
+        } catch (RuntimeException ex) {
+            metrics.recordFailure(MailerMetrics.STAGE_LETTER, ex);
+            throw new PdfGenerationException("Error during PDF generation for customer ID: " + customer.getId(), ex);
+        }
+    }
 
-            Customer customer = customerOpt.get();
-            List<Car> cars = carService.findAll();
-            ByteArrayInputStream pdfContentStream = PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), cars);
-
-            savePdfToFile(customer, pdfContentStream);
-            LOGGER.info("PDF for customer ID: {} created successfully.", customerId);
+    /**
+     * Renders the letter of an already loaded customer as part of a mailing run without saving it.
+     *
+     * @param customer the customer for whom the letter is to be rendered
+     * @param run      the mailing run providing the shared car tables
+     * @return the rendered PDF document
+     * @throws PdfGenerationException if an error occurs during PDF generation
+     */
+    public byte[] renderLetter(Customer customer, MailingRunContext run) {
+        try {
+            long startTime = metrics.start();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(PDF_BUFFER_SIZE);
+            PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), run.selectCars(customer).carTable(), outputStream);
+            metrics.recordRender(startTime, outputStream.size());
+            return outputStream.toByteArray();
         } catch (RuntimeException ex) {
-            throw new PdfGenerationException("Error during PDF generation for customer ID: " + customerId, ex);
+            metrics.recordFailure(MailerMetrics.STAGE_LETTER, ex);
+            throw new PdfGenerationException("Error during PDF generation for customer ID: " + customer.getId(), ex);
         }
     }
 
     /**
-     * Saves PDF content to a file in the base directory.
+     * Opens a writer that collects the letters of a mailing run into combined PDF volumes
+     * in the {@value #COMBINED_DIRECTORY} subdirectory of the base directory.
      *
-     * @param customer         the customer for whom the PDF is generated
-     * @param pdfContentStream the input stream containing PDF content
+     * @return the writer for the combined output of the run
+     * @throws DirectoryCreationException if the output directory cannot be created
+     */
+    public CombinedLetterWriter openCombinedOutput() {
+        Path combinedDirectory = baseDirectory.resolve(COMBINED_DIRECTORY);
+        ensureDirectoryExists(combinedDirectory);
+        String runName = "letters_" + LocalDateTime.now().format(RUN_NAME_FORMAT);
+        LOGGER.info("Writing combined PDF {} to {} with at most {} letters per volume.", runName, combinedDirectory, lettersPerVolume);
+        return new CombinedLetterWriter(combinedDirectory, runName, lettersPerVolume);
+    }
+
+    /**
+     * Writes PDF content straight to a file through a buffered stream, so the letter is never held in memory as a whole.
+     * The file is placed according to the configured output layout and written under a temporary name first,
+     * so a letter is either complete or absent, and an existing letter of the same customer is replaced atomically.
+     * Every write gets its own temporary file, so overlapping runs writing the same letter never share or delete each other's file.
+     * The bytes reaching the file are counted below the buffer, so the letter size is recorded without extra copies.
+     * The write is recorded as {@link LetterWriteEvent} when a flight recording is running.
+     *
+     * @param customer the customer for whom the PDF is generated
+     * @param runDate  the date of the mailing run the letter belongs to
+     * @param renderer the function writing the PDF content to the file stream
+     * @return the path of the saved letter
      * @throws PdfGenerationException if an error occurs while saving the PDF
      */
-    private void savePdfToFile(Customer customer, ByteArrayInputStream pdfContentStream) {
-        Path pdfFilePath = baseDirectory.resolve(customer.getLastName() + "_" + customer.getFirstName() + "_email.pdf");
-        try (OutputStream outputStream = Files.newOutputStream(pdfFilePath)) {
-            byte[] buffer = new byte[pdfContentStream.available()];
-            pdfContentStream.read(buffer);
-            outputStream.write(buffer);
+    private Path writePdfToFile(Customer customer, LocalDate runDate, Consumer<OutputStream> renderer) {
+        Path directory = outputLayout.resolveDirectory(baseDirectory, customer.getId(), runDate, shardCount);
+        ensureOutputDirectoryExists(directory);
+        Path pdfFilePath = directory.resolve(letterFileName(customer));
+        Path temporaryPath = null;
+        LetterWriteEvent event = new LetterWriteEvent();
+        event.begin();
+        ByteCountingOutputStream fileStream = null;
+        try {
+            long startTime = metrics.start();
+            temporaryPath = Files.createTempFile(directory, pdfFilePath.getFileName() + ".", TEMPORARY_SUFFIX);
+            fileStream = new ByteCountingOutputStream(Files.newOutputStream(temporaryPath));
+            try (OutputStream outputStream = new BufferedOutputStream(fileStream, PDF_BUFFER_SIZE)) {
+                renderer.accept(outputStream);
+            }
+            metrics.recordWrite(startTime, fileStream.count);
+            Files.move(temporaryPath, pdfFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             LOGGER.info("PDF file for customer ID: {} saved successfully.", customer.getId());
-        } catch (IOException e) {
+            return pdfFilePath;
+        } catch (IOException | ExceptionConverter e) {
             String errorMessage = String.format("Error saving PDF for customer ID %s: %s", customer.getId(), e.getMessage());
             LOGGER.error(errorMessage, e);
             throw new PdfGenerationException(errorMessage, e);
+        } finally {
+            if (temporaryPath != null) {
+                deleteFileQuietly(temporaryPath);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.customerId = customer.getId() == null ? 0 : customer.getId();
+                event.bytes = fileStream == null ? 0 : fileStream.count;
+                event.file = pdfFilePath.toString();
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Builds the file name of a letter. The customer ID keeps letters of customers with the same name apart,
+     * and characters that are not letters or digits are replaced so names cannot escape the output directory.
+     *
+     * @param customer the customer of the letter
+     * @return the file name of the letter
+     */
+    static String letterFileName(Customer customer) {
+        return String.format("%d_%s_%s_email.pdf", customer.getId(),
+                sanitizeFileNamePart(customer.getLastName()), sanitizeFileNamePart(customer.getFirstName()));
+    }
+
+    private static String sanitizeFileNamePart(String part) {
+        return part == null ? "" : part.replaceAll("[^\\p{L}\\p{N}-]", "_");
+    }
+
+    /**
+     * Removes a file that is no longer needed, such as an unfinished temporary file or an outdated letter.
+     *
+     * @param path the path of the file
+     */
+    private void deleteFileQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete file {}", path, e);
+        }
+    }
+
+    /**
+     * Ensures that an output directory exists, checking every directory only once.
+     *
+     * @param directoryPath the path of the directory to ensure exists
+     * @throws DirectoryCreationException if an error occurs while creating the directory
+     */
+    private void ensureOutputDirectoryExists(Path directoryPath) {
+        if (!knownDirectories.contains(directoryPath)) {
+            ensureDirectoryExists(directoryPath);
+            knownDirectories.add(directoryPath);
         }
     }
 
@@ -108,4 +305,27 @@ public class PdfGenerationService {
             throw new DirectoryCreationException(errorMessage, e);
         }
     }
+
+    /**
+     * Output stream counting the bytes written through it.
+     */
+    private static final class ByteCountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        ByteCountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
@@ -0,0 +1,306 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.DirectoryCreationException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Service that keeps uploaded inventory feeds on disk between the upload, the preview and the save request.
+ * Only the generated import ID travels with the requests; staged files expire after a configurable time.
+ * Before a staged file is written to the database it is claimed by renaming it, so a second request for the same
+ * import is rejected instead of writing the cars again. A save that failed after writing some cars leaves the file
+ * marked as partial, and it can then only be claimed for a synchronization.
+ */
+@Service
+public class StagedImportStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StagedImportStore.class);
+    private static final String FILE_SUFFIX = ".xml";
+    private static final String CLAIMED_SUFFIX = ".claimed";
+    private static final String PARTIAL_SUFFIX = ".partial";
+    private final Path stagingDirectory;
+    private final Duration timeToLive;
+
+    /**
+     * Constructor to initialize StagedImportStore with the staging directory and the time to live of staged files.
+     *
+     * @param stagingPath the directory where uploaded files are staged
+     * @param timeToLive  the time after which a staged file that was not saved is deleted
+     */
+    public StagedImportStore(@Value("${cars.import.staging-path}") String stagingPath,
+                             @Value("${cars.import.staging-ttl:PT1H}") Duration timeToLive) {
+        this.stagingDirectory = Paths.get(stagingPath);
+        this.timeToLive = timeToLive;
+        ensureDirectoryExists(this.stagingDirectory);
+    }
+
+    /**
+     * Stages an uploaded file and evicts expired staged files.
+     *
+     * @param file the uploaded file
+     * @return the ID under which the file is staged
+     * @throws FileProcessingException if the file cannot be stored
+     */
+    public String stage(MultipartFile file) {
+        evictExpired();
+        String importId = UUID.randomUUID().toString();
+        try {
+            file.transferTo(resolve(importId));
+            LOGGER.info("File '{}' staged as import {}.", file.getOriginalFilename(), importId);
+            return importId;
+        } catch (IOException e) {
+            LOGGER.error("Error staging XML file", e);
+            throw new FileProcessingException("Error staging XML file", e);
+        }
+    }
+
+    /**
+     * Opens a staged file for reading.
+     *
+     * @param importId the ID of the staged import
+     * @return a stream over the staged file, to be closed by the caller
+     * @throws FileProcessingException if the import is unknown, expired or cannot be read
+     */
+    public InputStream open(String importId) {
+        Path stagedFile = resolve(importId);
+        try {
+            if (!Files.exists(stagedFile) || isExpired(stagedFile)) {
+                throw new FileProcessingException("Staged import not found or expired: " + importId);
+            }
+            return Files.newInputStream(stagedFile);
+        } catch (IOException e) {
+            LOGGER.error("Error reading staged import {}", importId, e);
+            throw new FileProcessingException("Error reading staged import: " + importId, e);
+        }
+    }
+
+    /**
+     * Claims a staged file for an import, so that no other request can import or synchronize it.
+     *
+     * @param importId the ID of the staged import
+     * @throws ImportAlreadyClaimedException if the import is already being written or was partially saved
+     * @throws FileProcessingException       if the import is unknown, expired or cannot be claimed
+     */
+    public void claim(String importId) {
+        if (!moveIfPresent(importId, resolve(importId), resolve(importId, CLAIMED_SUFFIX))) {
+            throw notClaimable(importId);
+        }
+    }
+
+    /**
+     * Claims a staged or partially saved file for a synchronization, so that no other request can write it.
+     *
+     * @param importId the ID of the staged import
+     * @return true if the claimed file was partially saved before, false if it was staged
+     * @throws ImportAlreadyClaimedException if the import is already being written
+     * @throws FileProcessingException       if the import is unknown, expired or cannot be claimed
+     */
+    public boolean claimForSync(String importId) {
+        Path claimedFile = resolve(importId, CLAIMED_SUFFIX);
+        if (moveIfPresent(importId, resolve(importId), claimedFile)) {
+            return false;
+        }
+        if (moveIfPresent(importId, resolve(importId, PARTIAL_SUFFIX), claimedFile)) {
+            return true;
+        }
+        throw notClaimable(importId);
+    }
+
+    /**
+     * Opens a claimed file for reading.
+     *
+     * @param importId the ID of the claimed import
+     * @return a stream over the claimed file, to be closed by the caller
+     * @throws FileProcessingException if the import is not claimed or cannot be read
+     */
+    public InputStream openClaimed(String importId) {
+        try {
+            return Files.newInputStream(resolve(importId, CLAIMED_SUFFIX));
+        } catch (IOException e) {
+            LOGGER.error("Error reading claimed import {}", importId, e);
+            throw new FileProcessingException("Error reading staged import: " + importId, e);
+        }
+    }
+
+    /**
+     * Returns a claimed file to the staged files after nothing was written, so it can be imported again.
+     *
+     * @param importId the ID of the claimed import
+     */
+    public void release(String importId) {
+        moveClaimed(importId, FILE_SUFFIX);
+    }
+
+    /**
+     * Marks a claimed file as partially saved after some of its cars were written,
+     * so it can only be claimed again for a synchronization.
+     *
+     * @param importId the ID of the claimed import
+     */
+    public void markPartial(String importId) {
+        moveClaimed(importId, PARTIAL_SUFFIX);
+    }
+
+    /**
+     * Deletes a staged, claimed or partially saved file once it is no longer needed.
+     *
+     * @param importId the ID of the staged import
+     */
+    public void discard(String importId) {
+        try {
+            Files.deleteIfExists(resolve(importId));
+            Files.deleteIfExists(resolve(importId, CLAIMED_SUFFIX));
+            Files.deleteIfExists(resolve(importId, PARTIAL_SUFFIX));
+        } catch (IOException e) {
+            LOGGER.warn("Failed to delete staged import {}", importId, e);
+        }
+    }
+
+    /**
+     * Deletes all staged, claimed and partially saved files older than the time to live.
+     */
+    public void evictExpired() {
+        try (DirectoryStream<Path> stagedFiles = Files.newDirectoryStream(stagingDirectory,
+                "*{" + FILE_SUFFIX + "," + CLAIMED_SUFFIX + "," + PARTIAL_SUFFIX + "}")) {
+            for (Path stagedFile : stagedFiles) {
+                if (isExpired(stagedFile)) {
+                    Files.deleteIfExists(stagedFile);
+                    LOGGER.info("Evicted expired staged import {}", stagedFile.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to evict expired staged imports from {}", stagingDirectory, e);
+        }
+    }
+
+    /**
+     * Atomically renames a file of an import unless it does not exist or has expired.
+     * Only one of several concurrent requests can rename the same file.
+     *
+     * @param importId the ID of the import
+     * @param source   the current path of the file
+     * @param target   the new path of the file
+     * @return true if the file was renamed, false if it did not exist or has expired
+     * @throws FileProcessingException if the file cannot be renamed
+     */
+    private boolean moveIfPresent(String importId, Path source, Path target) {
+        try {
+            if (!Files.exists(source) || isExpired(source)) {
+                return false;
+            }
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            // The time to live of a claimed file starts with the claim, so it is not evicted while being written
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException e) {
+            // Another request renamed the file first
+            return false;
+        } catch (IOException e) {
+            LOGGER.error("Error claiming staged import {}", importId, e);
+            throw new FileProcessingException("Error claiming staged import: " + importId, e);
+        }
+    }
+
+    /**
+     * Renames a claimed file to another state.
+     *
+     * @param importId the ID of the claimed import
+     * @param suffix   the suffix of the new state
+     */
+    private void moveClaimed(String importId, String suffix) {
+        try {
+            Files.move(resolve(importId, CLAIMED_SUFFIX), resolve(importId, suffix), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to move claimed import {} to {}", importId, suffix, e);
+        }
+    }
+
+    /**
+     * Creates the exception for an import that could not be claimed.
+     *
+     * @param importId the ID of the import
+     * @return an exception telling whether the import is being written, partially saved or unknown
+     */
+    private RuntimeException notClaimable(String importId) {
+        if (Files.exists(resolve(importId, CLAIMED_SUFFIX))) {
+            return new ImportAlreadyClaimedException("Staged import is already being saved: " + importId);
+        }
+        if (Files.exists(resolve(importId, PARTIAL_SUFFIX))) {
+            return new PartialImportException("Staged import was partially saved and can only be synchronized: " + importId);
+        }
+        return new FileProcessingException("Staged import not found or expired: " + importId);
+    }
+
+    /**
+     * Resolves the path of a staged file, accepting only IDs generated by this store.
+     *
+     * @param importId the ID of the staged import
+     * @return the path of the staged file
+     * @throws FileProcessingException if the ID is not a valid import ID
+     */
+    private Path resolve(String importId) {
+        return resolve(importId, FILE_SUFFIX);
+    }
+
+    /**
+     * Resolves the path of a file of an import in the given state, accepting only IDs generated by this store.
+     *
+     * @param importId the ID of the import
+     * @param suffix   the suffix of the state
+     * @return the path of the file
+     * @throws FileProcessingException if the ID is not a valid import ID
+     */
+    private Path resolve(String importId, String suffix) {
+        try {
+            return stagingDirectory.resolve(UUID.fromString(importId) + suffix);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new FileProcessingException("Invalid import ID: " + importId, e);
+        }
+    }
+
+    /**
+     * Checks whether a staged file is older than the time to live.
+     *
+     * @param stagedFile the path of the staged file
+     * @return true if the file has expired, false otherwise
+     * @throws IOException if the modification time cannot be read
+     */
+    private boolean isExpired(Path stagedFile) throws IOException {
+        Instant lastModified = Files.getLastModifiedTime(stagedFile).toInstant();
+        return lastModified.plus(timeToLive).isBefore(Instant.now());
+    }
+
+    /**
+     * Ensures that the staging directory exists; creates it if necessary.
+     *
+     * @param directoryPath the path of the directory to ensure exists
+     * @throws DirectoryCreationException if an error occurs while creating the directory
+     */
+    private void ensureDirectoryExists(Path directoryPath) {
+        try {
+            Files.createDirectories(directoryPath);
+        } catch (IOException e) {
+            String errorMessage = String.format("Failed to create directory: %s", directoryPath);
+            LOGGER.error(errorMessage, e);
+            throw new DirectoryCreationException(errorMessage, e);
+        }
+    }
+}
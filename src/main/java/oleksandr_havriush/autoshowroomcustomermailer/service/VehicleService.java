@@ -1,5 +1,7 @@
 package oleksandr_havriush.autoshowroomcustomermailer.service;
 
+import oleksandr_havriush.autoshowroomcustomermailer.dto.ImportPreview;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventorySyncReport;
 import oleksandr_havriush.autoshowroomcustomermailer.model.VehicleList;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -35,10 +37,60 @@ public interface VehicleService<T> {
      */
     VehicleList<T> processFile(MultipartFile file);
 
+    /**
+     * Imports a multipart file containing vehicle data directly into the database,
+     * streaming it in chunks instead of loading the whole file into memory.
+     *
+     * @param file the multipart file to import
+     * @return the number of imported vehicles
+     */
+    long importFile(MultipartFile file);
+
     /**
      * Saves vehicles of type T.
      *
      * @param vehicles the list of vehicles to save
      */
     void saveVehicles(VehicleList<T> vehicles);
+
+    /**
+     * Replaces the stored vehicles of type T with the given feed, writing only the differences.
+     * Importing the same feed twice leaves the database unchanged.
+     *
+     * @param vehicles the complete list of vehicles that should be stored
+     * @return a report with the number of inserted, updated, deleted and unchanged vehicles
+     */
+    InventorySyncReport synchronizeVehicles(VehicleList<T> vehicles);
+
+    /**
+     * Stages a multipart file containing vehicle data until it is saved or expires.
+     *
+     * @param file the multipart file to stage
+     * @return the ID of the staged import
+     */
+    String stageFile(MultipartFile file);
+
+    /**
+     * Parses a staged file and returns its first vehicles for display.
+     *
+     * @param importId the ID of the staged import
+     * @return a preview of the staged vehicles
+     */
+    ImportPreview<T> previewStagedFile(String importId);
+
+    /**
+     * Appends the vehicles of a staged file to the database, streaming them in chunks, and discards the staged file.
+     *
+     * @param importId the ID of the staged import
+     * @return the number of imported vehicles
+     */
+    long importStagedFile(String importId);
+
+    /**
+     * Replaces the stored vehicles with the vehicles of a staged file and discards the staged file.
+     *
+     * @param importId the ID of the staged import
+     * @return a report with the number of inserted, updated, deleted and unchanged vehicles
+     */
+    InventorySyncReport synchronizeStagedFile(String importId);
 }
@@ -1,22 +1,45 @@
 package oleksandr_havriush.autoshowroomcustomermailer.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CarSyncEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.ImportPreview;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventorySyncReport;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.NoCarsToSaveException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
 import oleksandr_havriush.autoshowroomcustomermailer.model.VehicleList;
 import oleksandr_havriush.autoshowroomcustomermailer.repository.CarRepository;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryCache;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryChangedEvent;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailerMetrics;
+import oleksandr_havriush.autoshowroomcustomermailer.service.StagedImportStore;
 import oleksandr_havriush.autoshowroomcustomermailer.service.VehicleService;
+import oleksandr_havriush.autoshowroomcustomermailer.util.CarWriteEvent;
+import oleksandr_havriush.autoshowroomcustomermailer.util.XmlParseEvent;
 import oleksandr_havriush.autoshowroomcustomermailer.util.XmlToCarListConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service implementation for managing cars.
@@ -25,17 +48,30 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CarServiceImpl implements VehicleService<Car> {
     private static final Logger LOGGER = LoggerFactory.getLogger(CarServiceImpl.class);
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_PREVIEW_LIMIT = 1000;
     private final CarRepository carRepository;
     private final XmlToCarListConverter parser;
+    private final StagedImportStore stagedImportStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryCache inventoryCache;
+    private final MailerMetrics metrics;
+
+    @Value("${cars.import.chunk-size:1000}")
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    @Value("${cars.import.preview-limit:1000}")
+    private int previewLimit = DEFAULT_PREVIEW_LIMIT;
 
     /**
-     * Retrieves all cars from the repository.
+     * Retrieves all cars from the inventory snapshot, loading it from the repository only after the inventory changed.
+     * The returned cars are shared with other callers and must not be modified.
      *
-     * @return a list of all cars
+     * @return an unmodifiable list of all cars
      */
     @Override
     public List<Car> findAll() {
-        return carRepository.findAll();
+        return inventoryCache.getCars();
     }
 
     /**
@@ -68,15 +104,271 @@ public class CarServiceImpl implements VehicleService<Car> {
 
         try {
             String xml = new String(file.getBytes(), StandardCharsets.UTF_8);
-            return parser.convert(xml);
+            long startTime = metrics.start();
+            XmlParseEvent event = new XmlParseEvent();
+            event.begin();
+            VehicleList<Car> cars = parser.convert(xml);
+            int parsed = cars.getVehicles() == null ? 0 : cars.getVehicles().size();
+            commitParseEvent(event, "upload", parsed);
+            metrics.recordParse(startTime, parsed);
+            return cars;
         } catch (IOException e) {
             LOGGER.error("Error reading XML file", e);
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw new FileProcessingException("Error reading XML file", e);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams a multipart file containing XML data into the repository.
+     * Cars are parsed one at a time and saved in chunks, each in its own transaction,
+     * so memory use is bounded by the chunk size; chunks saved before a parsing error stay in the database.
+     *
+     * @param file the multipart file containing XML data to import
+     * @return the number of imported cars
+     * @throws FileProcessingException if the file is empty or cannot be read
+     * @throws NoCarsToSaveException   if the file contains no cars
+     */
+    @Override
+    public long importFile(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new FileProcessingException("File is empty");
+        }
+
+        try (InputStream inputStream = file.getInputStream()) {
+            return importStream(inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Error reading XML file", e);
+            throw new FileProcessingException("Error reading XML file", e);
+        }
+    }
+
+    /**
+     * Stages a multipart file containing XML data, so that only its import ID has to be kept between requests.
+     *
+     * @param file the multipart file containing XML data to stage
+     * @return the ID of the staged import
+     * @throws FileProcessingException if the file is empty or cannot be stored
+     */
+    @Override
+    public String stageFile(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new FileProcessingException("File is empty");
+        }
+        return stagedImportStore.stage(file);
+    }
+
+    /**
+     * Streams a staged file and keeps only its first cars, up to the configured preview limit.
+     *
+     * @param importId the ID of the staged import
+     * @return a preview with the first cars and the total number of cars in the file
+     * @throws FileProcessingException if the staged import is unknown, expired or cannot be read
+     */
+    @Override
+    public ImportPreview<Car> previewStagedFile(String importId) {
+        int limit = previewLimit > 0 ? previewLimit : DEFAULT_PREVIEW_LIMIT;
+        List<Car> preview = new ArrayList<>();
+        try (InputStream inputStream = stagedImportStore.open(importId)) {
+            long startTime = metrics.start();
+            XmlParseEvent event = new XmlParseEvent();
+            event.begin();
+            long total = parser.convert(inputStream, limit, chunk -> {
+                if (preview.isEmpty()) {
+                    preview.addAll(chunk);
+                }
+            });
+            commitParseEvent(event, "preview", total);
+            metrics.recordParse(startTime, total);
+            return new ImportPreview<>(importId, preview, total);
+        } catch (IOException e) {
+            LOGGER.error("Error reading staged import {}", importId, e);
             throw new FileProcessingException("Error reading XML file", e);
         }
     }
 
     /**
-     * Saves a list of cars to the repository.
+     * Streams a staged file into the repository in chunks and discards it afterwards.
+     * The import is claimed before the first chunk is written, so a second request for the same import is rejected.
+     * If the import fails after some chunks were saved, the staged file is kept for a synchronization only,
+     * since importing it again would duplicate the saved cars.
+     *
+     * @param importId the ID of the staged import
+     * @return the number of imported cars
+     * @throws FileProcessingException       if the staged import is unknown, expired or cannot be read
+     * @throws ImportAlreadyClaimedException if the staged import is already being saved
+     * @throws PartialImportException        if the import failed after some cars were saved, or did so before
+     * @throws NoCarsToSaveException         if the file contains no cars
+     */
+    @Override
+    public long importStagedFile(String importId) {
+        stagedImportStore.claim(importId);
+        AtomicLong saved = new AtomicLong();
+        long imported;
+        try (InputStream inputStream = stagedImportStore.openClaimed(importId)) {
+            imported = importStream(inputStream, saved);
+        } catch (IOException | RuntimeException e) {
+            if (saved.get() == 0) {
+                stagedImportStore.release(importId);
+                if (e instanceof IOException) {
+                    LOGGER.error("Error reading staged import {}", importId, e);
+                    throw new FileProcessingException("Error reading XML file", e);
+                }
+                throw (RuntimeException) e;
+            }
+            stagedImportStore.markPartial(importId);
+            String errorMessage = String.format("Staged import %s failed after %d cars were saved", importId, saved.get());
+            LOGGER.error(errorMessage, e);
+            throw new PartialImportException(errorMessage, e);
+        }
+        stagedImportStore.discard(importId);
+        return imported;
+    }
+
+    /**
+     * Synchronizes the stored cars with a staged file and discards it afterwards.
+     * The file is streamed in chunks and each chunk is compared with the stored cars and written before the next is
+     * parsed, so memory use is bounded by the chunk size and the key, ID, price and power of each car.
+     * All chunks are written in one transaction, so a failed synchronization leaves the inventory unchanged.
+     * The import is claimed first; files left by a partially failed save can be synchronized as well.
+     * The file is discarded only once the transaction has committed; if it rolls back, the claim is returned
+     * so the synchronization can be retried.
+     *
+     * @param importId the ID of the staged import
+     * @return a report with the number of inserted, updated, deleted and unchanged cars
+     * @throws FileProcessingException       if the staged import is unknown, expired or cannot be read
+     * @throws ImportAlreadyClaimedException if the staged import is already being saved
+     * @throws NoCarsToSaveException         if the file contains no cars
+     */
+    @Override
+    @Transactional
+    public InventorySyncReport synchronizeStagedFile(String importId) {
+        boolean partial = stagedImportStore.claimForSync(importId);
+        InventorySyncReport report;
+        try {
+            report = synchronizeClaimedFile(importId);
+        } catch (RuntimeException e) {
+            returnSyncClaim(importId, partial);
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        stagedImportStore.discard(importId);
+                    } else {
+                        returnSyncClaim(importId, partial);
+                    }
+                }
+            });
+        } else {
+            stagedImportStore.discard(importId);
+        }
+        return report;
+    }
+
+    /**
+     * Returns the claim of a synchronization that did not complete, keeping a partially saved file marked as such.
+     *
+     * @param importId the ID of the claimed import
+     * @param partial  whether the file was left by a partially failed save
+     */
+    private void returnSyncClaim(String importId, boolean partial) {
+        if (partial) {
+            stagedImportStore.markPartial(importId);
+        } else {
+            stagedImportStore.release(importId);
+        }
+    }
+
+    /**
+     * Streams a claimed file through an inventory synchronization.
+     *
+     * @param importId the ID of the claimed import
+     * @return a report with the number of inserted, updated, deleted and unchanged cars
+     */
+    private InventorySyncReport synchronizeClaimedFile(String importId) {
+        long startTime = metrics.start();
+        InventorySync sync = new InventorySync();
+        long parsed;
+        try (InputStream inputStream = stagedImportStore.openClaimed(importId)) {
+            XmlParseEvent event = new XmlParseEvent();
+            event.begin();
+            parsed = parser.convert(inputStream, chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE, chunk -> {
+                metrics.recordCarsParsed(chunk.size());
+                sync.apply(chunk);
+            });
+            commitParseEvent(event, "sync", parsed);
+        } catch (IOException e) {
+            LOGGER.error("Error reading staged import {}", importId, e);
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw new FileProcessingException("Error reading XML file", e);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        }
+        if (parsed == 0) {
+            LOGGER.info("No cars to synchronize with database.");
+            throw new NoCarsToSaveException("No cars to save");
+        }
+        return finishSync(sync, startTime);
+    }
+
+    /**
+     * Parses an XML stream and saves the cars in chunks, each in its own transaction.
+     * An {@link InventoryChangedEvent} is published once at least one chunk was saved, even if a later chunk fails.
+     *
+     * @param inputStream the XML stream to import
+     * @return the number of imported cars
+     * @throws NoCarsToSaveException if the stream contains no cars
+     */
+    private long importStream(InputStream inputStream) {
+        return importStream(inputStream, new AtomicLong());
+    }
+
+    /**
+     * Parses an XML stream and saves the cars in chunks, each in its own transaction, counting the saved cars.
+     *
+     * @param inputStream the XML stream to import
+     * @param saved       the counter of saved cars, which still holds the cars of the saved chunks if a later one fails
+     * @return the number of imported cars
+     * @throws NoCarsToSaveException if the stream contains no cars
+     */
+    private long importStream(InputStream inputStream, AtomicLong saved) {
+        long imported;
+        long startTime = metrics.start();
+        try {
+            imported = parser.convert(inputStream, chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE, chunk -> {
+                metrics.recordCarsParsed(chunk.size());
+                writeCars("insert", chunk.size(), () -> carRepository.insertAll(chunk));
+                metrics.recordRows(chunk.size(), 0, 0);
+                saved.addAndGet(chunk.size());
+                LOGGER.debug("Saved chunk of {} cars to database.", chunk.size());
+            });
+            metrics.recordStreamImport(startTime);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        } finally {
+            if (saved.get() > 0) {
+                eventPublisher.publishEvent(new InventoryChangedEvent(saved.get()));
+            }
+        }
+
+        if (imported == 0) {
+            LOGGER.info("No cars to save to database.");
+            throw new NoCarsToSaveException("No cars to save");
+        }
+        LOGGER.info("{} cars imported to database successfully.", imported);
+        return imported;
+    }
+
+    /**
+     * Saves a list of cars to the repository using JDBC batch inserts and publishes an {@link InventoryChangedEvent}.
      *
      * @param carList the VehicleList<Car> containing cars to save
      * @throws NoCarsToSaveException if the carList is empty or null
@@ -88,7 +380,246 @@ public class CarServiceImpl implements VehicleService<Car> {
             throw new NoCarsToSaveException("No cars to save");
         }
 
-        carRepository.saveAll(carList.getVehicles());
+        long startTime = metrics.start();
+        try {
+            writeCars("insert", carList.getVehicles().size(), () -> carRepository.insertAll(carList.getVehicles()));
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        }
+        metrics.recordBatchImport(startTime);
+        metrics.recordRows(carList.getVehicles().size(), 0, 0);
+        eventPublisher.publishEvent(new InventoryChangedEvent(carList.getVehicles().size()));
         LOGGER.info("Cars saved to database successfully.");
     }
+
+    /**
+     * Synchronizes the stored cars with a complete feed, keyed on manufacturer, name and type.
+     * New cars are inserted, cars with a different price or power are updated and stored cars missing from the feed
+     * are deleted, each in one batch; duplicate rows left by earlier appending imports are removed as well.
+     * When the feed contains the same key more than once, the last occurrence wins.
+     * The stored cars are read past the Hibernate caches, which do not see earlier JDBC writes.
+     * An {@link InventoryChangedEvent} is published if anything changed.
+     *
+     * @param carList the VehicleList<Car> containing the complete inventory
+     * @return a report with the number of inserted, updated, deleted and unchanged cars
+     * @throws NoCarsToSaveException if the carList is empty or null
+     */
+    @Override
+    @Transactional
+    public InventorySyncReport synchronizeVehicles(VehicleList<Car> carList) {
+        if (carList == null || carList.getVehicles() == null || carList.getVehicles().isEmpty()) {
+            LOGGER.info("No cars to synchronize with database.");
+            throw new NoCarsToSaveException("No cars to save");
+        }
+
+        long startTime = metrics.start();
+        InventorySync sync = new InventorySync();
+        try {
+            sync.apply(carList.getVehicles());
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        }
+        return finishSync(sync, startTime);
+    }
+
+    /**
+     * Deletes the stored cars missing from the feed and publishes an {@link InventoryChangedEvent} if anything changed.
+     *
+     * @param sync      the synchronization after all cars of the feed were applied
+     * @param startTime the start of the synchronization, as returned by {@link MailerMetrics#start()}
+     * @return a report with the number of inserted, updated, deleted and unchanged cars
+     */
+    private InventorySyncReport finishSync(InventorySync sync, long startTime) {
+        InventorySyncReport report;
+        try {
+            report = sync.finish();
+        } catch (RuntimeException e) {
+            metrics.recordFailure(MailerMetrics.STAGE_IMPORT, e);
+            throw e;
+        }
+        metrics.recordSyncImport(startTime);
+        metrics.recordRows(report.inserted(), report.updated(), report.deleted());
+        if (report.hasChanges()) {
+            eventPublisher.publishEvent(new InventoryChangedEvent(report.inserted() + report.updated() + report.deleted()));
+        }
+        LOGGER.info("Cars synchronized with database: {}", report);
+        return report;
+    }
+
+    /**
+     * Runs a batch write of cars and records it as {@link CarWriteEvent} when a flight recording is running.
+     *
+     * @param operation the kind of write, e.g. insert
+     * @param rows      the number of written cars
+     * @param write     the repository call sending the batch
+     */
+    private static void writeCars(String operation, int rows, Runnable write) {
+        CarWriteEvent event = new CarWriteEvent();
+        event.begin();
+        try {
+            write.run();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records a completed feed parse as {@link XmlParseEvent} when a flight recording is running.
+     *
+     * @param event    the event begun before parsing
+     * @param purpose  what the feed was parsed for
+     * @param carCount the number of parsed cars
+     */
+    private static void commitParseEvent(XmlParseEvent event, String purpose, long carCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.purpose = purpose;
+            event.carCount = carCount;
+            event.commit();
+        }
+    }
+
+    /**
+     * Natural key identifying a car in an inventory feed.
+     *
+     * @param manufacturer the manufacturer of the car
+     * @param name         the model name of the car
+     * @param type         the type of the car
+     */
+    private record CarKey(String manufacturer, String name, String type) {
+
+        static CarKey of(Car car) {
+            return new CarKey(car.getManufacturer(), car.getName(), car.getType());
+        }
+
+        static CarKey of(CarSyncEntry entry) {
+            return new CarKey(entry.manufacturer(), entry.name(), entry.type());
+        }
+    }
+
+    /**
+     * Outcome of a synchronization for one key of the feed.
+     */
+    private enum SyncOutcome {
+        INSERTED, UPDATED, UNCHANGED
+    }
+
+    /**
+     * Stored ID, price and power of a key the feed already contained, with the outcome counted for it.
+     *
+     * @param id      the ID of the stored car
+     * @param price   the price the car is stored with
+     * @param power   the power the car is stored with
+     * @param outcome the outcome counted for the key
+     */
+    private record SyncedCar(Long id, double price, int power, SyncOutcome outcome) {
+
+        boolean differsFrom(Car car) {
+            return price != car.getPrice() || power != car.getPower();
+        }
+    }
+
+    /**
+     * State of one synchronization, applied to the feed chunk by chunk.
+     * Only the key, ID, price and power of the stored cars and of the keys already applied are kept,
+     * the cars of a chunk are written before the next chunk is applied.
+     */
+    private class InventorySync {
+        private final Map<CarKey, CarSyncEntry> stored = new HashMap<>();
+        private final Map<CarKey, SyncedCar> synced = new HashMap<>();
+        private final List<Long> toDelete = new ArrayList<>();
+        private int inserted;
+        private int updated;
+        private int unchanged;
+
+        InventorySync() {
+            for (CarSyncEntry entry : carRepository.findSyncEntries()) {
+                // Duplicate rows left by earlier appending imports are removed, the oldest row is kept
+                if (stored.putIfAbsent(CarKey.of(entry), entry) != null) {
+                    toDelete.add(entry.id());
+                }
+            }
+        }
+
+        /**
+         * Compares a chunk of the feed with the stored cars and writes the inserted and updated cars.
+         *
+         * @param chunk the next cars of the feed
+         */
+        void apply(List<Car> chunk) {
+            Map<CarKey, Car> cars = new LinkedHashMap<>();
+            for (Car car : chunk) {
+                cars.put(CarKey.of(car), car);
+            }
+
+            List<Car> toInsert = new ArrayList<>();
+            List<Car> toUpdate = new ArrayList<>();
+            for (Map.Entry<CarKey, Car> entry : cars.entrySet()) {
+                CarKey key = entry.getKey();
+                Car incoming = entry.getValue();
+                SyncedCar previous = synced.get(key);
+                if (previous != null) {
+                    // An earlier chunk contained the same key, the last occurrence wins
+                    if (previous.differsFrom(incoming)) {
+                        incoming.setId(previous.id());
+                        toUpdate.add(incoming);
+                        SyncOutcome outcome = previous.outcome();
+                        if (outcome == SyncOutcome.UNCHANGED) {
+                            unchanged--;
+                            updated++;
+                            outcome = SyncOutcome.UPDATED;
+                        }
+                        synced.put(key, new SyncedCar(previous.id(), incoming.getPrice(), incoming.getPower(), outcome));
+                    }
+                    continue;
+                }
+                CarSyncEntry existing = stored.remove(key);
+                if (existing == null) {
+                    toInsert.add(incoming);
+                } else if (existing.price() != incoming.getPrice() || existing.power() != incoming.getPower()) {
+                    incoming.setId(existing.id());
+                    toUpdate.add(incoming);
+                    updated++;
+                    synced.put(key, new SyncedCar(existing.id(), incoming.getPrice(), incoming.getPower(), SyncOutcome.UPDATED));
+                } else {
+                    unchanged++;
+                    synced.put(key, new SyncedCar(existing.id(), existing.price(), existing.power(), SyncOutcome.UNCHANGED));
+                }
+            }
+
+            if (!toUpdate.isEmpty()) {
+                writeCars("update", toUpdate.size(), () -> carRepository.updateAll(toUpdate));
+            }
+            if (!toInsert.isEmpty()) {
+                writeCars("insert", toInsert.size(), () -> carRepository.insertAll(toInsert));
+                for (Car car : toInsert) {
+                    synced.put(CarKey.of(car), new SyncedCar(car.getId(), car.getPrice(), car.getPower(), SyncOutcome.INSERTED));
+                }
+                inserted += toInsert.size();
+            }
+        }
+
+        /**
+         * Deletes the stored cars the feed did not contain.
+         *
+         * @return a report with the number of inserted, updated, deleted and unchanged cars
+         */
+        InventorySyncReport finish() {
+            for (CarSyncEntry missing : stored.values()) {
+                toDelete.add(missing.id());
+            }
+            stored.clear();
+            if (!toDelete.isEmpty()) {
+                writeCars("delete", toDelete.size(), () -> carRepository.deleteAllByIds(toDelete));
+            }
+            return new InventorySyncReport(inserted, updated, toDelete.size(), unchanged);
+        }
+    }
 }
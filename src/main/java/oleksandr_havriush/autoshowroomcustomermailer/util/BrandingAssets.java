@@ -0,0 +1,75 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import com.itextpdf.text.BadElementException;
+import com.itextpdf.text.Image;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Branding images shared by all customer letters.
+ * The logo is read from the classpath and decoded once; every letter gets a lightweight copy that shares the
+ * decoded image data and serial ID, so the image is never re-parsed and is embedded only once per PDF writer.
+ */
+public final class BrandingAssets {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BrandingAssets.class);
+    private static final String LOGO_RESOURCE = "/logo.jpg";
+    private static volatile Image logoPrototype;
+
+    private BrandingAssets() {
+    }
+
+    /**
+     * Returns a copy of the dealership logo that can be positioned and scaled for one document.
+     *
+     * @return a new Image sharing the decoded logo data
+     * @throws PdfGenerationException if the logo cannot be loaded from the classpath
+     */
+    public static Image getLogo() {
+        return Image.getInstance(getLogoPrototype());
+    }
+
+    /**
+     * Returns the decoded logo, loading it on first use.
+     *
+     * @return the shared logo prototype; it must not be modified
+     * @throws PdfGenerationException if the logo cannot be loaded from the classpath
+     */
+    static Image getLogoPrototype() {
+        Image logo = logoPrototype;
+        if (logo == null) {
+            synchronized (BrandingAssets.class) {
+                logo = logoPrototype;
+                if (logo == null) {
+                    logo = loadLogo();
+                    logoPrototype = logo;
+                }
+            }
+        }
+        return logo;
+    }
+
+    /**
+     * Reads and decodes the logo from the classpath.
+     *
+     * @return the decoded logo
+     * @throws PdfGenerationException if the logo is missing or cannot be decoded
+     */
+    private static Image loadLogo() {
+        try (InputStream inputStream = BrandingAssets.class.getResourceAsStream(LOGO_RESOURCE)) {
+            if (inputStream == null) {
+                throw new PdfGenerationException("Logo not found on classpath: " + LOGO_RESOURCE);
+            }
+            Image logo = Image.getInstance(inputStream.readAllBytes());
+            LOGGER.info("Dealership logo loaded from {}", LOGO_RESOURCE);
+            return logo;
+        } catch (IOException | BadElementException e) {
+            LOGGER.error("Error loading logo from {}", LOGO_RESOURCE, e);
+            throw new PdfGenerationException("Error loading logo", e);
+        }
+    }
+}
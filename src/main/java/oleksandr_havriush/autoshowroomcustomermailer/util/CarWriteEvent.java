@@ -0,0 +1,24 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering one batch statement group sent to the database by an import,
+ * e.g. the insert of a chunk of a streamed feed.
+ */
+@Name("oleksandr_havriush.autoshowroomcustomermailer.CarWrite")
+@Label("Car Write")
+@Category({"Auto Showroom Mailer", "Import"})
+@Description("Batch write of cars to the database")
+public class CarWriteEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Rows")
+    public int rows;
+}
@@ -0,0 +1,145 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of a car inventory snapshot, answering price band queries without scanning the inventory.
+ * Cars are kept sorted by price, once for the whole inventory and once per vehicle type, so a query finds the top
+ * of its price band with a binary search and only reads the cars it returns.
+ */
+public final class InventoryIndex {
+
+    private static final Comparator<Car> BY_PRICE = Comparator.comparingDouble(Car::getPrice)
+            .thenComparing(Car::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final int carCount;
+    private final PriceList allCars;
+    private final Map<String, PriceList> carsByType;
+
+    private InventoryIndex(List<Car> cars) {
+        this.carCount = cars.size();
+        this.allCars = new PriceList(cars);
+        Map<String, List<Car>> grouped = new HashMap<>();
+        for (Car car : cars) {
+            grouped.computeIfAbsent(typeKey(car.getType()), type -> new ArrayList<>()).add(car);
+        }
+        Map<String, PriceList> byType = new HashMap<>();
+        grouped.forEach((type, typeCars) -> byType.put(type, new PriceList(typeCars)));
+        this.carsByType = Map.copyOf(byType);
+    }
+
+    /**
+     * Builds the index for the given cars.
+     *
+     * @param cars the cars of the inventory snapshot
+     * @return the index of the cars
+     */
+    public static InventoryIndex of(List<Car> cars) {
+        return new InventoryIndex(cars);
+    }
+
+    /**
+     * Returns the number of indexed cars.
+     *
+     * @return the size of the inventory snapshot
+     */
+    public int getCarCount() {
+        return carCount;
+    }
+
+    /**
+     * Returns the most expensive cars of the given types within a price band, from the most expensive down.
+     * Vehicle types are compared ignoring case.
+     *
+     * @param types    the vehicle types to choose from, or an empty set for all types
+     * @param minPrice the lowest price of the band, inclusive
+     * @param maxPrice the highest price of the band, inclusive
+     * @param limit    the maximum number of cars to return, or zero or less for no limit
+     * @return the selected cars, ordered by descending price
+     */
+    public List<Car> mostExpensive(Set<String> types, double minPrice, double maxPrice, int limit) {
+        int maxCars = limit > 0 ? limit : Integer.MAX_VALUE;
+        List<PriceList> lists = new ArrayList<>();
+        if (types.isEmpty()) {
+            lists.add(allCars);
+        } else {
+            for (String type : types) {
+                PriceList list = carsByType.get(typeKey(type));
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+        }
+
+        // One cursor per list, starting at the most expensive car within the band; the lists are merged by price
+        int[] cursors = new int[lists.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).upperBound(maxPrice) - 1;
+        }
+        List<Car> selected = new ArrayList<>();
+        while (selected.size() < maxCars) {
+            int next = -1;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i] >= 0 && lists.get(i).prices[cursors[i]] >= minPrice
+                        && (next < 0 || BY_PRICE.compare(lists.get(i).cars[cursors[i]], lists.get(next).cars[cursors[next]]) > 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            selected.add(lists.get(next).cars[cursors[next]--]);
+        }
+        return selected;
+    }
+
+    private static String typeKey(String type) {
+        return type == null ? "" : type.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Cars sorted by ascending price, with their prices in a parallel array for the binary search.
+     */
+    private static final class PriceList {
+        private final Car[] cars;
+        private final double[] prices;
+
+        private PriceList(List<Car> cars) {
+            this.cars = cars.toArray(new Car[0]);
+            Arrays.sort(this.cars, BY_PRICE);
+            this.prices = new double[this.cars.length];
+            for (int i = 0; i < this.cars.length; i++) {
+                this.prices[i] = this.cars[i].getPrice();
+            }
+        }
+
+        /**
+         * Returns the index of the first car more expensive than the given price.
+         *
+         * @param price the price to search for
+         * @return the number of cars costing at most the given price
+         */
+        private int upperBound(double price) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[middle] <= price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Utility class computing content fingerprints of customer letters.
+ * A letter fingerprint covers every input that ends up in the letter: the letter template version,
+ * the customer fields and the version of the car inventory. Two letters with the same fingerprint have the same content.
+ */
+public final class LetterFingerprints {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final char FIELD_SEPARATOR = '\u001f';
+    private static final String NULL_VALUE = "\u0000";
+
+    private LetterFingerprints() {
+    }
+
+    /**
+     * Computes the version of a car inventory from all car fields printed in the letters.
+     *
+     * @param cars the cars of the inventory, in the order they are listed in the letters
+     * @return the hexadecimal inventory version
+     */
+    public static String inventoryVersion(List<Car> cars) {
+        MessageDigest digest = newDigest();
+        for (Car car : cars) {
+            update(digest, car.getId(), car.getManufacturer(), car.getName(), car.getType(), car.getPrice(), car.getPower());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the fingerprint of the letter of a customer.
+     *
+     * @param customer         the customer of the letter
+     * @param inventoryVersion the version of the car inventory listed in the letter
+     * @return the hexadecimal letter fingerprint
+     */
+    public static String letterFingerprint(Customer customer, String inventoryVersion) {
+        MessageDigest digest = newDigest();
+        update(digest, PdfReportGenerator.TEMPLATE_VERSION, inventoryVersion,
+                customer.getId(), customer.getFirstName(), customer.getLastName());
+        Address address = customer.getAddress();
+        if (address != null) {
+            update(digest, address.getStreet(), address.getHouseNumber(), address.getPostalCode(),
+                    address.getCity(), address.getCountry());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Object... values) {
+        StringBuilder fields = new StringBuilder();
+        for (Object value : values) {
+            fields.append(value == null ? NULL_VALUE : value.toString()).append(FIELD_SEPARATOR);
+        }
+        digest.update(fields.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the layout of one letter by iText, from opening the document until it is closed.
+ * The PDF bytes are written to the output stream while the letter is laid out, so for letters written to files
+ * the time includes the writes of every full file buffer.
+ */
+@Name("oleksandr_havriush.autoshowroomcustomermailer.LetterRender")
+@Label("Letter Render")
+@Category({"Auto Showroom Mailer", "Letters"})
+@Description("Layout of a customer letter by the PDF generator")
+public class LetterRenderEvent extends Event {
+
+    @Label("Customer ID")
+    public long customerId;
+
+    @Label("Car Count")
+    public int carCount;
+}
@@ -0,0 +1,29 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the writing of one letter file, including its rendering, the flush of the file
+ * buffer and the atomic move into place. The time not covered by the nested {@link LetterRenderEvent} is spent on disk.
+ */
+@Name("oleksandr_havriush.autoshowroomcustomermailer.LetterWrite")
+@Label("Letter Write")
+@Category({"Auto Showroom Mailer", "Letters"})
+@Description("Rendering and saving of a customer letter file")
+public class LetterWriteEvent extends Event {
+
+    @Label("Customer ID")
+    public long customerId;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("File")
+    public String file;
+}
@@ -10,18 +10,21 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 /**
  * Utility class for generating PDF reports for customers.
  */
     public class PdfReportGenerator {
 
+        /**
+         * Version of the letter layout and text; increase it whenever the letter content changes,
+         * so incremental mailing runs regenerate all letters.
+         */
+        public static final String TEMPLATE_VERSION = "1";
         private static final Logger LOGGER = LoggerFactory.getLogger(PdfReportGenerator.class);
-        private static final String LOGO_PATH = "src/main/resources/logo.jpg";
         private static final String DEALERSHIP_INFO = "Car Dealership GmbH\nZoellner 40\nOverath, 51491\nGermany";
 
         /**
@@ -33,37 +36,83 @@ import java.util.stream.Stream;
          * @throws PdfGenerationException if an error occurs during PDF generation
          */
         public static ByteArrayInputStream createCustomerPdfReport(Optional<Customer> customer, List<Car> carList) {
-            Document document = new Document(PageSize.A4);
+            return createCustomerPdfReport(customer, CarTableTemplate.of(carList));
+        }
+
+        /**
+         * Generates a PDF report containing customer details and a car table pre-rendered for the mailing run.
+         *
+         * @param customer the optional customer details to include in the report
+         * @param carTable the car table shared by all letters of the run
+         * @return a ByteArrayInputStream containing the generated PDF content
+         * @throws PdfGenerationException if an error occurs during PDF generation
+         */
+        public static ByteArrayInputStream createCustomerPdfReport(Optional<Customer> customer, CarTableTemplate carTable) {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            writeCustomerPdfReport(customer, carTable, outputStream);
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+
+        /**
+         * Writes a PDF report containing customer details and a list of cars to an output stream.
+         *
+         * @param customer     the optional customer details to include in the report
+         * @param carList      the list of cars to include in the report
+         * @param outputStream the stream the PDF content is written to; it is left open
+         * @throws PdfGenerationException if an error occurs during PDF generation
+         */
+        public static void writeCustomerPdfReport(Optional<Customer> customer, List<Car> carList, OutputStream outputStream) {
+            writeCustomerPdfReport(customer, CarTableTemplate.of(carList), outputStream);
+        }
+
+        /**
+         * Writes a PDF report containing customer details and a car table pre-rendered for the mailing run
+         * to an output stream. The document is written as it is laid out, without an intermediate copy in memory.
+         * The layout is recorded as {@link LetterRenderEvent} when a flight recording is running.
+         *
+         * @param customer     the optional customer details to include in the report
+         * @param carTable     the car table shared by all letters of the run
+         * @param outputStream the stream the PDF content is written to; it is left open
+         * @throws PdfGenerationException if an error occurs during PDF generation
+         */
+        public static void writeCustomerPdfReport(Optional<Customer> customer, CarTableTemplate carTable, OutputStream outputStream) {
+            Document document = new Document(PageSize.A4);
+            LetterRenderEvent event = new LetterRenderEvent();
+            event.begin();
 
             try {
-                PdfWriter.getInstance(document, outputStream);
+                PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+                writer.setCloseStream(false);
                 document.setMargins(57.6f, 57.6f, 57.6f, 57.6f);
                 document.open();
                 addDealershipLogo(document);
                 addDealershipAddress(document);
                 addCustomerAddress(document, customer);
                 addLetterBody(document, customer);
-                addCarTable(document, carList);
+                addCarTable(document, carTable);
                 addSignature(document);
                 document.close();
-            } catch (DocumentException | IOException ex) {
+            } catch (DocumentException ex) {
                 LOGGER.error("Error occurred: {}", ex);
                 throw new PdfGenerationException("Error during PDF creation", ex);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.customerId = customer.map(Customer::getId).orElse(0L);
+                    event.carCount = carTable.getCarCount();
+                    event.commit();
+                }
             }
-
-            return new ByteArrayInputStream(outputStream.toByteArray());
         }
 
         /**
          * Adds the dealership logo to the PDF document.
          *
          * @param document the PDF document to which the logo is added
-         * @throws IOException     if there is an error reading the logo image
          * @throws DocumentException if there is an error adding the logo to the document
          */
-        private static void addDealershipLogo(Document document) throws IOException, DocumentException {
-            Image logo = Image.getInstance(LOGO_PATH);
+        private static void addDealershipLogo(Document document) throws DocumentException {
+            Image logo = BrandingAssets.getLogo();
             float pageWidth = document.getPageSize().getWidth();
             float rightOffset = 50;
             float topOffset = 56.7f;
@@ -134,79 +183,11 @@ import java.util.stream.Stream;
          * Adds the car table to the PDF document.
          *
          * @param document the PDF document to which the car table is added
-         * @param carList  the list of cars to include in the table
+         * @param carTable the pre-rendered car table to include in the document
          * @throws DocumentException if there is an error adding the car table to the document
          */
-        private static void addCarTable(Document document, List<Car> carList) throws DocumentException {
-            PdfPTable table = new PdfPTable(new float[]{3, 3, 3, 2, 3});
-            table.setWidthPercentage(100);
-            table.setSpacingBefore(30);
-            addTableHeader(table);
-            addTableRows(table, carList);
-            document.add(table);
-        }
-
-        /**
-         * Adds the header row to the car table.
-         *
-         * @param table the PdfPTable to which the header row is added
-         */
-        private static void addTableHeader(PdfPTable table) {
-            Font headerFont = new Font(Font.FontFamily.HELVETICA, 12, Font.BOLD);
-            Stream.of("Type", "Name", "Manufacturer", "Power", "Price")
-                    .forEach(columnTitle -> {
-                        PdfPCell header = new PdfPCell();
-                        header.setBackgroundColor(BaseColor.LIGHT_GRAY);
-                        header.setBorderWidth(1);
-                        header.setFixedHeight(35);
-                        header.setHorizontalAlignment(Element.ALIGN_CENTER);
-                        header.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                        header.setPhrase(new Phrase(columnTitle, headerFont));
-                        table.addCell(header);
-                    });
-        }
-
-        /**
-         * Adds the rows with car details to the car table.
-         *
-         * @param table   the PdfPTable to which the car rows are added
-         * @param carList the list of cars to include in the table rows
-         */
-        private static void addTableRows(PdfPTable table, List<Car> carList) {
-            Font textFont = new Font(Font.FontFamily.HELVETICA, 12);
-            carList.forEach(car -> {
-                PdfPCell cell;
-
-                cell = new PdfPCell(new Phrase(car.getType(), textFont));
-                cell.setFixedHeight(25);
-                cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                cell.setPadding(5);
-                table.addCell(cell);
-
-                cell = new PdfPCell(new Phrase(car.getName(), textFont));
-                cell.setFixedHeight(25);
-                cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                cell.setPadding(5);
-                table.addCell(cell);
-
-                cell = new PdfPCell(new Phrase(car.getManufacturer(), textFont));
-                cell.setFixedHeight(25);
-                cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                cell.setPadding(5);
-                table.addCell(cell);
-
-                cell = new PdfPCell(new Phrase(String.valueOf(car.getPower()), textFont));
-                cell.setFixedHeight(25);
-                cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                cell.setPadding(5);
-                table.addCell(cell);
-
-                cell = new PdfPCell(new Phrase(String.format("%.2f", car.getPrice()), textFont));
-                cell.setFixedHeight(25);
-                cell.setVerticalAlignment(Element.ALIGN_MIDDLE);
-                cell.setPadding(5);
-                table.addCell(cell);
-            });
+        private static void addCarTable(Document document, CarTableTemplate carTable) throws DocumentException {
+            document.add(carTable.newTable());
         }
 
         /**
@@ -0,0 +1,24 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering the parsing of an inventory feed that is read completely before its cars are saved.
+ * Streamed imports parse between their {@link CarWriteEvent}s instead.
+ */
+@Name("oleksandr_havriush.autoshowroomcustomermailer.XmlParse")
+@Label("Inventory Feed Parse")
+@Category({"Auto Showroom Mailer", "Import"})
+@Description("Parsing of an inventory feed")
+public class XmlParseEvent extends Event {
+
+    @Label("Purpose")
+    public String purpose;
+
+    @Label("Car Count")
+    public long carCount;
+}
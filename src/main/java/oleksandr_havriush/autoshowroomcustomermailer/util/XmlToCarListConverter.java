@@ -1,6 +1,7 @@
 package oleksandr_havriush.autoshowroomcustomermailer.util;
 
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.XmlParsingException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
 import oleksandr_havriush.autoshowroomcustomermailer.model.CarList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,14 +10,40 @@ import org.springframework.stereotype.Component;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Utility class to convert XML data into a CarList object using JAXB.
+ * The JAXB context is built once when the converter is created; since unmarshallers are not thread-safe
+ * and cheap to create from the context, every conversion creates its own unmarshaller.
  */
 @Component
 public class XmlToCarListConverter {
     private static final Logger LOGGER = LoggerFactory.getLogger(XmlToCarListConverter.class);
+    private static final String CAR_ELEMENT = "car";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+    private final JAXBContext jaxbContext;
+
+    /**
+     * Constructor that builds the JAXB context for the CarList model.
+     *
+     * @throws XmlParsingException if the JAXB context cannot be created
+     */
+    public XmlToCarListConverter() {
+        try {
+            this.jaxbContext = JAXBContext.newInstance(CarList.class);
+        } catch (JAXBException e) {
+            LOGGER.error("Error creating JAXB context", e);
+            throw new XmlParsingException("Error creating JAXB context", e);
+        }
+    }
 
     /**
      * Converts XML string into a CarList object.
@@ -27,12 +54,65 @@ public class XmlToCarListConverter {
      */
     public CarList convert(String xml) {
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(CarList.class);
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            return (CarList) jaxbUnmarshaller.unmarshal(new StringReader(xml));
+            return (CarList) jaxbContext.createUnmarshaller().unmarshal(new StringReader(xml));
         } catch (JAXBException e) {
             LOGGER.error("Error parsing XML", e);
             throw new XmlParsingException("Error parsing XML", e);
         }
     }
+
+    /**
+     * Parses an XML stream one car element at a time and hands the cars to a consumer in chunks.
+     * At most one chunk of cars is held in memory, regardless of the size of the stream.
+     *
+     * @param inputStream   the XML stream to be parsed; it is not closed by this method
+     * @param chunkSize     the maximum number of cars passed to the consumer at once
+     * @param chunkConsumer the consumer receiving every complete chunk and the final, possibly smaller, one
+     * @return the total number of parsed cars
+     * @throws XmlParsingException if there is an error parsing the XML
+     */
+    public long convert(InputStream inputStream, int chunkSize, Consumer<List<Car>> chunkConsumer) {
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+                List<Car> chunk = new ArrayList<>(chunkSize);
+                long count = 0;
+                while (reader.hasNext()) {
+                    if (reader.isStartElement() && CAR_ELEMENT.equals(reader.getLocalName())) {
+                        // Unmarshalling consumes the element and leaves the reader on the event after it
+                        chunk.add(unmarshaller.unmarshal(reader, Car.class).getValue());
+                        count++;
+                        if (chunk.size() == chunkSize) {
+                            chunkConsumer.accept(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    } else {
+                        reader.next();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    chunkConsumer.accept(chunk);
+                }
+                return count;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            LOGGER.error("Error parsing XML", e);
+            throw new XmlParsingException("Error parsing XML", e);
+        }
+    }
+
+    /**
+     * Creates the StAX factory used for streaming, with DTDs and external entities disabled.
+     *
+     * @return the configured XMLInputFactory
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 }
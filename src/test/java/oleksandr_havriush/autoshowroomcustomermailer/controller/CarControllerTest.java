@@ -1,10 +1,12 @@
 package oleksandr_havriush.autoshowroomcustomermailer.controller;
 
+import oleksandr_havriush.autoshowroomcustomermailer.dto.ImportPreview;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventorySyncReport;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.NoCarsToSaveException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
-import oleksandr_havriush.autoshowroomcustomermailer.model.CarList;
-import oleksandr_havriush.autoshowroomcustomermailer.model.VehicleList;
 import oleksandr_havriush.autoshowroomcustomermailer.service.VehicleService;
 
 import org.junit.jupiter.api.DisplayName;
@@ -17,6 +19,7 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,6 +27,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(CarController.class)
 class CarControllerTest {
 
+    private static final String IMPORT_ID = "3f1c2a9e-6b7d-4e8f-9a0b-1c2d3e4f5a6b";
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -42,14 +47,12 @@ class CarControllerTest {
     @DisplayName("Test handle file upload with success")
     void testHandleFileUpload_Success() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars></cars>".getBytes());
-        VehicleList<Car> carList = new CarList();
 
-        when(carService.processFile(file)).thenReturn(carList);
+        when(carService.stageFile(file)).thenReturn(IMPORT_ID);
 
         mockMvc.perform(multipart("/upload").file(file))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/displayCars"))
-                .andExpect(flash().attribute("carList", carList));
+                .andExpect(redirectedUrl("/displayCars?importId=" + IMPORT_ID));
     }
 
     @Test
@@ -68,7 +71,7 @@ class CarControllerTest {
     void testHandleFileUpload_Error() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars></cars>".getBytes());
 
-        when(carService.processFile(file)).thenThrow(new FileProcessingException("Error processing XML file"));
+        when(carService.stageFile(file)).thenThrow(new FileProcessingException("Error processing XML file"));
 
         mockMvc.perform(multipart("/upload").file(file))
                 .andExpect(status().is3xxRedirection())
@@ -79,22 +82,33 @@ class CarControllerTest {
     @Test
     @DisplayName("Test display cars")
     void testDisplayCars() throws Exception {
-        VehicleList<Car> carList = new CarList();
+        ImportPreview<Car> preview = new ImportPreview<>(IMPORT_ID, new ArrayList<>(), 0);
+
+        when(carService.previewStagedFile(IMPORT_ID)).thenReturn(preview);
 
-        mockMvc.perform(get("/displayCars").flashAttr("carList", carList))
+        mockMvc.perform(get("/displayCars").param("importId", IMPORT_ID))
                 .andExpect(status().isOk())
                 .andExpect(view().name("displayCars"))
-                .andExpect(model().attribute("carList", carList));
+                .andExpect(model().attribute("preview", preview));
+    }
+
+    @Test
+    @DisplayName("Test display cars of an expired import")
+    void testDisplayCars_ExpiredImport() throws Exception {
+        when(carService.previewStagedFile(IMPORT_ID)).thenThrow(new FileProcessingException("Staged import not found or expired"));
+
+        mockMvc.perform(get("/displayCars").param("importId", IMPORT_ID))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "Error processing XML file."));
     }
 
     @Test
     @DisplayName("Test save cars with success")
     void testSaveCars_Success() throws Exception {
-        VehicleList<Car> carList = new CarList();
-
-        doNothing().when(carService).saveVehicles(carList);
+        when(carService.importStagedFile(IMPORT_ID)).thenReturn(5L);
 
-        mockMvc.perform(post("/save").flashAttr("carList", carList))
+        mockMvc.perform(post("/save").param("importId", IMPORT_ID))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/uploadStatus"))
                 .andExpect(flash().attribute("message", "Cars saved to database successfully."));
@@ -103,11 +117,9 @@ class CarControllerTest {
     @Test
     @DisplayName("Test save cars with no cars")
     void testSaveCars_NoCars() throws Exception {
-        VehicleList<Car> carList = new CarList();
+        when(carService.importStagedFile(IMPORT_ID)).thenThrow(new NoCarsToSaveException("No cars to save"));
 
-        doThrow(new NoCarsToSaveException("No cars to save")).when(carService).saveVehicles(carList);
-
-        mockMvc.perform(post("/save").flashAttr("carList", carList))
+        mockMvc.perform(post("/save").param("importId", IMPORT_ID))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/uploadStatus"))
                 .andExpect(flash().attribute("message", "No cars to save."));
@@ -116,16 +128,47 @@ class CarControllerTest {
     @Test
     @DisplayName("Test save cars with error")
     void testSaveCars_Error() throws Exception {
-        VehicleList<Car> carList = new CarList();
-
-        doThrow(new RuntimeException("Unexpected error")).when(carService).saveVehicles(carList);
+        when(carService.importStagedFile(IMPORT_ID)).thenThrow(new RuntimeException("Unexpected error"));
 
-        mockMvc.perform(post("/save").flashAttr("carList", carList))
+        mockMvc.perform(post("/save").param("importId", IMPORT_ID))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/uploadStatus"))
                 .andExpect(flash().attribute("message", "Error saving cars to database."));
     }
 
+    @Test
+    @DisplayName("Test save cars that are already being saved")
+    void testSaveCars_AlreadyClaimed() throws Exception {
+        when(carService.importStagedFile(IMPORT_ID)).thenThrow(new ImportAlreadyClaimedException("Staged import is already being saved"));
+
+        mockMvc.perform(post("/save").param("importId", IMPORT_ID))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "These cars are already being saved to database."));
+    }
+
+    @Test
+    @DisplayName("Test save cars failing after some cars were saved offers a synchronization")
+    void testSaveCars_PartialImport() throws Exception {
+        when(carService.importStagedFile(IMPORT_ID)).thenThrow(new PartialImportException("Staged import failed after 1000 cars were saved"));
+
+        mockMvc.perform(post("/save").param("importId", IMPORT_ID))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message",
+                        "Some cars were saved before an error occurred. Replace the inventory with this file to complete the import without duplicates."))
+                .andExpect(flash().attribute("syncImportId", IMPORT_ID));
+    }
+
+    @Test
+    @DisplayName("Test upload status offers a synchronization of a partially saved import")
+    void testShowUploadStatus_PartialImport() throws Exception {
+        mockMvc.perform(get("/uploadStatus").flashAttr("syncImportId", IMPORT_ID))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("action=\"/sync\"")))
+                .andExpect(content().string(containsString(IMPORT_ID)));
+    }
+
     @Test
     @DisplayName("Test show upload status")
     void testShowUploadStatus() throws Exception {
@@ -138,7 +181,7 @@ class CarControllerTest {
     @DisplayName("Test handle file upload with invalid XML")
     void testHandleFileUpload_InvalidXml() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "invalid.xml", "text/xml", "<cars><car></car>".getBytes());
-        when(carService.processFile(file)).thenThrow(new FileProcessingException("Invalid XML file"));
+        when(carService.stageFile(file)).thenThrow(new FileProcessingException("Invalid XML file"));
 
         mockMvc.perform(multipart("/upload").file(file))
                 .andExpect(status().is3xxRedirection())
@@ -147,19 +190,16 @@ class CarControllerTest {
     }
 
     @Test
-    @DisplayName("Test session attribute after file upload")
-    void testSessionAttributeAfterFileUpload() throws Exception {
+    @DisplayName("Test no car list is stored in the session after file upload")
+    void testNoSessionAttributeAfterFileUpload() throws Exception {
         MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars></cars>".getBytes());
-        VehicleList<Car> carList = new CarList();
-        carList.setVehicles(new ArrayList<>());
 
-        when(carService.processFile(file)).thenReturn(carList);
+        when(carService.stageFile(file)).thenReturn(IMPORT_ID);
 
         mockMvc.perform(multipart("/upload").file(file))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/displayCars"))
-                .andExpect(flash().attributeExists("carList"))
-                .andExpect(flash().attribute("carList", carList));
+                .andExpect(request().sessionAttributeDoesNotExist("carList"))
+                .andExpect(flash().attributeCount(0));
     }
 
     @Test
@@ -170,4 +210,77 @@ class CarControllerTest {
                 .andExpect(view().name("uploadStatus"))
                 .andExpect(model().attribute("message", "Test message"));
     }
+
+    @Test
+    @DisplayName("Test import file with success")
+    void testHandleFileImport_Success() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars></cars>".getBytes());
+
+        when(carService.importFile(file)).thenReturn(500000L);
+
+        mockMvc.perform(multipart("/import").file(file))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "500000 cars imported to database successfully."));
+    }
+
+    @Test
+    @DisplayName("Test import file with empty file")
+    void testHandleFileImport_EmptyFile() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", new byte[0]);
+
+        mockMvc.perform(multipart("/import").file(file))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "Please select a file to upload."));
+        verify(carService, never()).importFile(any());
+    }
+
+    @Test
+    @DisplayName("Test import file without cars")
+    void testHandleFileImport_NoCars() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars></cars>".getBytes());
+
+        when(carService.importFile(file)).thenThrow(new NoCarsToSaveException("No cars to save"));
+
+        mockMvc.perform(multipart("/import").file(file))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "No cars to save."));
+    }
+
+    @Test
+    @DisplayName("Test import file with error")
+    void testHandleFileImport_Error() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "test.xml", "text/xml", "<cars>".getBytes());
+
+        when(carService.importFile(file)).thenThrow(new FileProcessingException("Error reading XML file"));
+
+        mockMvc.perform(multipart("/import").file(file))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "Error importing XML file."));
+    }
+
+    @Test
+    @DisplayName("Test synchronize cars with success")
+    void testSynchronizeCars_Success() throws Exception {
+        when(carService.synchronizeStagedFile(IMPORT_ID)).thenReturn(new InventorySyncReport(2, 1, 3, 4));
+
+        mockMvc.perform(post("/sync").param("importId", IMPORT_ID))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "Inventory synchronized: 2 cars added, 1 updated, 3 removed, 4 unchanged."));
+    }
+
+    @Test
+    @DisplayName("Test synchronize cars with no cars")
+    void testSynchronizeCars_NoCars() throws Exception {
+        when(carService.synchronizeStagedFile(IMPORT_ID)).thenThrow(new NoCarsToSaveException("No cars to save"));
+
+        mockMvc.perform(post("/sync").param("importId", IMPORT_ID))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/uploadStatus"))
+                .andExpect(flash().attribute("message", "No cars to save."));
+    }
 }
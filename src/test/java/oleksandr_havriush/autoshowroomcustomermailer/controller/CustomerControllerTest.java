@@ -1,8 +1,12 @@
 package oleksandr_havriush.autoshowroomcustomermailer.controller;
 
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerPage;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSort;
 import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerService;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -155,12 +159,35 @@ class CustomerControllerTest {
     @Test
     @DisplayName("Test get customer list")
     void testGetCustomerList() throws Exception {
-        List<Customer> customerList = new ArrayList<>();
-        when(customerService.findAll()).thenReturn(customerList);
+        List<CustomerListEntry> customerList = new ArrayList<>();
+        CustomerPage page = new CustomerPage(customerList, CustomerSort.NAME, null, null, null);
+        when(customerService.findPage(null, CustomerSort.NAME, null, null)).thenReturn(page);
 
         mockMvc.perform(get("/customerList"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("customerList"))
-                .andExpect(model().attribute("customerList", customerList));
+                .andExpect(model().attribute("customerList", customerList))
+                .andExpect(model().attribute("page", page));
+    }
+
+    @Test
+    @DisplayName("Test get customer list page with search, sort and cursor")
+    void testGetCustomerList_Page() throws Exception {
+        List<CustomerListEntry> customerList = List.of(
+                new CustomerListEntry(7L, "John", "Doe", "Main Street", "123", "Springfield", "12345", "Country"));
+        CustomerPage page = new CustomerPage(customerList, CustomerSort.CITY, "12", "prev", "next");
+        when(customerService.findPage("12", CustomerSort.CITY, "cursor", null)).thenReturn(page);
+
+        mockMvc.perform(get("/customerList")
+                        .param("q", "12")
+                        .param("sort", "CITY")
+                        .param("after", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("customerList"))
+                .andExpect(model().attribute("customerList", customerList))
+                .andExpect(content().string(Matchers.containsString("Springfield")))
+                .andExpect(content().string(Matchers.containsString("/customer/edit/7")))
+                .andExpect(content().string(Matchers.containsString("before=prev")))
+                .andExpect(content().string(Matchers.containsString("after=next")));
     }
 }
@@ -0,0 +1,80 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerLetter;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
+import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerLetterService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CustomerLetterController.class)
+class CustomerLetterControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CustomerLetterService customerLetterService;
+
+    private final CustomerLetter letter = new CustomerLetter(1L, "1_Doe_John_email.pdf", "abc123", new byte[]{'%', 'P', 'D', 'F'});
+
+    private void stubLetter() {
+        when(customerLetterService.getLetterIfChanged(eq(1L), any())).thenAnswer(invocation ->
+                invocation.<Predicate<String>>getArgument(1).test(letter.eTag()) ? Optional.empty() : Optional.of(letter));
+    }
+
+    @Test
+    @DisplayName("Test downloading a letter returns the PDF with its entity tag")
+    void testGetLetter_Success() throws Exception {
+        stubLetter();
+
+        mockMvc.perform(get("/customers/1/letter.pdf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_PDF))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"1_Doe_John_email.pdf\""))
+                .andExpect(content().bytes(letter.content()));
+    }
+
+    @Test
+    @DisplayName("Test downloading an unchanged letter returns 304 without a body")
+    void testGetLetter_NotModified() throws Exception {
+        stubLetter();
+
+        mockMvc.perform(get("/customers/1/letter.pdf").header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc123\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Test downloading a letter with an outdated entity tag returns the current PDF")
+    void testGetLetter_Modified() throws Exception {
+        stubLetter();
+
+        mockMvc.perform(get("/customers/1/letter.pdf").header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(letter.content()));
+    }
+
+    @Test
+    @DisplayName("Test downloading the letter of an unknown customer returns 404")
+    void testGetLetter_CustomerNotFound() throws Exception {
+        when(customerLetterService.getLetterIfChanged(eq(99L), any())).thenThrow(new CustomerNotFoundException("Customer not found for ID: 99"));
+
+        mockMvc.perform(get("/customers/99/letter.pdf"))
+                .andExpect(status().isNotFound());
+    }
+}
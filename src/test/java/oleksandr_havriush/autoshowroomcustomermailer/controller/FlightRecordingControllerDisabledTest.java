@@ -0,0 +1,33 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import oleksandr_havriush.autoshowroomcustomermailer.service.FlightRecordingService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(FlightRecordingController.class)
+class FlightRecordingControllerDisabledTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FlightRecordingService flightRecordingService;
+
+    @Test
+    @DisplayName("Test the recording endpoints are not available unless enabled")
+    void testRecordingEndpointsDisabled() throws Exception {
+        mockMvc.perform(post("/diagnostics/recording"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/diagnostics/recording/dump"))
+                .andExpect(status().isNotFound());
+        verifyNoInteractions(flightRecordingService);
+    }
+}
@@ -0,0 +1,92 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import jdk.jfr.RecordingState;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.FlightRecordingStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.service.FlightRecordingService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = FlightRecordingController.class, properties = "diagnostics.recording.enabled=true")
+class FlightRecordingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FlightRecordingService flightRecordingService;
+
+    @TempDir
+    private Path recordingDirectory;
+
+    @Test
+    @DisplayName("Test starting a recording returns its status")
+    void testStartRecording() throws Exception {
+        when(flightRecordingService.start())
+                .thenReturn(new FlightRecordingStatus("auto-showroom-mailer", RecordingState.RUNNING, Instant.parse("2024-06-01T10:00:00Z"), 0, null));
+
+        mockMvc.perform(post("/diagnostics/recording"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.startTime").value("2024-06-01T10:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Test the status of a missing recording is 404")
+    void testGetRecording_NotRunning() throws Exception {
+        when(flightRecordingService.getStatus()).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/diagnostics/recording"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Test a dump is returned as JFR file download")
+    void testDumpRecording() throws Exception {
+        Path file = Files.write(recordingDirectory.resolve("auto-showroom-mailer_1.jfr"), new byte[]{1, 2, 3});
+        when(flightRecordingService.dump()).thenReturn(Optional.of(file));
+
+        mockMvc.perform(post("/diagnostics/recording/dump"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"auto-showroom-mailer_1.jfr\""))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @DisplayName("Test stopping a recording returns the saved file")
+    void testStopRecording() throws Exception {
+        when(flightRecordingService.stop()).thenReturn(Optional.of(new FlightRecordingStatus("auto-showroom-mailer",
+                RecordingState.STOPPED, Instant.parse("2024-06-01T10:00:00Z"), 2048, "recordings/auto-showroom-mailer_1.jfr")));
+
+        mockMvc.perform(delete("/diagnostics/recording"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("STOPPED"))
+                .andExpect(jsonPath("$.file").value("recordings/auto-showroom-mailer_1.jfr"));
+    }
+
+    @Test
+    @DisplayName("Test stopping without a running recording is 404")
+    void testStopRecording_NotRunning() throws Exception {
+        when(flightRecordingService.stop()).thenReturn(Optional.empty());
+
+        mockMvc.perform(delete("/diagnostics/recording"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,37 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventoryCacheStatistics;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(InventoryController.class)
+class InventoryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private InventoryCache inventoryCache;
+
+    @Test
+    @DisplayName("Test the inventory cache statistics are returned as JSON")
+    void testGetCacheStatistics() throws Exception {
+        when(inventoryCache.getStatistics()).thenReturn(new InventoryCacheStatistics(9, 1, 1, 0, 5, 4, 2, 3, 1));
+
+        mockMvc.perform(get("/inventory/cache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.snapshotHits").value(9))
+                .andExpect(jsonPath("$.snapshotMisses").value(1))
+                .andExpect(jsonPath("$.cachedCars").value(5))
+                .andExpect(jsonPath("$.queryCacheHits").value(3));
+    }
+}
@@ -0,0 +1,76 @@
+package oleksandr_havriush.autoshowroomcustomermailer.controller;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailingJobService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MailingJobController.class)
+class MailingJobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MailingJobService mailingJobService;
+
+    private MailingJobProgress progress(MailingJobStatus status, long done) {
+        return new MailingJobProgress("job-1", null, false, status, 10, done, 0, 10 - done, 0, Instant.now(), null, null);
+    }
+
+    @Test
+    @DisplayName("Test submitting a mailing job returns its ID immediately")
+    void testSubmitJob() throws Exception {
+        when(mailingJobService.submit()).thenReturn(progress(MailingJobStatus.QUEUED, 0));
+
+        mockMvc.perform(post("/mailingJobs"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/mailingJobs/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("Test querying the progress of a mailing job")
+    void testGetJob() throws Exception {
+        when(mailingJobService.getProgress("job-1")).thenReturn(Optional.of(progress(MailingJobStatus.RUNNING, 4)));
+
+        mockMvc.perform(get("/mailingJobs/{jobId}", "job-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.done").value(4))
+                .andExpect(jsonPath("$.remaining").value(6));
+    }
+
+    @Test
+    @DisplayName("Test querying an unknown mailing job")
+    void testGetJob_NotFound() throws Exception {
+        when(mailingJobService.getProgress("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/mailingJobs/{jobId}", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Test listing all mailing jobs")
+    void testListJobs() throws Exception {
+        when(mailingJobService.getAllProgress()).thenReturn(List.of(progress(MailingJobStatus.COMPLETED, 10)));
+
+        mockMvc.perform(get("/mailingJobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"));
+    }
+}
@@ -1,12 +1,10 @@
 package oleksandr_havriush.autoshowroomcustomermailer.controller;
 
-import oleksandr_havriush.autoshowroomcustomermailer.exeptions.DirectoryCreationException;
-import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
-import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
-import oleksandr_havriush.autoshowroomcustomermailer.service.CustomerService;
-import oleksandr_havriush.autoshowroomcustomermailer.service.PdfGenerationService;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailingJobService;
 import org.hamcrest.Matchers;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,11 +13,11 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
-import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -31,97 +29,113 @@ class PdfControllerTest {
     private MockMvc mockMvc;
 
     @MockBean
-    private PdfGenerationService pdfGenerationService;
-
-    @MockBean
-    private CustomerService customerService;
-
-    private List<Customer> customers;
-    private Customer customer;
+    private MailingJobService mailingJobService;
 
     @Value("${pdf.generated-mails-path}")
     private String pdfPath;
 
-    @BeforeEach
-    void setUp() {
-        customer = new Customer(1L, "John", "Doe", null);
-        customers = List.of(customer);
+    private static MailingJobProgress progress(CustomerSegment segment, boolean combined, MailingJobStatus status,
+                                               long done, long failed, String errorMessage) {
+        Instant finishedAt = status == MailingJobStatus.COMPLETED || status == MailingJobStatus.FAILED ? Instant.now() : null;
+        return new MailingJobProgress("job-1", segment, combined, status, 10, done, failed, 10 - done - failed, 0,
+                Instant.now(), finishedAt, errorMessage);
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with successful PDF generation")
-    void testGeneratePdfForAllCustomers_Success() throws Exception {
-        when(customerService.findAll()).thenReturn(customers);
-        doNothing().when(pdfGenerationService).createPdfForCustomer(anyLong());
+    @DisplayName("Test generatePdfForAllCustomers submits a job and redirects to its progress")
+    void testGeneratePdfForAllCustomers_SubmitsJob() throws Exception {
+        when(mailingJobService.submit(null, false)).thenReturn(progress(null, false, MailingJobStatus.QUEUED, 0, 0, null));
 
         mockMvc.perform(get("/generatePdf"))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", "PDF files saved to directory " + pdfPath + " successfully for all customers."));
+                .andExpect(redirectedUrl("/generatePdf/jobs/job-1"));
+
+        verify(mailingJobService).submit(null, false);
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with PDF generation failure")
-    void testGeneratePdfForAllCustomers_Failure() throws Exception {
-        when(customerService.findAll()).thenReturn(customers);
-        doThrow(RuntimeException.class).when(pdfGenerationService).createPdfForCustomer(anyLong());
+    @DisplayName("Test generatePdfForSegment submits a job for the matching customers")
+    void testGeneratePdfForSegment_SubmitsJob() throws Exception {
+        CustomerSegment segment = new CustomerSegment(List.of("Cologne", "Bonn"), "Germany", "50000", "59999",
+                LocalDate.of(2024, 1, 1), null);
+        when(mailingJobService.submit(segment, false)).thenReturn(progress(segment, false, MailingJobStatus.QUEUED, 0, 0, null));
+
+        mockMvc.perform(get("/generatePdf/segment")
+                        .param("cities", "Cologne,Bonn")
+                        .param("country", "Germany")
+                        .param("postalCodeFrom", "50000")
+                        .param("postalCodeTo", "59999")
+                        .param("createdFrom", "2024-01-01"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/generatePdf/jobs/job-1"));
 
-        mockMvc.perform(get("/generatePdf"))
+        verify(mailingJobService).submit(segment, false);
+    }
+
+    @Test
+    @DisplayName("Test generatePdfForSegment without criteria submits nothing")
+    void testGeneratePdfForSegment_NoCriteria() throws Exception {
+        mockMvc.perform(get("/generatePdf/segment").param("cities", ""))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", Matchers.stringContainsInOrder(Arrays.asList("Error generating PDF for customer"))));
+                .andExpect(flash().attribute("message", "Select at least one segment criterion or generate PDFs for all customers."));
+
+        verifyNoInteractions(mailingJobService);
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with no customers")
-    void testGeneratePdfForAllCustomers_NoCustomers() throws Exception {
-        when(customerService.findAll()).thenReturn(new ArrayList<>());
+    @DisplayName("Test generateCombinedPdfForAllCustomers submits a combined job")
+    void testGenerateCombinedPdfForAllCustomers_SubmitsJob() throws Exception {
+        when(mailingJobService.submit(null, true)).thenReturn(progress(null, true, MailingJobStatus.QUEUED, 0, 0, null));
 
-        mockMvc.perform(get("/generatePdf"))
+        mockMvc.perform(get("/generateCombinedPdf"))
                 .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", "No customers available for PDF generation."));
+                .andExpect(redirectedUrl("/generatePdf/jobs/job-1"));
+
+        verify(mailingJobService).submit(null, true);
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with save PDF error")
-    void testGeneratePdfForAllCustomers_SavePdfError() throws Exception {
-        when(customerService.findAll()).thenReturn(customers);
-        doThrow(new PdfGenerationException("Error saving PDF")).when(pdfGenerationService).createPdfForCustomer(anyLong());
+    @DisplayName("Test showJobProgress reloads the page while the job is running")
+    void testShowJobProgress_Running() throws Exception {
+        when(mailingJobService.getProgress("job-1")).thenReturn(Optional.of(progress(null, false, MailingJobStatus.RUNNING, 4, 1, null)));
+
+        mockMvc.perform(get("/generatePdf/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("mailingJob"))
+                .andExpect(content().string(Matchers.containsString("http-equiv=\"refresh\"")))
+                .andExpect(content().string(Matchers.containsString("4 generated, 1 failed, 5 remaining of 10 letters")));
+    }
 
-        mockMvc.perform(get("/generatePdf"))
-                .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", "Error generating PDF for customer Doe John: Error saving PDF"));
+    @Test
+    @DisplayName("Test showJobProgress shows where the letters of a completed job were saved")
+    void testShowJobProgress_Completed() throws Exception {
+        when(mailingJobService.getProgress("job-1")).thenReturn(Optional.of(progress(null, true, MailingJobStatus.COMPLETED, 10, 0, null)));
+
+        mockMvc.perform(get("/generatePdf/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("outputPath", pdfPath + "/combined"))
+                .andExpect(content().string(Matchers.containsString("PDF files saved to directory " + pdfPath + "/combined.")))
+                .andExpect(content().string(Matchers.not(Matchers.containsString("http-equiv=\"refresh\""))));
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with directory creation error")
-    void testGeneratePdfForAllCustomers_DirectoryCreationError() throws Exception {
-        when(customerService.findAll()).thenReturn(customers);
-        doThrow(new DirectoryCreationException("Failed to create directory")).when(pdfGenerationService).createPdfForCustomer(anyLong());
+    @DisplayName("Test showJobProgress shows the error of a failed job")
+    void testShowJobProgress_Failed() throws Exception {
+        when(mailingJobService.getProgress("job-1")).thenReturn(Optional.of(progress(null, false, MailingJobStatus.FAILED, 3, 0, "Disk full")));
 
-        mockMvc.perform(get("/generatePdf"))
-                .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", "Error generating PDF for customer Doe John: Failed to create directory"));
+        mockMvc.perform(get("/generatePdf/jobs/job-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(Matchers.containsString("Error generating PDF: Disk full")));
     }
 
     @Test
-    @DisplayName("Test generatePdfForAllCustomers with partial success")
-    void testGeneratePdfForAllCustomers_PartialSuccess() throws Exception {
-        when(customerService.findAll()).thenReturn(customers);
-        doAnswer(invocation -> {
-            Long customerId = invocation.getArgument(0);
-            if (customerId.equals(1L)) {
-                throw new RuntimeException("Error generating PDF");
-            }
-            return null;
-        }).when(pdfGenerationService).createPdfForCustomer(anyLong());
+    @DisplayName("Test showJobProgress for an unknown job")
+    void testShowJobProgress_UnknownJob() throws Exception {
+        when(mailingJobService.getProgress("unknown")).thenReturn(Optional.empty());
 
-        mockMvc.perform(get("/generatePdf"))
-                .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl("/uploadStatus"))
-                .andExpect(flash().attribute("message", "Error generating PDF for customer Doe John: Error generating PDF"));
+        mockMvc.perform(get("/generatePdf/jobs/unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(view().name("errors/404"));
     }
 }
@@ -0,0 +1,96 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+class CarBatchRepositoryImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CarBatchRepositoryImpl carBatchRepository;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:cars;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE vehicle (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), manufacturer VARCHAR(255), price DOUBLE)");
+        jdbcTemplate.execute("CREATE TABLE car (id BIGINT PRIMARY KEY REFERENCES vehicle (id), type VARCHAR(255), power INT)");
+        carBatchRepository = new CarBatchRepositoryImpl(jdbcTemplate, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private Car car(String name, int power) {
+        return Car.builder()
+                .name(name)
+                .manufacturer("Skoda")
+                .price(20000.0)
+                .type("Sedan")
+                .power(power)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Test batch insert writes vehicle and car rows and assigns IDs")
+    public void testInsertAll() {
+        List<Car> cars = new ArrayList<>(List.of(car("Octavia", 85), car("Superb", 150), car("Fabia", 60)));
+
+        carBatchRepository.insertAll(cars);
+
+        assertTrue(cars.stream().allMatch(car -> car.getId() != null));
+        assertEquals(3, cars.stream().map(Car::getId).distinct().count());
+        for (Car car : cars) {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT v.name, c.power FROM vehicle v JOIN car c ON c.id = v.id WHERE v.id = ?", car.getId());
+            assertEquals(car.getName(), row.get("NAME"));
+            assertEquals(car.getPower(), row.get("POWER"));
+        }
+    }
+
+    @Test
+    @DisplayName("Test batch insert of an empty list")
+    public void testInsertAll_Empty() {
+        carBatchRepository.insertAll(List.of());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vehicle", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Test batch update changes price and power")
+    public void testUpdateAll() {
+        List<Car> cars = new ArrayList<>(List.of(car("Octavia", 85), car("Superb", 150)));
+        carBatchRepository.insertAll(cars);
+        cars.get(0).setPrice(21000.0);
+        cars.get(0).setPower(90);
+
+        carBatchRepository.updateAll(List.of(cars.get(0)));
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT v.price, c.power FROM vehicle v JOIN car c ON c.id = v.id WHERE v.id = ?", cars.get(0).getId());
+        assertEquals(21000.0, row.get("PRICE"));
+        assertEquals(90, row.get("POWER"));
+    }
+
+    @Test
+    @DisplayName("Test batch delete removes vehicle and car rows")
+    public void testDeleteAllByIds() {
+        List<Car> cars = new ArrayList<>(List.of(car("Octavia", 85), car("Superb", 150), car("Fabia", 60)));
+        carBatchRepository.insertAll(cars);
+
+        carBatchRepository.deleteAllByIds(List.of(cars.get(0).getId(), cars.get(2).getId()));
+
+        assertEquals(List.of(cars.get(1).getId()), jdbcTemplate.queryForList("SELECT id FROM vehicle", Long.class));
+        assertEquals(List.of(cars.get(1).getId()), jdbcTemplate.queryForList("SELECT id FROM car", Long.class));
+    }
+}
@@ -0,0 +1,61 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CarSyncEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+class CarRepositoryTest {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Car octavia;
+
+    @BeforeEach
+    public void setUp() {
+        octavia = carRepository.save(Car.builder().name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build());
+        entityManager.flush();
+        entityManager.clear();
+        // Warms the query and second-level caches with the stored price
+        assertEquals(20000.0, carRepository.findAll().get(0).getPrice());
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Test the synchronization state is read from the database and sees a price written over JDBC")
+    public void testFindSyncEntries_SeesJdbcWrites() {
+        jdbcTemplate.update("UPDATE vehicle SET price = ? WHERE id = ?", 21000.0, octavia.getId());
+
+        List<CarSyncEntry> entries = carRepository.findSyncEntries();
+
+        assertEquals(List.of(new CarSyncEntry(octavia.getId(), "Skoda", "Octavia", "Sedan", 21000.0, 85)), entries);
+    }
+
+    @Test
+    @DisplayName("Test the synchronization state contains cars inserted over JDBC, ordered by ID")
+    public void testFindSyncEntries_SeesJdbcInserts() {
+        carRepository.insertAll(List.of(Car.builder().name("Golf").manufacturer("Volkswagen").price(23000.0).type("Hatchback").power(110).build()));
+
+        assertEquals(List.of("Octavia", "Golf"), carRepository.findSyncEntries().stream().map(CarSyncEntry::name).toList());
+    }
+}
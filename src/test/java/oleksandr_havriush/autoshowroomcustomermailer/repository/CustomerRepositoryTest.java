@@ -0,0 +1,288 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        SqlStatementCounter.PROPERTY})
+class CustomerRepositoryTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private List<Customer> customers;
+
+    @BeforeEach
+    public void setUp() {
+        customers = customerRepository.saveAll(List.of(
+                customer("Weber", "Berlin", "10115"),
+                customer("Bauer", "Munich", "80331"),
+                customer("Weber", "Aachen", "52062"),
+                customer("Fischer", "Berlin", "10435"),
+                customer("Wagner", "Bremen", "28195")));
+    }
+
+    private Customer customer(String lastName, String city, String postalCode) {
+        Address address = new Address(null, "Hauptstraße", "1", city, postalCode, "Germany");
+        return new Customer(null, "Max", lastName, address);
+    }
+
+    private List<String> lastNames(List<Customer> page) {
+        return page.stream().map(Customer::getLastName).toList();
+    }
+
+    private List<Customer> read(Specification<Customer> specification, CustomerSort sort, boolean descending, int limit) {
+        return customerRepository.findBy(Specification.where(specification),
+                query -> query.sortBy(sort.toSort(descending)).limit(limit).all());
+    }
+
+    @Test
+    @DisplayName("Test pages continued after the last customer cover the list without gaps or repeats")
+    public void testBeyond_ForwardPages() {
+        List<Customer> first = read(null, CustomerSort.NAME, false, 2);
+        Customer last = first.get(1);
+        List<Customer> second = read(CustomerSpecifications.beyond(CustomerSort.NAME, last.getLastName(), last.getId(), false),
+                CustomerSort.NAME, false, 2);
+        last = second.get(1);
+        List<Customer> third = read(CustomerSpecifications.beyond(CustomerSort.NAME, last.getLastName(), last.getId(), false),
+                CustomerSort.NAME, false, 2);
+
+        assertEquals(List.of("Bauer", "Fischer"), lastNames(first));
+        assertEquals(List.of("Wagner", "Weber"), lastNames(second));
+        assertEquals(List.of("Weber"), lastNames(third));
+        assertNotEquals(second.get(1).getId(), third.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Test reading backwards returns the customers before the position in reverse order")
+    public void testBeyond_Backward() {
+        Customer bremen = customers.get(4);
+
+        List<Customer> page = read(CustomerSpecifications.beyond(CustomerSort.CITY, "Bremen", bremen.getId(), true),
+                CustomerSort.CITY, true, 10);
+
+        assertEquals(List.of("Berlin", "Berlin", "Aachen"), page.stream().map(customer -> customer.getAddress().getCity()).toList());
+    }
+
+    @Test
+    @DisplayName("Test searching by last name prefix")
+    public void testStartingWith_LastName() {
+        List<Customer> page = read(CustomerSpecifications.startingWith("We"), CustomerSort.POSTAL_CODE, false, 10);
+
+        assertEquals(List.of("10115", "52062"), page.stream().map(customer -> customer.getAddress().getPostalCode()).toList());
+    }
+
+    @Test
+    @DisplayName("Test searching by postal code prefix combined with a position")
+    public void testStartingWith_PostalCodeAndPosition() {
+        Customer first = customers.get(0);
+        Specification<Customer> specification = Specification.where(CustomerSpecifications.startingWith("10"))
+                .and(CustomerSpecifications.beyond(CustomerSort.POSTAL_CODE, "10115", first.getId(), false));
+
+        List<Customer> page = read(specification, CustomerSort.POSTAL_CODE, false, 10);
+
+        assertEquals(List.of("Fischer"), lastNames(page));
+    }
+
+    @Test
+    @DisplayName("Test wildcards in the search are matched literally")
+    public void testStartingWith_EscapesWildcards() {
+        assertTrue(read(CustomerSpecifications.startingWith("%"), CustomerSort.NAME, false, 10).isEmpty());
+        assertEquals(5, read(CustomerSpecifications.startingWith("  "), CustomerSort.NAME, false, 10).size());
+    }
+
+    private List<Customer> readSegment(CustomerSegment segment) {
+        return read(CustomerSpecifications.inSegment(segment), CustomerSort.NAME, false, 10);
+    }
+
+    @Test
+    @DisplayName("Test segment by cities and postal code range")
+    public void testInSegment_CitiesAndPostalCodes() {
+        assertEquals(List.of("Fischer", "Wagner", "Weber"),
+                lastNames(readSegment(new CustomerSegment(List.of("Berlin", " Bremen ", ""), null, null, null, null, null))));
+        assertEquals(List.of("Fischer", "Wagner", "Weber"),
+                lastNames(readSegment(new CustomerSegment(null, "Germany", "10200", "52062", null, null))));
+        assertTrue(readSegment(new CustomerSegment(List.of("Berlin"), "Austria", null, null, null, null)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test segment by creation date includes both bounds")
+    public void testInSegment_CreationDate() {
+        LocalDate today = LocalDate.now();
+
+        assertEquals(5, readSegment(new CustomerSegment(null, null, null, null, today, today)).size());
+        assertTrue(readSegment(new CustomerSegment(null, null, null, null, null, today.minusDays(1))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test segment continued after an ID")
+    public void testInSegment_AfterId() {
+        Customer first = customers.get(0);
+        Specification<Customer> specification = Specification.where(
+                        CustomerSpecifications.inSegment(new CustomerSegment(List.of("Berlin"), null, null, null, null, null)))
+                .and(CustomerSpecifications.idGreaterThan(first.getId()));
+
+        assertEquals(List.of("Fischer"), lastNames(read(specification, CustomerSort.NAME, false, 10)));
+    }
+
+    /**
+     * Detaches the saved customers, so the counted query has to load them from the database.
+     */
+    private void startCounting() {
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    @DisplayName("Test all customers are loaded with their addresses in one statement")
+    public void testFindAll_SingleStatement() {
+        startCounting();
+
+        List<Customer> all = customerRepository.findAll();
+        all.forEach(customer -> customer.getAddress().getCity());
+
+        assertEquals(5, all.size());
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Test a keyset page for letters is loaded with its addresses in one statement")
+    public void testFindByIdGreaterThan_SingleStatement() {
+        startCounting();
+
+        List<Customer> page = customerRepository.findByIdGreaterThan(customers.get(0).getId(),
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.ASC, "id")));
+
+        assertEquals(List.of("Munich", "Aachen", "Berlin"), page.stream().map(customer -> customer.getAddress().getCity()).toList());
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Test a segment page fetches the addresses in the same statement")
+    public void testSegmentPage_SingleStatement() {
+        startCounting();
+
+        List<Customer> page = customerRepository.findBy(
+                Specification.where(CustomerSpecifications.inSegment(new CustomerSegment(List.of("Berlin"), null, null, null, null, null))),
+                query -> query.project("address").sortBy(Sort.by(Sort.Direction.ASC, "id")).limit(10).all());
+
+        assertEquals(List.of("10115", "10435"), page.stream().map(customer -> customer.getAddress().getPostalCode()).toList());
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Test a single customer is loaded with the address in one statement")
+    public void testFindById_SingleStatement() {
+        startCounting();
+
+        Customer customer = customerRepository.findById(customers.get(1).getId()).orElseThrow();
+
+        assertEquals("Munich", customer.getAddress().getCity());
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Test customer list rows are read in one statement in the order of the sort")
+    public void testFindListEntries() {
+        startCounting();
+
+        List<CustomerListEntry> rows = customerRepository.findListEntries(CustomerSpecifications.startingWith("We"),
+                CustomerSort.CITY.toSort(false), 10);
+
+        assertEquals(List.of("Aachen", "Berlin"), rows.stream().map(CustomerListEntry::city).toList());
+        CustomerListEntry first = rows.get(0);
+        assertEquals(new CustomerListEntry(customers.get(2).getId(), "Max", "Weber", "Hauptstraße", "1", "Aachen", "52062", "Germany"), first);
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    @Test
+    @DisplayName("Test customer list rows continue after a position and respect the limit")
+    public void testFindListEntries_PositionAndLimit() {
+        Customer berlin = customers.get(0);
+        startCounting();
+
+        List<CustomerListEntry> rows = customerRepository.findListEntries(
+                CustomerSpecifications.beyond(CustomerSort.POSTAL_CODE, "10115", berlin.getId(), false),
+                CustomerSort.POSTAL_CODE.toSort(false), 2);
+
+        assertEquals(List.of("10435", "28195"), rows.stream().map(CustomerListEntry::postalCode).toList());
+        SqlStatementCounter.assertSelectCount(1);
+    }
+
+    private List<CustomerListEntry> readPages(CustomerSort sort, boolean backward, int pageSize) {
+        List<CustomerListEntry> all = new ArrayList<>();
+        Specification<Customer> position = null;
+        List<CustomerListEntry> page;
+        do {
+            page = customerRepository.findListEntries(Specification.where(position), sort.toSort(backward), pageSize);
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                CustomerListEntry last = page.get(page.size() - 1);
+                position = CustomerSpecifications.beyond(sort, sort.keyOf(last), last.id(), backward);
+            }
+        } while (page.size() == pageSize);
+        return all;
+    }
+
+    @Test
+    @DisplayName("Test customers without an address are reached when paging by city in both directions")
+    public void testBeyond_CustomersWithoutAddress() {
+        Customer first = customerRepository.save(new Customer(null, "Anna", "Schulz", null));
+        Customer second = customerRepository.save(new Customer(null, "Paul", "Schulz", null));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<CustomerListEntry> forward = readPages(CustomerSort.CITY, false, 2);
+        List<CustomerListEntry> backward = readPages(CustomerSort.CITY, true, 2);
+
+        assertEquals(List.of(first.getId(), second.getId()), forward.subList(0, 2).stream().map(CustomerListEntry::id).toList());
+        assertNull(forward.get(0).city());
+        assertEquals(List.of("Aachen", "Berlin", "Berlin", "Bremen", "Munich"),
+                forward.subList(2, 7).stream().map(CustomerListEntry::city).toList());
+        List<CustomerListEntry> reversed = new ArrayList<>(backward);
+        Collections.reverse(reversed);
+        assertEquals(forward, reversed);
+    }
+
+    @Test
+    @DisplayName("Test a page ending on a customer without a last name continues with the remaining customers")
+    public void testBeyond_NullLastName() {
+        Customer unnamed = customerRepository.save(new Customer(null, "Max", null, null));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<CustomerListEntry> page = customerRepository.findListEntries(
+                Specification.where(CustomerSpecifications.beyond(CustomerSort.NAME, null, unnamed.getId(), false)),
+                CustomerSort.NAME.toSort(false), 10);
+
+        assertEquals(List.of("Bauer", "Fischer", "Wagner", "Weber", "Weber"), page.stream().map(CustomerListEntry::lastName).toList());
+        assertTrue(customerRepository.findListEntries(
+                Specification.where(CustomerSpecifications.beyond(CustomerSort.NAME, null, unnamed.getId(), true)),
+                CustomerSort.NAME.toSort(true), 10).isEmpty());
+    }
+}
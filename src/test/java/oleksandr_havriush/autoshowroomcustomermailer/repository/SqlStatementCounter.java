@@ -0,0 +1,75 @@
+package oleksandr_havriush.autoshowroomcustomermailer.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hibernate statement inspector recording the SQL statements issued by the current thread, so that tests can assert
+ * how many statements a repository or service call needs and N+1 query regressions fail the build.
+ * It is registered with the {@link #PROPERTY} of a JPA test:
+ * <pre>
+ * &#64;DataJpaTest(properties = SqlStatementCounter.PROPERTY)
+ * </pre>
+ * Entities saved by the test stay in its persistence context and are not selected again,
+ * so the test has to flush and clear the context before the counted call.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    /**
+     * Spring property registering this inspector with Hibernate.
+     */
+    public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "oleksandr_havriush.autoshowroomcustomermailer.repository.SqlStatementCounter";
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return sql;
+    }
+
+    /**
+     * Forgets the statements recorded so far, e.g. the inserts of the test data.
+     */
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    /**
+     * Returns the statements recorded since the last reset.
+     *
+     * @return the SQL of the statements in the order they were issued
+     */
+    public static List<String> getStatements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+
+    /**
+     * Returns the select statements recorded since the last reset.
+     *
+     * @return the SQL of the select statements in the order they were issued
+     */
+    public static List<String> getSelects() {
+        return STATEMENTS.get().stream()
+                .filter(sql -> sql.stripLeading().toLowerCase(Locale.ROOT).startsWith("select"))
+                .toList();
+    }
+
+    /**
+     * Asserts the number of select statements recorded since the last reset and starts counting anew.
+     *
+     * @param expected the expected number of select statements
+     */
+    public static void assertSelectCount(int expected) {
+        List<String> selects = getSelects();
+        reset();
+        assertEquals(expected, selects.size(),
+                () -> "Expected " + expected + " select statements but got " + selects.size() + ":\n" + String.join("\n", selects));
+    }
+}
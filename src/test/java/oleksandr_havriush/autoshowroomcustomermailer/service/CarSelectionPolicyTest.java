@@ -0,0 +1,94 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.LetterFingerprints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class CarSelectionPolicyTest {
+
+    private List<Car> cars;
+
+    @BeforeEach
+    public void setUp() {
+        cars = List.of(
+                Car.builder().id(1L).name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build(),
+                Car.builder().id(2L).name("Actros").manufacturer("Mercedes-Benz").price(50000.0).type("Truck").power(250).build(),
+                Car.builder().id(3L).name("CBR600RR").manufacturer("Honda").price(15000.0).type("Sport").power(85).build(),
+                Car.builder().id(4L).name("Model S").manufacturer("Tesla").price(75000.0).type("Electric").power(100).build());
+    }
+
+    private static Customer customerIn(String postalCode) {
+        return new Customer(1L, "Mark", "Bensberg", new Address(1L, "New York Avenue", "125A", "Bonn", postalCode, "Germany"));
+    }
+
+    private static List<String> names(CarSelection selection) {
+        return selection.cars().stream().map(Car::getName).toList();
+    }
+
+    @Test
+    @DisplayName("Test the rule with the longest matching postal code prefix is chosen")
+    public void testRuleFor_LongestPrefix() {
+        CarSelectionPolicy policy = new CarSelectionPolicy(List.of("5:Sedan:*", "53:Truck:*", "*:Electric:*"), 10);
+
+        assertEquals("53", policy.ruleFor(customerIn("53111")).postalPrefix());
+        assertEquals("5", policy.ruleFor(customerIn("50667")).postalPrefix());
+        assertEquals("", policy.ruleFor(customerIn("80331")).postalPrefix());
+        assertEquals("", policy.ruleFor(new Customer(2L, "Anna", "Berg", null)).postalPrefix());
+    }
+
+    @Test
+    @DisplayName("Test customers without a matching rule get the whole inventory when no default rule is configured")
+    public void testRuleFor_NoRules() {
+        CarSelectionPolicy policy = new CarSelectionPolicy(List.of(), 0);
+
+        assertSame(CarSelectionRule.ALL_CARS, policy.ruleFor(customerIn("47523")));
+    }
+
+    @Test
+    @DisplayName("Test two rules for the same postal code prefix are rejected")
+    public void testConstructor_DuplicatePrefix() {
+        assertThrows(IllegalArgumentException.class, () -> new CarSelectionPolicy(List.of("5:Sedan:*", "5:Truck:*"), 10));
+    }
+
+    @Test
+    @DisplayName("Test an unlimited selection lists the whole inventory in its original order")
+    public void testForCustomer_WholeInventory() {
+        CarSelection selection = new CarSelectionPolicy(List.of(), 0).select(cars).forCustomer(customerIn("47523"));
+
+        assertEquals(cars, selection.cars());
+        assertEquals(cars.size(), selection.carTable().getCarCount());
+        assertEquals(LetterFingerprints.inventoryVersion(cars), selection.inventoryVersion());
+    }
+
+    @Test
+    @DisplayName("Test letters list at most the configured number of the most expensive cars allowed by their rule")
+    public void testForCustomer_BoundedSelection() {
+        InventorySelection inventory = new CarSelectionPolicy(List.of("5:Sedan|Sport:*"), 2).select(cars);
+
+        assertEquals(4, inventory.getCarCount());
+        assertEquals(List.of("Model S", "Actros"), names(inventory.forCustomer(customerIn("47523"))));
+        assertEquals(List.of("Octavia", "CBR600RR"), names(inventory.forCustomer(customerIn("50667"))));
+    }
+
+    @Test
+    @DisplayName("Test customers of the same rule share one selection and car table")
+    public void testForCustomer_SharedPerRule() {
+        InventorySelection inventory = new CarSelectionPolicy(List.of("5:Sedan:*"), 10).select(cars);
+
+        CarSelection cologne = inventory.forCustomer(customerIn("50667"));
+        CarSelection bonn = inventory.forCustomer(customerIn("53111"));
+        CarSelection munich = inventory.forCustomer(customerIn("80331"));
+
+        assertSame(cologne, bonn);
+        assertNotSame(cologne, munich);
+        assertNotEquals(cologne.inventoryVersion(), munich.inventoryVersion());
+    }
+}
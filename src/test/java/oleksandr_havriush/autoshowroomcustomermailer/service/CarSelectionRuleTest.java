@@ -0,0 +1,45 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+class CarSelectionRuleTest {
+
+    @Test
+    @DisplayName("Test a rule with types and a price band is parsed")
+    public void testParse() {
+        CarSelectionRule rule = CarSelectionRule.parse(" 50:Sedan|Electric:20000-60000 ");
+
+        assertEquals("50", rule.postalPrefix());
+        assertEquals(Set.of("Sedan", "Electric"), rule.types());
+        assertEquals(20000, rule.minPrice());
+        assertEquals(60000, rule.maxPrice());
+        assertFalse(rule.isUnrestricted());
+    }
+
+    @Test
+    @DisplayName("Test wildcards and open price bands are parsed as no restriction")
+    public void testParse_Wildcards() {
+        CarSelectionRule openBand = CarSelectionRule.parse("8:*:40000-");
+        assertEquals(Set.of(), openBand.types());
+        assertEquals(40000, openBand.minPrice());
+        assertEquals(Double.MAX_VALUE, openBand.maxPrice());
+
+        CarSelectionRule all = CarSelectionRule.parse("*::*");
+        assertEquals("", all.postalPrefix());
+        assertTrue(all.isUnrestricted());
+    }
+
+    @Test
+    @DisplayName("Test malformed rules are rejected")
+    public void testParse_Malformed() {
+        assertThrows(IllegalArgumentException.class, () -> CarSelectionRule.parse("5:Sedan"));
+        assertThrows(IllegalArgumentException.class, () -> CarSelectionRule.parse("5:Sedan:20000"));
+        assertThrows(IllegalArgumentException.class, () -> CarSelectionRule.parse("5:Sedan:cheap-expensive"));
+        assertThrows(IllegalArgumentException.class, () -> CarSelectionRule.parse("5:Sedan:60000-20000"));
+    }
+}
@@ -0,0 +1,163 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.CarTableTemplate;
+import oleksandr_havriush.autoshowroomcustomermailer.util.PdfReportGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CombinedLetterWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<byte[]> letters;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            cars.add(Car.builder()
+                    .id((long) i)
+                    .name("Model " + i)
+                    .manufacturer("Skoda")
+                    .price(20000.0 + i)
+                    .type("Sedan")
+                    .power(85)
+                    .build());
+        }
+        CarTableTemplate carTable = CarTableTemplate.of(cars);
+        letters = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            Address address = new Address(id, "New York Avenue", "125A", "Bonn", "47523", "Germany");
+            Customer customer = new Customer(id, "Mark", "Customer" + id, address);
+            letters.add(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), carTable).readAllBytes());
+        }
+    }
+
+    private String extractText(Path pdf) throws IOException {
+        PdfReader reader = new PdfReader(pdf.toString());
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+            text.append(PdfTextExtractor.getTextFromPage(reader, page)).append('\n');
+        }
+        reader.close();
+        return text.toString();
+    }
+
+    @Test
+    @DisplayName("Test letters handed over out of order are written in sequence order")
+    public void testAppend_OutOfOrder() throws IOException {
+        AtomicInteger written = new AtomicInteger();
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 0);
+
+        writer.append(2, letters.get(2), written::incrementAndGet);
+        writer.append(1, letters.get(1), written::incrementAndGet);
+        assertEquals(0, written.get());
+        writer.append(0, letters.get(0), written::incrementAndGet);
+        assertEquals(3, written.get());
+        writer.close();
+
+        assertEquals(List.of(tempDir.resolve("letters_vol001.pdf")), writer.getVolumes());
+        String text = extractText(writer.getVolumes().get(0));
+        int first = text.indexOf("Customer1");
+        int second = text.indexOf("Customer2");
+        int third = text.indexOf("Customer3");
+        assertTrue(first >= 0 && first < second && second < third);
+    }
+
+    @Test
+    @DisplayName("Test volumes are split after the configured number of letters")
+    public void testAppend_SplitsVolumes() throws IOException {
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 4);
+        for (int i = 0; i < letters.size(); i++) {
+            writer.append(i, letters.get(i), () -> { });
+        }
+        writer.close();
+
+        List<Path> volumes = writer.getVolumes();
+        assertEquals(2, volumes.size());
+        assertTrue(extractText(volumes.get(0)).contains("Customer4"));
+        assertFalse(extractText(volumes.get(0)).contains("Customer5"));
+        assertTrue(extractText(volumes.get(1)).contains("Customer6"));
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".part")));
+        }
+    }
+
+    @Test
+    @DisplayName("Test skipped letters are left out of the volume")
+    public void testAppend_SkipsFailedLetters() throws IOException {
+        AtomicInteger written = new AtomicInteger();
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 0);
+
+        writer.append(0, letters.get(0), written::incrementAndGet);
+        writer.append(1, null, written::incrementAndGet);
+        writer.append(2, letters.get(2), written::incrementAndGet);
+        writer.close();
+
+        assertEquals(3, written.get());
+        String text = extractText(writer.getVolumes().get(0));
+        assertTrue(text.contains("Customer1"));
+        assertFalse(text.contains("Customer2"));
+        assertTrue(text.contains("Customer3"));
+    }
+
+    @Test
+    @DisplayName("Test shared resources are stored once in the combined volume")
+    public void testAppend_DeduplicatesSharedResources() throws IOException {
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 0);
+        long separateSize = 0;
+        for (int i = 0; i < letters.size(); i++) {
+            separateSize += letters.get(i).length;
+            writer.append(i, letters.get(i), () -> { });
+        }
+        writer.close();
+
+        long combinedSize = Files.size(writer.getVolumes().get(0));
+        assertTrue(combinedSize < separateSize / 2,
+                "combined " + combinedSize + " bytes, separate " + separateSize + " bytes");
+    }
+
+    @Test
+    @DisplayName("Test closing with a missing letter fails and leaves no finished volume")
+    public void testClose_MissingLetter() throws IOException {
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 0);
+        writer.append(0, letters.get(0), () -> { });
+        writer.append(2, letters.get(2), () -> { });
+
+        assertThrows(PdfGenerationException.class, writer::close);
+        assertTrue(writer.getVolumes().isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("letters_vol001.pdf")));
+    }
+
+    @Test
+    @DisplayName("Test unreadable letter fails the combined output")
+    public void testAppend_InvalidLetter() {
+        AtomicInteger written = new AtomicInteger();
+        CombinedLetterWriter writer = new CombinedLetterWriter(tempDir, "letters", 0);
+
+        writer.append(0, "not a pdf".getBytes(), written::incrementAndGet);
+        writer.append(1, letters.get(1), written::incrementAndGet);
+
+        assertEquals(2, written.get());
+        assertThrows(PdfGenerationException.class, writer::close);
+    }
+}
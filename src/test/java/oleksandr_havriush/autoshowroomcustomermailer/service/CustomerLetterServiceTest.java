@@ -0,0 +1,171 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerLetter;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerLetterServiceTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    @Mock
+    private VehicleService<Car> carService;
+
+    private Customer customer;
+    private List<Car> cars;
+
+    @BeforeEach
+    public void setUp() {
+        Address address = new Address(1L, "New York Avenue", "125A", "Bonn", "47523", "Germany");
+        customer = new Customer(1L, "Mark", "Bensberg", address);
+        cars = List.of(Car.builder()
+                .id(1L)
+                .name("Octavia")
+                .manufacturer("Skoda")
+                .price(20000.0)
+                .type("Sedan")
+                .power(85)
+                .build());
+    }
+
+    private CustomerLetterService createService(int maxEntries, Duration timeToLive) {
+        return new CustomerLetterService(maxEntries, timeToLive, customerService, carService,
+                new CarSelectionPolicy(List.of(), 0));
+    }
+
+    private static CustomerLetter getLetter(CustomerLetterService service, Long customerId) {
+        return service.getLetterIfChanged(customerId, fingerprint -> false).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Test a letter is rendered once and then served from the cache")
+    public void testGetLetter_CacheHit() {
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer));
+        when(carService.findAll()).thenReturn(cars);
+        CustomerLetterService service = createService(10, Duration.ofMinutes(10));
+
+        CustomerLetter first = getLetter(service, 1L);
+        CustomerLetter second = getLetter(service, 1L);
+
+        assertTrue(first.content().length > 0);
+        assertSame(first.content(), second.content());
+        assertEquals(first.eTag(), second.eTag());
+        assertEquals("1_Bensberg_Mark_email.pdf", first.fileName());
+        assertEquals(1, service.getCachedLetterCount());
+        verify(carService, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test a changed customer is rendered again with a new entity tag")
+    public void testGetLetter_CustomerChanged() {
+        Customer moved = new Customer(1L, "Mark", "Bensberg",
+                new Address(1L, "Rhine Street", "7", "Cologne", "50667", "Germany"));
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer)).thenReturn(Optional.of(moved));
+        when(carService.findAll()).thenReturn(cars);
+        CustomerLetterService service = createService(10, Duration.ofMinutes(10));
+
+        CustomerLetter first = getLetter(service, 1L);
+        CustomerLetter second = getLetter(service, 1L);
+
+        assertNotSame(first.content(), second.content());
+        assertNotEquals(first.eTag(), second.eTag());
+        assertEquals(1, service.getCachedLetterCount());
+    }
+
+    @Test
+    @DisplayName("Test a letter the caller already holds is not rendered")
+    public void testGetLetterIfChanged_Held() {
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer));
+        when(carService.findAll()).thenReturn(cars);
+        CustomerLetterService service = createService(10, Duration.ofMinutes(10));
+        String eTag = getLetter(service, 1L).eTag();
+        service.onInventoryChanged(new InventoryChangedEvent(0));
+
+        assertTrue(service.getLetterIfChanged(1L, eTag::equals).isEmpty());
+        assertEquals(0, service.getCachedLetterCount());
+        assertTrue(service.getLetterIfChanged(1L, "outdated"::equals).isPresent());
+        assertEquals(1, service.getCachedLetterCount());
+    }
+
+    @Test
+    @DisplayName("Test an expired letter is rendered again")
+    public void testGetLetter_Expired() {
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer));
+        when(carService.findAll()).thenReturn(cars);
+        CustomerLetterService service = createService(10, Duration.ZERO);
+
+        CustomerLetter first = getLetter(service, 1L);
+        CustomerLetter second = getLetter(service, 1L);
+
+        assertNotSame(first.content(), second.content());
+        assertEquals(first.eTag(), second.eTag());
+    }
+
+    @Test
+    @DisplayName("Test the least recently used letter is evicted beyond the cache size")
+    public void testGetLetter_SizeEviction() {
+        Customer other = new Customer(2L, "Jane", "Doe", customer.getAddress());
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer));
+        when(customerService.findById(2L)).thenReturn(Optional.of(other));
+        when(carService.findAll()).thenReturn(cars);
+        CustomerLetterService service = createService(1, Duration.ofMinutes(10));
+
+        CustomerLetter first = getLetter(service, 1L);
+        getLetter(service, 2L);
+        CustomerLetter again = getLetter(service, 1L);
+
+        assertEquals(1, service.getCachedLetterCount());
+        assertNotSame(first.content(), again.content());
+    }
+
+    @Test
+    @DisplayName("Test an inventory change drops the cached letters and the inventory")
+    public void testOnInventoryChanged() {
+        when(customerService.findById(1L)).thenReturn(Optional.of(customer));
+        List<Car> restocked = List.of(cars.get(0), Car.builder()
+                .id(2L)
+                .name("Golf")
+                .manufacturer("Volkswagen")
+                .price(23000.0)
+                .type("Hatchback")
+                .power(110)
+                .build());
+        when(carService.findAll()).thenReturn(cars).thenReturn(restocked);
+        CustomerLetterService service = createService(10, Duration.ofMinutes(10));
+
+        CustomerLetter first = getLetter(service, 1L);
+        service.onInventoryChanged(new InventoryChangedEvent(1));
+        assertEquals(0, service.getCachedLetterCount());
+        CustomerLetter second = getLetter(service, 1L);
+
+        assertNotEquals(first.eTag(), second.eTag());
+        verify(carService, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test requesting the letter of an unknown customer throws exception")
+    public void testGetLetter_CustomerNotFound() {
+        when(customerService.findById(99L)).thenReturn(Optional.empty());
+        CustomerLetterService service = createService(10, Duration.ofMinutes(10));
+
+        assertThrows(CustomerNotFoundException.class, () -> getLetter(service, 99L));
+        verifyNoInteractions(carService);
+    }
+}
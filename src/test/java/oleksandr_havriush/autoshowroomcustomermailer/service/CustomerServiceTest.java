@@ -3,11 +3,16 @@ package oleksandr_havriush.autoshowroomcustomermailer.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerCursor;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerListEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerPage;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.CustomerNotFoundException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ValidationException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
 import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerRepository;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CustomerSort;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,10 +20,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 
 @ExtendWith(MockitoExtension.class)
@@ -170,4 +182,179 @@ class CustomerServiceTest {
         List<Customer> result = customerService.findAll();
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("Test iterating over customers page by page")
+    public void testIterateAll_LoadsKeysetPages() {
+        ReflectionTestUtils.setField(customerService, "pageSize", 2);
+        Customer second = new Customer(2L, "Anna", "Schmidt", address);
+        Customer third = new Customer(5L, "Paul", "Weber", address);
+        when(customerRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(List.of(customer, second));
+        when(customerRepository.findByIdGreaterThan(eq(2L), any(Pageable.class))).thenReturn(List.of(third));
+
+        List<Customer> result = new ArrayList<>();
+        customerService.iterateAll().forEach(result::add);
+
+        assertEquals(List.of(customer, second, third), result);
+        verify(customerRepository).findByIdGreaterThan(0L, PageRequest.of(0, 2, Sort.by("id")));
+        verify(customerRepository).findByIdGreaterThan(2L, PageRequest.of(0, 2, Sort.by("id")));
+        verifyNoMoreInteractions(customerRepository);
+    }
+
+    @Test
+    @DisplayName("Test iterating stops after an empty page")
+    public void testIterateAfter_FullLastPage() {
+        ReflectionTestUtils.setField(customerService, "pageSize", 1);
+        when(customerRepository.findByIdGreaterThan(eq(0L), any(Pageable.class))).thenReturn(List.of(customer));
+        when(customerRepository.findByIdGreaterThan(eq(1L), any(Pageable.class))).thenReturn(List.of());
+
+        List<Customer> result = new ArrayList<>();
+        customerService.iterateAfter(0L).forEach(result::add);
+
+        assertEquals(List.of(customer), result);
+        verify(customerRepository, times(2)).findByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Test iterating does not query the database until consumed")
+    public void testIterateAfter_IsLazy() {
+        Iterable<Customer> customers = customerService.iterateAfter(10L);
+        verifyNoInteractions(customerRepository);
+
+        when(customerRepository.findByIdGreaterThan(eq(10L), any(Pageable.class))).thenReturn(List.of());
+        assertFalse(customers.iterator().hasNext());
+        assertThrows(NoSuchElementException.class, () -> customers.iterator().next());
+    }
+
+    @Test
+    @DisplayName("Test counting customers after a given ID")
+    public void testCountAfter() {
+        when(customerRepository.countByIdGreaterThan(3L)).thenReturn(7L);
+        assertEquals(7L, customerService.countAfter(3L));
+    }
+
+    private CustomerListEntry entry(Long id, String firstName, String lastName) {
+        return new CustomerListEntry(id, firstName, lastName, address.getStreet(), address.getHouseNumber(),
+                address.getCity(), address.getPostalCode(), address.getCountry());
+    }
+
+    @Test
+    @DisplayName("Test the first customer list page links to the next page only")
+    public void testFindPage_FirstPage() {
+        ReflectionTestUtils.setField(customerService, "listPageSize", 2);
+        CustomerListEntry first = entry(1L, "Mark", "Bensberg");
+        CustomerListEntry second = entry(2L, "Anna", "Schmidt");
+        CustomerListEntry third = entry(3L, "Paul", "Weber");
+        when(customerRepository.findListEntries(any(Specification.class), eq(CustomerSort.NAME.toSort(false)), eq(3)))
+                .thenReturn(List.of(first, second, third));
+
+        CustomerPage page = customerService.findPage(null, CustomerSort.NAME, null, null);
+
+        assertEquals(List.of(first, second), page.customers());
+        assertFalse(page.hasPrevious());
+        assertEquals(new CustomerCursor("Schmidt", 2L), CustomerCursor.decode(page.nextCursor()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Test the last customer list page links to the previous page only")
+    public void testFindPage_LastPage() {
+        ReflectionTestUtils.setField(customerService, "listPageSize", 2);
+        CustomerListEntry first = entry(1L, "Mark", "Bensberg");
+        when(customerRepository.findListEntries(any(Specification.class), eq(CustomerSort.CITY.toSort(false)), eq(3)))
+                .thenReturn(List.of(first));
+
+        CustomerPage page = customerService.findPage("Ben", CustomerSort.CITY, new CustomerCursor("Aachen", 9L).encode(), null);
+
+        assertEquals(List.of(first), page.customers());
+        assertEquals("Ben", page.search());
+        assertFalse(page.hasNext());
+        assertEquals(new CustomerCursor("Bonn", 1L), CustomerCursor.decode(page.previousCursor()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Test going back restores the customer order and links to both neighbours")
+    public void testFindPage_Backward() {
+        ReflectionTestUtils.setField(customerService, "listPageSize", 2);
+        CustomerListEntry first = entry(1L, "Mark", "Bensberg");
+        CustomerListEntry second = entry(2L, "Anna", "Schmidt");
+        CustomerListEntry third = entry(3L, "Paul", "Albers");
+        when(customerRepository.findListEntries(any(Specification.class), eq(CustomerSort.NAME.toSort(true)), eq(3)))
+                .thenReturn(List.of(second, first, third));
+
+        CustomerPage page = customerService.findPage(null, CustomerSort.NAME, null, new CustomerCursor("Weber", 5L).encode());
+
+        assertEquals(List.of(first, second), page.customers());
+        assertEquals(new CustomerCursor("Bensberg", 1L), CustomerCursor.decode(page.previousCursor()).orElseThrow());
+        assertEquals(new CustomerCursor("Schmidt", 2L), CustomerCursor.decode(page.nextCursor()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Test a page ending on a customer without an address continues after that customer")
+    public void testFindPage_NullKey() {
+        ReflectionTestUtils.setField(customerService, "listPageSize", 1);
+        CustomerListEntry homeless = new CustomerListEntry(4L, "Anna", "Schulz", null, null, null, null, null);
+        when(customerRepository.findListEntries(any(Specification.class), eq(CustomerSort.CITY.toSort(false)), eq(2)))
+                .thenReturn(List.of(homeless, entry(1L, "Mark", "Bensberg")));
+
+        CustomerPage page = customerService.findPage(null, CustomerSort.CITY, null, null);
+
+        CustomerCursor next = CustomerCursor.decode(page.nextCursor()).orElseThrow();
+        assertEquals(new CustomerCursor(null, 4L), next);
+        assertNotEquals(new CustomerCursor("null", 4L), next);
+    }
+
+    @Test
+    @DisplayName("Test a malformed cursor starts from the first page")
+    public void testFindPage_MalformedCursor() {
+        CustomerListEntry first = entry(1L, "Mark", "Bensberg");
+        when(customerRepository.findListEntries(any(Specification.class), any(Sort.class), anyInt())).thenReturn(List.of(first));
+
+        CustomerPage page = customerService.findPage(null, CustomerSort.NAME, "%%%", null);
+
+        assertEquals(List.of(first), page.customers());
+        assertFalse(page.hasPrevious());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    @DisplayName("Test iterating over a segment loads the matching customers page by page")
+    public void testIterateSegment_LoadsKeysetPages() {
+        ReflectionTestUtils.setField(customerService, "pageSize", 2);
+        Customer second = new Customer(2L, "Anna", "Schmidt", address);
+        Customer third = new Customer(5L, "Paul", "Weber", address);
+        when(customerRepository.findBy(any(Specification.class), any()))
+                .thenReturn(List.of(customer, second), List.of(third));
+        CustomerSegment segment = new CustomerSegment(List.of("Bonn"), null, null, null, null, null);
+
+        List<Customer> result = new ArrayList<>();
+        customerService.iterateSegment(segment).forEach(result::add);
+
+        assertEquals(List.of(customer, second, third), result);
+        verify(customerRepository, times(2)).findBy(any(Specification.class), any());
+        verify(customerRepository, never()).findByIdGreaterThan(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Test iterating over a segment continues after the given ID")
+    public void testIterateSegmentAfter_StartsAfterId() {
+        ReflectionTestUtils.setField(customerService, "pageSize", 2);
+        Customer third = new Customer(5L, "Paul", "Weber", address);
+        when(customerRepository.findBy(any(Specification.class), any())).thenReturn(List.of(third));
+        CustomerSegment segment = new CustomerSegment(List.of("Bonn"), null, null, null, null, null);
+
+        List<Customer> result = new ArrayList<>();
+        customerService.iterateSegmentAfter(segment, 2L).forEach(result::add);
+
+        assertEquals(List.of(third), result);
+        verify(customerRepository).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    @DisplayName("Test counting the customers of a segment after a given ID")
+    public void testCountSegmentAfter() {
+        when(customerRepository.count(any(Specification.class))).thenReturn(4L);
+        CustomerSegment segment = new CustomerSegment(List.of("Bonn"), null, null, null, null, null);
+
+        assertEquals(4L, customerService.countSegmentAfter(segment, 3L));
+    }
 }
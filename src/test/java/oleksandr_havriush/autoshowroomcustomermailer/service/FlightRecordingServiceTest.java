@@ -0,0 +1,121 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.FlightRecordingStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FlightRecordingException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.PdfReportGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+class FlightRecordingServiceTest {
+
+    @TempDir
+    private Path recordingDirectory;
+
+    private FlightRecordingService flightRecordingService;
+
+    @BeforeEach
+    public void setUp() {
+        flightRecordingService = new FlightRecordingService(recordingDirectory.resolve("recordings").toString(), "default", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        flightRecordingService.close();
+    }
+
+    @Test
+    @DisplayName("Test no recording is reported before one was started")
+    public void testNoRecording() {
+        assertTrue(flightRecordingService.getStatus().isEmpty());
+        assertTrue(flightRecordingService.dump().isEmpty());
+        assertTrue(flightRecordingService.stop().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test starting twice keeps the running recording")
+    public void testStart_KeepsRunningRecording() {
+        FlightRecordingStatus first = flightRecordingService.start();
+        FlightRecordingStatus second = flightRecordingService.start();
+
+        assertEquals(RecordingState.RUNNING, first.state());
+        assertEquals(first.startTime(), second.startTime());
+        assertEquals(Optional.of(RecordingState.RUNNING), flightRecordingService.getStatus().map(FlightRecordingStatus::state));
+    }
+
+    @Test
+    @DisplayName("Test a dump saves a file and keeps the recording running")
+    public void testDump() {
+        flightRecordingService.start();
+
+        Path file = flightRecordingService.dump().orElseThrow();
+
+        assertTrue(Files.exists(file));
+        assertTrue(file.startsWith(recordingDirectory.resolve("recordings")));
+        assertTrue(flightRecordingService.getStatus().isPresent());
+    }
+
+    @Test
+    @DisplayName("Test stopping saves the recording with the letter render events")
+    public void testStop_RecordsLetterEvents() throws IOException {
+        flightRecordingService.start();
+        Customer customer = new Customer(42L, "Mark", "Bensberg", new Address(1L, "New York Avenue", "125A", "Bonn", "47523", "Germany"));
+        Car car = Car.builder().name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build();
+        PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), List.of(car), new ByteArrayOutputStream());
+
+        FlightRecordingStatus status = flightRecordingService.stop().orElseThrow();
+
+        assertEquals(RecordingState.STOPPED, status.state());
+        assertNotNull(status.file());
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(status.file())).stream()
+                .filter(event -> event.getEventType().getName().equals("oleksandr_havriush.autoshowroomcustomermailer.LetterRender"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals(42L, events.get(0).getLong("customerId"));
+        assertEquals(1, events.get(0).getInt("carCount"));
+        assertTrue(flightRecordingService.getStatus().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test recordings leave out the environment, system properties and JVM arguments")
+    public void testStop_ExcludesEnvironmentEvents() throws IOException {
+        flightRecordingService.start();
+
+        FlightRecordingStatus status = flightRecordingService.stop().orElseThrow();
+
+        List<String> eventTypes = RecordingFile.readAllEvents(Path.of(status.file())).stream()
+                .map(event -> event.getEventType().getName())
+                .toList();
+        assertFalse(eventTypes.isEmpty());
+        assertFalse(eventTypes.contains("jdk.InitialEnvironmentVariable"));
+        assertFalse(eventTypes.contains("jdk.InitialSystemProperty"));
+        assertFalse(eventTypes.contains("jdk.JVMInformation"));
+    }
+
+    @Test
+    @DisplayName("Test unknown recording settings are rejected")
+    public void testStart_UnknownSettings() {
+        FlightRecordingService service = new FlightRecordingService(recordingDirectory.toString(), "unknown", Duration.ofMinutes(5));
+
+        assertThrows(FlightRecordingException.class, service::start);
+        assertTrue(service.getStatus().isEmpty());
+    }
+}
@@ -0,0 +1,195 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventoryCacheStatistics;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Vehicle;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CarRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryCacheTest {
+
+    @Mock
+    private CarRepository carRepository;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    private InventoryCache inventoryCache;
+    private SimpleMeterRegistry meterRegistry;
+    private List<Car> cars;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inventoryCache = new InventoryCache(carRepository, entityManagerFactory, new MailerMetrics(meterRegistry));
+        cars = List.of(
+                Car.builder().id(1L).name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build(),
+                Car.builder().id(2L).name("Golf").manufacturer("Volkswagen").price(23000.0).type("Hatchback").power(110).build());
+    }
+
+    @Test
+    @DisplayName("Test the inventory is loaded once and then served from the snapshot")
+    public void testGetCars_LoadsOnce() {
+        when(carRepository.findAll()).thenReturn(new ArrayList<>(cars));
+
+        List<Car> first = inventoryCache.getCars();
+        List<Car> second = inventoryCache.getCars();
+
+        assertEquals(cars, first);
+        assertSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> first.add(cars.get(0)));
+        verify(carRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test an inventory change drops the snapshot and the Hibernate caches")
+    public void testOnInventoryChanged() {
+        Cache cache = mock(Cache.class);
+        org.hibernate.Cache hibernateCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+        when(carRepository.findAll()).thenReturn(cars.subList(0, 1), cars);
+
+        assertEquals(1, inventoryCache.getCars().size());
+        inventoryCache.onInventoryChanged(new InventoryChangedEvent(1));
+
+        assertEquals(2, inventoryCache.getCars().size());
+        verify(cache).evict(Vehicle.class);
+        verify(hibernateCache).evictQueryRegions();
+        verify(carRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test a read while the Hibernate caches are evicted does not keep the old inventory")
+    public void testOnInventoryChanged_ReadDuringEviction() {
+        Cache cache = mock(Cache.class);
+        org.hibernate.Cache hibernateCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+        // The query cache answers with the old inventory until its regions are evicted
+        AtomicBoolean queryCacheEvicted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            queryCacheEvicted.set(true);
+            return null;
+        }).when(hibernateCache).evictQueryRegions();
+        when(carRepository.findAll()).thenAnswer(invocation -> queryCacheEvicted.get() ? cars : cars.subList(0, 1));
+        List<List<Car>> readDuringEviction = new ArrayList<>();
+        doAnswer(invocation -> readDuringEviction.add(inventoryCache.getCars())).when(cache).evict(Vehicle.class);
+
+        inventoryCache.getCars();
+        inventoryCache.onInventoryChanged(new InventoryChangedEvent(1));
+
+        assertEquals(1, readDuringEviction.get(0).size());
+        assertEquals(2, inventoryCache.getCars().size());
+        InOrder inOrder = inOrder(cache, hibernateCache, carRepository);
+        inOrder.verify(cache).evict(Vehicle.class);
+        inOrder.verify(hibernateCache).evictQueryRegions();
+        inOrder.verify(carRepository).findAll();
+        verify(carRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test a load overtaken by an inventory change is returned once but not kept")
+    public void testGetCars_LoadOvertakenByChange() {
+        Cache cache = mock(Cache.class);
+        org.hibernate.Cache hibernateCache = mock(org.hibernate.Cache.class);
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(hibernateCache);
+        // The first load reads the old inventory and the change completes before the load does
+        when(carRepository.findAll()).thenAnswer(invocation -> {
+            inventoryCache.onInventoryChanged(new InventoryChangedEvent(1));
+            return cars.subList(0, 1);
+        }).thenReturn(cars);
+
+        assertEquals(1, inventoryCache.getCars().size());
+        assertEquals(2, inventoryCache.getCars().size());
+        assertEquals(2, inventoryCache.getCars().size());
+        verify(carRepository, times(2)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test concurrent readers share a single load")
+    public void testGetCars_ConcurrentReaders() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(carRepository.findAll()).thenAnswer(invocation -> {
+            loading.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return cars;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Car>>> results = new ArrayList<>();
+            results.add(executor.submit(inventoryCache::getCars));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(inventoryCache::getCars));
+            }
+            release.countDown();
+            for (Future<List<Car>> result : results) {
+                assertEquals(cars, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(carRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test statistics count snapshot hits, misses and loads and report the Hibernate counts")
+    public void testGetStatistics() {
+        Statistics statistics = mock(Statistics.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getStatistics()).thenReturn(statistics);
+        when(statistics.getQueryCacheHitCount()).thenReturn(7L);
+        when(statistics.getSecondLevelCacheMissCount()).thenReturn(3L);
+        when(carRepository.findAll()).thenReturn(cars);
+
+        inventoryCache.getCars();
+        inventoryCache.getCars();
+        inventoryCache.getCars();
+        InventoryCacheStatistics result = inventoryCache.getStatistics();
+
+        assertEquals(2, result.snapshotHits());
+        assertEquals(1, result.snapshotMisses());
+        assertEquals(1, result.snapshotLoads());
+        assertEquals(0, result.invalidations());
+        assertEquals(2, result.cachedCars());
+        assertEquals(7, result.queryCacheHits());
+        assertEquals(3, result.secondLevelMisses());
+        assertEquals(2.0 / 3, result.snapshotHitRatio(), 1e-9);
+        assertEquals(2, meterRegistry.get("mailer.inventory.reads").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("mailer.inventory.reads").tag("result", "miss").functionCounter().count());
+        assertEquals(1, meterRegistry.get("mailer.inventory.loads").functionCounter().count());
+    }
+}
@@ -0,0 +1,70 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+class LetterFingerprintStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test fingerprints survive a save and load")
+    public void testSaveAndLoad() {
+        Path storePath = tempDir.resolve("fingerprints.csv");
+        LetterFingerprintStore store = new LetterFingerprintStore(storePath);
+        store.load();
+        store.put(1L, "abc", Paths.get("a3", "1_Doe_John_email.pdf"));
+        store.put(2L, "def", Paths.get("5f", "2_Doe_John_email.pdf"));
+        store.save();
+
+        LetterFingerprintStore reloaded = new LetterFingerprintStore(storePath);
+        reloaded.load();
+
+        assertEquals(new LetterFingerprintStore.Entry("abc", Paths.get("a3", "1_Doe_John_email.pdf")), reloaded.get(1L).orElseThrow());
+        assertEquals("def", reloaded.get(2L).orElseThrow().fingerprint());
+        assertTrue(reloaded.get(3L).isEmpty());
+        assertFalse(Files.exists(tempDir.resolve("fingerprints.csv.part")));
+    }
+
+    @Test
+    @DisplayName("Test put returns the previous letter of the customer")
+    public void testPut_ReturnsPrevious() {
+        LetterFingerprintStore store = new LetterFingerprintStore(tempDir.resolve("fingerprints.csv"));
+
+        assertNull(store.put(1L, "abc", Paths.get("1_Doe_John_email.pdf")));
+        assertEquals("abc", store.put(1L, "def", Paths.get("1_Smith_John_email.pdf")).fingerprint());
+    }
+
+    @Test
+    @DisplayName("Test unchanged store is not written")
+    public void testSave_Unmodified() {
+        Path storePath = tempDir.resolve("fingerprints.csv");
+        LetterFingerprintStore store = new LetterFingerprintStore(storePath);
+        store.load();
+
+        store.save();
+
+        assertFalse(Files.exists(storePath));
+    }
+
+    @Test
+    @DisplayName("Test unreadable store starts empty")
+    public void testLoad_Corrupted() throws IOException {
+        Path storePath = tempDir.resolve("fingerprints.csv");
+        Files.writeString(storePath, "1,abc,a3/1_Doe_John_email.pdf\nnot-a-number,def,x.pdf\n");
+        LetterFingerprintStore store = new LetterFingerprintStore(storePath);
+
+        store.load();
+
+        assertTrue(store.get(1L).isEmpty());
+    }
+}
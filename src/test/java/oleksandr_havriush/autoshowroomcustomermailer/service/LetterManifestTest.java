@@ -0,0 +1,59 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+class LetterManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test manifest lists every recorded letter once closed")
+    public void testRecord_WritesManifest() throws IOException {
+        Path manifestPath = tempDir.resolve("manifests").resolve("run_1.csv");
+        LetterManifest manifest = new LetterManifest(manifestPath);
+
+        manifest.record(1L, Paths.get("a3", "1_Doe_John_email.pdf"));
+        manifest.record(2L, Paths.get("5f", "2_Doe_John_email.pdf"));
+        assertFalse(Files.exists(manifestPath));
+        manifest.close();
+
+        assertEquals(2, manifest.getEntries());
+        assertEquals(List.of("customer_id,path", "1,a3/1_Doe_John_email.pdf", "2,5f/2_Doe_John_email.pdf"),
+                Files.readAllLines(manifestPath));
+        assertFalse(Files.exists(tempDir.resolve("manifests").resolve("run_1.csv.part")));
+    }
+
+    @Test
+    @DisplayName("Test run without letters leaves no manifest")
+    public void testClose_NoLetters() {
+        Path manifestPath = tempDir.resolve("manifests").resolve("run_1.csv");
+        LetterManifest manifest = new LetterManifest(manifestPath);
+
+        manifest.close();
+
+        assertFalse(Files.exists(manifestPath.getParent()));
+    }
+
+    @Test
+    @DisplayName("Test letters cannot be recorded after the manifest is closed")
+    public void testRecord_AfterClose() {
+        LetterManifest manifest = new LetterManifest(tempDir.resolve("run_1.csv"));
+        manifest.record(1L, Paths.get("1_Doe_John_email.pdf"));
+        manifest.close();
+        manifest.close();
+
+        assertThrows(PdfGenerationException.class, () -> manifest.record(2L, Paths.get("2_Doe_John_email.pdf")));
+    }
+}
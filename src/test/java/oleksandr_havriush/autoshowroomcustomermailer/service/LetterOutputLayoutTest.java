@@ -0,0 +1,69 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+class LetterOutputLayoutTest {
+
+    private final Path baseDirectory = Paths.get("letters");
+    private final LocalDate runDate = LocalDate.of(2024, 5, 17);
+
+    @Test
+    @DisplayName("Test flat layout writes into the base directory")
+    public void testFlat() {
+        assertEquals(baseDirectory, LetterOutputLayout.FLAT.resolveDirectory(baseDirectory, 42L, runDate, 256));
+    }
+
+    @Test
+    @DisplayName("Test ID hash layout writes into a shard of the base directory")
+    public void testIdHash() {
+        Path directory = LetterOutputLayout.ID_HASH.resolveDirectory(baseDirectory, 42L, runDate, 256);
+
+        assertEquals(baseDirectory.resolve(LetterOutputLayout.shardName(42L, 256)), directory);
+        assertEquals(directory, LetterOutputLayout.ID_HASH.resolveDirectory(baseDirectory, 42L, runDate, 256));
+    }
+
+    @Test
+    @DisplayName("Test run date layout writes into a shard of the run date directory")
+    public void testRunDate() {
+        Path directory = LetterOutputLayout.RUN_DATE.resolveDirectory(baseDirectory, 42L, runDate, 16);
+
+        assertEquals(baseDirectory.resolve("2024-05-17").resolve(LetterOutputLayout.shardName(42L, 16)), directory);
+    }
+
+    @Test
+    @DisplayName("Test shard names are zero-padded hexadecimal numbers below the shard count")
+    public void testShardName_Format() {
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(LetterOutputLayout.shardName(id, 256).matches("[0-9a-f]{2}"));
+            assertTrue(LetterOutputLayout.shardName(id, 4096).matches("[0-9a-f]{3}"));
+            assertTrue(Integer.parseInt(LetterOutputLayout.shardName(id, 100), 16) < 100);
+        }
+        assertEquals("0", LetterOutputLayout.shardName(7L, 1));
+        assertEquals("0", LetterOutputLayout.shardName(7L, 0));
+    }
+
+    @Test
+    @DisplayName("Test sequential customer IDs are spread evenly over the shards")
+    public void testShardName_EvenDistribution() {
+        int shards = 256;
+        int customers = 500_000;
+        Map<String, Integer> lettersPerShard = new HashMap<>();
+        for (long id = 1; id <= customers; id++) {
+            lettersPerShard.merge(LetterOutputLayout.shardName(id, shards), 1, Integer::sum);
+        }
+
+        assertEquals(shards, lettersPerShard.size());
+        int average = customers / shards;
+        assertTrue(lettersPerShard.values().stream().allMatch(count -> count > average * 0.9 && count < average * 1.1),
+                lettersPerShard.toString());
+    }
+}
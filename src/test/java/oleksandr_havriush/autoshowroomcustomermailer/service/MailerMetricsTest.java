@@ -0,0 +1,132 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+class MailerMetricsTest {
+
+    private MockClock clock;
+    private SimpleMeterRegistry registry;
+    private MailerMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        metrics = new MailerMetrics(registry);
+    }
+
+    @Test
+    @DisplayName("Test all meters of the regular path are registered before anything is recorded")
+    public void testMetersRegisteredUpFront() {
+        assertNotNull(registry.find("mailer.letters.duration").timer());
+        assertNotNull(registry.find("mailer.letters.render").timer());
+        assertNotNull(registry.find("mailer.letters.write").timer());
+        assertNotNull(registry.find("mailer.letters.size").summary());
+        assertNotNull(registry.find("mailer.letters.up-to-date").counter());
+        assertEquals(3, registry.find("mailer.import.duration").timers().size());
+        assertNotNull(registry.find("mailer.import.parse").timer());
+        assertNotNull(registry.find("mailer.import.cars.parsed").counter());
+        assertEquals(3, registry.find("mailer.import.rows").counters().size());
+        assertNull(registry.find("mailer.failures").counter());
+    }
+
+    @Test
+    @DisplayName("Test stage times are measured with the registry clock")
+    public void testRecordLetter_UsesRegistryClock() {
+        long startTime = metrics.start();
+        clock.add(250, TimeUnit.MILLISECONDS);
+
+        metrics.recordLetter(startTime);
+
+        Timer timer = registry.get("mailer.letters.duration").timer();
+        assertEquals(1, timer.count());
+        assertEquals(250, timer.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Test render latency is published with percentiles and the letter size in bytes")
+    public void testRecordRender() {
+        long startTime = metrics.start();
+        clock.add(40, TimeUnit.MILLISECONDS);
+
+        metrics.recordRender(startTime, 2048);
+
+        Timer timer = registry.get("mailer.letters.render").timer();
+        assertEquals(40, timer.totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(3, timer.takeSnapshot().percentileValues().length);
+        assertEquals(2048, registry.get("mailer.letters.size").summary().totalAmount());
+        assertEquals("bytes", registry.get("mailer.letters.size").summary().getId().getBaseUnit());
+    }
+
+    @Test
+    @DisplayName("Test letters written to files are timed apart from letters rendered in memory")
+    public void testRecordWrite() {
+        long startTime = metrics.start();
+        clock.add(90, TimeUnit.MILLISECONDS);
+
+        metrics.recordWrite(startTime, 4096);
+
+        assertEquals(90, registry.get("mailer.letters.write").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(0, registry.get("mailer.letters.render").timer().count());
+        assertEquals(4096, registry.get("mailer.letters.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Test parsed cars are counted for complete and chunked feeds")
+    public void testRecordParse() {
+        metrics.recordParse(metrics.start(), 100);
+        metrics.recordCarsParsed(20);
+
+        assertEquals(1, registry.get("mailer.import.parse").timer().count());
+        assertEquals(120, registry.get("mailer.import.cars.parsed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test written rows are counted by operation")
+    public void testRecordRows() {
+        metrics.recordRows(3, 2, 1);
+        metrics.recordRows(1, 0, 0);
+
+        assertEquals(4, registry.get("mailer.import.rows").tag("operation", "insert").counter().count());
+        assertEquals(2, registry.get("mailer.import.rows").tag("operation", "update").counter().count());
+        assertEquals(1, registry.get("mailer.import.rows").tag("operation", "delete").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test import times are kept apart by import mode")
+    public void testRecordImport_TaggedByMode() {
+        metrics.recordStreamImport(metrics.start());
+        metrics.recordStreamImport(metrics.start());
+        metrics.recordSyncImport(metrics.start());
+
+        assertEquals(2, registry.get("mailer.import.duration").tag("mode", "stream").timer().count());
+        assertEquals(0, registry.get("mailer.import.duration").tag("mode", "batch").timer().count());
+        assertEquals(1, registry.get("mailer.import.duration").tag("mode", "sync").timer().count());
+    }
+
+    @Test
+    @DisplayName("Test failures are counted by stage and root cause")
+    public void testRecordFailure_CountsRootCause() {
+        metrics.recordFailure(MailerMetrics.STAGE_LETTER,
+                new PdfGenerationException("Letter failed", new PdfGenerationException("Save failed", new IOException("Disk full"))));
+        metrics.recordFailure(MailerMetrics.STAGE_LETTER, new PdfGenerationException("Customer not found"));
+        metrics.recordFailure(MailerMetrics.STAGE_IMPORT, new IOException("Stream closed"));
+
+        assertEquals(1, registry.get("mailer.failures").tags("stage", "letter", "exception", "IOException").counter().count());
+        assertEquals(1, registry.get("mailer.failures").tags("stage", "letter", "exception", "PdfGenerationException").counter().count());
+        assertEquals(1, registry.get("mailer.failures").tags("stage", "import", "exception", "IOException").counter().count());
+        assertEquals(3, registry.get("mailer.failures").counters().size());
+    }
+}
@@ -0,0 +1,235 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingReport;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+@ExtendWith(MockitoExtension.class)
+class MailingJobServiceTest {
+
+    @Mock
+    private CustomerService customerService;
+    @Mock
+    private MailingService mailingService;
+
+    @TempDir
+    Path checkpointDirectory;
+
+    private MailingJobService mailingJobService;
+    private List<Customer> customers;
+
+    @BeforeEach
+    public void setUp() {
+        customers = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            customers.add(new Customer(id, "John", "Doe" + id, null));
+        }
+        mailingJobService = new MailingJobService(checkpointDirectory.toString(), 2, 10, customerService, mailingService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mailingJobService.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void generateAllLetters() {
+        when(mailingService.generateLetters(any(Iterable.class), any(MailingProgressListener.class))).thenAnswer(invocation -> {
+            Iterable<Customer> batch = invocation.getArgument(0);
+            MailingProgressListener listener = invocation.getArgument(1);
+            long count = 0;
+            for (Customer customer : batch) {
+                listener.onLetterSubmitted(customer);
+                listener.onLetterGenerated(customer);
+                count++;
+            }
+            return new MailingReport(count, 0, 0, List.of(), Duration.ofMillis(1));
+        });
+    }
+
+    private MailingJobProgress awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            MailingJobProgress progress = mailingJobService.getProgress(jobId).orElseThrow();
+            if (progress.status() == MailingJobStatus.COMPLETED || progress.status() == MailingJobStatus.FAILED) {
+                return progress;
+            }
+            Thread.sleep(10);
+        }
+        fail("Mailing job did not finish in time");
+        return null;
+    }
+
+    @Test
+    @DisplayName("Test submitted job returns immediately and completes in the background")
+    public void testSubmit_CompletesJob() throws Exception {
+        when(customerService.iterateAfter(0L)).thenReturn(customers);
+        when(customerService.countAfter(0L)).thenReturn((long) customers.size());
+        generateAllLetters();
+
+        MailingJobProgress submitted = mailingJobService.submit();
+        assertNotNull(submitted.id());
+
+        MailingJobProgress finished = awaitFinished(submitted.id());
+        assertEquals(MailingJobStatus.COMPLETED, finished.status());
+        assertEquals(5, finished.total());
+        assertEquals(5, finished.done());
+        assertEquals(0, finished.remaining());
+        assertNotNull(finished.finishedAt());
+
+        mailingJobService.shutdown();
+        assertFalse(Files.exists(checkpointDirectory.resolve(submitted.id() + ".properties")));
+    }
+
+    @Test
+    @DisplayName("Test segment job generates letters only for the customers of the segment")
+    public void testSubmit_SegmentJob() throws Exception {
+        CustomerSegment segment = new CustomerSegment(List.of("Bonn"), null, null, null, null, null);
+        when(customerService.iterateSegmentAfter(segment, 0L)).thenReturn(customers.subList(0, 2));
+        when(customerService.countSegmentAfter(segment, 0L)).thenReturn(2L);
+        generateAllLetters();
+
+        MailingJobProgress finished = awaitFinished(mailingJobService.submit(segment, false).id());
+
+        assertEquals(MailingJobStatus.COMPLETED, finished.status());
+        assertEquals(segment, finished.segment());
+        assertEquals(2, finished.total());
+        assertEquals(2, finished.done());
+        verify(customerService, never()).iterateAfter(anyLong());
+    }
+
+    @Test
+    @DisplayName("Test combined job writes the letters into combined volumes")
+    @SuppressWarnings("unchecked")
+    public void testSubmit_CombinedJob() throws Exception {
+        when(customerService.iterateAfter(0L)).thenReturn(customers);
+        when(customerService.countAfter(0L)).thenReturn((long) customers.size());
+        when(mailingService.generateCombinedLetters(any(Iterable.class), any(MailingProgressListener.class))).thenAnswer(invocation -> {
+            MailingProgressListener listener = invocation.getArgument(1);
+            for (Customer customer : customers) {
+                listener.onLetterSubmitted(customer);
+                listener.onLetterGenerated(customer);
+            }
+            return new MailingReport(customers.size(), 0, 0, List.of(), Duration.ofMillis(1));
+        });
+
+        MailingJobProgress finished = awaitFinished(mailingJobService.submit(null, true).id());
+
+        assertEquals(MailingJobStatus.COMPLETED, finished.status());
+        assertTrue(finished.combined());
+        assertEquals(5, finished.done());
+        verify(mailingService, never()).generateLetters(any(Iterable.class), any(MailingProgressListener.class));
+    }
+
+    @Test
+    @DisplayName("Test job is marked as failed when the run throws")
+    @SuppressWarnings("unchecked")
+    public void testSubmit_FailedJob() throws Exception {
+        when(customerService.iterateAfter(0L)).thenReturn(customers);
+        when(customerService.countAfter(0L)).thenReturn((long) customers.size());
+        when(mailingService.generateLetters(any(Iterable.class), any(MailingProgressListener.class)))
+                .thenThrow(new PdfGenerationException("Mailing engine is shut down"));
+
+        MailingJobProgress finished = awaitFinished(mailingJobService.submit().id());
+
+        assertEquals(MailingJobStatus.FAILED, finished.status());
+        assertEquals("Mailing engine is shut down", finished.errorMessage());
+        mailingJobService.shutdown();
+        assertFalse(Files.exists(checkpointDirectory.resolve(finished.id() + ".properties")));
+    }
+
+    @Test
+    @DisplayName("Test interrupted job is resumed after its checkpoint on startup")
+    public void testResumeInterruptedJobs() throws Exception {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("id", "interrupted-job");
+        checkpoint.setProperty("createdAt", Instant.now().toString());
+        checkpoint.setProperty("status", "RUNNING");
+        checkpoint.setProperty("total", "5");
+        checkpoint.setProperty("done", "3");
+        checkpoint.setProperty("failed", "0");
+        checkpoint.setProperty("checkpointId", "3");
+        try (OutputStream outputStream = Files.newOutputStream(checkpointDirectory.resolve("interrupted-job.properties"))) {
+            checkpoint.store(outputStream, null);
+        }
+        when(customerService.iterateAfter(3L)).thenReturn(customers.subList(3, 5));
+        when(customerService.countAfter(3L)).thenReturn(2L);
+        generateAllLetters();
+
+        mailingJobService.resumeInterruptedJobs();
+        MailingJobProgress finished = awaitFinished("interrupted-job");
+
+        verify(customerService).iterateAfter(3L);
+        assertEquals(MailingJobStatus.COMPLETED, finished.status());
+        assertEquals(5, finished.done());
+        assertEquals(5, finished.total());
+    }
+
+    @Test
+    @DisplayName("Test checkpoints of finished jobs are deleted on startup instead of being loaded")
+    public void testResumeInterruptedJobs_DeletesFinishedJobs() throws Exception {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("id", "finished-job");
+        checkpoint.setProperty("createdAt", Instant.now().toString());
+        checkpoint.setProperty("status", "COMPLETED");
+        checkpoint.setProperty("checkpointId", "5");
+        Path checkpointFile = checkpointDirectory.resolve("finished-job.properties");
+        try (OutputStream outputStream = Files.newOutputStream(checkpointFile)) {
+            checkpoint.store(outputStream, null);
+        }
+
+        mailingJobService.resumeInterruptedJobs();
+
+        assertTrue(mailingJobService.getProgress("finished-job").isEmpty());
+        assertFalse(Files.exists(checkpointFile));
+        verifyNoInteractions(customerService);
+    }
+
+    @Test
+    @DisplayName("Test only the configured number of finished jobs is kept in memory")
+    public void testSubmit_CapsHistory() throws Exception {
+        mailingJobService.shutdown();
+        mailingJobService = new MailingJobService(checkpointDirectory.toString(), 2, 1, customerService, mailingService);
+        when(customerService.iterateAfter(0L)).thenReturn(customers);
+        when(customerService.countAfter(0L)).thenReturn((long) customers.size());
+        generateAllLetters();
+
+        String first = mailingJobService.submit().id();
+        awaitFinished(first);
+        String second = mailingJobService.submit().id();
+        awaitFinished(second);
+        // The history is pruned by the job thread right after the second job finished
+        mailingJobService.shutdown();
+
+        assertTrue(mailingJobService.getProgress(first).isEmpty());
+        assertEquals(List.of(second), mailingJobService.getAllProgress().stream().map(MailingJobProgress::id).toList());
+    }
+
+    @Test
+    @DisplayName("Test progress of an unknown job is empty")
+    public void testGetProgress_UnknownJob() {
+        assertTrue(mailingJobService.getProgress("unknown").isEmpty());
+    }
+}
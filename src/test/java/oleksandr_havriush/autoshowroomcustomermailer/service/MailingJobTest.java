@@ -0,0 +1,107 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CustomerSegment;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobProgress;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingJobStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+class MailingJobTest {
+
+    @Test
+    @DisplayName("Test checkpoint stays below the oldest letter still in flight")
+    public void testCheckpointId_OutOfOrderCompletion() {
+        MailingJob job = MailingJob.create("job");
+        job.start(4);
+        job.letterSubmitted(10);
+        job.letterSubmitted(11);
+        job.letterSubmitted(12);
+
+        job.letterGenerated(11);
+        job.letterGenerated(12);
+        assertEquals(9, job.getCheckpointId());
+
+        job.letterFailed(10);
+        assertEquals(12, job.getCheckpointId());
+    }
+
+    @Test
+    @DisplayName("Test job state survives a checkpoint round trip")
+    public void testCheckpointRoundTrip() {
+        MailingJob job = MailingJob.create("job");
+        job.start(3);
+        job.letterSubmitted(1);
+        job.letterGenerated(1);
+        job.letterSubmitted(2);
+
+        MailingJobProgress restored = MailingJob.fromCheckpoint(job.toCheckpoint()).toProgress();
+
+        assertEquals("job", restored.id());
+        assertEquals(MailingJobStatus.RUNNING, restored.status());
+        assertEquals(3, restored.total());
+        assertEquals(1, restored.done());
+        assertEquals(2, restored.remaining());
+        assertEquals(1, MailingJob.fromCheckpoint(job.toCheckpoint()).getCheckpointId());
+    }
+
+    @Test
+    @DisplayName("Test letters finished after the checkpoint are not counted twice after a resume")
+    public void testCheckpointRoundTrip_LettersAfterCheckpoint() {
+        MailingJob job = MailingJob.create("job");
+        job.start(4);
+        job.letterSubmitted(1);
+        job.letterSubmitted(2);
+        job.letterSubmitted(3);
+        job.letterFailed(1);
+        job.letterGenerated(3);
+
+        MailingJob restored = MailingJob.fromCheckpoint(job.toCheckpoint());
+        restored.start(3);
+        MailingJobProgress progress = restored.toProgress();
+
+        assertEquals(1, restored.getCheckpointId());
+        assertEquals(4, progress.total());
+        assertEquals(0, progress.done());
+        assertEquals(1, progress.failed());
+        assertEquals(3, progress.remaining());
+
+        job.letterGenerated(2);
+        MailingJobProgress settled = MailingJob.fromCheckpoint(job.toCheckpoint()).toProgress();
+        assertEquals(2, settled.done());
+        assertEquals(1, settled.failed());
+    }
+
+    @Test
+    @DisplayName("Test segment of a job survives a checkpoint round trip")
+    public void testCheckpointRoundTrip_Segment() {
+        CustomerSegment segment = new CustomerSegment(List.of("Cologne", "Bonn"), "Germany", "50000", null,
+                LocalDate.of(2024, 1, 1), null);
+        MailingJob job = MailingJob.create("job", segment, false);
+
+        MailingJob restored = MailingJob.fromCheckpoint(job.toCheckpoint());
+
+        assertEquals(segment, restored.getSegment());
+        assertFalse(restored.isCombined());
+        assertNull(MailingJob.fromCheckpoint(MailingJob.create("all").toCheckpoint()).getSegment());
+    }
+
+    @Test
+    @DisplayName("Test combined job is checkpointed at its start")
+    public void testCheckpointRoundTrip_CombinedRestarts() {
+        MailingJob job = MailingJob.create("job", null, true);
+        job.start(3);
+        job.letterSubmitted(1);
+        job.letterGenerated(1);
+
+        MailingJob restored = MailingJob.fromCheckpoint(job.toCheckpoint());
+
+        assertTrue(restored.isCombined());
+        assertEquals(0, restored.getCheckpointId());
+        assertEquals(0, restored.toProgress().done());
+    }
+}
@@ -0,0 +1,261 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingReport;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@ExtendWith(MockitoExtension.class)
+class MailingServiceTest {
+
+    @Mock
+    private PdfGenerationService pdfGenerationService;
+
+    private MailingService mailingService;
+    private List<Customer> customers;
+
+    @BeforeEach
+    public void setUp() {
+        mailingService = new MailingService(pdfGenerationService, 4, 8);
+        customers = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            customers.add(new Customer(id, "John", "Doe" + id, null));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mailingService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Test letters are generated for all customers")
+    public void testGenerateLetters_AllCustomers() {
+        MailingReport report = mailingService.generateLetters(customers);
+        assertEquals(100, report.succeeded());
+        assertFalse(report.hasFailures());
+        verify(pdfGenerationService, times(100)).createPdfForCustomer(any(Customer.class), any());
+    }
+
+    @Test
+    @DisplayName("Test up-to-date letters are skipped")
+    public void testGenerateLetters_SkipsUpToDateLetters() {
+        when(pdfGenerationService.isLetterUpToDate(any(Customer.class), any())).thenAnswer(invocation ->
+                ((Customer) invocation.getArgument(0)).getId() % 2 == 0);
+
+        MailingReport report = mailingService.generateLetters(customers);
+
+        assertEquals(50, report.succeeded());
+        assertEquals(50, report.skipped());
+        assertEquals(100, report.processed());
+        verify(pdfGenerationService, times(50)).createPdfForCustomer(argThat((Customer customer) -> customer.getId() % 2 == 1), any());
+    }
+
+    @Test
+    @DisplayName("Test mailing run is closed after all letters are processed")
+    public void testGenerateLetters_ClosesRun() {
+        MailingRunContext run = mock(MailingRunContext.class);
+        when(pdfGenerationService.openMailingRun()).thenReturn(run);
+
+        mailingService.generateLetters(customers);
+
+        verify(pdfGenerationService, times(100)).createPdfForCustomer(any(Customer.class), eq(run));
+        verify(run).close();
+    }
+
+    @Test
+    @DisplayName("Test letters are generated on several worker threads")
+    public void testGenerateLetters_UsesWorkerThreads() {
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threadNames.add(Thread.currentThread().getName());
+            Thread.sleep(5);
+            return null;
+        }).when(pdfGenerationService).createPdfForCustomer(any(Customer.class), any());
+
+        mailingService.generateLetters(customers);
+
+        assertTrue(threadNames.size() > 1);
+        assertTrue(threadNames.stream().allMatch(name -> name.startsWith("mailing-worker-")));
+    }
+
+    @Test
+    @DisplayName("Test failures are collected without stopping the run")
+    public void testGenerateLetters_CollectsFailures() {
+        lenient().doThrow(new PdfGenerationException("Error saving PDF")).when(pdfGenerationService).createPdfForCustomer(argThat((Customer customer) -> customer.getId() == 7L), any());
+
+        MailingReport report = mailingService.generateLetters(customers);
+
+        assertEquals(99, report.succeeded());
+        assertEquals(1, report.failed());
+        assertEquals(List.of("Error generating PDF for customer Doe7 John: Error saving PDF"), report.errorMessages());
+    }
+
+    @Test
+    @DisplayName("Test number of reported error messages is bounded")
+    public void testGenerateLetters_BoundedErrorMessages() {
+        List<Customer> manyCustomers = new ArrayList<>();
+        for (long id = 1; id <= 250; id++) {
+            manyCustomers.add(new Customer(id, "John", "Doe" + id, null));
+        }
+        doThrow(new PdfGenerationException("Error saving PDF")).when(pdfGenerationService).createPdfForCustomer(any(Customer.class), any());
+
+        MailingReport report = mailingService.generateLetters(manyCustomers);
+
+        assertEquals(250, report.failed());
+        assertEquals(100, report.errorMessages().size());
+    }
+
+    @Test
+    @DisplayName("Test empty run reports no letters")
+    public void testGenerateLetters_NoCustomers() {
+        MailingReport report = mailingService.generateLetters(Collections.emptyList());
+        assertEquals(0, report.succeeded());
+        assertEquals(0, report.failed());
+        verify(pdfGenerationService, never()).createPdfForCustomer(any(Customer.class), any());
+    }
+
+    @Test
+    @DisplayName("Test run fails after the engine is shut down")
+    public void testGenerateLetters_AfterShutdown() {
+        mailingService.shutdown();
+        assertThrows(PdfGenerationException.class, () -> mailingService.generateLetters(customers));
+    }
+
+    @Test
+    @DisplayName("Test interrupted run waits for the letters in progress before closing the run")
+    public void testGenerateLetters_InterruptedWaitsForWorkers() throws InterruptedException {
+        MailingRunContext run = mock(MailingRunContext.class);
+        when(pdfGenerationService.openMailingRun()).thenReturn(run);
+        CountDownLatch started = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger finishedWhenClosed = new AtomicInteger(-1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            finished.incrementAndGet();
+            return null;
+        }).when(pdfGenerationService).createPdfForCustomer(any(Customer.class), any());
+        doAnswer(invocation -> {
+            finishedWhenClosed.set(finished.get());
+            return null;
+        }).when(run).close();
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                mailingService.generateLetters(customers);
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(200);
+        assertTrue(caller.isAlive());
+        release.countDown();
+        caller.join(5000);
+
+        assertFalse(caller.isAlive());
+        assertInstanceOf(PdfGenerationException.class, thrown.get());
+        assertEquals(8, finishedWhenClosed.get());
+        verify(pdfGenerationService, times(8)).createPdfForCustomer(any(Customer.class), any());
+    }
+
+    @Test
+    @DisplayName("Test combined run appends every letter in customer order")
+    public void testGenerateCombinedLetters_AllCustomersInOrder(@TempDir Path tempDir) {
+        List<Long> appended = Collections.synchronizedList(new ArrayList<>());
+        CombinedLetterWriter writer = spy(new CombinedLetterWriter(tempDir, "letters", 0));
+        doAnswer(invocation -> {
+            appended.add(invocation.getArgument(0));
+            ((Runnable) invocation.getArgument(2)).run();
+            return null;
+        }).when(writer).append(anyLong(), any(), any());
+        when(pdfGenerationService.openCombinedOutput()).thenReturn(writer);
+        when(pdfGenerationService.renderLetter(any(Customer.class), any())).thenAnswer(invocation -> {
+            Thread.sleep(((Customer) invocation.getArgument(0)).getId() % 3);
+            return new byte[0];
+        });
+
+        MailingReport report = mailingService.generateCombinedLetters(customers);
+
+        assertEquals(100, report.succeeded());
+        assertEquals(100, appended.size());
+        verify(writer).close();
+        verify(pdfGenerationService, never()).createPdfForCustomer(any(Customer.class), any());
+    }
+
+    @Test
+    @DisplayName("Test combined run skips failed letters without stopping the run")
+    public void testGenerateCombinedLetters_CollectsFailures(@TempDir Path tempDir) {
+        CombinedLetterWriter writer = spy(new CombinedLetterWriter(tempDir, "letters", 0));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(2)).run();
+            return null;
+        }).when(writer).append(anyLong(), any(), any());
+        when(pdfGenerationService.openCombinedOutput()).thenReturn(writer);
+        when(pdfGenerationService.renderLetter(any(Customer.class), any())).thenReturn(new byte[0]);
+        lenient().when(pdfGenerationService.renderLetter(argThat((Customer customer) -> customer.getId() == 7L), any()))
+                .thenThrow(new PdfGenerationException("Error rendering PDF"));
+
+        MailingReport report = mailingService.generateCombinedLetters(customers);
+
+        assertEquals(99, report.succeeded());
+        assertEquals(List.of("Error generating PDF for customer Doe7 John: Error rendering PDF"), report.errorMessages());
+        verify(writer).append(eq(6L), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("Test combined run reports the progress of every letter")
+    public void testGenerateCombinedLetters_NotifiesListener(@TempDir Path tempDir) {
+        CombinedLetterWriter writer = spy(new CombinedLetterWriter(tempDir, "letters", 0));
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(2)).run();
+            return null;
+        }).when(writer).append(anyLong(), any(), any());
+        when(pdfGenerationService.openCombinedOutput()).thenReturn(writer);
+        when(pdfGenerationService.renderLetter(any(Customer.class), any())).thenReturn(new byte[0]);
+        lenient().when(pdfGenerationService.renderLetter(argThat((Customer customer) -> customer.getId() == 7L), any()))
+                .thenThrow(new PdfGenerationException("Error rendering PDF"));
+        MailingProgressListener listener = mock(MailingProgressListener.class);
+
+        mailingService.generateCombinedLetters(customers, listener);
+
+        verify(listener, times(100)).onLetterSubmitted(any(Customer.class));
+        verify(listener, times(99)).onLetterGenerated(any(Customer.class));
+        verify(listener).onLetterFailed(customers.get(6), "Error generating PDF for customer Doe7 John: Error rendering PDF");
+    }
+
+    @Test
+    @DisplayName("Test combined run fails when the combined output cannot be written")
+    public void testGenerateCombinedLetters_WriteFailure(@TempDir Path tempDir) {
+        when(pdfGenerationService.openCombinedOutput()).thenReturn(new CombinedLetterWriter(tempDir, "letters", 0));
+        when(pdfGenerationService.renderLetter(any(Customer.class), any())).thenReturn("not a pdf".getBytes());
+
+        assertThrows(PdfGenerationException.class, () -> mailingService.generateCombinedLetters(customers));
+    }
+}
@@ -3,50 +3,59 @@ package oleksandr_havriush.autoshowroomcustomermailer.service;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.itextpdf.text.ExceptionConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.MailingReport;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.DirectoryCreationException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PdfGenerationException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.CarTableTemplate;
 import oleksandr_havriush.autoshowroomcustomermailer.util.PdfReportGenerator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ExtendWith(MockitoExtension.class)
 class PdfGenerationServiceTest {
 
     private PdfGenerationService pdfGenerationService;
 
-    @Mock
-    private CustomerService customerService;
     @Mock
     private VehicleService<Car> carService;
+    @TempDir
+    private Path outputDirectory;
 
     private Path baseDirectory;
     private Customer customer;
     private Address address;
     private List<Car> cars;
-    private ByteArrayInputStream pdfContentStream;
     private MockedStatic<PdfReportGenerator> mockedPdfReportGenerator;
     private MockedStatic<Files> mockedFiles;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     public void setUp() throws IOException {
@@ -97,83 +106,408 @@ class PdfGenerationServiceTest {
                 .power(200)
                 .build();
         cars = Arrays.asList(car1, car2, car3, car4, car5);
-        pdfContentStream = new ByteArrayInputStream(new byte[0]);
 
-        pdfGenerationService = new PdfGenerationService(basePath, customerService, carService);
+        meterRegistry = new SimpleMeterRegistry();
+        pdfGenerationService = new PdfGenerationService(basePath, carService, new CarSelectionPolicy(List.of(), 0),
+                new MailerMetrics(meterRegistry));
 
         lenient().when(carService.findAll()).thenReturn(cars);
-        lenient().when(customerService.findById(anyLong())).thenReturn(Optional.of(customer));
 
         mockedPdfReportGenerator = Mockito.mockStatic(PdfReportGenerator.class);
-        mockedPdfReportGenerator.when(() -> PdfReportGenerator.createCustomerPdfReport(any(), anyList())).thenReturn(pdfContentStream);
 
         mockedFiles = Mockito.mockStatic(Files.class);
         mockedFiles.when(() -> Files.newOutputStream(any(Path.class))).thenAnswer(invocation -> new ByteArrayOutputStream());
+        AtomicInteger temporaryFiles = new AtomicInteger();
+        mockedFiles.when(() -> Files.createTempFile(any(Path.class), anyString(), anyString()))
+                .thenAnswer(invocation -> invocation.<Path>getArgument(0)
+                        .resolve(invocation.getArgument(1) + String.valueOf(temporaryFiles.incrementAndGet()) + invocation.getArgument(2)));
     }
 
     @AfterEach
     public void tearDown() {
-        mockedPdfReportGenerator.close();
-        mockedFiles.close();
+        if (!mockedPdfReportGenerator.isClosed()) {
+            mockedPdfReportGenerator.close();
+        }
+        if (!mockedFiles.isClosed()) {
+            mockedFiles.close();
+        }
     }
 
     @Test
-    @DisplayName("Test successful PDF generation for existing customer")
+    @DisplayName("Test successful PDF generation for a customer of a mailing run")
     public void testCreatePdfForCustomer_Success() {
-        pdfGenerationService.createPdfForCustomer(1L);
-        verify(customerService).findById(1L);
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+
         verify(carService).findAll();
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(eq(Optional.of(customer)), eq(run.selectCars(customer).carTable()), any(OutputStream.class)));
     }
 
     @Test
-    @DisplayName("Test PDF generation throws exception for non-existing customer")
-    public void testCreatePdfForCustomer_CustomerNotFound() {
-        when(customerService.findById(anyLong())).thenReturn(Optional.empty());
-        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(1L));
-        verify(customerService).findById(1L);
-        verify(carService, never()).findAll();
+    @DisplayName("Test PDF file path is correct")
+    public void testPdfFilePathIsCorrect() {
+        Path shardDirectory = Paths.get("target/test-classes/pdf").resolve(LetterOutputLayout.shardName(1L, 256));
+        Path expectedPath = shardDirectory.resolve("1_Doe_John_email.pdf");
+        Path temporaryPath = shardDirectory.resolve("1_Doe_John_email.pdf.1.part");
+
+        pdfGenerationService.createPdfForCustomer(customer, pdfGenerationService.openMailingRun());
+
+        mockedFiles.verify(() -> Files.createDirectories(shardDirectory));
+        mockedFiles.verify(() -> Files.createTempFile(shardDirectory, "1_Doe_John_email.pdf.", ".part"));
+        mockedFiles.verify(() -> Files.newOutputStream(temporaryPath));
+        mockedFiles.verify(() -> Files.move(eq(temporaryPath), eq(expectedPath), any(CopyOption.class), any(CopyOption.class)));
     }
 
     @Test
-    @DisplayName("Test PDF file path is correct")
-    public void testPdfFilePathIsCorrect() throws IOException {
-        Path expectedPath = baseDirectory.resolve(customer.getLastName() + "_" + customer.getFirstName() + "_email.pdf");
-        Files.deleteIfExists(expectedPath);
+    @DisplayName("Test overlapping writes of the same letter use their own temporary files")
+    public void testCreatePdfForCustomer_UniqueTemporaryFiles() {
+        Path shardDirectory = Paths.get("target/test-classes/pdf").resolve(LetterOutputLayout.shardName(1L, 256));
+
+        pdfGenerationService.createPdfForCustomer(customer, pdfGenerationService.openMailingRun());
+        pdfGenerationService.createPdfForCustomer(customer, pdfGenerationService.openMailingRun());
+
+        mockedFiles.verify(() -> Files.newOutputStream(shardDirectory.resolve("1_Doe_John_email.pdf.1.part")));
+        mockedFiles.verify(() -> Files.newOutputStream(shardDirectory.resolve("1_Doe_John_email.pdf.2.part")));
+        mockedFiles.verify(() -> Files.deleteIfExists(shardDirectory.resolve("1_Doe_John_email.pdf.1.part")));
+        mockedFiles.verify(() -> Files.deleteIfExists(shardDirectory.resolve("1_Doe_John_email.pdf.2.part")));
+    }
+
+    @Test
+    @DisplayName("Test letters of customers with the same name get distinct files")
+    public void testLetterFileName_IncludesCustomerId() {
+        Customer namesake = new Customer(2L, "John", "Doe", address);
+
+        assertEquals("1_Doe_John_email.pdf", PdfGenerationService.letterFileName(customer));
+        assertEquals("2_Doe_John_email.pdf", PdfGenerationService.letterFileName(namesake));
+    }
+
+    @Test
+    @DisplayName("Test customer names cannot escape the output directory")
+    public void testLetterFileName_Sanitized() {
+        Customer customerWithPath = new Customer(3L, "Jörg", "../O'Neil/x", address);
+
+        assertEquals("3____O_Neil_x_Jörg_email.pdf", PdfGenerationService.letterFileName(customerWithPath));
+    }
+
+    @Test
+    @DisplayName("Test shard directories are created only once")
+    public void testCreatePdfForCustomer_CreatesShardOnce() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        pdfGenerationService.createPdfForCustomer(customer, run);
+
+        Path shardDirectory = Paths.get("target/test-classes/pdf").resolve(LetterOutputLayout.shardName(1L, 256));
+        mockedFiles.verify(() -> Files.createDirectories(shardDirectory), times(1));
+    }
+
+    @Test
+    @DisplayName("Test temporary file is removed when the letter cannot be written")
+    public void testCreatePdfForCustomer_RemovesTemporaryFile() {
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenThrow(new PdfGenerationException("Error during PDF creation"));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(customer, run));
+
+        mockedFiles.verify(() -> Files.deleteIfExists(argThat((Path path) -> path.getFileName().toString().equals("1_Doe_John_email.pdf.1.part"))));
+        mockedFiles.verify(() -> Files.move(any(Path.class), any(Path.class), any(CopyOption.class), any(CopyOption.class)), never());
+        assertEquals(0, run.getManifest().getEntries());
+    }
 
-        pdfGenerationService.createPdfForCustomer(1L);
+    @Test
+    @DisplayName("Test letters of a mailing run are recorded in its manifest")
+    public void testMailingRun_RecordsManifest() {
+        ByteArrayOutputStream manifestContent = new ByteArrayOutputStream();
+        Path manifestDirectory = Paths.get("target/test-classes/pdf").resolve("manifests");
+        mockedFiles.when(() -> Files.newOutputStream(argThat((Path path) -> path.startsWith(manifestDirectory)))).thenReturn(manifestContent);
+        MailingRunContext run = pdfGenerationService.openMailingRun();
 
-        mockedFiles.when(() -> Files.exists(expectedPath)).thenCallRealMethod();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        run.close();
 
-        assertTrue(Files.exists(expectedPath));
+        String shard = LetterOutputLayout.shardName(1L, 256);
+        assertEquals("customer_id,path\n1," + shard + "/1_Doe_John_email.pdf\n", manifestContent.toString());
+        mockedFiles.verify(() -> Files.move(argThat((Path path) -> path.startsWith(manifestDirectory)),
+                eq(manifestDirectory.resolve(run.getRunName() + ".csv")), any(CopyOption.class), any(CopyOption.class)));
     }
 
     @Test
     @DisplayName("Test exception when PDF file cannot be saved")
     public void testExceptionWhenPdfCannotBeSaved() {
         mockedFiles.when(() -> Files.newOutputStream(any(Path.class))).thenThrow(new IOException("Test exception"));
-        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(1L));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(customer, run));
+    }
+
+    @Test
+    @DisplayName("Test letter is written straight to the file stream")
+    public void testCreatePdfForCustomer_WritesToFileStream() {
+        ByteArrayOutputStream fileContent = new ByteArrayOutputStream();
+        mockedFiles.when(() -> Files.newOutputStream(any(Path.class))).thenReturn(fileContent);
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(2).write("letter".getBytes());
+                    return null;
+                });
+
+        pdfGenerationService.createPdfForCustomer(customer, pdfGenerationService.openMailingRun());
+
+        assertEquals("letter", fileContent.toString());
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.createCustomerPdfReport(any(), any(CarTableTemplate.class)), never());
+    }
+
+    @Test
+    @DisplayName("Test exception when the file stream fails while the letter is written")
+    public void testExceptionWhenFileStreamFails() {
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenThrow(new ExceptionConverter(new IOException("Disk full")));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        PdfGenerationException exception = assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(customer, run));
+        assertTrue(exception.getCause().getMessage().contains("Disk full"));
     }
 
     @Test
     @DisplayName("Test exception when directory cannot be created")
     public void testExceptionWhenDirectoryCannotBeCreated() {
         mockedFiles.when(() -> Files.createDirectories(any(Path.class))).thenThrow(new IOException("Test exception"));
-        assertThrows(DirectoryCreationException.class, () -> new PdfGenerationService("invalid/path", customerService, carService));
+        assertThrows(DirectoryCreationException.class, () -> new PdfGenerationService("invalid/path", carService, new CarSelectionPolicy(List.of(), 0),
+                new MailerMetrics(meterRegistry)));
     }
 
     @Test
     @DisplayName("Test exception when PDF generation fails")
     public void testExceptionWhenPdfGenerationFails() {
-        mockedPdfReportGenerator.when(() -> PdfReportGenerator.createCustomerPdfReport(any(), anyList())).thenThrow(new RuntimeException("Test exception"));
-        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(1L));
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenThrow(new RuntimeException("Test exception"));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(customer, run));
     }
 
     @Test
     @DisplayName("Test PDF generation with empty car list")
     public void testCreatePdfForCustomer_EmptyCarList() {
         when(carService.findAll()).thenReturn(Collections.emptyList());
-        pdfGenerationService.createPdfForCustomer(1L);
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
         verify(carService).findAll();
-        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.createCustomerPdfReport(any(), eq(Collections.emptyList())));
+        assertEquals(0, run.selectCars(customer).carTable().getCarCount());
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)));
+    }
+
+    @Test
+    @DisplayName("Test mailing run loads the car inventory once for all letters")
+    public void testMailingRun_LoadsInventoryOnce() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        for (long id = 1; id <= 3; id++) {
+            pdfGenerationService.createPdfForCustomer(new Customer(id, "John", "Doe", address), run);
+        }
+
+        verify(carService, times(1)).findAll();
+        CarTableTemplate carTable = run.selectCars(customer).carTable();
+        assertEquals(cars.size(), carTable.getCarCount());
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(any(), eq(carTable), any(OutputStream.class)), times(3));
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(any(), anyList(), any(OutputStream.class)), never());
+    }
+
+    @Test
+    @DisplayName("Test mailing 1k customers through the mailing service loads the car inventory once")
+    public void testMailingService_QueriesPer1kLetters() {
+        mockedPdfReportGenerator.close();
+        mockedFiles.close();
+        int letters = 1_000;
+        List<Customer> customers = new ArrayList<>(letters);
+        for (long id = 1; id <= letters; id++) {
+            customers.add(new Customer(id, "Mark", "Bensberg", address));
+        }
+        pdfGenerationService = new PdfGenerationService(outputDirectory.toString(), carService,
+                new CarSelectionPolicy(List.of(), 0), new MailerMetrics(meterRegistry));
+        MailingService mailingService = new MailingService(pdfGenerationService, 4, 16);
+
+        try {
+            MailingReport report = mailingService.generateLetters(customers);
+            assertEquals(letters, report.succeeded());
+        } finally {
+            mailingService.shutdown();
+        }
+        verify(carService, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("Test rendering a letter returns its content without saving a file")
+    public void testRenderLetter_DoesNotSaveFile() {
+        byte[] content = "letter".getBytes();
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(2).write(content);
+                    return null;
+                });
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        assertArrayEquals(content, pdfGenerationService.renderLetter(customer, run));
+        mockedFiles.verify(() -> Files.newOutputStream(any(Path.class)), never());
+    }
+
+    @Test
+    @DisplayName("Test exception when rendering a letter fails")
+    public void testRenderLetter_Failure() {
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenThrow(new RuntimeException("Test exception"));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.renderLetter(customer, run));
+    }
+
+    @Test
+    @DisplayName("Test combined output is written to the combined subdirectory")
+    public void testOpenCombinedOutput_CreatesDirectory() {
+        CombinedLetterWriter writer = pdfGenerationService.openCombinedOutput();
+
+        assertNotNull(writer);
+        mockedFiles.verify(() -> Files.createDirectories(Paths.get("target/test-classes/pdf").resolve("combined")));
+    }
+
+    @Test
+    @DisplayName("Test letter is up to date when neither customer nor inventory changed")
+    public void testIsLetterUpToDate_Unchanged() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        assertFalse(pdfGenerationService.isLetterUpToDate(customer, run));
+
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        mockedFiles.when(() -> Files.exists(argThat((Path path) -> path.toString().endsWith("1_Doe_John_email.pdf")))).thenReturn(true);
+
+        MailingRunContext nextRun = pdfGenerationService.openMailingRun();
+        assertTrue(pdfGenerationService.isLetterUpToDate(customer, nextRun));
+        assertEquals(1, nextRun.getManifest().getEntries());
+    }
+
+    @Test
+    @DisplayName("Test letter is regenerated when its file is missing")
+    public void testIsLetterUpToDate_FileMissing() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+
+        assertFalse(pdfGenerationService.isLetterUpToDate(customer, pdfGenerationService.openMailingRun()));
+    }
+
+    @Test
+    @DisplayName("Test letter is regenerated when the customer address changed")
+    public void testIsLetterUpToDate_CustomerChanged() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        mockedFiles.when(() -> Files.exists(any(Path.class))).thenReturn(true);
+
+        Customer moved = new Customer(1L, "John", "Doe", new Address(1L, "Main Street", "1", "Bonn", "53111", "Germany"));
+
+        assertFalse(pdfGenerationService.isLetterUpToDate(moved, pdfGenerationService.openMailingRun()));
+    }
+
+    @Test
+    @DisplayName("Test letters are regenerated when the car inventory changed")
+    public void testIsLetterUpToDate_InventoryChanged() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        mockedFiles.when(() -> Files.exists(any(Path.class))).thenReturn(true);
+
+        when(carService.findAll()).thenReturn(cars.subList(0, 3));
+
+        assertFalse(pdfGenerationService.isLetterUpToDate(customer, pdfGenerationService.openMailingRun()));
+    }
+
+    @Test
+    @DisplayName("Test no letter is up to date when incremental mailing is disabled")
+    public void testIsLetterUpToDate_Disabled() {
+        ReflectionTestUtils.setField(pdfGenerationService, "incremental", false);
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        mockedFiles.when(() -> Files.exists(any(Path.class))).thenReturn(true);
+
+        assertFalse(pdfGenerationService.isLetterUpToDate(customer, pdfGenerationService.openMailingRun()));
+    }
+
+    @Test
+    @DisplayName("Test outdated letter file is removed when the file name changes")
+    public void testCreatePdfForCustomer_RemovesRenamedLetter() {
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+
+        pdfGenerationService.createPdfForCustomer(new Customer(1L, "John", "Smith", address), run);
+
+        mockedFiles.verify(() -> Files.deleteIfExists(argThat((Path path) -> path.toString().endsWith("1_Doe_John_email.pdf"))));
+    }
+
+    @Test
+    @DisplayName("Test letters of customers in regions with different rules list different cars")
+    public void testMailingRun_SelectsCarsPerRegion() {
+        pdfGenerationService = new PdfGenerationService("target/test-classes/pdf", carService,
+                new CarSelectionPolicy(List.of("4:Sport:*", "5:*:40000-"), 2), new MailerMetrics(meterRegistry));
+        Customer cologne = new Customer(2L, "Anna", "Berg", new Address(2L, "Rhine Street", "7", "Cologne", "50667", "Germany"));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        pdfGenerationService.createPdfForCustomer(cologne, run);
+
+        CarTableTemplate bonnTable = run.selectCars(customer).carTable();
+        CarTableTemplate cologneTable = run.selectCars(cologne).carTable();
+        assertEquals(List.of("Ninja ZX-10R", "CBR600RR"), run.selectCars(customer).cars().stream().map(Car::getName).toList());
+        assertEquals(List.of("Model S", "Actros"), run.selectCars(cologne).cars().stream().map(Car::getName).toList());
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(eq(Optional.of(customer)), eq(bonnTable), any(OutputStream.class)));
+        mockedPdfReportGenerator.verify(() -> PdfReportGenerator.writeCustomerPdfReport(eq(Optional.of(cologne)), eq(cologneTable), any(OutputStream.class)));
+    }
+
+    @Test
+    @DisplayName("Test letter stays up to date when the inventory changed outside the cars selected for it")
+    public void testIsLetterUpToDate_InventoryChangedOutsideSelection() {
+        pdfGenerationService = new PdfGenerationService("target/test-classes/pdf", carService,
+                new CarSelectionPolicy(List.of("4:Sport:*"), 0), new MailerMetrics(meterRegistry));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        mockedFiles.when(() -> Files.exists(any(Path.class))).thenReturn(true);
+
+        when(carService.findAll()).thenReturn(List.of(cars.get(2), cars.get(4)));
+
+        assertTrue(pdfGenerationService.isLetterUpToDate(customer, pdfGenerationService.openMailingRun()));
+    }
+
+    @Test
+    @DisplayName("Test generated letters are timed and their size is recorded")
+    public void testCreatePdfForCustomer_RecordsMetrics() {
+        mockedPdfReportGenerator.when(() -> PdfReportGenerator.writeCustomerPdfReport(any(), any(CarTableTemplate.class), any(OutputStream.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(2).write("letter".getBytes());
+                    return null;
+                });
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        pdfGenerationService.createPdfForCustomer(customer, run);
+        pdfGenerationService.renderLetter(customer, run);
+
+        assertEquals(1, meterRegistry.get("mailer.letters.duration").timer().count());
+        assertEquals(1, meterRegistry.get("mailer.letters.write").timer().count());
+        assertEquals(1, meterRegistry.get("mailer.letters.render").timer().count());
+        assertEquals(12, meterRegistry.get("mailer.letters.size").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Test failed letters are counted by the exception that caused them")
+    public void testCreatePdfForCustomer_CountsFailures() {
+        mockedFiles.when(() -> Files.newOutputStream(any(Path.class))).thenThrow(new IOException("Test exception"));
+        MailingRunContext run = pdfGenerationService.openMailingRun();
+
+        assertThrows(PdfGenerationException.class, () -> pdfGenerationService.createPdfForCustomer(customer, run));
+
+        assertEquals(1, meterRegistry.get("mailer.failures").tag("stage", "letter").tag("exception", "IOException").counter().count());
+        assertEquals(0, meterRegistry.get("mailer.letters.duration").timer().count());
+    }
+
+    @Test
+    @DisplayName("Test letters kept from an earlier run are counted")
+    public void testIsLetterUpToDate_CountsKeptLetters() {
+        pdfGenerationService.createPdfForCustomer(customer, pdfGenerationService.openMailingRun());
+        mockedFiles.when(() -> Files.exists(any(Path.class))).thenReturn(true);
+
+        assertTrue(pdfGenerationService.isLetterUpToDate(customer, pdfGenerationService.openMailingRun()));
+
+        assertEquals(1, meterRegistry.get("mailer.letters.up-to-date").counter().count());
     }
 }
@@ -0,0 +1,157 @@
+package oleksandr_havriush.autoshowroomcustomermailer.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class StagedImportStoreTest {
+
+    @TempDir
+    Path stagingDirectory;
+
+    private StagedImportStore stagedImportStore;
+    private MockMultipartFile file;
+
+    @BeforeEach
+    public void setUp() {
+        stagedImportStore = new StagedImportStore(stagingDirectory.toString(), Duration.ofHours(1));
+        file = new MockMultipartFile("file", "cars.xml", "text/xml", "<cars></cars>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Test staged file can be read back by its import ID")
+    public void testStageAndOpen() throws IOException {
+        String importId = stagedImportStore.stage(file);
+
+        try (InputStream inputStream = stagedImportStore.open(importId)) {
+            assertEquals("<cars></cars>", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("Test discarded import cannot be opened")
+    public void testDiscard() {
+        String importId = stagedImportStore.stage(file);
+
+        stagedImportStore.discard(importId);
+
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.open(importId));
+    }
+
+    @Test
+    @DisplayName("Test expired imports are evicted")
+    public void testEvictExpired() throws IOException {
+        String importId = stagedImportStore.stage(file);
+        Path stagedFile = stagingDirectory.resolve(importId + ".xml");
+        Files.setLastModifiedTime(stagedFile, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.open(importId));
+        stagedImportStore.evictExpired();
+
+        assertFalse(Files.exists(stagedFile));
+    }
+
+    @Test
+    @DisplayName("Test import IDs not generated by the store are rejected")
+    public void testOpen_InvalidImportId() {
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.open("../application.properties"));
+    }
+
+    @Test
+    @DisplayName("Test a claimed import cannot be claimed again until it is released")
+    public void testClaim_Twice() throws IOException {
+        String importId = stagedImportStore.stage(file);
+
+        stagedImportStore.claim(importId);
+
+        assertThrows(ImportAlreadyClaimedException.class, () -> stagedImportStore.claim(importId));
+        assertThrows(ImportAlreadyClaimedException.class, () -> stagedImportStore.claimForSync(importId));
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.open(importId));
+        try (InputStream inputStream = stagedImportStore.openClaimed(importId)) {
+            assertEquals("<cars></cars>", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        stagedImportStore.release(importId);
+        stagedImportStore.claim(importId);
+    }
+
+    @Test
+    @DisplayName("Test only one of concurrent claims of the same import succeeds")
+    public void testClaim_Concurrent() throws Exception {
+        String importId = stagedImportStore.stage(file);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> claims = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                claims.add(executor.submit(() -> {
+                    try {
+                        stagedImportStore.claim(importId);
+                        return true;
+                    } catch (ImportAlreadyClaimedException e) {
+                        return false;
+                    }
+                }));
+            }
+            int succeeded = 0;
+            for (Future<Boolean> claim : claims) {
+                succeeded += claim.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Test a partially saved import can only be claimed for a synchronization")
+    public void testMarkPartial() {
+        String importId = stagedImportStore.stage(file);
+        stagedImportStore.claim(importId);
+
+        stagedImportStore.markPartial(importId);
+
+        assertThrows(PartialImportException.class, () -> stagedImportStore.claim(importId));
+        assertTrue(stagedImportStore.claimForSync(importId));
+        stagedImportStore.discard(importId);
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.claimForSync(importId));
+    }
+
+    @Test
+    @DisplayName("Test a staged import is claimed for a synchronization as not partially saved")
+    public void testClaimForSync() {
+        String importId = stagedImportStore.stage(file);
+
+        assertFalse(stagedImportStore.claimForSync(importId));
+        assertThrows(ImportAlreadyClaimedException.class, () -> stagedImportStore.claim(importId));
+    }
+
+    @Test
+    @DisplayName("Test claiming an expired import")
+    public void testClaim_Expired() throws IOException {
+        String importId = stagedImportStore.stage(file);
+        Files.setLastModifiedTime(stagingDirectory.resolve(importId + ".xml"), FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+
+        assertThrows(FileProcessingException.class, () -> stagedImportStore.claim(importId));
+    }
+}
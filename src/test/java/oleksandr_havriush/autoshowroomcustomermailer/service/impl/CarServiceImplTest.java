@@ -1,13 +1,23 @@
 package oleksandr_havriush.autoshowroomcustomermailer.service.impl;
 
 import static org.junit.jupiter.api.Assertions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.CarSyncEntry;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.ImportPreview;
+import oleksandr_havriush.autoshowroomcustomermailer.dto.InventorySyncReport;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.FileProcessingException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.ImportAlreadyClaimedException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.NoCarsToSaveException;
+import oleksandr_havriush.autoshowroomcustomermailer.exeptions.PartialImportException;
 import oleksandr_havriush.autoshowroomcustomermailer.exeptions.XmlParsingException;
 import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
 import oleksandr_havriush.autoshowroomcustomermailer.model.CarList;
 import oleksandr_havriush.autoshowroomcustomermailer.model.VehicleList;
 import oleksandr_havriush.autoshowroomcustomermailer.repository.CarRepository;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryCache;
+import oleksandr_havriush.autoshowroomcustomermailer.service.InventoryChangedEvent;
+import oleksandr_havriush.autoshowroomcustomermailer.service.MailerMetrics;
+import oleksandr_havriush.autoshowroomcustomermailer.service.StagedImportStore;
 import oleksandr_havriush.autoshowroomcustomermailer.service.VehicleService;
 import oleksandr_havriush.autoshowroomcustomermailer.util.XmlToCarListConverter;
 
@@ -17,18 +27,28 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 @ExtendWith(MockitoExtension.class)
 class CarServiceImplTest {
@@ -38,6 +58,20 @@ class CarServiceImplTest {
     @Mock
     private XmlToCarListConverter parser;
 
+    @Mock
+    private StagedImportStore stagedImportStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryCache inventoryCache;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private MailerMetrics metrics = new MailerMetrics(meterRegistry);
+
     @InjectMocks
     private CarServiceImpl carService;
 
@@ -92,17 +126,19 @@ class CarServiceImplTest {
     @Test
     @DisplayName("Test finding all cars")
     public void testFindAll() {
-        when(carRepository.findAll()).thenReturn(carListAsList);
+        when(inventoryCache.getCars()).thenReturn(carListAsList);
         List<Car> result = carService.findAll();
         assertEquals(carListAsList, result);
-        verify(carRepository).findAll();
+        verify(inventoryCache).getCars();
+        verifyNoInteractions(carRepository);
     }
 
     @Test
     @DisplayName("Test saving a list of cars to the database")
     public void testSaveCarsToDb() {
         carService.saveVehicles(carList);
-        verify(carRepository).saveAll(carList.getVehicles());
+        verify(carRepository).insertAll(carList.getVehicles());
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(5));
     }
 
     @Test
@@ -137,7 +173,7 @@ class CarServiceImplTest {
 
         assertThrows(NoCarsToSaveException.class, () -> carService.saveVehicles(emptyCarList));
 
-        verify(carRepository, never()).saveAll(any());
+        verify(carRepository, never()).insertAll(any());
     }
 
     @Test
@@ -155,17 +191,17 @@ class CarServiceImplTest {
     }
 
     @Test
-    @DisplayName("Test saveCarsToDb throws exception when saveAll fails")
-    public void testSaveCarsToDb_SaveAllThrowsException() {
+    @DisplayName("Test saveCarsToDb throws exception when insertAll fails")
+    public void testSaveCarsToDb_InsertAllThrowsException() {
         doThrow(new DataAccessException("...") {
-        }).when(carRepository).saveAll(any());
+        }).when(carRepository).insertAll(any());
         assertThrows(DataAccessException.class, () -> carService.saveVehicles(carList));
     }
 
     @Test
     @DisplayName("Test findAll returns empty list when no cars are present")
     public void testFindAll_NoCars() {
-        when(carRepository.findAll()).thenReturn(Collections.emptyList());
+        when(inventoryCache.getCars()).thenReturn(Collections.emptyList());
         List<Car> result = carService.findAll();
         assertTrue(result.isEmpty());
     }
@@ -195,4 +231,365 @@ class CarServiceImplTest {
     public void testSaveCars_NullCarList() {
         assertThrows(NoCarsToSaveException.class, () -> carService.saveVehicles(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test importing a file saves every chunk")
+    @SuppressWarnings("unchecked")
+    public void testImportFile_SavesChunks() throws IOException {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(multipartFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), eq(1000), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(2);
+            consumer.accept(carListAsList.subList(0, 3));
+            consumer.accept(carListAsList.subList(3, 5));
+            return 5L;
+        });
+
+        long imported = carService.importFile(multipartFile);
+
+        assertEquals(5, imported);
+        verify(carRepository).insertAll(carListAsList.subList(0, 3));
+        verify(carRepository).insertAll(carListAsList.subList(3, 5));
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(5));
+    }
+
+    @Test
+    @DisplayName("Test importing a file records parsed cars, inserted rows and the import time")
+    @SuppressWarnings("unchecked")
+    public void testImportFile_RecordsMetrics() throws IOException {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(multipartFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), eq(1000), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(2);
+            consumer.accept(carListAsList.subList(0, 3));
+            consumer.accept(carListAsList.subList(3, 5));
+            return 5L;
+        });
+
+        carService.importFile(multipartFile);
+
+        assertEquals(5, meterRegistry.get("mailer.import.cars.parsed").counter().count());
+        assertEquals(5, meterRegistry.get("mailer.import.rows").tag("operation", "insert").counter().count());
+        assertEquals(1, meterRegistry.get("mailer.import.duration").tag("mode", "stream").timer().count());
+    }
+
+    @Test
+    @DisplayName("Test a failing import is counted by its exception type")
+    @SuppressWarnings("unchecked")
+    public void testImportFile_CountsFailures() throws IOException {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(multipartFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), anyInt(), any(Consumer.class))).thenThrow(new XmlParsingException("Broken feed"));
+
+        assertThrows(XmlParsingException.class, () -> carService.importFile(multipartFile));
+
+        assertEquals(1, meterRegistry.get("mailer.failures").tag("stage", "import").tag("exception", "XmlParsingException").counter().count());
+        assertEquals(0, meterRegistry.get("mailer.import.duration").tag("mode", "stream").timer().count());
+    }
+
+    @Test
+    @DisplayName("Test importing a file without cars")
+    @SuppressWarnings("unchecked")
+    public void testImportFile_NoCars() throws IOException {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(multipartFile.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), anyInt(), any(Consumer.class))).thenReturn(0L);
+
+        assertThrows(NoCarsToSaveException.class, () -> carService.importFile(multipartFile));
+        verify(carRepository, never()).insertAll(anyList());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Test importing a file that cannot be read")
+    public void testImportFile_IOException() throws IOException {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(multipartFile.getInputStream()).thenThrow(new IOException("Test exception"));
+
+        assertThrows(FileProcessingException.class, () -> carService.importFile(multipartFile));
+    }
+
+    @Test
+    @DisplayName("Test importing an empty file")
+    public void testImportFile_EmptyFile() {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(true);
+
+        assertThrows(FileProcessingException.class, () -> carService.importFile(multipartFile));
+        verifyNoInteractions(parser);
+    }
+
+    private CarSyncEntry storedCar(long id, String name, String manufacturer, String type, double price, int power) {
+        return new CarSyncEntry(id, manufacturer, name, type, price, power);
+    }
+
+    private void stubStagedFile(List<List<Car>> chunks) {
+        when(stagedImportStore.openClaimed("import-1")).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(2);
+            chunks.forEach(consumer);
+            return chunks.stream().mapToLong(List::size).sum();
+        });
+    }
+
+    @Test
+    @DisplayName("Test synchronizing writes only the differences")
+    @SuppressWarnings("unchecked")
+    public void testSynchronizeVehicles_Diff() {
+        when(carRepository.findSyncEntries()).thenReturn(List.of(
+                storedCar(1L, "Octavia", "Skoda", "Sedan", 20000.0, 85),
+                storedCar(2L, "Actros", "Mercedes-Benz", "Truck", 45000.0, 250),
+                storedCar(3L, "Octavia", "Skoda", "Sedan", 20000.0, 85),
+                storedCar(4L, "Golf", "Volkswagen", "Hatchback", 23000.0, 110)));
+
+        InventorySyncReport report = carService.synchronizeVehicles(carList);
+
+        assertEquals(new InventorySyncReport(3, 1, 2, 1), report);
+        verify(carRepository).deleteAllByIds(List.of(3L, 4L));
+        ArgumentCaptor<List<Car>> updated = ArgumentCaptor.forClass(List.class);
+        verify(carRepository).updateAll(updated.capture());
+        assertEquals(2L, updated.getValue().get(0).getId());
+        assertEquals(50000.0, updated.getValue().get(0).getPrice());
+        verify(carRepository).insertAll(carListAsList.subList(2, 5));
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(6));
+        verify(carRepository, never()).findAll();
+        assertEquals(3, meterRegistry.get("mailer.import.rows").tag("operation", "insert").counter().count());
+        assertEquals(1, meterRegistry.get("mailer.import.rows").tag("operation", "update").counter().count());
+        assertEquals(2, meterRegistry.get("mailer.import.rows").tag("operation", "delete").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test synchronizing the same feed again changes nothing")
+    public void testSynchronizeVehicles_Idempotent() {
+        List<CarSyncEntry> stored = new ArrayList<>();
+        long id = 1;
+        for (Car car : carListAsList) {
+            stored.add(storedCar(id++, car.getName(), car.getManufacturer(), car.getType(), car.getPrice(), car.getPower()));
+        }
+        when(carRepository.findSyncEntries()).thenReturn(stored);
+
+        InventorySyncReport report = carService.synchronizeVehicles(carList);
+
+        assertFalse(report.hasChanges());
+        assertEquals(5, report.unchanged());
+        verify(carRepository, never()).insertAll(any());
+        verify(carRepository, never()).updateAll(any());
+        verify(carRepository, never()).deleteAllByIds(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Test synchronizing an empty feed throws exception")
+    public void testSynchronizeVehicles_NoCars() {
+        assertThrows(NoCarsToSaveException.class, () -> carService.synchronizeVehicles(new CarList(Collections.emptyList())));
+        verifyNoInteractions(carRepository);
+    }
+
+    @Test
+    @DisplayName("Test staging a file returns its import ID")
+    public void testStageFile() {
+        MultipartFile multipartFile = mock(MultipartFile.class);
+        when(multipartFile.isEmpty()).thenReturn(false);
+        when(stagedImportStore.stage(multipartFile)).thenReturn("import-1");
+
+        assertEquals("import-1", carService.stageFile(multipartFile));
+        verifyNoInteractions(parser);
+    }
+
+    @Test
+    @DisplayName("Test previewing a staged file keeps only the first chunk")
+    @SuppressWarnings("unchecked")
+    public void testPreviewStagedFile() {
+        ReflectionTestUtils.setField(carService, "previewLimit", 3);
+        when(stagedImportStore.open("import-1")).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(parser.convert(any(InputStream.class), eq(3), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(2);
+            consumer.accept(carListAsList.subList(0, 3));
+            consumer.accept(carListAsList.subList(3, 5));
+            return 5L;
+        });
+
+        ImportPreview<Car> preview = carService.previewStagedFile("import-1");
+
+        assertEquals(carListAsList.subList(0, 3), preview.vehicles());
+        assertEquals(5, preview.totalVehicles());
+        assertTrue(preview.isTruncated());
+        verify(stagedImportStore, never()).discard(any());
+    }
+
+    @Test
+    @DisplayName("Test saving a staged file claims it, streams it to the database and discards it")
+    public void testImportStagedFile() {
+        stubStagedFile(List.of(carListAsList));
+
+        assertEquals(5, carService.importStagedFile("import-1"));
+        InOrder inOrder = inOrder(stagedImportStore, carRepository);
+        inOrder.verify(stagedImportStore).claim("import-1");
+        inOrder.verify(carRepository).insertAll(carListAsList);
+        inOrder.verify(stagedImportStore).discard("import-1");
+    }
+
+    @Test
+    @DisplayName("Test saving an unknown staged file")
+    public void testImportStagedFile_UnknownImport() {
+        doThrow(new FileProcessingException("Staged import not found or expired: import-1")).when(stagedImportStore).claim("import-1");
+
+        assertThrows(FileProcessingException.class, () -> carService.importStagedFile("import-1"));
+        verifyNoInteractions(carRepository);
+    }
+
+    @Test
+    @DisplayName("Test saving a staged file that is already being saved writes nothing")
+    public void testImportStagedFile_AlreadyClaimed() {
+        doThrow(new ImportAlreadyClaimedException("Staged import is already being saved: import-1")).when(stagedImportStore).claim("import-1");
+
+        assertThrows(ImportAlreadyClaimedException.class, () -> carService.importStagedFile("import-1"));
+        verify(stagedImportStore, never()).openClaimed(any());
+        verifyNoInteractions(carRepository);
+    }
+
+    @Test
+    @DisplayName("Test a save failing after a saved chunk keeps the file for a synchronization only")
+    public void testImportStagedFile_PartialFailure() {
+        stubStagedFile(List.of(carListAsList.subList(0, 2), carListAsList.subList(2, 5)));
+        doNothing().doThrow(mock(DataAccessException.class)).when(carRepository).insertAll(any());
+
+        assertThrows(PartialImportException.class, () -> carService.importStagedFile("import-1"));
+        verify(stagedImportStore).markPartial("import-1");
+        verify(stagedImportStore, never()).release(any());
+        verify(stagedImportStore, never()).discard(any());
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(2));
+    }
+
+    @Test
+    @DisplayName("Test a save failing before any chunk was saved releases the file for another save")
+    public void testImportStagedFile_FailureBeforeFirstChunk() {
+        stubStagedFile(List.of(carListAsList));
+        doThrow(mock(DataAccessException.class)).when(carRepository).insertAll(any());
+
+        assertThrows(DataAccessException.class, () -> carService.importStagedFile("import-1"));
+        verify(stagedImportStore).release("import-1");
+        verify(stagedImportStore, never()).markPartial(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Test synchronizing a staged file")
+    public void testSynchronizeStagedFile() {
+        stubStagedFile(List.of(carListAsList));
+        when(carRepository.findSyncEntries()).thenReturn(List.of());
+
+        InventorySyncReport report = carService.synchronizeStagedFile("import-1");
+
+        assertEquals(new InventorySyncReport(5, 0, 0, 0), report);
+        verify(stagedImportStore).claimForSync("import-1");
+        verify(stagedImportStore).discard("import-1");
+        assertEquals(5, meterRegistry.get("mailer.import.cars.parsed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test a synchronized file is discarded only after the transaction commits")
+    public void testSynchronizeStagedFile_DiscardsAfterCommit() {
+        stubStagedFile(List.of(carListAsList));
+        when(carRepository.findSyncEntries()).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            carService.synchronizeStagedFile("import-1");
+            verify(stagedImportStore, never()).discard(any());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(stagedImportStore).discard("import-1");
+        verify(stagedImportStore, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Test a synchronized file is kept for a retry when the transaction rolls back")
+    public void testSynchronizeStagedFile_KeepsFileOnRollback() {
+        when(stagedImportStore.claimForSync("import-1")).thenReturn(true);
+        stubStagedFile(List.of(carListAsList));
+        when(carRepository.findSyncEntries()).thenReturn(List.of());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            carService.synchronizeStagedFile("import-1");
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(stagedImportStore).markPartial("import-1");
+        verify(stagedImportStore, never()).discard(any());
+    }
+
+    @Test
+    @DisplayName("Test a failed synchronization of a partially saved file keeps it for another synchronization")
+    public void testSynchronizeStagedFile_PartialImportFails() {
+        when(stagedImportStore.claimForSync("import-1")).thenReturn(true);
+        stubStagedFile(List.of(carListAsList));
+        when(carRepository.findSyncEntries()).thenReturn(List.of());
+        doThrow(mock(DataAccessException.class)).when(carRepository).insertAll(any());
+
+        assertThrows(DataAccessException.class, () -> carService.synchronizeStagedFile("import-1"));
+        verify(stagedImportStore).markPartial("import-1");
+        verify(stagedImportStore, never()).release(any());
+        verify(stagedImportStore, never()).discard(any());
+    }
+
+    @Test
+    @DisplayName("Test synchronizing a staged file writes every chunk before the next one is parsed")
+    @SuppressWarnings("unchecked")
+    public void testSynchronizeStagedFile_Chunked() {
+        stubStagedFile(List.of(carListAsList.subList(0, 2), carListAsList.subList(2, 4), carListAsList.subList(4, 5)));
+        when(carRepository.findSyncEntries()).thenReturn(List.of(
+                storedCar(1L, "Octavia", "Skoda", "Sedan", 20000.0, 85),
+                storedCar(2L, "Actros", "Mercedes-Benz", "Truck", 45000.0, 250),
+                storedCar(3L, "Golf", "Volkswagen", "Hatchback", 23000.0, 110)));
+
+        InventorySyncReport report = carService.synchronizeStagedFile("import-1");
+
+        assertEquals(new InventorySyncReport(3, 1, 1, 1), report);
+        InOrder inOrder = inOrder(carRepository);
+        inOrder.verify(carRepository).updateAll(List.of(carListAsList.get(1)));
+        inOrder.verify(carRepository).insertAll(carListAsList.subList(2, 4));
+        inOrder.verify(carRepository).insertAll(carListAsList.subList(4, 5));
+        inOrder.verify(carRepository).deleteAllByIds(List.of(3L));
+        verify(carRepository, never()).findAll();
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(5));
+    }
+
+    @Test
+    @DisplayName("Test a key repeated in a later chunk updates the car written for the earlier one")
+    public void testSynchronizeStagedFile_KeyRepeatedInLaterChunk() {
+        Car repeated = Car.builder().name("Octavia").manufacturer("Skoda").price(21000.0).type("Sedan").power(85).build();
+        stubStagedFile(List.of(carListAsList.subList(0, 1), List.of(repeated)));
+        when(carRepository.findSyncEntries()).thenReturn(List.of(storedCar(1L, "Octavia", "Skoda", "Sedan", 20000.0, 85)));
+
+        InventorySyncReport report = carService.synchronizeStagedFile("import-1");
+
+        assertEquals(new InventorySyncReport(0, 1, 0, 0), report);
+        assertEquals(1L, repeated.getId());
+        verify(carRepository).updateAll(List.of(repeated));
+        verify(carRepository, never()).insertAll(any());
+    }
+
+    @Test
+    @DisplayName("Test synchronizing an empty staged file throws exception and keeps the inventory")
+    public void testSynchronizeStagedFile_NoCars() {
+        stubStagedFile(List.of());
+        when(carRepository.findSyncEntries()).thenReturn(List.of(storedCar(1L, "Octavia", "Skoda", "Sedan", 20000.0, 85)));
+
+        assertThrows(NoCarsToSaveException.class, () -> carService.synchronizeStagedFile("import-1"));
+        verify(carRepository, never()).deleteAllByIds(any());
+        verify(stagedImportStore).release("import-1");
+        verify(stagedImportStore, never()).discard(any());
+    }
+}
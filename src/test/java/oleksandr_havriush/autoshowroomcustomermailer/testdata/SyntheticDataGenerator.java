@@ -0,0 +1,270 @@
+package oleksandr_havriush.autoshowroomcustomermailer.testdata;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Deterministic generator of customers and inventory feeds at production scale for load tests and benchmarks.
+ * Names, cities and postal codes follow realistic German distributions: last names are Zipf distributed,
+ * cities are weighted by population and postal codes fall into the range of their city. Cars are drawn from
+ * a model catalogue with prices spread around the list price of their model.
+ * <p>
+ * The same seed always yields the same sequence of records, so datasets do not have to be stored.
+ * A generator is not thread-safe; use one generator per thread, with different seeds.
+ */
+public class SyntheticDataGenerator {
+
+    /**
+     * Seed of the default dataset used by benchmarks and load tests.
+     */
+    public static final long DEFAULT_SEED = 20240601L;
+
+    private static final LocalDateTime REFERENCE_DATE = LocalDateTime.of(2024, 6, 1, 0, 0);
+    private static final long CREATION_PERIOD_SECONDS = 5L * 365 * 24 * 3600;
+
+    private static final List<String> FIRST_NAMES = List.of(
+            "Maximilian", "Alexander", "Paul", "Elias", "Ben", "Noah", "Leon", "Louis", "Jonas", "Felix",
+            "Lukas", "Thomas", "Michael", "Andreas", "Stefan", "Peter", "Hans", "Jürgen", "Klaus", "Wolfgang",
+            "Sophie", "Marie", "Emilia", "Hannah", "Emma", "Mia", "Anna", "Lena", "Lea", "Laura",
+            "Julia", "Sabine", "Petra", "Monika", "Ursula", "Karin", "Claudia", "Susanne", "Andrea", "Erika");
+
+    private static final List<String> LAST_NAMES = List.of(
+            "Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner", "Becker", "Schulz", "Hoffmann",
+            "Schäfer", "Koch", "Bauer", "Richter", "Klein", "Wolf", "Schröder", "Neumann", "Schwarz", "Zimmermann",
+            "Braun", "Krüger", "Hofmann", "Hartmann", "Lange", "Schmitt", "Werner", "Schmitz", "Krause", "Meier",
+            "Lehmann", "Schmid", "Schulze", "Maier", "Köhler", "Herrmann", "König", "Walter", "Mayer", "Huber",
+            "Kaiser", "Fuchs", "Peters", "Lang", "Scholz", "Möller", "Weiß", "Jung", "Hahn", "Schubert",
+            "Vogel", "Friedrich", "Keller", "Günther", "Frank", "Berger", "Winkler", "Roth", "Beck", "Lorenz");
+
+    private static final List<String> STREETS = List.of(
+            "Hauptstraße", "Schulstraße", "Gartenstraße", "Bahnhofstraße", "Dorfstraße", "Bergstraße", "Birkenweg",
+            "Lindenstraße", "Kirchstraße", "Waldstraße", "Ringstraße", "Schillerstraße", "Goethestraße", "Wiesenweg",
+            "Mühlenweg", "Jahnstraße", "Am Sportplatz", "Friedhofstraße", "Rosenstraße", "Mozartstraße",
+            "Industriestraße", "Kastanienallee", "Marktplatz", "Königstraße", "Friedrichstraße", "Beethovenstraße");
+
+    /**
+     * Cities with their population in thousands and the range of their postal codes.
+     */
+    private static final List<City> CITIES = List.of(
+            new City("Berlin", 3755, 10115, 14199),
+            new City("Hamburg", 1892, 20095, 22769),
+            new City("Munich", 1512, 80331, 81929),
+            new City("Cologne", 1084, 50667, 51149),
+            new City("Frankfurt", 773, 60306, 65936),
+            new City("Stuttgart", 633, 70173, 70629),
+            new City("Düsseldorf", 629, 40210, 40629),
+            new City("Leipzig", 616, 4103, 4357),
+            new City("Dortmund", 595, 44135, 44388),
+            new City("Essen", 584, 45127, 45359),
+            new City("Bremen", 569, 28195, 28779),
+            new City("Dresden", 564, 1067, 1328),
+            new City("Hannover", 548, 30159, 30669),
+            new City("Nuremberg", 523, 90402, 90491),
+            new City("Duisburg", 502, 47051, 47279),
+            new City("Bochum", 366, 44787, 44894),
+            new City("Wuppertal", 358, 42103, 42399),
+            new City("Bielefeld", 338, 33602, 33739),
+            new City("Bonn", 336, 53111, 53229),
+            new City("Münster", 322, 48143, 48167),
+            new City("Mannheim", 315, 68159, 68309),
+            new City("Karlsruhe", 308, 76131, 76229),
+            new City("Augsburg", 301, 86150, 86199),
+            new City("Wiesbaden", 283, 65183, 65207),
+            new City("Kiel", 247, 24103, 24159),
+            new City("Aachen", 252, 52062, 52080),
+            new City("Magdeburg", 240, 39104, 39130),
+            new City("Freiburg", 237, 79098, 79117),
+            new City("Lübeck", 218, 23552, 23570),
+            new City("Erfurt", 214, 99084, 99099));
+
+    /**
+     * Car models with their share of the inventory, list price and power.
+     */
+    private static final List<Model> MODELS = List.of(
+            new Model("Volkswagen", "Golf", "Hatchback", 14, 28000, 130),
+            new Model("Volkswagen", "Passat", "Sedan", 8, 38000, 150),
+            new Model("Volkswagen", "Tiguan", "SUV", 9, 40000, 150),
+            new Model("Volkswagen", "ID.4", "Electric", 5, 45000, 204),
+            new Model("Skoda", "Octavia", "Sedan", 9, 29000, 115),
+            new Model("Skoda", "Fabia", "Hatchback", 5, 19000, 95),
+            new Model("BMW", "3 Series", "Sedan", 6, 45000, 184),
+            new Model("BMW", "X5", "SUV", 3, 80000, 286),
+            new Model("BMW", "i4", "Electric", 2, 57000, 340),
+            new Model("Mercedes-Benz", "C-Class", "Sedan", 6, 48000, 204),
+            new Model("Mercedes-Benz", "E-Class", "Sedan", 3, 60000, 258),
+            new Model("Mercedes-Benz", "Actros", "Truck", 1, 110000, 450),
+            new Model("Audi", "A4", "Sedan", 5, 44000, 150),
+            new Model("Audi", "Q5", "SUV", 4, 55000, 204),
+            new Model("Audi", "TT", "Coupe", 1, 48000, 245),
+            new Model("Opel", "Corsa", "Hatchback", 6, 18000, 100),
+            new Model("Ford", "Focus", "Hatchback", 4, 25000, 125),
+            new Model("Ford", "F-150", "Truck", 1, 55000, 400),
+            new Model("Ford", "Mustang", "Coupe", 1, 55000, 450),
+            new Model("Toyota", "Corolla", "Sedan", 4, 27000, 122),
+            new Model("Toyota", "RAV4", "SUV", 3, 38000, 218),
+            new Model("Tesla", "Model 3", "Electric", 4, 42000, 283),
+            new Model("Tesla", "Model Y", "Electric", 4, 45000, 299),
+            new Model("Tesla", "Model S", "Electric", 1, 95000, 670),
+            new Model("Porsche", "911", "Coupe", 1, 125000, 385),
+            new Model("Porsche", "Taycan", "Electric", 1, 100000, 408));
+
+    private static final List<String> TRIMS = List.of("", " Comfort", " Style", " Sport", " Premium");
+
+    private static final double PRICE_SPREAD = 0.12;
+
+    private final SplittableRandom random;
+    private final double[] firstNameWeights;
+    private final double[] lastNameWeights;
+    private final double[] streetWeights;
+    private final double[] cityWeights;
+    private final double[] modelWeights;
+
+    /**
+     * Constructor to initialize SyntheticDataGenerator with the seed of the dataset.
+     *
+     * @param seed the seed; the same seed yields the same records
+     */
+    public SyntheticDataGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+        this.firstNameWeights = cumulative(FIRST_NAMES.size(), rank -> 1.0 / Math.sqrt(rank));
+        this.lastNameWeights = cumulative(LAST_NAMES.size(), rank -> 1.0 / rank);
+        this.streetWeights = cumulative(STREETS.size(), rank -> 1.0 / rank);
+        this.cityWeights = cumulative(CITIES.size(), rank -> CITIES.get(rank - 1).population());
+        this.modelWeights = cumulative(MODELS.size(), rank -> MODELS.get(rank - 1).share());
+    }
+
+    /**
+     * Generates the next customer with its address. IDs are left empty and assigned when the customer is saved.
+     *
+     * @return the generated customer
+     */
+    public Customer nextCustomer() {
+        City city = CITIES.get(pick(cityWeights));
+        String postalCode = String.format("%05d", city.firstPostalCode() + random.nextInt(city.lastPostalCode() - city.firstPostalCode() + 1));
+        int houseNumber = 1 + (int) Math.min(250, Math.abs(random.nextDouble() * random.nextDouble() * 300));
+        String houseNumberSuffix = random.nextInt(12) == 0 ? String.valueOf((char) ('a' + random.nextInt(3))) : "";
+        Address address = new Address(null, STREETS.get(pick(streetWeights)), houseNumber + houseNumberSuffix,
+                city.name(), postalCode, "Germany");
+        Customer customer = new Customer(null, FIRST_NAMES.get(pick(firstNameWeights)), LAST_NAMES.get(pick(lastNameWeights)), address);
+        customer.setCreatedAt(REFERENCE_DATE.minusSeconds(random.nextLong(CREATION_PERIOD_SECONDS)));
+        return customer;
+    }
+
+    /**
+     * Generates the next car of the inventory. IDs are left empty and assigned when the car is saved.
+     *
+     * @return the generated car
+     */
+    public Car nextCar() {
+        Model model = MODELS.get(pick(modelWeights));
+        double factor = Math.exp(gaussian() * PRICE_SPREAD);
+        return Car.builder()
+                .name(model.name() + TRIMS.get(random.nextInt(TRIMS.size())))
+                .manufacturer(model.manufacturer())
+                .type(model.type())
+                .price(Math.round(model.listPrice() * factor / 100) * 100.0)
+                .power((int) Math.round(model.power() * Math.sqrt(factor)))
+                .build();
+    }
+
+    /**
+     * Writes an inventory feed in the format of the XML import, generating the cars while writing.
+     * Only one car is held in memory, so feeds of any size can be written.
+     *
+     * @param outputStream the stream the feed is written to; it is not closed by this method
+     * @param cars         the number of cars in the feed
+     * @throws IllegalStateException if the feed cannot be written
+     */
+    public void writeInventoryXml(OutputStream outputStream, long cars) {
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, StandardCharsets.UTF_8.name());
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("cars");
+            for (long i = 0; i < cars; i++) {
+                Car car = nextCar();
+                writer.writeCharacters("\n    ");
+                writer.writeStartElement("car");
+                writeElement(writer, "type", car.getType());
+                writeElement(writer, "name", car.getName());
+                writeElement(writer, "manufacturer", car.getManufacturer());
+                writeElement(writer, "power", String.valueOf(car.getPower()));
+                writeElement(writer, "price", String.valueOf(car.getPrice()));
+                writer.writeCharacters("\n    ");
+                writer.writeEndElement();
+            }
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.writeCharacters("\n");
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Error writing inventory feed", e);
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        writer.writeCharacters("\n        ");
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Draws an index from cumulative weights with a binary search.
+     *
+     * @param cumulativeWeights the cumulative weights, the last entry being the total
+     * @return the drawn index
+     */
+    private int pick(double[] cumulativeWeights) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] <= target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Draws a standard normal value with the Box-Muller transform.
+     *
+     * @return the drawn value
+     */
+    private double gaussian() {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double[] cumulative(int size, IntToDoubleFunction weightOfRank) {
+        double[] weights = new double[size];
+        double total = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            total += weightOfRank.applyAsDouble(rank);
+            weights[rank - 1] = total;
+        }
+        return weights;
+    }
+
+    private record City(String name, double population, int firstPostalCode, int lastPostalCode) {
+    }
+
+    private record Model(String manufacturer, String name, String type, double share, double listPrice, int power) {
+    }
+}
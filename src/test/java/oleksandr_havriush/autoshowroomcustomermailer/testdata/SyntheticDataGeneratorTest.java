@@ -0,0 +1,95 @@
+package oleksandr_havriush.autoshowroomcustomermailer.testdata;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.util.XmlToCarListConverter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class SyntheticDataGeneratorTest {
+
+    private static List<Customer> customers(long seed, int count) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(seed);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            customers.add(generator.nextCustomer());
+        }
+        return customers;
+    }
+
+    private static <T> String mostFrequent(List<Customer> customers, Function<Customer, T> attribute) {
+        Map<T, Long> counts = customers.stream().collect(Collectors.groupingBy(attribute, Collectors.counting()));
+        return String.valueOf(counts.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey());
+    }
+
+    @Test
+    @DisplayName("Test the same seed yields the same customers and cars")
+    public void testDeterministic() {
+        assertEquals(customers(42, 500), customers(42, 500));
+        assertNotEquals(customers(42, 500), customers(43, 500));
+
+        SyntheticDataGenerator first = new SyntheticDataGenerator(42);
+        SyntheticDataGenerator second = new SyntheticDataGenerator(42);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(first.nextCar(), second.nextCar());
+        }
+    }
+
+    @Test
+    @DisplayName("Test customers have valid addresses with realistic city and name distributions")
+    public void testNextCustomer_Distributions() {
+        List<Customer> customers = customers(SyntheticDataGenerator.DEFAULT_SEED, 20_000);
+
+        for (Customer customer : customers) {
+            assertNull(customer.getId());
+            assertTrue(customer.getAddress().getPostalCode().matches("^\\d{5}$"));
+            assertTrue(customer.getAddress().getHouseNumber().matches("^[0-9a-zA-Z-/]*$"));
+            assertNotNull(customer.getCreatedAt());
+        }
+        assertEquals("Berlin", mostFrequent(customers, customer -> customer.getAddress().getCity()));
+        assertEquals("Müller", mostFrequent(customers, Customer::getLastName));
+        assertTrue(customers.stream().map(customer -> customer.getAddress().getCity()).distinct().count() >= 25);
+        assertTrue(customers.stream().map(customer -> customer.getAddress().getPostalCode()).distinct().count() > 1000);
+        assertTrue(customers.stream().allMatch(customer -> !customer.getAddress().getCity().equals("Leipzig")
+                || customer.getAddress().getPostalCode().startsWith("04")));
+    }
+
+    @Test
+    @DisplayName("Test car prices spread around the list prices of their models")
+    public void testNextCar_Prices() {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(SyntheticDataGenerator.DEFAULT_SEED);
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            cars.add(generator.nextCar());
+        }
+
+        assertTrue(cars.stream().allMatch(car -> car.getPrice() > 0 && car.getPower() > 0));
+        assertTrue(cars.stream().map(Car::getType).distinct().count() >= 6);
+        assertTrue(cars.stream().map(Car::getPrice).distinct().count() > 500);
+        double averageGolf = cars.stream().filter(car -> car.getName().startsWith("Golf")).mapToDouble(Car::getPrice).average().orElseThrow();
+        assertEquals(28000, averageGolf, 28000 * 0.05);
+    }
+
+    @Test
+    @DisplayName("Test the inventory feed is read back by the XML import")
+    public void testWriteInventoryXml() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new SyntheticDataGenerator(7).writeInventoryXml(outputStream, 2500);
+
+        List<Car> parsed = new ArrayList<>();
+        long count = new XmlToCarListConverter().convert(new ByteArrayInputStream(outputStream.toByteArray()), 1000, parsed::addAll);
+
+        assertEquals(2500, count);
+        assertEquals(new SyntheticDataGenerator(7).nextCar(), parsed.get(0));
+    }
+}
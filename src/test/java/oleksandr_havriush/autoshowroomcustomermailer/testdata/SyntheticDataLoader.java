@@ -0,0 +1,225 @@
+package oleksandr_havriush.autoshowroomcustomermailer.testdata;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import oleksandr_havriush.autoshowroomcustomermailer.repository.CarBatchRepositoryImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk loader writing generated customers and cars into a database with JDBC batches, one commit per batch,
+ * so millions of rows load in minutes and without holding more than one batch in memory.
+ * <p>
+ * Started via {@link #main(String[])}, it fills an embedded H2 file database and optionally writes an inventory feed:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=oleksandr_havriush.autoshowroomcustomermailer.testdata.SyntheticDataLoader \
+ *     -Dexec.args="url=jdbc:h2:file:./target/loadtest customers=1000000 cars=50000 xml=target/feed.xml xml-cars=1000000 seed=42"
+ * </pre>
+ */
+public class SyntheticDataLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticDataLoader.class);
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL = 100_000;
+    private static final String INSERT_ADDRESS = "INSERT INTO address (street, house_number, city, postal_code, country) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_CUSTOMER = "INSERT INTO customer (first_name, last_name, address_id, created_at) VALUES (?, ?, ?, ?)";
+    private static final List<String> SCHEMA = List.of(
+            "CREATE TABLE IF NOT EXISTS address (id BIGINT AUTO_INCREMENT PRIMARY KEY, street VARCHAR(255), house_number VARCHAR(255), "
+                    + "city VARCHAR(255), postal_code VARCHAR(255), country VARCHAR(255))",
+            "CREATE TABLE IF NOT EXISTS customer (id BIGINT AUTO_INCREMENT PRIMARY KEY, first_name VARCHAR(255), last_name VARCHAR(255), "
+                    + "address_id BIGINT UNIQUE REFERENCES address (id), created_at TIMESTAMP(6))",
+            "CREATE TABLE IF NOT EXISTS vehicle (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255), manufacturer VARCHAR(255), price DOUBLE)",
+            "CREATE TABLE IF NOT EXISTS car (id BIGINT PRIMARY KEY REFERENCES vehicle (id), type VARCHAR(255), power INT)",
+            "CREATE INDEX IF NOT EXISTS idx_customer_last_name ON customer (last_name)",
+            "CREATE INDEX IF NOT EXISTS idx_address_postal_code ON address (postal_code)",
+            "CREATE INDEX IF NOT EXISTS idx_address_city ON address (city)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    /**
+     * Constructor to initialize SyntheticDataLoader with the target database.
+     *
+     * @param dataSource the database the rows are written to
+     * @param batchSize  the number of rows sent and committed in one batch, or 0 for the default
+     */
+    public SyntheticDataLoader(DataSource dataSource, int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Creates the tables and indexes of the application in an empty H2 database.
+     * Other databases get their schema from Hibernate when the application starts.
+     */
+    public void createSchema() {
+        SCHEMA.forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * Loads generated customers with their addresses.
+     *
+     * @param generator the generator of the customers
+     * @param count     the number of customers to load
+     * @return the number of loaded customers
+     */
+    public long loadCustomers(SyntheticDataGenerator generator, long count) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement addressStatement = connection.prepareStatement(INSERT_ADDRESS, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement customerStatement = connection.prepareStatement(INSERT_CUSTOMER)) {
+                List<Customer> batch = new ArrayList<>(batchSize);
+                long loaded = 0;
+                while (loaded < count) {
+                    batch.clear();
+                    for (int i = 0; i < batchSize && loaded + i < count; i++) {
+                        batch.add(generator.nextCustomer());
+                    }
+                    insertAddresses(addressStatement, batch);
+                    insertCustomers(customerStatement, batch);
+                    connection.commit();
+                    loaded += batch.size();
+                    logProgress("customers", loaded, count);
+                }
+                return loaded;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Loads generated cars with the batch inserts of the application.
+     *
+     * @param generator the generator of the cars
+     * @param count     the number of cars to load
+     * @return the number of loaded cars
+     */
+    public long loadCars(SyntheticDataGenerator generator, long count) {
+        CarBatchRepositoryImpl carBatchRepository = new CarBatchRepositoryImpl(jdbcTemplate, batchSize);
+        List<Car> batch = new ArrayList<>(batchSize);
+        long loaded = 0;
+        while (loaded < count) {
+            batch.clear();
+            for (int i = 0; i < batchSize && loaded + i < count; i++) {
+                batch.add(generator.nextCar());
+            }
+            transactionTemplate.executeWithoutResult(status -> carBatchRepository.insertAll(batch));
+            loaded += batch.size();
+            logProgress("cars", loaded, count);
+        }
+        return loaded;
+    }
+
+    private void insertAddresses(PreparedStatement statement, List<Customer> batch) throws SQLException {
+        for (Customer customer : batch) {
+            Address address = customer.getAddress();
+            statement.setString(1, address.getStreet());
+            statement.setString(2, address.getHouseNumber());
+            statement.setString(3, address.getCity());
+            statement.setString(4, address.getPostalCode());
+            statement.setString(5, address.getCountry());
+            statement.addBatch();
+        }
+        statement.executeBatch();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            for (Customer customer : batch) {
+                if (!generatedKeys.next()) {
+                    throw new DataRetrievalFailureException("Database returned fewer generated keys than inserted addresses");
+                }
+                customer.getAddress().setId(generatedKeys.getLong(1));
+            }
+        }
+    }
+
+    private void insertCustomers(PreparedStatement statement, List<Customer> batch) throws SQLException {
+        for (Customer customer : batch) {
+            statement.setString(1, customer.getFirstName());
+            statement.setString(2, customer.getLastName());
+            statement.setLong(3, customer.getAddress().getId());
+            statement.setTimestamp(4, Timestamp.valueOf(customer.getCreatedAt()));
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    private static void logProgress(String rows, long loaded, long count) {
+        if (loaded % PROGRESS_INTERVAL < DEFAULT_BATCH_SIZE || loaded == count) {
+            LOGGER.info("Loaded {} of {} {}.", loaded, count, rows);
+        }
+    }
+
+    /**
+     * Generates a dataset from {@code key=value} arguments: {@code url}, {@code username} and {@code password} of the database,
+     * the number of {@code customers} and {@code cars} loaded into it, an inventory feed file {@code xml} with {@code xml-cars} cars,
+     * the {@code seed} and the {@code batch-size}. The schema is created when {@code url} points to H2.
+     *
+     * @param args the arguments
+     * @throws IOException if the inventory feed cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Arguments must have the form key=value: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(SyntheticDataGenerator.DEFAULT_SEED)));
+        long customers = Long.parseLong(options.getOrDefault("customers", "0"));
+        long cars = Long.parseLong(options.getOrDefault("cars", "0"));
+
+        if (options.containsKey("url") && (customers > 0 || cars > 0)) {
+            String url = options.get("url");
+            // A single connection keeps an embedded database open between the batches
+            SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url,
+                    options.getOrDefault("username", ""), options.getOrDefault("password", ""), true);
+            try {
+                SyntheticDataLoader loader = new SyntheticDataLoader(dataSource, Integer.parseInt(options.getOrDefault("batch-size", "0")));
+                if (url.startsWith("jdbc:h2:")) {
+                    loader.createSchema();
+                }
+                loader.loadCustomers(new SyntheticDataGenerator(seed), customers);
+                loader.loadCars(new SyntheticDataGenerator(seed + 1), cars);
+            } finally {
+                dataSource.destroy();
+            }
+        }
+        if (options.containsKey("xml")) {
+            Path feed = Paths.get(options.get("xml"));
+            long feedCars = Long.parseLong(options.getOrDefault("xml-cars", String.valueOf(Math.max(cars, 1000))));
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(feed), 64 * 1024)) {
+                new SyntheticDataGenerator(seed + 2).writeInventoryXml(outputStream, feedCars);
+            }
+            LOGGER.info("Wrote inventory feed {} with {} cars.", feed, feedCars);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package oleksandr_havriush.autoshowroomcustomermailer.testdata;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class SyntheticDataLoaderTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SyntheticDataLoader loader;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:synthetic;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        loader = new SyntheticDataLoader(dataSource, 1000);
+        loader.createSchema();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    @DisplayName("Test customers are loaded with one address each in several batches")
+    public void testLoadCustomers() {
+        long loaded = loader.loadCustomers(new SyntheticDataGenerator(42), 2500);
+
+        assertEquals(2500, loaded);
+        assertEquals(2500, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer", Long.class));
+        assertEquals(2500, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT a.id) FROM customer c JOIN address a ON a.id = c.address_id", Long.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM customer WHERE created_at IS NULL", Long.class));
+    }
+
+    @Test
+    @DisplayName("Test loading with the same seed yields the same rows")
+    public void testLoadCustomers_Deterministic() {
+        loader.loadCustomers(new SyntheticDataGenerator(42), 10);
+        loader.loadCustomers(new SyntheticDataGenerator(42), 10);
+
+        assertEquals(10, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT CONCAT(c.first_name, c.last_name, a.postal_code, a.street, a.house_number)) "
+                        + "FROM customer c JOIN address a ON a.id = c.address_id", Long.class));
+    }
+
+    @Test
+    @DisplayName("Test cars are loaded into the vehicle and car tables")
+    public void testLoadCars() {
+        long loaded = loader.loadCars(new SyntheticDataGenerator(42), 1500);
+
+        assertEquals(1500, loaded);
+        assertEquals(1500, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM vehicle v JOIN car c ON c.id = v.id", Long.class));
+    }
+}
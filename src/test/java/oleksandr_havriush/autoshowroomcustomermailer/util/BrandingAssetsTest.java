@@ -0,0 +1,70 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+class BrandingAssetsTest {
+
+    @Test
+    @DisplayName("Test logo is decoded once and shared by all copies")
+    public void testGetLogo_SharesDecodedData() {
+        Image first = BrandingAssets.getLogo();
+        Image second = BrandingAssets.getLogo();
+
+        assertNotSame(first, second);
+        assertSame(BrandingAssets.getLogoPrototype(), BrandingAssets.getLogoPrototype());
+        assertSame(first.getRawData(), second.getRawData());
+        assertEquals(first.getMySerialId(), second.getMySerialId());
+    }
+
+    @Test
+    @DisplayName("Test positioning a copy does not change the shared logo")
+    public void testGetLogo_CopiesAreIndependent() {
+        Image copy = BrandingAssets.getLogo();
+        float originalWidth = BrandingAssets.getLogoPrototype().getScaledWidth();
+
+        copy.scaleToFit(10, 10);
+
+        assertEquals(originalWidth, BrandingAssets.getLogoPrototype().getScaledWidth());
+        assertEquals(originalWidth, BrandingAssets.getLogo().getScaledWidth());
+    }
+
+    @Test
+    @DisplayName("Test logo copies added to one document are embedded once")
+    public void testGetLogo_EmbeddedOncePerWriter() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, outputStream);
+        document.open();
+        document.add(BrandingAssets.getLogo());
+        document.newPage();
+        document.add(BrandingAssets.getLogo());
+        document.close();
+
+        PdfReader reader = new PdfReader(outputStream.toByteArray());
+        Set<Integer> imageObjects = new HashSet<>();
+        for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+            PdfDictionary xObjects = reader.getPageN(page).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.XOBJECT);
+            for (PdfName name : xObjects.getKeys()) {
+                imageObjects.add(xObjects.getAsIndirectObject(name).getNumber());
+            }
+        }
+        reader.close();
+
+        assertEquals(2, reader.getNumberOfPages());
+        assertEquals(1, imageObjects.size());
+    }
+}
@@ -0,0 +1,111 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+class CarTableTemplateTest {
+
+    private Customer customer;
+    private List<Car> carList;
+
+    @BeforeEach
+    public void setUp() {
+        Address address = new Address(1L, "New York Avenue", "125A", "Bonn", "47523", "Germany");
+        customer = new Customer(1L, "Mark", "Bensberg", address);
+
+        carList = new ArrayList<>();
+        for (int i = 1; i <= 60; i++) {
+            carList.add(Car.builder()
+                    .id((long) i)
+                    .name("Model " + i)
+                    .manufacturer("Skoda")
+                    .price(20000.0 + i)
+                    .type("Sedan")
+                    .power(85)
+                    .build());
+        }
+    }
+
+    private String extractText(ByteArrayInputStream pdf) throws IOException {
+        PdfReader reader = new PdfReader(pdf);
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+            text.append(PdfTextExtractor.getTextFromPage(reader, page)).append('\n');
+        }
+        reader.close();
+        return text.toString();
+    }
+
+    @Test
+    @DisplayName("Verify car count of the template")
+    void testCarCount() {
+        assertEquals(60, CarTableTemplate.of(carList).getCarCount());
+    }
+
+    @Test
+    @DisplayName("Verify every letter gets its own copy of the table")
+    void testNewTableCopiedPerLetter() {
+        CarTableTemplate template = CarTableTemplate.of(carList);
+
+        assertNotSame(template.newTable(), template.newTable());
+        assertEquals(61, template.newTable().size());
+    }
+
+    @Test
+    @DisplayName("Verify the same template renders the full table into consecutive letters")
+    void testTemplateReusedAcrossLetters() throws IOException {
+        CarTableTemplate template = CarTableTemplate.of(carList);
+
+        String first = extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), template));
+        String second = extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), template));
+
+        assertTrue(first.contains("Model 1 "));
+        assertTrue(first.contains("Model 60"));
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Verify the template matches the table built from the car list")
+    void testTemplateMatchesCarList() throws IOException {
+        String fromTemplate = extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), CarTableTemplate.of(carList)));
+        String fromList = extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), carList));
+        assertEquals(fromList, fromTemplate);
+    }
+
+    @Test
+    @DisplayName("Verify the template can be used from several threads")
+    void testTemplateUsedConcurrently() throws Exception {
+        CarTableTemplate template = CarTableTemplate.of(carList);
+        String expected = extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), template));
+
+        List<CompletableFuture<String>> letters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            letters.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return extractText(PdfReportGenerator.createCustomerPdfReport(Optional.of(customer), template));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+
+        for (CompletableFuture<String> letter : letters) {
+            assertEquals(expected, letter.get());
+        }
+    }
+}
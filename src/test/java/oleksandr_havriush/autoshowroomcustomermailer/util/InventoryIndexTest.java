@@ -0,0 +1,73 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+class InventoryIndexTest {
+
+    private InventoryIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = InventoryIndex.of(List.of(
+                Car.builder().id(1L).name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build(),
+                Car.builder().id(2L).name("Actros").manufacturer("Mercedes-Benz").price(50000.0).type("Truck").power(250).build(),
+                Car.builder().id(3L).name("CBR600RR").manufacturer("Honda").price(15000.0).type("Sport").power(85).build(),
+                Car.builder().id(4L).name("Model S").manufacturer("Tesla").price(75000.0).type("Electric").power(100).build(),
+                Car.builder().id(5L).name("Ninja ZX-10R").manufacturer("Kawasaki").price(16000.0).type("Sport").power(200).build(),
+                Car.builder().id(6L).name("Passat").manufacturer("Volkswagen").price(20000.0).type("Sedan").power(110).build()));
+    }
+
+    private static List<String> names(List<Car> cars) {
+        return cars.stream().map(Car::getName).toList();
+    }
+
+    @Test
+    @DisplayName("Test the most expensive cars of the whole inventory are returned in descending price order")
+    public void testMostExpensive_AllTypes() {
+        assertEquals(6, index.getCarCount());
+        assertEquals(List.of("Model S", "Actros", "Passat"), names(index.mostExpensive(Set.of(), 0, Double.MAX_VALUE, 3)));
+    }
+
+    @Test
+    @DisplayName("Test only cars within the price band are returned")
+    public void testMostExpensive_PriceBand() {
+        assertEquals(List.of("Passat", "Octavia", "Ninja ZX-10R"), names(index.mostExpensive(Set.of(), 16000, 50000 - 1, 0)));
+        assertEquals(List.of("Actros"), names(index.mostExpensive(Set.of(), 50000, 50000, 0)));
+        assertTrue(index.mostExpensive(Set.of(), 80000, Double.MAX_VALUE, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test cars of several vehicle types are merged by price, ignoring the case of the type")
+    public void testMostExpensive_Types() {
+        assertEquals(List.of("Passat", "Octavia", "Ninja ZX-10R", "CBR600RR"),
+                names(index.mostExpensive(Set.of("sport", "SEDAN"), 0, Double.MAX_VALUE, 0)));
+        assertEquals(List.of("Ninja ZX-10R"), names(index.mostExpensive(Set.of("Sport", "Sedan"), 0, 18000, 1)));
+        assertTrue(index.mostExpensive(Set.of("Van"), 0, Double.MAX_VALUE, 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test cars with the same price are returned in a stable order")
+    public void testMostExpensive_EqualPrices() {
+        List<Car> cars = new ArrayList<>();
+        for (long id = 10; id >= 1; id--) {
+            cars.add(Car.builder().id(id).name("Model " + id).price(30000.0).type("Sedan").build());
+        }
+
+        assertEquals(List.of("Model 10", "Model 9"), names(InventoryIndex.of(cars).mostExpensive(Set.of(), 0, Double.MAX_VALUE, 2)));
+    }
+
+    @Test
+    @DisplayName("Test an empty inventory yields no cars")
+    public void testMostExpensive_EmptyInventory() {
+        assertTrue(InventoryIndex.of(List.of()).mostExpensive(Set.of("Sedan"), 0, Double.MAX_VALUE, 10).isEmpty());
+    }
+}
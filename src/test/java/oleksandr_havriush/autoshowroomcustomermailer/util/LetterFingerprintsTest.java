@@ -0,0 +1,70 @@
+package oleksandr_havriush.autoshowroomcustomermailer.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import oleksandr_havriush.autoshowroomcustomermailer.model.Address;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Car;
+import oleksandr_havriush.autoshowroomcustomermailer.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class LetterFingerprintsTest {
+
+    private Customer customer;
+    private List<Car> cars;
+
+    @BeforeEach
+    public void setUp() {
+        customer = new Customer(1L, "Mark", "Bensberg", new Address(1L, "New York Avenue", "125A", "Bonn", "47523", "Germany"));
+        cars = List.of(
+                Car.builder().id(1L).name("Octavia").manufacturer("Skoda").price(20000.0).type("Sedan").power(85).build(),
+                Car.builder().id(2L).name("Model S").manufacturer("Tesla").price(75000.0).type("Electric").power(100).build());
+    }
+
+    @Test
+    @DisplayName("Test fingerprint is stable for unchanged inputs")
+    public void testLetterFingerprint_Stable() {
+        Customer sameCustomer = new Customer(1L, "Mark", "Bensberg", new Address(2L, "New York Avenue", "125A", "Bonn", "47523", "Germany"));
+
+        assertEquals(LetterFingerprints.inventoryVersion(cars), LetterFingerprints.inventoryVersion(List.copyOf(cars)));
+        assertEquals(LetterFingerprints.letterFingerprint(customer, "v1"), LetterFingerprints.letterFingerprint(sameCustomer, "v1"));
+        assertEquals(64, LetterFingerprints.letterFingerprint(customer, "v1").length());
+    }
+
+    @Test
+    @DisplayName("Test fingerprint changes with the customer address")
+    public void testLetterFingerprint_AddressChanged() {
+        String before = LetterFingerprints.letterFingerprint(customer, "v1");
+        customer.getAddress().setPostalCode("53111");
+
+        assertNotEquals(before, LetterFingerprints.letterFingerprint(customer, "v1"));
+    }
+
+    @Test
+    @DisplayName("Test fingerprint changes with the inventory version")
+    public void testLetterFingerprint_InventoryChanged() {
+        String before = LetterFingerprints.letterFingerprint(customer, LetterFingerprints.inventoryVersion(cars));
+        cars.get(1).setPrice(72000.0);
+
+        assertNotEquals(before, LetterFingerprints.letterFingerprint(customer, LetterFingerprints.inventoryVersion(cars)));
+    }
+
+    @Test
+    @DisplayName("Test fields cannot be shifted between each other")
+    public void testLetterFingerprint_FieldBoundaries() {
+        Customer shifted = new Customer(1L, "MarkB", "ensberg", customer.getAddress());
+
+        assertNotEquals(LetterFingerprints.letterFingerprint(customer, "v1"), LetterFingerprints.letterFingerprint(shifted, "v1"));
+    }
+
+    @Test
+    @DisplayName("Test fingerprint of a customer without address")
+    public void testLetterFingerprint_NoAddress() {
+        Customer withoutAddress = new Customer(1L, "Mark", "Bensberg", null);
+
+        assertNotEquals(LetterFingerprints.letterFingerprint(customer, "v1"), LetterFingerprints.letterFingerprint(withoutAddress, "v1"));
+    }
+}
@@ -20,6 +20,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -147,4 +148,29 @@ class PdfReportGeneratorTest {
         ByteArrayInputStream pdfStream = generatePdf(Optional.empty(), Collections.emptyList());
         assertNotNull(pdfStream);
     }
+
+    @Test
+    @DisplayName("Verify PDF is written to the given stream and the stream is left open")
+    void testWriteCustomerPdfReport_LeavesStreamOpen() throws Exception {
+        OutputStream outputStream = mock(OutputStream.class);
+        mockedStatic.when(() -> PdfWriter.getInstance(any(Document.class), eq(outputStream)))
+                .thenReturn(mockPdfWriter);
+
+        PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), carList, outputStream);
+
+        mockedStatic.verify(() -> PdfWriter.getInstance(any(Document.class), eq(outputStream)));
+        verify(mockPdfWriter).setCloseStream(false);
+        verify(outputStream, never()).close();
+    }
+
+    @Test
+    @DisplayName("Verify exception handling when writing PDF report to a stream")
+    void testWriteCustomerPdfReport_ThrowsException() {
+        OutputStream outputStream = mock(OutputStream.class);
+        mockedStatic.when(() -> PdfWriter.getInstance(any(Document.class), eq(outputStream)))
+                .thenThrow(new DocumentException());
+
+        assertThrows(PdfGenerationException.class,
+                () -> PdfReportGenerator.writeCustomerPdfReport(Optional.of(customer), carList, outputStream));
+    }
 }
@@ -20,8 +20,13 @@ import org.slf4j.LoggerFactory;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class XmlToCarListConverterTest {
 
@@ -33,8 +38,6 @@ public class XmlToCarListConverterTest {
 
     @BeforeEach
     public void setUp() {
-        converter = new XmlToCarListConverter();
-
         mockedLogger = mock(Logger.class);
         mockedLoggerFactory = Mockito.mockStatic(LoggerFactory.class);
         mockedLoggerFactory.when(() -> LoggerFactory.getLogger(XmlToCarListConverter.class)).thenReturn(mockedLogger);
@@ -69,6 +72,7 @@ public class XmlToCarListConverterTest {
         when(unmarshaller.unmarshal(any(StringReader.class))).thenReturn(expectedCarList);
 
         mockedJaxbContext.when(() -> JAXBContext.newInstance(CarList.class)).thenReturn(jaxbContext);
+        converter = new XmlToCarListConverter();
 
         CarList carList = converter.convert(xml);
         assertNotNull(carList);
@@ -87,8 +91,97 @@ public class XmlToCarListConverterTest {
         when(unmarshaller.unmarshal(any(StringReader.class))).thenThrow(new JAXBException("Test exception"));
 
         mockedJaxbContext.when(() -> JAXBContext.newInstance(CarList.class)).thenReturn(jaxbContext);
+        converter = new XmlToCarListConverter();
 
         XmlParsingException exception = assertThrows(XmlParsingException.class, () -> converter.convert(invalidXml));
         assertEquals("Error parsing XML", exception.getMessage());
     }
+
+    @Test
+    @DisplayName("Test JAXB context is reused and every conversion gets its own unmarshaller")
+    public void testConvert_ReusesContext() throws JAXBException {
+        JAXBContext jaxbContext = mock(JAXBContext.class);
+        Unmarshaller unmarshaller = mock(Unmarshaller.class);
+        when(jaxbContext.createUnmarshaller()).thenReturn(unmarshaller);
+        when(unmarshaller.unmarshal(any(StringReader.class))).thenReturn(new CarList());
+
+        mockedJaxbContext.when(() -> JAXBContext.newInstance(CarList.class)).thenReturn(jaxbContext);
+        converter = new XmlToCarListConverter();
+
+        converter.convert("<cars/>");
+        converter.convert("<cars/>");
+        converter.convert("<cars/>");
+
+        mockedJaxbContext.verify(() -> JAXBContext.newInstance(CarList.class), times(1));
+        verify(jaxbContext, times(3)).createUnmarshaller();
+        verify(unmarshaller, times(3)).unmarshal(any(StringReader.class));
+    }
+
+    @Test
+    @DisplayName("Test JAXB context creation error")
+    public void testConstructor_ContextCreationError() {
+        mockedJaxbContext.when(() -> JAXBContext.newInstance(CarList.class)).thenThrow(new JAXBException("Test exception"));
+
+        XmlParsingException exception = assertThrows(XmlParsingException.class, XmlToCarListConverter::new);
+        assertEquals("Error creating JAXB context", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test concurrent conversions with the real JAXB context")
+    public void testConvert_Concurrent() throws Exception {
+        // Static mocks only apply to the test thread, so the converter built elsewhere uses the real JAXB context
+        converter = CompletableFuture.supplyAsync(XmlToCarListConverter::new).get();
+        String xml = new String(getClass().getResourceAsStream("/cars.xml").readAllBytes(), StandardCharsets.UTF_8);
+
+        List<CompletableFuture<CarList>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> converter.convert(xml)));
+        }
+        for (CompletableFuture<CarList> future : futures) {
+            CarList carList = future.get();
+            assertEquals(5, carList.getCars().size());
+            assertEquals("Octavia", carList.getCars().get(0).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Test streaming conversion hands cars over in chunks")
+    public void testConvertStream_Chunks() throws Exception {
+        converter = CompletableFuture.supplyAsync(XmlToCarListConverter::new).get();
+        List<List<Car>> chunks = new ArrayList<>();
+
+        long count;
+        try (InputStream inputStream = getClass().getResourceAsStream("/cars.xml")) {
+            count = converter.convert(inputStream, 2, chunks::add);
+        }
+
+        assertEquals(5, count);
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals("Octavia", chunks.get(0).get(0).getName());
+        assertEquals("Skoda", chunks.get(0).get(0).getManufacturer());
+        assertEquals(85, chunks.get(0).get(0).getPower());
+    }
+
+    @Test
+    @DisplayName("Test streaming conversion of a file without cars")
+    public void testConvertStream_NoCars() throws Exception {
+        converter = CompletableFuture.supplyAsync(XmlToCarListConverter::new).get();
+        List<List<Car>> chunks = new ArrayList<>();
+
+        long count = converter.convert(new ByteArrayInputStream("<cars></cars>".getBytes(StandardCharsets.UTF_8)), 10, chunks::add);
+
+        assertEquals(0, count);
+        assertTrue(chunks.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test streaming conversion of malformed XML")
+    public void testConvertStream_XmlParsingError() throws Exception {
+        converter = CompletableFuture.supplyAsync(XmlToCarListConverter::new).get();
+        InputStream invalidXml = new ByteArrayInputStream("<cars><car><name>Octavia</name></car>".getBytes(StandardCharsets.UTF_8));
+
+        XmlParsingException exception = assertThrows(XmlParsingException.class, () -> converter.convert(invalidXml, 10, chunk -> {
+        }));
+        assertEquals("Error parsing XML", exception.getMessage());
+    }
 }